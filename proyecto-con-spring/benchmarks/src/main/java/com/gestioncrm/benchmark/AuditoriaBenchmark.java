@@ -0,0 +1,103 @@
+package com.gestioncrm.benchmark;
+
+import com.gestioncrm.auditoria.DiarioAuditoria;
+import com.gestioncrm.auditoria.EventoAuditoria;
+import com.gestioncrm.model.Persona;
+import com.gestioncrm.service.PersonaService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Costo del diario de auditoría en las escrituras de PersonaService, con y sin auditoría,
+ * y el ritmo al que se pueden encolar eventos desde varios hilos
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class AuditoriaBenchmark {
+
+    private static final int PERSONAS_ACTUALIZADAS = 1_000;
+
+    @Param({"10000"})
+    public int personas;
+
+    @Param({"false", "true"})
+    public boolean auditoria;
+
+    private ConfigurableApplicationContext contexto;
+    private PersonaService personaService;
+    private DiarioAuditoria diario;
+    private List<Persona> actualizables;
+
+    private final AtomicLong invocacion = new AtomicLong();
+    /** Cédulas de guardar(): fuera del rango sembrado y sin repetirse entre invocaciones */
+    private final AtomicLong siguienteCedula = new AtomicLong(20_000_000_000L);
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar(personas, 0.1, "--gestioncrm.auditoria.habilitado=" + auditoria);
+        personaService = contexto.getBean(PersonaService.class);
+        diario = contexto.getBeanProvider(DiarioAuditoria.class).getIfAvailable();
+        List<Long> ids = LongStream.rangeClosed(1, PERSONAS_ACTUALIZADAS).boxed().collect(Collectors.toList());
+        actualizables = new ArrayList<>(personaService.obtenerPorIds(ids).getPersonas());
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        if (diario != null) {
+            System.out.println("Eventos de auditoría descartados: " + diario.getDescartados());
+        }
+        contexto.close();
+    }
+
+    /**
+     * Cambia el teléfono de una persona existente (un campo distinto en cada invocación)
+     */
+    @Benchmark
+    public Persona actualizar() {
+        long n = invocacion.getAndIncrement();
+        Persona actual = actualizables.get((int) (n % actualizables.size()));
+        Persona cambios = new Persona(actual.getNombre(), actual.getApellido(), actual.getCedula(),
+                String.valueOf(3_000_000_000L + n), actual.getEmail(), actual.getEdad(), actual.getSexo(), actual.getRol());
+        return personaService.actualizar(actual.getId(), cambios);
+    }
+
+    /**
+     * Inserta una persona nueva por invocación (la tabla crece durante la medición)
+     */
+    @Benchmark
+    public Persona guardar() {
+        Persona persona = new Persona("Benchmark", "Guardar", String.valueOf(siguienteCedula.getAndIncrement()),
+                "3001234567", "benchmark@correo.com", 40, Persona.Sexo.F, "Cliente");
+        return personaService.guardar(persona);
+    }
+
+    /**
+     * Encolar un evento directamente en el diario desde 4 hilos (sin base de datos);
+     * sin auditoría no hay diario y solo se mide el benchmark vacío
+     */
+    @Benchmark
+    @Threads(4)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean registrar() {
+        if (diario == null) {
+            return false;
+        }
+        long n = invocacion.getAndIncrement();
+        return diario.registrar(new EventoAuditoria(System.currentTimeMillis(), EventoAuditoria.Entidad.PERSONA,
+                n, EventoAuditoria.Operacion.ACTUALIZADA, "benchmark", "127.0.0.1",
+                Arrays.asList(new EventoAuditoria.Cambio("telefono", "3001234567", String.valueOf(n)),
+                        new EventoAuditoria.Cambio("rol", "Cliente", "Socio"))));
+    }
+}
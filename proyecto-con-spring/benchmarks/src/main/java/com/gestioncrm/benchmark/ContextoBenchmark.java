@@ -0,0 +1,81 @@
+package com.gestioncrm.benchmark;
+
+import com.gestioncrm.GestionCrmApplication;
+import com.gestioncrm.analitica.InstantaneaPersonas;
+import com.gestioncrm.generador.GeneradorPersonas;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Arranque del contexto de Spring para los benchmarks
+ * Levanta la aplicación sin servidor web sobre una base H2 en memoria propia
+ * y la siembra con el generador de datos sintéticos (semilla fija)
+ */
+public final class ContextoBenchmark {
+
+    /** Semilla fija para que todas las ejecuciones midan los mismos datos */
+    public static final long SEMILLA = 20240601L;
+
+    private ContextoBenchmark() {
+    }
+
+    /**
+     * Iniciar la aplicación sobre una base de datos nueva y sembrarla
+     *
+     * @param personas cantidad de personas a insertar
+     * @param fraccionUsuarios fracción de personas con usuario asociado (0 a 1)
+     * @param propiedades propiedades adicionales de la aplicación (--clave=valor)
+     */
+    public static ConfigurableApplicationContext iniciar(int personas, double fraccionUsuarios, String... propiedades) {
+        List<String> argumentos = new ArrayList<>(Arrays.asList(
+                "--spring.datasource.url=jdbc:h2:mem:benchmark-" + personas + "-" + System.nanoTime()
+                        // Sin reutilizar el resultado de la consulta anterior: H2 devuelve el mismo
+                        // resultado si la tabla no cambió, y se mediría esa caché y no la consulta
+                        + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;OPTIMIZE_REUSE_RESULTS=FALSE",
+                "--spring.main.banner-mode=off",
+                // El diario de auditoría de cada ejecución, fuera del árbol del proyecto
+                "--gestioncrm.auditoria.directorio=" + System.getProperty("java.io.tmpdir")
+                        + "/gestioncrm-auditoria-" + System.nanoTime(),
+                "--spring.h2.console.enabled=false",
+                "--spring.jpa.open-in-view=false",
+                "--logging.level.root=WARN",
+                "--logging.level.com.gestioncrm=WARN"));
+        argumentos.addAll(Arrays.asList(propiedades));
+
+        ConfigurableApplicationContext contexto = new SpringApplicationBuilder(GestionCrmApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                // Como argumentos para que prevalezcan sobre application.properties
+                .run(argumentos.toArray(new String[0]));
+
+        sembrar(contexto.getBean(DataSource.class), personas, fraccionUsuarios);
+        // La instantánea analítica se cargó al arrancar, con la tabla vacía
+        contexto.getBeanProvider(InstantaneaPersonas.class).ifAvailable(InstantaneaPersonas::reconstruir);
+        return contexto;
+    }
+
+    /**
+     * Sembrar con el generador de datos sintéticos de la aplicación
+     */
+    private static void sembrar(DataSource dataSource, int personas, double fraccionUsuarios) {
+        GeneradorPersonas.Opciones opciones = new GeneradorPersonas.Opciones();
+        opciones.setPersonas(personas);
+        opciones.setFraccionUsuarios(fraccionUsuarios);
+        opciones.setSemilla(SEMILLA);
+        try {
+            new GeneradorPersonas(dataSource).generar(opciones);
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se pudo sembrar la base de datos del benchmark", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Siembra interrumpida", e);
+        }
+    }
+}
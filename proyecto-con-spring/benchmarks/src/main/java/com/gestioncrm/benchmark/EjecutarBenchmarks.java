@@ -0,0 +1,43 @@
+package com.gestioncrm.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Punto de entrada del JAR de benchmarks
+ * Acepta las mismas opciones que org.openjdk.jmh.Main, pero si no se indica
+ * formato de resultados escribe JSON en resultados/jmh-{etiqueta}.json,
+ * donde la etiqueta es la propiedad "benchmark.etiqueta" (por ejemplo el hash del commit)
+ */
+public final class EjecutarBenchmarks {
+
+    private EjecutarBenchmarks() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        CommandLineOptions opciones = new CommandLineOptions(args);
+        if (opciones.shouldHelp() || opciones.shouldList() || opciones.shouldListWithParams()
+                || opciones.shouldListProfilers() || opciones.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(opciones);
+        if (!opciones.getResultFormat().hasValue()) {
+            String etiqueta = System.getProperty("benchmark.etiqueta", "local");
+            File destino = new File("resultados", "jmh-" + etiqueta + ".json");
+            destino.getParentFile().mkdirs();
+            builder.resultFormat(ResultFormatType.JSON).result(destino.getPath());
+        }
+
+        new Runner(builder.build()).run();
+    }
+}
@@ -0,0 +1,63 @@
+package com.gestioncrm.benchmark;
+
+import com.gestioncrm.model.Persona;
+import com.gestioncrm.service.PersonaService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conteos por faceta de la búsqueda combinada (una consulta agregada por llamada)
+ * Sin la instantánea analítica, para medir la consulta; con ella, ver InstantaneaBenchmark
+ * Presupuesto: menos de 1 s sobre 1.000.000 de personas sin filtro selectivo
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class FacetasBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int personas;
+
+    private ConfigurableApplicationContext contexto;
+    private PersonaService personaService;
+
+    private final PersonaService.CriteriosBusqueda sinFiltro = new PersonaService.CriteriosBusqueda();
+    private final PersonaService.CriteriosBusqueda porRolYEdad = new PersonaService.CriteriosBusqueda();
+    private final PersonaService.CriteriosBusqueda porTermino = new PersonaService.CriteriosBusqueda();
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar(personas, 0.1, "--gestioncrm.analitica.habilitado=false");
+        personaService = contexto.getBean(PersonaService.class);
+        porRolYEdad.setRol("Cliente");
+        porRolYEdad.setSexo(Persona.Sexo.F);
+        porRolYEdad.setEdadMin(30);
+        porRolYEdad.setEdadMax(40);
+        porTermino.setTermino("gonz");
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public PersonaService.Facetas sinFiltro() {
+        return personaService.contarFacetas(sinFiltro);
+    }
+
+    @Benchmark
+    public PersonaService.Facetas porRolYEdad() {
+        return personaService.contarFacetas(porRolYEdad);
+    }
+
+    @Benchmark
+    public PersonaService.Facetas porTermino() {
+        return personaService.contarFacetas(porTermino);
+    }
+}
@@ -0,0 +1,73 @@
+package com.gestioncrm.benchmark;
+
+import com.gestioncrm.ingesta.BufferIngesta;
+import com.gestioncrm.model.Persona;
+import com.gestioncrm.service.PersonaService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Altas concurrentes: una transacción por persona (PersonaService.guardar)
+ * frente al búfer de ingesta con commit agrupado
+ * Ambos caminos esperan a que la fila sea durable antes de devolver
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx2g"})
+@Threads(16)
+@State(Scope.Benchmark)
+public class IngestaBenchmark {
+
+    @Param({"100000"})
+    public int personas;
+
+    private ConfigurableApplicationContext contexto;
+    private PersonaService personaService;
+    private BufferIngesta bufferIngesta;
+
+    /** Cédulas fuera del rango sembrado y sin repetirse entre invocaciones */
+    private final AtomicLong siguienteCedula = new AtomicLong(30_000_000_000L);
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar(personas, 0.0, "--gestioncrm.ingesta.habilitado=true");
+        personaService = contexto.getBean(PersonaService.class);
+        bufferIngesta = contexto.getBean(BufferIngesta.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Persona guardarPorPeticion() {
+        return personaService.guardar(nuevaPersona());
+    }
+
+    /**
+     * Encola y espera la confirmación del lote; si el búfer está lleno reintenta
+     */
+    @Benchmark
+    public BufferIngesta.Ticket ingestaConConfirmacion() {
+        Persona persona = nuevaPersona();
+        while (true) {
+            Optional<BufferIngesta.Ticket> ticket = bufferIngesta.enviar(persona);
+            if (ticket.isPresent()) {
+                return ticket.get().getConfirmacion().join();
+            }
+            Thread.yield();
+        }
+    }
+
+    private Persona nuevaPersona() {
+        return new Persona("Benchmark", "Ingesta", String.valueOf(siguienteCedula.getAndIncrement()),
+                "3001234567", "ingesta@correo.com", 35, Persona.Sexo.M, "Cliente");
+    }
+}
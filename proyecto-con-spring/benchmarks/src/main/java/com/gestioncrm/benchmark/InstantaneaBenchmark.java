@@ -0,0 +1,68 @@
+package com.gestioncrm.benchmark;
+
+import com.gestioncrm.analitica.InstantaneaPersonas;
+import com.gestioncrm.model.Persona;
+import com.gestioncrm.service.PersonaService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estadísticas, distribución y facetas servidas desde la instantánea analítica en memoria
+ * Presupuesto: milisegundos sobre 1.000.000 de personas
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class InstantaneaBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int personas;
+
+    private ConfigurableApplicationContext contexto;
+    private PersonaService personaService;
+
+    private final PersonaService.CriteriosBusqueda sinFiltro = new PersonaService.CriteriosBusqueda();
+    private final PersonaService.CriteriosBusqueda porRolYEdad = new PersonaService.CriteriosBusqueda();
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar(personas, 0.1);
+        personaService = contexto.getBean(PersonaService.class);
+        porRolYEdad.setRol("Cliente");
+        porRolYEdad.setSexo(Persona.Sexo.F);
+        porRolYEdad.setEdadMin(30);
+        porRolYEdad.setEdadMax(40);
+        System.out.printf("%nInstantánea analítica: %d personas, ~%d KB%n", personas,
+                contexto.getBean(InstantaneaPersonas.class).getBytesEstimados() / 1024);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public PersonaService.EstadisticasPersonas estadisticas() {
+        return personaService.obtenerEstadisticas();
+    }
+
+    @Benchmark
+    public PersonaService.Distribucion distribucion() {
+        return personaService.obtenerDistribucion(10);
+    }
+
+    @Benchmark
+    public PersonaService.Facetas facetasSinFiltro() {
+        return personaService.contarFacetas(sinFiltro);
+    }
+
+    @Benchmark
+    public PersonaService.Facetas facetasPorRolYEdad() {
+        return personaService.contarFacetas(porRolYEdad);
+    }
+}
@@ -0,0 +1,74 @@
+package com.gestioncrm.benchmark;
+
+import com.gestioncrm.model.Persona;
+import com.gestioncrm.service.PersonaService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmarks de los caminos críticos de PersonaService
+ * Cada tamaño de @Param levanta su propia base de datos sembrada
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class PersonaServiceBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int personas;
+
+    private ConfigurableApplicationContext contexto;
+    private PersonaService personaService;
+
+    /** Cédulas de guardar(): fuera del rango sembrado y sin repetirse entre invocaciones */
+    private final AtomicLong siguienteCedula = new AtomicLong(20_000_000_000L);
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar(personas, 0.1);
+        personaService = contexto.getBean(PersonaService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public List<Persona> buscarPorTermino() {
+        return personaService.buscarPorTermino("gonz");
+    }
+
+    @Benchmark
+    public PersonaService.EstadisticasPersonas obtenerEstadisticas() {
+        return personaService.obtenerEstadisticas();
+    }
+
+    /**
+     * Recorre toda la tabla; los datos sembrados no tienen duplicados,
+     * así que mide el costo de detección sin borrar filas
+     */
+    @Benchmark
+    @Measurement(iterations = 3, time = 5)
+    public void limpiarDuplicados() {
+        personaService.limpiarDuplicados();
+    }
+
+    /**
+     * Inserta una persona nueva por invocación (la tabla crece durante la medición)
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Persona guardar() {
+        Persona persona = new Persona("Benchmark", "Guardar", String.valueOf(siguienteCedula.getAndIncrement()),
+                "3001234567", "benchmark@correo.com", 40, Persona.Sexo.F, "Cliente");
+        return personaService.guardar(persona);
+    }
+}
@@ -0,0 +1,57 @@
+package com.gestioncrm.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gestioncrm.service.PersonaService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /personas/api completo frente a GET /personas/api?fields=id,nombre,cedula:
+ * consulta más serialización JSON (la asignación de memoria se ve con -prof gc)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class ProyeccionBenchmark {
+
+    @Param({"10000", "100000"})
+    public int personas;
+
+    private final List<String> campos = Arrays.asList("id", "nombre", "cedula");
+
+    private ConfigurableApplicationContext contexto;
+    private PersonaService personaService;
+    private ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void iniciar() throws JsonProcessingException {
+        contexto = ContextoBenchmark.iniciar(personas, 0);
+        personaService = contexto.getBean(PersonaService.class);
+        objectMapper = contexto.getBean(ObjectMapper.class);
+        System.out.printf("%nRespuesta de %d personas: completa %d KB, con fields=%s %d KB%n", personas,
+                entidades().length / 1024, String.join(",", campos), proyectadas().length / 1024);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public byte[] entidades() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(personaService.obtenerTodas());
+    }
+
+    @Benchmark
+    public byte[] proyectadas() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(personaService.obtenerTodas(campos));
+    }
+}
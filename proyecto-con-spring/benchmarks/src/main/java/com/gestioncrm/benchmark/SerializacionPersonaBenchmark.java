@@ -0,0 +1,59 @@
+package com.gestioncrm.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gestioncrm.model.Persona;
+import com.gestioncrm.service.PersonaService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark de la serialización JSON de Persona con el ObjectMapper de la aplicación
+ * (el mismo que usan los endpoints /personas/api)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class SerializacionPersonaBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int personas;
+
+    private ConfigurableApplicationContext contexto;
+    private ObjectMapper objectMapper;
+    private List<Persona> listado;
+    private Persona persona;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar(personas, 0);
+        objectMapper = contexto.getBean(ObjectMapper.class);
+        listado = contexto.getBean(PersonaService.class).obtenerTodas();
+        persona = listado.get(listado.size() / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public byte[] serializarPersona() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(persona);
+    }
+
+    /**
+     * Respuesta completa de GET /personas/api
+     */
+    @Benchmark
+    public byte[] serializarListado() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(listado);
+    }
+}
@@ -0,0 +1,53 @@
+package com.gestioncrm.benchmark;
+
+import com.gestioncrm.controller.UsuarioController;
+import com.gestioncrm.service.UsuarioService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Benchmark del listado de usuarios tal como lo arma UsuarioController:
+ * consulta de usuarios y mapeo a UsuarioResponse (que inicializa la persona perezosa)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class UsuarioListadoBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int personas;
+
+    private ConfigurableApplicationContext contexto;
+    private UsuarioService usuarioService;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = ContextoBenchmark.iniciar(personas, 0.1);
+        usuarioService = contexto.getBean(UsuarioService.class);
+        // El controlador mapea con open-in-view; aquí la sesión la mantiene una transacción
+        transactionTemplate = new TransactionTemplate(contexto.getBean(PlatformTransactionManager.class));
+        transactionTemplate.setReadOnly(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public List<UsuarioController.UsuarioResponse> listarUsuarios() {
+        return transactionTemplate.execute(status -> usuarioService.obtenerTodosLosUsuarios().stream()
+                .map(UsuarioController.UsuarioResponse::new)
+                .collect(Collectors.toList()));
+    }
+}
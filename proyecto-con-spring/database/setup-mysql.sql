@@ -13,5 +13,6 @@ SHOW DATABASES;
 -- Verificar que estamos usando la base de datos correcta
 SELECT DATABASE();
 
--- Nota: Las tablas se crearán automáticamente cuando ejecutes la aplicación Spring Boot
--- debido a la configuración: spring.jpa.hibernate.ddl-auto=create-drop
+-- Nota: Las tablas e índices los crean las migraciones de Flyway (src/main/resources/db/migration)
+-- al arrancar la aplicación; Hibernate solo valida el esquema (spring.jpa.hibernate.ddl-auto=validate).
+-- En MySQL no se incluyen los datos de demostración: usar spring.flyway.locations=classpath:db/migration
@@ -0,0 +1,103 @@
+package com.gestioncrm.carga;
+
+import com.gestioncrm.fragmentos.PersonasFragmentadas;
+import com.gestioncrm.model.Persona;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Siembra de personas para la prueba de carga
+ * La persona i-ésima recibe la cédula cedula(i), de modo que el generador
+ * puede actualizarla sin consultar antes su cédula
+ */
+final class CargaDatos {
+
+    private static final int TAMANO_LOTE = 5_000;
+
+    private static final String[] NOMBRES = {
+            "Juan", "María", "Carlos", "Ana", "Pedro", "Lucía", "José", "Sofía", "Andrés", "Valentina"
+    };
+
+    private static final String[] APELLIDOS = {
+            "Pérez", "González", "Rodríguez", "López", "Martínez", "Gómez", "Díaz", "Hernández"
+    };
+
+    private static final String[] ROLES = {"Cliente", "Proveedor", "Empleado", "Socio"};
+
+    private CargaDatos() {
+    }
+
+    /**
+     * Insertar las personas y devolver sus IDs ordenados por índice de cédula
+     */
+    static List<Long> sembrar(JdbcTemplate jdbcTemplate, int personas, long semilla) {
+        SplittableRandom random = new SplittableRandom(semilla);
+        List<Object[]> lote = new ArrayList<>(TAMANO_LOTE);
+
+        for (int i = 0; i < personas; i++) {
+            lote.add(fila(random, i));
+            if (lote.size() == TAMANO_LOTE || i == personas - 1) {
+                jdbcTemplate.batchUpdate(
+                        "INSERT INTO persona (nombre, apellido, cedula, email, telefono, sexo, edad, rol, "
+                                + "email_normalizado, telefono_normalizado) "
+                                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", lote);
+                lote.clear();
+            }
+        }
+
+        return jdbcTemplate.queryForList(
+                "SELECT id_persona FROM persona WHERE LENGTH(cedula) = 11 ORDER BY cedula", Long.class);
+    }
+
+    /**
+     * Las mismas personas repartidas entre los fragmentos (perfil fragmentos)
+     */
+    static List<Long> sembrar(PersonasFragmentadas fragmentadas, int personas, long semilla) {
+        SplittableRandom random = new SplittableRandom(semilla);
+        List<Persona> lote = new ArrayList<>(TAMANO_LOTE);
+
+        for (int i = 0; i < personas; i++) {
+            Object[] fila = fila(random, i);
+            Persona persona = new Persona((String) fila[0], (String) fila[1], (String) fila[2], (String) fila[4],
+                    (String) fila[3], (Integer) fila[6], Persona.Sexo.valueOf((String) fila[5]), (String) fila[7]);
+            lote.add(persona);
+            if (lote.size() == TAMANO_LOTE || i == personas - 1) {
+                fragmentadas.insertarLote(lote);
+                lote.clear();
+            }
+        }
+
+        List<Long> ids = new ArrayList<>(personas);
+        for (Persona persona : fragmentadas.listar(null, Sort.by("cedula"))) {
+            if (persona.getCedula().length() == 11) {
+                ids.add(persona.getId());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Columnas de la persona i-ésima: nombre, apellido, cédula, email, teléfono, sexo, edad, rol,
+     * email normalizado y teléfono normalizado
+     */
+    private static Object[] fila(SplittableRandom random, int i) {
+        String nombre = NOMBRES[random.nextInt(NOMBRES.length)];
+        String apellido = APELLIDOS[random.nextInt(APELLIDOS.length)];
+        String email = nombre.toLowerCase() + "." + i + "@correo.com";
+        String telefono = "3" + (100000000L + random.nextInt(900000000));
+        return new Object[]{nombre, apellido, cedula(i), email, telefono, random.nextBoolean() ? "M" : "F",
+                18 + random.nextInt(70), ROLES[random.nextInt(ROLES.length)],
+                Persona.normalizarEmail(email), Persona.normalizarTelefono(telefono)};
+    }
+
+    /**
+     * Cédula de 11 dígitos de la persona sembrada con el índice dado
+     */
+    static String cedula(int indice) {
+        return String.valueOf(10_000_000_000L + indice);
+    }
+}
@@ -0,0 +1,112 @@
+package com.gestioncrm.carga;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.gestioncrm.GestionCrmApplication;
+import com.gestioncrm.fragmentos.PersonasFragmentadas;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prueba de carga HTTP de extremo a extremo
+ * Arranca la aplicación en un puerto aleatorio contra una H2 en memoria, la siembra,
+ * ejecuta el escenario YAML indicado y reporta rendimiento y percentiles por endpoint.
+ *
+ * Uso: java -jar gestioncrm-loadtest-1.0.0.jar [escenario.yml] [propiedades de Spring...]
+ */
+public final class EjecutarPruebaCarga {
+
+    private static final String ESCENARIO_POR_DEFECTO = "escenarios/mixto.yml";
+
+    private EjecutarPruebaCarga() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String ubicacion = args.length > 0 && !args[0].startsWith("--") ? args[0] : ESCENARIO_POR_DEFECTO;
+        Escenario escenario = Escenario.cargar(ubicacion);
+
+        ConfigurableApplicationContext contexto = new SpringApplicationBuilder(GestionCrmApplication.class)
+                .logStartupInfo(false)
+                .run(argumentos(args));
+
+        try {
+            int puerto = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+            String contextPath = contexto.getEnvironment().getProperty("server.servlet.context-path", "");
+            // Con el perfil fragmentos las personas se siembran repartidas
+            PersonasFragmentadas fragmentadas = contexto.getBeanProvider(PersonasFragmentadas.class).getIfAvailable();
+            List<Long> ids = fragmentadas != null
+                    ? CargaDatos.sembrar(fragmentadas, escenario.getPersonasIniciales(), escenario.getSemilla())
+                    : CargaDatos.sembrar(contexto.getBean(JdbcTemplate.class),
+                    escenario.getPersonasIniciales(), escenario.getSemilla());
+
+            System.out.printf("Escenario '%s': %d pet/s durante %d s (calentamiento %d s), %d personas, semilla %d%n",
+                    escenario.getNombre(), escenario.getTasaPorSegundo(), escenario.getDuracionSegundos(),
+                    escenario.getCalentamientoSegundos(), ids.size(), escenario.getSemilla());
+
+            GeneradorCarga generador = new GeneradorCarga(escenario, "http://localhost:" + puerto + contextPath, ids);
+            Map<String, Object> resumen = generador.ejecutar();
+
+            System.out.println();
+            System.out.print(ResultadosCarga.formatear(resumen));
+            guardar(escenario, resumen);
+        } finally {
+            contexto.close();
+        }
+    }
+
+    /**
+     * Propiedades de la prueba como argumentos de línea de comandos, para que prevalezcan
+     * sobre application.properties; las opciones "--" del usuario van al final y ganan
+     */
+    private static String[] argumentos(String[] args) {
+        List<String> argumentos = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:carga-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "--spring.main.banner-mode=off",
+                // El diario de auditoría de cada ejecución, fuera del árbol del proyecto
+                "--gestioncrm.auditoria.directorio=" + System.getProperty("java.io.tmpdir")
+                        + "/gestioncrm-auditoria-" + System.nanoTime(),
+                "--spring.h2.console.enabled=false",
+                "--spring.thymeleaf.cache=true",
+                "--logging.level.root=WARN",
+                "--logging.level.com.gestioncrm=WARN"));
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                // Una propiedad repetida se uniría con comas: la del usuario reemplaza a la de la prueba
+                String clave = arg.contains("=") ? arg.substring(0, arg.indexOf('=') + 1) : arg;
+                argumentos.removeIf(existente -> existente.startsWith(clave));
+                argumentos.add(arg);
+            }
+        }
+        return argumentos.toArray(new String[0]);
+    }
+
+    /**
+     * Escribir el resultado en resultados/carga-{escenario}-{fecha}.json
+     */
+    private static void guardar(Escenario escenario, Map<String, Object> resumen) throws Exception {
+        Map<String, Object> documento = new LinkedHashMap<>();
+        documento.put("escenario", escenario.getNombre());
+        documento.put("semilla", escenario.getSemilla());
+        documento.put("tasaPorSegundo", escenario.getTasaPorSegundo());
+        documento.put("duracionSegundos", escenario.getDuracionSegundos());
+        documento.put("personasIniciales", escenario.getPersonasIniciales());
+        documento.put("endpoints", resumen);
+
+        String fecha = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        File destino = new File("resultados", "carga-" + escenario.getNombre() + "-" + fecha + ".json");
+        destino.getParentFile().mkdirs();
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(destino, documento);
+        System.out.println("Resultado guardado en " + destino.getPath());
+    }
+}
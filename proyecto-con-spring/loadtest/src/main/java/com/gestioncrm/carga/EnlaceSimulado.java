@@ -0,0 +1,155 @@
+package com.gestioncrm.carga;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Proxy TCP local que simula el enlace de un navegador: cada trozo llega con la mitad del
+ * RTT de retraso en cada sentido, y lo que baja del servidor comparte un ancho de banda
+ * (todas las conexiones a la vez, como la línea de un usuario). No simula el arranque
+ * lento de TCP ni pérdidas.
+ */
+final class EnlaceSimulado implements Closeable {
+
+    private static final int TROZO = 16 * 1024;
+    private static final Trozo FIN = new Trozo(new byte[0], 0, 0);
+
+    private final ServerSocket servidor;
+    private final int puertoDestino;
+    private final long retrasoNanos;
+    private final double nanosPorByte;
+    private long bajadaLibreDesde;
+
+    EnlaceSimulado(int puertoDestino, Duration rtt, long bytesPorSegundo) throws IOException {
+        this.servidor = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        this.puertoDestino = puertoDestino;
+        this.retrasoNanos = rtt.toNanos() / 2;
+        this.nanosPorByte = 1_000_000_000.0 / bytesPorSegundo;
+        Thread aceptar = new Thread(this::aceptar, "enlace-" + servidor.getLocalPort());
+        aceptar.setDaemon(true);
+        aceptar.start();
+    }
+
+    int getPuerto() {
+        return servidor.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        servidor.close();
+    }
+
+    private void aceptar() {
+        while (!servidor.isClosed()) {
+            try {
+                Socket cliente = servidor.accept();
+                cliente.setTcpNoDelay(true);
+                Socket destino = new Socket(InetAddress.getLoopbackAddress(), puertoDestino);
+                destino.setTcpNoDelay(true);
+                // Los dos sockets se cierran cuando terminan los dos sentidos
+                AtomicInteger abiertos = new AtomicInteger(2);
+                sentido(cliente, destino, false, abiertos);
+                sentido(destino, cliente, true, abiertos);
+            } catch (IOException e) {
+                // Enlace cerrado
+            }
+        }
+    }
+
+    /**
+     * Un hilo lee y marca la llegada de cada trozo; otro lo entrega al cumplirse el retraso
+     * (y, de bajada, cuando termina de "transmitirse" por la línea compartida)
+     */
+    private void sentido(Socket origen, Socket destino, boolean bajada, AtomicInteger abiertos) {
+        BlockingQueue<Trozo> cola = new LinkedBlockingQueue<>();
+        Thread lector = new Thread(() -> {
+            byte[] buffer = new byte[TROZO];
+            // Sin cerrar el flujo: cerraría el socket, que aún puede llevar el otro sentido
+            try {
+                InputStream entrada = origen.getInputStream();
+                int leidos;
+                while ((leidos = entrada.read(buffer)) > 0) {
+                    cola.add(new Trozo(Arrays.copyOf(buffer, leidos), leidos, System.nanoTime()));
+                }
+            } catch (IOException e) {
+                // Conexión cerrada por el otro extremo
+            }
+            cola.add(FIN);
+        }, "enlace-lector");
+        Thread escritor = new Thread(() -> {
+            try {
+                OutputStream salida = destino.getOutputStream();
+                Trozo trozo;
+                while ((trozo = cola.take()) != FIN) {
+                    long entrega = trozo.llegada + retrasoNanos;
+                    if (bajada) {
+                        entrega = reservarBajada(entrega, trozo.longitud);
+                    }
+                    esperarHasta(entrega);
+                    salida.write(trozo.datos, 0, trozo.longitud);
+                    salida.flush();
+                }
+                destino.shutdownOutput();
+                if (abiertos.decrementAndGet() > 0) {
+                    return;
+                }
+            } catch (IOException | InterruptedException e) {
+                // Se cierran los dos
+            }
+            cerrar(origen);
+            cerrar(destino);
+        }, "enlace-escritor");
+        lector.setDaemon(true);
+        escritor.setDaemon(true);
+        lector.start();
+        escritor.start();
+    }
+
+    /**
+     * Instante en que termina de bajar un trozo que puede empezar en desde, detrás de los
+     * que ya ocupan la línea
+     */
+    private synchronized long reservarBajada(long desde, int bytes) {
+        long inicio = Math.max(desde, bajadaLibreDesde);
+        bajadaLibreDesde = inicio + (long) (bytes * nanosPorByte);
+        return bajadaLibreDesde;
+    }
+
+    private static void esperarHasta(long instante) {
+        long restante;
+        while ((restante = instante - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(restante);
+        }
+    }
+
+    private static void cerrar(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Ya cerrado
+        }
+    }
+
+    private static final class Trozo {
+        private final byte[] datos;
+        private final int longitud;
+        private final long llegada;
+
+        Trozo(byte[] datos, int longitud, long llegada) {
+            this.datos = datos;
+            this.longitud = longitud;
+            this.llegada = llegada;
+        }
+    }
+}
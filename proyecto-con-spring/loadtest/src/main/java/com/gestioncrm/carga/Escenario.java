@@ -0,0 +1,93 @@
+package com.gestioncrm.carga;
+
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.Constructor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Escenario de carga definido en YAML
+ * Ver src/main/resources/escenarios/ para ejemplos
+ */
+public class Escenario {
+
+    private String nombre = "escenario";
+    private long semilla = 42L;
+    private int tasaPorSegundo = 100;
+    private int duracionSegundos = 60;
+    private int calentamientoSegundos = 10;
+    private int personasIniciales = 10_000;
+    private int conexiones = 32;
+    private Map<String, Integer> operaciones = new LinkedHashMap<>();
+    private List<String> terminos = new ArrayList<>();
+
+    /**
+     * Cargar un escenario desde un archivo o, si no existe, desde el classpath
+     */
+    public static Escenario cargar(String ubicacion) throws IOException {
+        Yaml yaml = new Yaml(new Constructor(Escenario.class));
+        Path archivo = Path.of(ubicacion);
+        if (Files.exists(archivo)) {
+            try (InputStream in = Files.newInputStream(archivo)) {
+                return yaml.load(in);
+            }
+        }
+        try (InputStream in = Escenario.class.getClassLoader().getResourceAsStream(ubicacion)) {
+            if (in == null) {
+                throw new IOException("Escenario no encontrado: " + ubicacion);
+            }
+            return yaml.load(in);
+        }
+    }
+
+    /**
+     * Pesos de cada operación; las que no aparecen en el YAML pesan 0
+     */
+    public EnumMap<Operacion, Integer> pesos() {
+        EnumMap<Operacion, Integer> pesos = new EnumMap<>(Operacion.class);
+        for (Map.Entry<String, Integer> entrada : operaciones.entrySet()) {
+            pesos.put(Operacion.valueOf(entrada.getKey().toUpperCase(Locale.ROOT)), entrada.getValue());
+        }
+        if (pesos.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("El escenario debe definir al menos una operación con peso positivo");
+        }
+        return pesos;
+    }
+
+    // Getters y Setters
+    public String getNombre() { return nombre; }
+    public void setNombre(String nombre) { this.nombre = nombre; }
+
+    public long getSemilla() { return semilla; }
+    public void setSemilla(long semilla) { this.semilla = semilla; }
+
+    public int getTasaPorSegundo() { return tasaPorSegundo; }
+    public void setTasaPorSegundo(int tasaPorSegundo) { this.tasaPorSegundo = tasaPorSegundo; }
+
+    public int getDuracionSegundos() { return duracionSegundos; }
+    public void setDuracionSegundos(int duracionSegundos) { this.duracionSegundos = duracionSegundos; }
+
+    public int getCalentamientoSegundos() { return calentamientoSegundos; }
+    public void setCalentamientoSegundos(int calentamientoSegundos) { this.calentamientoSegundos = calentamientoSegundos; }
+
+    public int getPersonasIniciales() { return personasIniciales; }
+    public void setPersonasIniciales(int personasIniciales) { this.personasIniciales = personasIniciales; }
+
+    public int getConexiones() { return conexiones; }
+    public void setConexiones(int conexiones) { this.conexiones = conexiones; }
+
+    public Map<String, Integer> getOperaciones() { return operaciones; }
+    public void setOperaciones(Map<String, Integer> operaciones) { this.operaciones = operaciones; }
+
+    public List<String> getTerminos() { return terminos; }
+    public void setTerminos(List<String> terminos) { this.terminos = terminos; }
+}
@@ -0,0 +1,231 @@
+package com.gestioncrm.carga;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generador de carga de modelo abierto (tasa de llegada constante)
+ * Un único hilo programa las peticiones a intervalos fijos sin esperar las respuestas,
+ * de modo que un servidor lento acumula cola en lugar de frenar al generador.
+ * La secuencia de operaciones y sus datos depende solo de la semilla del escenario
+ */
+public class GeneradorCarga {
+
+    private static final Duration TIMEOUT_PETICION = Duration.ofSeconds(30);
+    private static final String[] ROLES = {"Cliente", "Proveedor", "Empleado", "Socio"};
+
+    private final Escenario escenario;
+    private final String urlBase;
+    private final List<Long> idsSembrados;
+    private final HttpClient cliente;
+    private final ExecutorService ejecutor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Operacion[] operaciones;
+    private final int[] pesosAcumulados;
+    private final ConcurrentLinkedQueue<Long> idsCreados = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger enVuelo = new AtomicInteger();
+    private long secuenciaCedula;
+
+    public GeneradorCarga(Escenario escenario, String urlBase, List<Long> idsSembrados) {
+        this.escenario = escenario;
+        this.urlBase = urlBase;
+        this.idsSembrados = idsSembrados;
+        this.ejecutor = Executors.newFixedThreadPool(escenario.getConexiones());
+        this.cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(ejecutor)
+                .build();
+
+        EnumMap<Operacion, Integer> pesos = escenario.pesos();
+        this.operaciones = pesos.keySet().toArray(new Operacion[0]);
+        this.pesosAcumulados = new int[operaciones.length];
+        int acumulado = 0;
+        for (int i = 0; i < operaciones.length; i++) {
+            acumulado += pesos.get(operaciones[i]);
+            pesosAcumulados[i] = acumulado;
+        }
+    }
+
+    /**
+     * Ejecutar el escenario: calentamiento (descartado) y medición
+     *
+     * @return resumen por endpoint de la fase de medición
+     */
+    public Map<String, Object> ejecutar() throws InterruptedException {
+        return ejecutar(new ResultadosCarga());
+    }
+
+    /**
+     * Ejecutar el escenario registrando en los resultados dados (p. ej. con línea de tiempo)
+     */
+    public Map<String, Object> ejecutar(ResultadosCarga resultados) throws InterruptedException {
+        SplittableRandom random = new SplittableRandom(escenario.getSemilla());
+
+        if (escenario.getCalentamientoSegundos() > 0) {
+            generar(random, resultados, escenario.getCalentamientoSegundos());
+            esperarEnVuelo();
+            resultados.reiniciar();
+        }
+
+        long inicio = System.nanoTime();
+        resultados.marcarInicio(inicio);
+        generar(random, resultados, escenario.getDuracionSegundos());
+        esperarEnVuelo();
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        ejecutor.shutdown();
+        return resultados.resumen(segundos);
+    }
+
+    private void generar(SplittableRandom random, ResultadosCarga resultados, int segundos) {
+        long intervaloNanos = TimeUnit.SECONDS.toNanos(1) / escenario.getTasaPorSegundo();
+        long duracionNanos = TimeUnit.SECONDS.toNanos(segundos);
+        long inicio = System.nanoTime();
+
+        for (long i = 0; ; i++) {
+            long programado = inicio + i * intervaloNanos;
+            if (programado - inicio >= duracionNanos) {
+                break;
+            }
+            long espera = programado - System.nanoTime();
+            if (espera > 0) {
+                LockSupport.parkNanos(espera);
+            }
+            Operacion operacion = elegir(random);
+            HttpRequest peticion = construir(operacion, random);
+            if (peticion == null) {
+                resultados.omitir(operacion);
+                continue;
+            }
+            enviar(operacion, peticion, programado, resultados);
+        }
+    }
+
+    private void enviar(Operacion operacion, HttpRequest peticion, long programado, ResultadosCarga resultados) {
+        enVuelo.incrementAndGet();
+        cliente.sendAsync(peticion, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((respuesta, error) -> {
+                    long latencia = System.nanoTime() - programado;
+                    boolean exitosa = error == null && respuesta.statusCode() < 400;
+                    resultados.registrar(operacion, programado, latencia, exitosa);
+                    if (exitosa && operacion == Operacion.CREAR) {
+                        recordarCreada(respuesta.body());
+                    }
+                    enVuelo.decrementAndGet();
+                });
+    }
+
+    private Operacion elegir(SplittableRandom random) {
+        int valor = random.nextInt(pesosAcumulados[pesosAcumulados.length - 1]);
+        for (int i = 0; i < pesosAcumulados.length; i++) {
+            if (valor < pesosAcumulados[i]) {
+                return operaciones[i];
+            }
+        }
+        return operaciones[operaciones.length - 1];
+    }
+
+    /**
+     * Construir la petición de una operación
+     * Las eliminaciones solo afectan personas creadas por la propia prueba;
+     * si todavía no hay ninguna, la operación se cuenta como omitida
+     */
+    private HttpRequest construir(Operacion operacion, SplittableRandom random) {
+        switch (operacion) {
+            case LISTAR:
+                return get("/personas/api");
+            case OBTENER:
+                return get("/personas/api/" + idSembrado(random));
+            case BUSCAR:
+                List<String> terminos = escenario.getTerminos();
+                String termino = terminos.isEmpty() ? "a" : terminos.get(random.nextInt(terminos.size()));
+                return get("/personas/api/buscar?termino=" + URLEncoder.encode(termino, StandardCharsets.UTF_8));
+            case FILTRAR:
+                // Página de /personas/api/search con los criterios de un listado filtrado típico
+                return get("/personas/api/search?rol=" + ROLES[random.nextInt(ROLES.length)]
+                        + "&sexo=" + (random.nextBoolean() ? "M" : "F")
+                        + "&edadMin=" + (18 + random.nextInt(50)) + "&tamano=20&orden=apellido");
+            case ESTADISTICAS:
+                return get("/personas/api/estadisticas");
+            case CREAR:
+                return peticion("/personas/api")
+                        .POST(HttpRequest.BodyPublishers.ofString(personaJson(nuevaCedula(), random)))
+                        .build();
+            case ACTUALIZAR:
+                // Se conserva la cédula original para no chocar con la validación de unicidad
+                int indice = random.nextInt(idsSembrados.size());
+                return peticion("/personas/api/" + idsSembrados.get(indice))
+                        .PUT(HttpRequest.BodyPublishers.ofString(personaJson(CargaDatos.cedula(indice), random)))
+                        .build();
+            case ELIMINAR:
+                Long id = idsCreados.poll();
+                return id == null ? null : peticion("/personas/api/" + id).DELETE().build();
+            default:
+                throw new IllegalStateException("Operación no soportada: " + operacion);
+        }
+    }
+
+    private long idSembrado(SplittableRandom random) {
+        return idsSembrados.get(random.nextInt(idsSembrados.size()));
+    }
+
+    private String nuevaCedula() {
+        return String.valueOf(30_000_000_000L + secuenciaCedula++);
+    }
+
+    private static String personaJson(String cedula, SplittableRandom random) {
+        return "{\"nombre\":\"Carga\",\"apellido\":\"Prueba\",\"cedula\":\"" + cedula + "\","
+                + "\"email\":\"carga" + cedula + "@correo.com\",\"telefono\":\"3001234567\","
+                + "\"edad\":" + (18 + random.nextInt(70)) + ",\"sexo\":\"" + (random.nextBoolean() ? "M" : "F") + "\","
+                + "\"rol\":\"Cliente\"}";
+    }
+
+    private void recordarCreada(String cuerpo) {
+        try {
+            JsonNode nodo = objectMapper.readTree(cuerpo);
+            if (nodo.hasNonNull("id")) {
+                idsCreados.add(nodo.get("id").asLong());
+            }
+        } catch (Exception e) {
+            // Una respuesta ilegible solo impide eliminar esa persona más adelante
+        }
+    }
+
+    private HttpRequest get(String ruta) {
+        return peticion(ruta).GET().build();
+    }
+
+    private HttpRequest.Builder peticion(String ruta) {
+        return HttpRequest.newBuilder(URI.create(urlBase + ruta))
+                .timeout(TIMEOUT_PETICION)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json");
+    }
+
+    private void esperarEnVuelo() throws InterruptedException {
+        long limite = System.nanoTime() + TIMEOUT_PETICION.toNanos();
+        while (enVuelo.get() > 0 && System.nanoTime() < limite) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.gestioncrm.carga;
+
+/**
+ * Operaciones sobre /personas/api que puede generar un escenario
+ */
+public enum Operacion {
+    LISTAR("GET /personas/api"),
+    OBTENER("GET /personas/api/{id}"),
+    BUSCAR("GET /personas/api/buscar"),
+    FILTRAR("GET /personas/api/search"),
+    ESTADISTICAS("GET /personas/api/estadisticas"),
+    CREAR("POST /personas/api"),
+    ACTUALIZAR("PUT /personas/api/{id}"),
+    ELIMINAR("DELETE /personas/api/{id}");
+
+    private final String endpoint;
+
+    Operacion(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+}
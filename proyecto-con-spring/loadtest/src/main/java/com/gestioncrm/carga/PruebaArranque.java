@@ -0,0 +1,286 @@
+package com.gestioncrm.carga;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.gestioncrm.GestionCrmApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Latencia tras un arranque en frío, con y sin el calentamiento de la aplicación
+ *
+ * Siembra una vez una H2 en archivo y, para cada modo, arranca la aplicación en una JVM nueva
+ * (JIT, pool y cachés en frío) contra una copia de esa base con el perfil prod. En cuanto la
+ * sonda de preparación responde 200 lanza el escenario y registra la latencia de cada
+ * segundo. El régimen estable es el p99 del último tercio de la medición; el tiempo hasta el
+ * régimen es el inicio de la primera ventana de VENTANA segundos cuyo p99 no supera
+ * FACTOR_ESTABLE veces ese p99.
+ *
+ * Uso: java -cp gestioncrm-loadtest-1.0.0.jar -Dloader.main=com.gestioncrm.carga.PruebaArranque
+ *      org.springframework.boot.loader.PropertiesLauncher [escenarios/arranque.yml]
+ *      [propiedades de Spring para las dos JVM, p. ej. --gestioncrm.calentamiento.rondas=100]
+ */
+public final class PruebaArranque {
+
+    private static final String ESCENARIO_POR_DEFECTO = "escenarios/arranque.yml";
+    private static final Duration ESPERA_PREPARADA = Duration.ofMinutes(3);
+    private static final long SONDEO_PREPARADA_MS = 20;
+    private static final double FACTOR_ESTABLE = 2.0;
+    private static final int VENTANA = 5;
+    private static final int SEGUNDOS_INICIALES = 10;
+    private static final Pattern DURACION_CALENTAMIENTO = Pattern.compile("Calentamiento terminado en (\\d+) ms");
+
+    private final HttpClient cliente = HttpClient.newHttpClient();
+
+    private PruebaArranque() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String ubicacion = args.length > 0 && !args[0].startsWith("--") ? args[0] : ESCENARIO_POR_DEFECTO;
+        Escenario escenario = Escenario.cargar(ubicacion);
+        // La medición empieza con la aplicación recién lista: sin calentamiento del generador
+        escenario.setCalentamientoSegundos(0);
+        List<String> propiedades = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                propiedades.add(arg);
+            }
+        }
+        new PruebaArranque().ejecutar(escenario, propiedades);
+    }
+
+    private void ejecutar(Escenario escenario, List<String> propiedades) throws Exception {
+        Path directorio = Files.createTempDirectory("gestioncrm-arranque-");
+        System.out.printf("Sembrando %d personas en %s%n", escenario.getPersonasIniciales(), directorio);
+        Siembra siembra = sembrar(directorio, escenario);
+
+        System.out.printf("Escenario '%s': %d pet/s durante %d s desde que la aplicación está lista%n",
+                escenario.getNombre(), escenario.getTasaPorSegundo(), escenario.getDuracionSegundos());
+        // Primero con calentamiento: el generador, que también arranca en frío, perjudica a ese modo
+        List<Map<String, Object>> modos = new ArrayList<>();
+        modos.add(medir("con-calentamiento", true, directorio, siembra, escenario, propiedades));
+        modos.add(medir("sin-calentamiento", false, directorio, siembra, escenario, propiedades));
+
+        System.out.println();
+        System.out.print(formatear(modos));
+        guardar(escenario, modos);
+    }
+
+    /**
+     * Migrar y sembrar base.mv.db con la aplicación en esta JVM (la que no se mide)
+     */
+    private Siembra sembrar(Path directorio, Escenario escenario) {
+        ConfigurableApplicationContext contexto = new SpringApplicationBuilder(GestionCrmApplication.class)
+                .logStartupInfo(false)
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:file:" + directorio.resolve("base"),
+                        "--spring.main.banner-mode=off",
+                        "--gestioncrm.auditoria.directorio=" + directorio.resolve("auditoria-siembra"),
+                        "--spring.h2.console.enabled=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.gestioncrm=WARN");
+        try {
+            List<Long> ids = CargaDatos.sembrar(contexto.getBean(JdbcTemplate.class),
+                    escenario.getPersonasIniciales(), escenario.getSemilla());
+            return new Siembra(ids, contexto.getEnvironment().getProperty("server.servlet.context-path", ""));
+        } finally {
+            // Al cerrarse el pool se cierra la base y se puede copiar el archivo
+            contexto.close();
+        }
+    }
+
+    private Map<String, Object> medir(String modo, boolean calentamiento, Path directorio, Siembra siembra,
+                                      Escenario escenario, List<String> propiedades) throws Exception {
+        Files.copy(directorio.resolve("base.mv.db"), directorio.resolve(modo + ".mv.db"));
+        int puerto;
+        try (ServerSocket libre = new ServerSocket(0)) {
+            puerto = libre.getLocalPort();
+        }
+        File log = directorio.resolve(modo + ".log").toFile();
+        long lanzado = System.nanoTime();
+        Process proceso = new ProcessBuilder(comando(modo, calentamiento, puerto, directorio, propiedades))
+                .redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+        try {
+            String urlBase = "http://localhost:" + puerto + siembra.contextPath;
+            esperarPreparada(proceso, urlBase, log);
+            long listoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lanzado);
+            System.out.printf("%s: lista en %d ms (log en %s)%n", modo, listoMs, log);
+
+            ResultadosCarga resultados = new ResultadosCarga(escenario.getDuracionSegundos());
+            Map<String, Object> resumen = new GeneradorCarga(escenario, urlBase, siembra.ids).ejecutar(resultados);
+
+            int segundos = escenario.getDuracionSegundos();
+            double estable = resultados.percentilLinea(segundos - segundos / 3, segundos, 99);
+            List<Map<String, Object>> linea = resultados.lineaDeTiempo();
+            int regimen = segundoDeRegimen(resultados, segundos, estable);
+
+            Map<String, Object> resultado = new LinkedHashMap<>();
+            resultado.put("modo", modo);
+            resultado.put("listoMs", listoMs);
+            resultado.put("calentamientoMs", duracionCalentamiento(log));
+            resultado.put("p99InicialMs", resultados.percentilLinea(0, SEGUNDOS_INICIALES, 99));
+            resultado.put("p99EstableMs", estable);
+            resultado.put("segundosHastaRegimen", regimen);
+            resultado.put("segundosDesdeLanzamiento", Math.round(listoMs / 100.0) / 10.0 + regimen);
+            resultado.put("endpoints", resumen);
+            resultado.put("lineaDeTiempo", linea);
+            return resultado;
+        } finally {
+            proceso.destroy();
+            if (!proceso.waitFor(30, TimeUnit.SECONDS)) {
+                proceso.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * La aplicación en una JVM nueva, desde el mismo JAR o classpath que esta prueba
+     */
+    private static List<String> comando(String modo, boolean calentamiento, int puerto, Path directorio,
+                                        List<String> propiedades) {
+        List<String> comando = new ArrayList<>();
+        comando.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        String classpath = System.getProperty("java.class.path");
+        comando.add("-cp");
+        comando.add(classpath);
+        if (classpath.endsWith(".jar") && !classpath.contains(File.pathSeparator)) {
+            comando.add("-Dloader.main=" + GestionCrmApplication.class.getName());
+            comando.add("org.springframework.boot.loader.PropertiesLauncher");
+        } else {
+            comando.add(GestionCrmApplication.class.getName());
+        }
+
+        List<String> argumentos = new ArrayList<>(List.of(
+                "--server.port=" + puerto,
+                "--spring.datasource.url=jdbc:h2:file:" + directorio.resolve(modo),
+                "--spring.profiles.active=prod",
+                "--spring.main.banner-mode=off",
+                "--gestioncrm.calentamiento.habilitado=" + calentamiento,
+                "--gestioncrm.auditoria.directorio=" + directorio.resolve("auditoria-" + modo)));
+        for (String propiedad : propiedades) {
+            String clave = propiedad.contains("=") ? propiedad.substring(0, propiedad.indexOf('=') + 1) : propiedad;
+            argumentos.removeIf(existente -> existente.startsWith(clave));
+            argumentos.add(propiedad);
+        }
+        comando.addAll(argumentos);
+        return comando;
+    }
+
+    private void esperarPreparada(Process proceso, String urlBase, File log) throws Exception {
+        HttpRequest sonda = HttpRequest.newBuilder(URI.create(urlBase + "/actuator/health/readiness"))
+                .timeout(Duration.ofSeconds(5))
+                .GET()
+                .build();
+        long limite = System.nanoTime() + ESPERA_PREPARADA.toNanos();
+        while (System.nanoTime() < limite) {
+            if (!proceso.isAlive()) {
+                throw new IllegalStateException("La aplicación terminó al arrancar; ver " + log);
+            }
+            try {
+                if (cliente.send(sonda, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Todavía no escucha
+            }
+            Thread.sleep(SONDEO_PREPARADA_MS);
+        }
+        throw new IllegalStateException("La aplicación no estuvo lista en " + ESPERA_PREPARADA + "; ver " + log);
+    }
+
+    /**
+     * Inicio de la primera ventana con p99 de hasta FACTOR_ESTABLE veces el estable (ventanas de
+     * varios segundos: el p99 de un segundo suelto, con pocas peticiones, es demasiado ruidoso)
+     */
+    private static int segundoDeRegimen(ResultadosCarga resultados, int segundos, double estable) {
+        for (int i = 0; i + VENTANA <= segundos; i++) {
+            if (resultados.percentilLinea(i, i + VENTANA, 99) <= estable * FACTOR_ESTABLE) {
+                return i;
+            }
+        }
+        return segundos;
+    }
+
+    private static Long duracionCalentamiento(File log) throws IOException {
+        Matcher duracion = DURACION_CALENTAMIENTO.matcher(Files.readString(log.toPath(), StandardCharsets.UTF_8));
+        return duracion.find() ? Long.valueOf(duracion.group(1)) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String formatear(List<Map<String, Object>> modos) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-18s %9s %18s %14s %13s %18s %22s%n", "Modo", "Lista ms",
+                "Calentamiento ms", "p99 0-" + SEGUNDOS_INICIALES + " s ms", "p99 estable", "Régimen tras (s)",
+                "Régimen desde JVM (s)"));
+        for (Map<String, Object> modo : modos) {
+            sb.append(String.format(Locale.ROOT, "%-18s %9d %18s %14.2f %13.2f %18d %22.1f%n", modo.get("modo"),
+                    modo.get("listoMs"), modo.get("calentamientoMs") != null ? modo.get("calentamientoMs") : "-",
+                    modo.get("p99InicialMs"), modo.get("p99EstableMs"), modo.get("segundosHastaRegimen"),
+                    modo.get("segundosDesdeLanzamiento")));
+        }
+        sb.append(String.format(Locale.ROOT, "%nSegundo   p99 ms (%s)   p99 ms (%s)%n",
+                modos.get(0).get("modo"), modos.get(1).get("modo")));
+        List<Map<String, Object>> sin = (List<Map<String, Object>>) modos.get(0).get("lineaDeTiempo");
+        List<Map<String, Object>> con = (List<Map<String, Object>>) modos.get(1).get("lineaDeTiempo");
+        for (int i = 0; i < sin.size(); i++) {
+            sb.append(String.format(Locale.ROOT, "%7d %26.2f %26.2f%n", i, sin.get(i).get("p99Ms"),
+                    con.get(i).get("p99Ms")));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Escribir el resultado en resultados/arranque-{escenario}-{fecha}.json
+     */
+    private static void guardar(Escenario escenario, List<Map<String, Object>> modos) throws IOException {
+        Map<String, Object> documento = new LinkedHashMap<>();
+        documento.put("escenario", escenario.getNombre());
+        documento.put("semilla", escenario.getSemilla());
+        documento.put("tasaPorSegundo", escenario.getTasaPorSegundo());
+        documento.put("duracionSegundos", escenario.getDuracionSegundos());
+        documento.put("personasIniciales", escenario.getPersonasIniciales());
+        documento.put("factorEstable", FACTOR_ESTABLE);
+        documento.put("modos", modos);
+
+        String fecha = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        File destino = new File("resultados", "arranque-" + escenario.getNombre() + "-" + fecha + ".json");
+        destino.getParentFile().mkdirs();
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(destino, documento);
+        System.out.println("Resultado guardado en " + destino.getPath());
+    }
+
+    private static final class Siembra {
+        private final List<Long> ids;
+        private final String contextPath;
+
+        Siembra(List<Long> ids, String contextPath) {
+            this.ids = ids;
+            this.contextPath = contextPath;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.gestioncrm.carga;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gestioncrm.GestionCrmApplication;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.HdrHistogram.Histogram;
+import org.h2.tools.Server;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prueba de la invalidación de cachés entre instancias (perfil cluster)
+ *
+ * Arranca un servidor H2 TCP y dos instancias de la aplicación contra la misma base de datos.
+ * En cada ronda lee una persona en la instancia B (queda en su caché), la actualiza en la A
+ * y mide cuánto tarda B en devolver el valor nuevo. También comprueba que A lo devuelve
+ * enseguida (sus propias escrituras invalidan su caché al confirmarse).
+ *
+ * Uso: java -cp gestioncrm-loadtest-1.0.0.jar -Dloader.main=com.gestioncrm.carga.PruebaInvalidacion
+ *      org.springframework.boot.loader.PropertiesLauncher [--rondas=200] [--personas=1000]
+ *      [propiedades de Spring, p. ej. --gestioncrm.cache.intervalo-sondeo=100ms]
+ */
+public final class PruebaInvalidacion {
+
+    private static final Duration ESPERA_MAXIMA = Duration.ofSeconds(30);
+    private static final long SONDEO_CLIENTE_MS = 5;
+
+    private final HttpClient cliente = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private PruebaInvalidacion() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opciones = new HashMap<>();
+        List<String> propiedades = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--rondas=") || arg.startsWith("--personas=")) {
+                opciones.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.startsWith("--")) {
+                propiedades.add(arg);
+            }
+        }
+        int rondas = Integer.parseInt(opciones.getOrDefault("rondas", "200"));
+        int personas = Integer.parseInt(opciones.getOrDefault("personas", "1000"));
+        new PruebaInvalidacion().ejecutar(rondas, personas, propiedades);
+    }
+
+    private void ejecutar(int rondas, int personas, List<String> propiedades) throws Exception {
+        int puertoH2;
+        try (ServerSocket libre = new ServerSocket(0)) {
+            puertoH2 = libre.getLocalPort();
+        }
+        Server h2 = Server.createTcpServer("-tcpPort", String.valueOf(puertoH2), "-ifNotExists").start();
+        String url = "jdbc:h2:tcp://localhost:" + puertoH2 + "/mem:cluster-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+
+        // Una después de la otra: la segunda encuentra el esquema ya migrado
+        ConfigurableApplicationContext a = arrancar("a", url, propiedades);
+        ConfigurableApplicationContext b = arrancar("b", url, propiedades);
+        try {
+            List<Long> ids = CargaDatos.sembrar(a.getBean(JdbcTemplate.class), personas, 1);
+            String urlA = urlBase(a);
+            String urlB = urlBase(b);
+            System.out.printf("Dos instancias contra %s; sondeo cada %s, obsolescencia máxima %s, %d rondas%n", url,
+                    b.getEnvironment().getProperty("gestioncrm.cache.intervalo-sondeo"),
+                    b.getEnvironment().getProperty("gestioncrm.cache.obsolescencia-maxima"), rondas);
+
+            Histogram obsolescencia = new Histogram(TimeUnit.MINUTES.toMicros(1), 3);
+            int lecturasPropiasViejas = 0;
+            for (int ronda = 0; ronda < rondas; ronda++) {
+                int indice = ronda % ids.size();
+                String ruta = "/personas/api/" + ids.get(indice);
+                String nombre = "Ronda" + ronda;
+                // Dos lecturas: la segunda ya sale de la caché de B
+                nombre(urlB + ruta);
+                nombre(urlB + ruta);
+
+                actualizar(urlA + ruta, CargaDatos.cedula(indice), nombre);
+                long escrita = System.nanoTime();
+                if (!nombre.equals(nombre(urlA + ruta))) {
+                    lecturasPropiasViejas++;
+                }
+                while (!nombre.equals(nombre(urlB + ruta))) {
+                    if (System.nanoTime() - escrita > ESPERA_MAXIMA.toNanos()) {
+                        throw new IllegalStateException("La instancia B no vio el cambio de " + ruta
+                                + " en " + ESPERA_MAXIMA.getSeconds() + " s");
+                    }
+                    Thread.sleep(SONDEO_CLIENTE_MS);
+                }
+                obsolescencia.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - escrita));
+            }
+
+            System.out.printf("Obsolescencia en B (ms): p50 %.1f, p99 %.1f, máx %.1f%n",
+                    obsolescencia.getValueAtPercentile(50) / 1000.0, obsolescencia.getValueAtPercentile(99) / 1000.0,
+                    obsolescencia.getMaxValue() / 1000.0);
+            System.out.printf("Lecturas en A que no vieron su propia escritura: %d de %d%n", lecturasPropiasViejas, rondas);
+            MeterRegistry registroB = b.getBean(MeterRegistry.class);
+            System.out.printf("Caché de B: %.0f aciertos, %.0f fallos, %.0f invalidaciones leídas%n",
+                    contar(registroB, "acierto"), contar(registroB, "fallo"),
+                    registroB.get("gestioncrm.cache.invalidaciones").counter().count());
+        } finally {
+            b.close();
+            a.close();
+            h2.stop();
+        }
+    }
+
+    private static ConfigurableApplicationContext arrancar(String nombre, String url, List<String> propiedades) {
+        List<String> argumentos = new ArrayList<>(List.of(
+                "--spring.profiles.active=cluster",
+                "--spring.datasource.url=" + url,
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--gestioncrm.auditoria.directorio=" + System.getProperty("java.io.tmpdir")
+                        + "/gestioncrm-auditoria-" + nombre + "-" + System.nanoTime(),
+                "--spring.h2.console.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.com.gestioncrm=WARN"));
+        for (String propiedad : propiedades) {
+            String clave = propiedad.contains("=") ? propiedad.substring(0, propiedad.indexOf('=') + 1) : propiedad;
+            argumentos.removeIf(existente -> existente.startsWith(clave));
+            argumentos.add(propiedad);
+        }
+        return new SpringApplicationBuilder(GestionCrmApplication.class)
+                .logStartupInfo(false)
+                .run(argumentos.toArray(new String[0]));
+    }
+
+    private static String urlBase(ConfigurableApplicationContext contexto) {
+        int puerto = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+        return "http://localhost:" + puerto + contexto.getEnvironment().getProperty("server.servlet.context-path", "");
+    }
+
+    private static double contar(MeterRegistry registro, String resultado) {
+        return registro.find("gestioncrm.cache.llamadas").tag("resultado", resultado).counters().stream()
+                .mapToDouble(contador -> contador.count())
+                .sum();
+    }
+
+    private String nombre(String url) throws Exception {
+        HttpResponse<String> respuesta = cliente.send(HttpRequest.newBuilder(URI.create(url))
+                .header("Accept", "application/json").GET().build(), HttpResponse.BodyHandlers.ofString());
+        if (respuesta.statusCode() != 200) {
+            throw new IllegalStateException("GET " + url + ": HTTP " + respuesta.statusCode());
+        }
+        JsonNode persona = objectMapper.readTree(respuesta.body());
+        return persona.path("nombre").asText();
+    }
+
+    private void actualizar(String url, String cedula, String nombre) throws Exception {
+        String cuerpo = "{\"nombre\":\"" + nombre + "\",\"apellido\":\"Prueba\",\"cedula\":\"" + cedula + "\","
+                + "\"email\":\"cluster" + cedula + "@correo.com\",\"telefono\":\"3001234567\","
+                + "\"edad\":30,\"sexo\":\"F\",\"rol\":\"Cliente\"}";
+        HttpResponse<String> respuesta = cliente.send(HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(cuerpo)).build(), HttpResponse.BodyHandlers.ofString());
+        if (respuesta.statusCode() != 200) {
+            throw new IllegalStateException("PUT " + url + ": HTTP " + respuesta.statusCode() + " " + respuesta.body());
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package com.gestioncrm.carga;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.gestioncrm.GestionCrmApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Bytes transferidos y tiempo de carga de las páginas y de un listado JSON, sin y con
+ * compresión, recursos con hash y caché, por HTTP/1.1 y por h2c
+ *
+ * Para cada modo arranca la aplicación en esta JVM (H2 en memoria) y la sirve a través de un
+ * EnlaceSimulado con el RTT y el ancho de banda indicados. Cada visita usa un cliente nuevo,
+ * como un navegador que abre conexiones: pide la página y después, en paralelo, sus CSS y JS
+ * (CONEXIONES_HTTP1 conexiones en HTTP/1.1, una sola multiplexada en HTTP/2) y las fuentes de
+ * Font Awesome que usa. La visita repetida parte de la caché de la primera: no pide lo que
+ * sigue fresco por Cache-Control y revalida lo demás con If-None-Match / If-Modified-Since.
+ * Los bytes son los de los cuerpos tal como viajan (comprimidos o no), sin cabeceras.
+ *
+ * Uso: java -cp gestioncrm-loadtest-1.0.0.jar -Dloader.main=com.gestioncrm.carga.PruebaPagina
+ *      org.springframework.boot.loader.PropertiesLauncher [--visitas=20] [--personas=300]
+ *      [--rtt=50] [--mbps=20] [propiedades de Spring para todos los modos]
+ */
+public final class PruebaPagina {
+
+    private static final List<String> PAGINAS = List.of("/", "/personas");
+    private static final String LISTADO_JSON = "/personas/api";
+    private static final int CONEXIONES_HTTP1 = 6;
+    private static final int VISITAS_CALENTAMIENTO = 10;
+    private static final Duration TIEMPO_PETICION = Duration.ofSeconds(30);
+    private static final Pattern RECURSO = Pattern.compile("<(?:link|script)\\b[^>]*?\\b(?:href|src)=\"(/[^\"]+)\"");
+    private static final Pattern FUENTE_CSS = Pattern.compile("url\\(\"?([^)\"]+\\.woff2)\"?\\)");
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+    /** Fuentes de Font Awesome y la clase de sus iconos: el navegador solo baja las que usa la página */
+    private static final Map<String, String> FUENTES = Map.of(
+            "fa-solid-900", "fas ", "fa-regular-400", "far ", "fa-brands-400", "fab ");
+
+    private final int visitas;
+    private final Duration rtt;
+    private final long bytesPorSegundo;
+
+    private PruebaPagina(int visitas, Duration rtt, long bytesPorSegundo) {
+        this.visitas = visitas;
+        this.rtt = rtt;
+        this.bytesPorSegundo = bytesPorSegundo;
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Conexiones de los clientes descartados cerradas pronto (cada visita abre las suyas)
+        System.setProperty("jdk.httpclient.keepalive.timeout", "2");
+        Map<String, String> opciones = new HashMap<>();
+        List<String> propiedades = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--visitas=") || arg.startsWith("--personas=") || arg.startsWith("--rtt=")
+                    || arg.startsWith("--mbps=")) {
+                opciones.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else if (arg.startsWith("--")) {
+                propiedades.add(arg);
+            }
+        }
+        int visitas = Integer.parseInt(opciones.getOrDefault("visitas", "20"));
+        int personas = Integer.parseInt(opciones.getOrDefault("personas", "300"));
+        Duration rtt = Duration.ofMillis(Long.parseLong(opciones.getOrDefault("rtt", "50")));
+        double mbps = Double.parseDouble(opciones.getOrDefault("mbps", "20"));
+        new PruebaPagina(visitas, rtt, (long) (mbps * 1_000_000 / 8)).ejecutar(personas, propiedades);
+    }
+
+    private void ejecutar(int personas, List<String> propiedades) throws Exception {
+        System.out.printf("%d personas; enlace de %d ms de RTT y %.1f Mbit/s; %d visitas por página y modo%n",
+                personas, rtt.toMillis(), bytesPorSegundo * 8 / 1_000_000.0, visitas);
+        // Antes: sin compresión, sin hash en las URL y sin Cache-Control (se revalida al volver)
+        List<String> sinOptimizar = List.of(
+                "--server.compression.enabled=false",
+                "--server.http2.enabled=false",
+                "--spring.web.resources.chain.enabled=false",
+                "--spring.web.resources.chain.compressed=false",
+                "--spring.web.resources.chain.strategy.content.enabled=false",
+                "--spring.web.resources.cache.cachecontrol.max-age=",
+                "--spring.web.resources.cache.cachecontrol.cache-public=false");
+        List<Map<String, Object>> modos = new ArrayList<>();
+        modos.add(medir("sin-optimizar", HttpClient.Version.HTTP_1_1, sinOptimizar, personas, propiedades));
+        modos.add(medir("comprimido-http1", HttpClient.Version.HTTP_1_1, List.of(), personas, propiedades));
+        modos.add(medir("comprimido-h2c", HttpClient.Version.HTTP_2, List.of(), personas, propiedades));
+
+        System.out.println();
+        System.out.print(formatear(modos));
+        guardar(personas, modos);
+    }
+
+    private Map<String, Object> medir(String modo, HttpClient.Version version, List<String> propiedadesModo,
+                                      int personas, List<String> propiedades) throws Exception {
+        List<String> todas = new ArrayList<>(propiedadesModo);
+        todas.addAll(propiedades);
+        ConfigurableApplicationContext contexto = arrancar(modo, todas);
+        try (EnlaceSimulado enlace = new EnlaceSimulado(
+                ((WebServerApplicationContext) contexto).getWebServer().getPort(), rtt, bytesPorSegundo)) {
+            CargaDatos.sembrar(contexto.getBean(JdbcTemplate.class), personas, 1);
+            String contextPath = contexto.getEnvironment().getProperty("server.servlet.context-path", "");
+            String directo = "http://localhost:" + ((WebServerApplicationContext) contexto).getWebServer().getPort();
+            String lento = "http://localhost:" + enlace.getPuerto();
+
+            // JIT y plantillas en caliente sin pasar por el enlace
+            for (int i = 0; i < VISITAS_CALENTAMIENTO; i++) {
+                for (String pagina : PAGINAS) {
+                    visitar(version, directo, contextPath + pagina, new ConcurrentHashMap<>());
+                }
+                pedirJson(version, directo + contextPath + LISTADO_JSON);
+            }
+
+            Map<String, Object> resultado = new LinkedHashMap<>();
+            resultado.put("modo", modo);
+            Set<String> protocolos = new TreeSet<>();
+            List<Map<String, Object>> paginas = new ArrayList<>();
+            for (String pagina : PAGINAS) {
+                List<Visita> primeras = new ArrayList<>();
+                List<Visita> repetidas = new ArrayList<>();
+                for (int i = 0; i < visitas; i++) {
+                    Map<String, EntradaCache> cache = new ConcurrentHashMap<>();
+                    primeras.add(visitar(version, lento, contextPath + pagina, cache));
+                    repetidas.add(visitar(version, lento, contextPath + pagina, cache));
+                }
+                primeras.forEach(visita -> protocolos.addAll(visita.protocolos));
+                Map<String, Object> medida = new LinkedHashMap<>();
+                medida.put("pagina", contextPath + pagina);
+                medida.put("primeraVisita", resumir(primeras));
+                medida.put("visitaRepetida", resumir(repetidas));
+                paginas.add(medida);
+            }
+            List<Visita> listados = new ArrayList<>();
+            for (int i = 0; i < visitas; i++) {
+                listados.add(pedirJson(version, lento + contextPath + LISTADO_JSON));
+            }
+            resultado.put("protocolo", String.join("+", protocolos));
+            resultado.put("paginas", paginas);
+            resultado.put("json", Map.of("ruta", contextPath + LISTADO_JSON, "medida", resumir(listados)));
+            System.out.printf("%s: medido (%s)%n", modo, resultado.get("protocolo"));
+            return resultado;
+        } finally {
+            contexto.close();
+        }
+    }
+
+    private static ConfigurableApplicationContext arrancar(String modo, List<String> propiedades) {
+        List<String> argumentos = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:pagina-" + modo + "-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1",
+                "--spring.main.banner-mode=off",
+                "--spring.thymeleaf.cache=true",
+                "--gestioncrm.auditoria.directorio=" + System.getProperty("java.io.tmpdir")
+                        + "/gestioncrm-auditoria-pagina-" + System.nanoTime(),
+                "--spring.h2.console.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.com.gestioncrm=WARN"));
+        for (String propiedad : propiedades) {
+            String clave = propiedad.contains("=") ? propiedad.substring(0, propiedad.indexOf('=') + 1) : propiedad;
+            argumentos.removeIf(existente -> existente.startsWith(clave));
+            argumentos.add(propiedad);
+        }
+        return new SpringApplicationBuilder(GestionCrmApplication.class)
+                .logStartupInfo(false)
+                .run(argumentos.toArray(new String[0]));
+    }
+
+    /**
+     * Una carga de página: el HTML, después sus CSS y JS en paralelo y, al llegar cada CSS,
+     * las fuentes que usa la página
+     */
+    private Visita visitar(HttpClient.Version version, String origen, String pagina,
+                           Map<String, EntradaCache> cache) throws Exception {
+        HttpClient cliente = HttpClient.newBuilder().version(version).connectTimeout(TIEMPO_PETICION).build();
+        ExecutorService descargas = Executors.newFixedThreadPool(
+                version == HttpClient.Version.HTTP_2 ? 32 : CONEXIONES_HTTP1);
+        Visita visita = new Visita();
+        long inicio = System.nanoTime();
+        try {
+            String html = pedir(cliente, origen, pagina, cache, visita).texto();
+            List<CompletableFuture<Void>> recursos = new ArrayList<>();
+            Matcher recurso = RECURSO.matcher(html);
+            while (recurso.find()) {
+                String ruta = recurso.group(1);
+                recursos.add(descargar(cliente, origen, ruta, cache, visita, descargas)
+                        .thenCompose(respuesta -> ruta.contains(".css")
+                                ? fuentes(cliente, origen, ruta, respuesta.texto(), html, cache, visita, descargas)
+                                : CompletableFuture.completedFuture(null)));
+            }
+            CompletableFuture.allOf(recursos.toArray(new CompletableFuture[0])).join();
+        } finally {
+            descargas.shutdownNow();
+        }
+        visita.milisegundos = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - inicio) / 1000.0;
+        return visita;
+    }
+
+    private CompletableFuture<Void> fuentes(HttpClient cliente, String origen, String rutaCss, String css,
+                                            String html, Map<String, EntradaCache> cache, Visita visita,
+                                            ExecutorService descargas) {
+        // El CSS de Font Awesome nombra cada fuente varias veces; se baja una vez
+        Set<String> rutas = new LinkedHashSet<>();
+        Matcher fuente = FUENTE_CSS.matcher(css);
+        while (fuente.find()) {
+            String ruta = URI.create(origen + rutaCss).resolve(fuente.group(1)).getPath();
+            boolean usada = FUENTES.entrySet().stream()
+                    .anyMatch(familia -> ruta.contains(familia.getKey()) && html.contains(familia.getValue()));
+            if (usada) {
+                rutas.add(ruta);
+            }
+        }
+        List<CompletableFuture<Respuesta>> pedidas = new ArrayList<>();
+        for (String ruta : rutas) {
+            pedidas.add(descargar(cliente, origen, ruta, cache, visita, descargas));
+        }
+        return CompletableFuture.allOf(pedidas.toArray(new CompletableFuture[0]));
+    }
+
+    private CompletableFuture<Respuesta> descargar(HttpClient cliente, String origen, String ruta,
+                                                   Map<String, EntradaCache> cache, Visita visita,
+                                                   ExecutorService descargas) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return pedir(cliente, origen, ruta, cache, visita);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, descargas);
+    }
+
+    /**
+     * GET con la caché de la visita: lo fresco no sale a la red y lo caducado se revalida
+     */
+    private static Respuesta pedir(HttpClient cliente, String origen, String ruta, Map<String, EntradaCache> cache,
+                                   Visita visita) throws Exception {
+        EntradaCache guardada = cache.get(ruta);
+        if (guardada != null && System.nanoTime() < guardada.frescaHasta) {
+            return guardada.respuesta;
+        }
+        HttpRequest.Builder peticion = HttpRequest.newBuilder(URI.create(origen + ruta))
+                .header("Accept-Encoding", "gzip")
+                .timeout(TIEMPO_PETICION)
+                .GET();
+        if (guardada != null && guardada.etag != null) {
+            peticion.header("If-None-Match", guardada.etag);
+        }
+        if (guardada != null && guardada.ultimaModificacion != null) {
+            peticion.header("If-Modified-Since", guardada.ultimaModificacion);
+        }
+        HttpResponse<byte[]> respuesta = cliente.send(peticion.build(), HttpResponse.BodyHandlers.ofByteArray());
+        visita.registrar(respuesta.body().length, respuesta.version());
+        if (respuesta.statusCode() == 304 && guardada != null) {
+            cache.put(ruta, new EntradaCache(guardada.respuesta, respuesta.headers()));
+            return guardada.respuesta;
+        }
+        if (respuesta.statusCode() != 200) {
+            throw new IllegalStateException("GET " + ruta + ": HTTP " + respuesta.statusCode());
+        }
+        Respuesta leida = new Respuesta(respuesta.body(),
+                respuesta.headers().firstValue("Content-Encoding").orElse(null));
+        cache.put(ruta, new EntradaCache(leida, respuesta.headers()));
+        return leida;
+    }
+
+    private static Visita pedirJson(HttpClient.Version version, String url) throws Exception {
+        HttpClient cliente = HttpClient.newBuilder().version(version).connectTimeout(TIEMPO_PETICION).build();
+        Visita visita = new Visita();
+        long inicio = System.nanoTime();
+        HttpResponse<byte[]> respuesta = cliente.send(HttpRequest.newBuilder(URI.create(url))
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip")
+                .timeout(TIEMPO_PETICION)
+                .GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (respuesta.statusCode() != 200) {
+            throw new IllegalStateException("GET " + url + ": HTTP " + respuesta.statusCode());
+        }
+        visita.registrar(respuesta.body().length, respuesta.version());
+        visita.milisegundos = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - inicio) / 1000.0;
+        return visita;
+    }
+
+    private static Map<String, Object> resumir(List<Visita> medidas) {
+        List<Double> tiempos = new ArrayList<>();
+        medidas.forEach(visita -> tiempos.add(visita.milisegundos));
+        tiempos.sort(null);
+        Visita ultima = medidas.get(medidas.size() - 1);
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("kb", ultima.bytes / 1024.0);
+        resumen.put("peticiones", ultima.peticiones);
+        resumen.put("p50Ms", percentil(tiempos, 50));
+        resumen.put("p90Ms", percentil(tiempos, 90));
+        return resumen;
+    }
+
+    private static double percentil(List<Double> ordenados, double percentil) {
+        int indice = (int) Math.ceil(percentil / 100.0 * ordenados.size()) - 1;
+        return ordenados.get(Math.max(0, Math.min(indice, ordenados.size() - 1)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String formatear(List<Map<String, Object>> modos) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-17s %-9s %-18s %28s %28s%n", "Modo", "Protocolo", "Ruta",
+                "1ª visita KB / pet. / p50 / p90", "repetida KB / pet. / p50 / p90"));
+        for (Map<String, Object> modo : modos) {
+            for (Map<String, Object> pagina : (List<Map<String, Object>>) modo.get("paginas")) {
+                sb.append(String.format(Locale.ROOT, "%-17s %-9s %-18s %28s %28s%n", modo.get("modo"),
+                        modo.get("protocolo"), pagina.get("pagina"),
+                        fila((Map<String, Object>) pagina.get("primeraVisita")),
+                        fila((Map<String, Object>) pagina.get("visitaRepetida"))));
+            }
+            Map<String, Object> json = (Map<String, Object>) modo.get("json");
+            sb.append(String.format(Locale.ROOT, "%-17s %-9s %-18s %28s%n", modo.get("modo"), modo.get("protocolo"),
+                    json.get("ruta"), fila((Map<String, Object>) json.get("medida"))));
+        }
+        return sb.toString();
+    }
+
+    private static String fila(Map<String, Object> medida) {
+        return String.format(Locale.ROOT, "%.1f / %d / %.0f ms / %.0f ms", medida.get("kb"), medida.get("peticiones"),
+                medida.get("p50Ms"), medida.get("p90Ms"));
+    }
+
+    /**
+     * Escribir el resultado en resultados/pagina-{fecha}.json
+     */
+    private void guardar(int personas, List<Map<String, Object>> modos) throws IOException {
+        Map<String, Object> documento = new LinkedHashMap<>();
+        documento.put("personas", personas);
+        documento.put("visitas", visitas);
+        documento.put("rttMs", rtt.toMillis());
+        documento.put("mbps", bytesPorSegundo * 8 / 1_000_000.0);
+        documento.put("modos", modos);
+
+        String fecha = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        File destino = new File("resultados", "pagina-" + fecha + ".json");
+        destino.getParentFile().mkdirs();
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(destino, documento);
+        System.out.println("Resultado guardado en " + destino.getPath());
+    }
+
+    private static final class Visita {
+        private long bytes;
+        private int peticiones;
+        private double milisegundos;
+        private final Set<String> protocolos = new TreeSet<>();
+
+        synchronized void registrar(int bytes, HttpClient.Version version) {
+            this.bytes += bytes;
+            this.peticiones++;
+            this.protocolos.add(version == HttpClient.Version.HTTP_2 ? "h2c" : "http/1.1");
+        }
+    }
+
+    private static final class Respuesta {
+        private final byte[] cuerpo;
+        private final String codificacion;
+
+        Respuesta(byte[] cuerpo, String codificacion) {
+            this.cuerpo = cuerpo;
+            this.codificacion = codificacion;
+        }
+
+        String texto() {
+            if (!"gzip".equalsIgnoreCase(codificacion)) {
+                return new String(cuerpo, StandardCharsets.UTF_8);
+            }
+            try (InputStream entrada = new GZIPInputStream(new ByteArrayInputStream(cuerpo))) {
+                return new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cuerpo gzip inválido", e);
+            }
+        }
+    }
+
+    /**
+     * Respuesta en la caché de la visita, fresca según su max-age y con sus validadores
+     */
+    private static final class EntradaCache {
+        private final Respuesta respuesta;
+        private final long frescaHasta;
+        private final String etag;
+        private final String ultimaModificacion;
+
+        EntradaCache(Respuesta respuesta, HttpHeaders cabeceras) {
+            this.respuesta = respuesta;
+            String cacheControl = cabeceras.firstValue("Cache-Control").orElse("");
+            Matcher maxAge = MAX_AGE.matcher(cacheControl);
+            this.frescaHasta = maxAge.find() && !cacheControl.contains("no-cache")
+                    ? System.nanoTime() + TimeUnit.SECONDS.toNanos(Long.parseLong(maxAge.group(1)))
+                    : Long.MIN_VALUE;
+            this.etag = cabeceras.firstValue("ETag").orElse(null);
+            this.ultimaModificacion = cabeceras.firstValue("Last-Modified").orElse(null);
+        }
+    }
+}
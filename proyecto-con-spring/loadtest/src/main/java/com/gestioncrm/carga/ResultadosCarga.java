@@ -0,0 +1,182 @@
+package com.gestioncrm.carga;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.HdrHistogram.SynchronizedHistogram;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencias y contadores por operación de una prueba de carga
+ * Las latencias se registran en microsegundos desde el instante programado
+ * de cada petición, por lo que incluyen la espera en cola (sin omisión coordinada)
+ * Opcionalmente, una línea de tiempo con la latencia de todas las operaciones por segundo
+ * de la medición, según el instante programado de cada petición
+ */
+public class ResultadosCarga {
+
+    private static final long LATENCIA_MAXIMA_US = TimeUnit.MINUTES.toMicros(2);
+
+    private final Map<Operacion, Recorder> latencias = new EnumMap<>(Operacion.class);
+    private final Map<Operacion, AtomicLong> errores = new EnumMap<>(Operacion.class);
+    private final Map<Operacion, AtomicLong> omitidas = new EnumMap<>(Operacion.class);
+    private final Map<Operacion, Histogram> acumulado = new EnumMap<>(Operacion.class);
+    /** Un histograma por segundo de medición (vacío sin línea de tiempo) */
+    private final SynchronizedHistogram[] linea;
+    private volatile long inicioLinea = Long.MAX_VALUE;
+
+    public ResultadosCarga() {
+        this(0);
+    }
+
+    /**
+     * @param segundosLinea segundos de la línea de tiempo (0: sin línea de tiempo)
+     */
+    public ResultadosCarga(int segundosLinea) {
+        linea = new SynchronizedHistogram[segundosLinea];
+        for (int i = 0; i < segundosLinea; i++) {
+            linea[i] = new SynchronizedHistogram(LATENCIA_MAXIMA_US, 3);
+        }
+        for (Operacion operacion : Operacion.values()) {
+            latencias.put(operacion, new Recorder(LATENCIA_MAXIMA_US, 3));
+            errores.put(operacion, new AtomicLong());
+            omitidas.put(operacion, new AtomicLong());
+            acumulado.put(operacion, new Histogram(LATENCIA_MAXIMA_US, 3));
+        }
+    }
+
+    /**
+     * Inicio de la medición (System.nanoTime()): el segundo 0 de la línea de tiempo
+     */
+    public void marcarInicio(long inicioNanos) {
+        inicioLinea = inicioNanos;
+    }
+
+    public void registrar(Operacion operacion, long programadoNanos, long latenciaNanos, boolean exitosa) {
+        long microsegundos = Math.min(TimeUnit.NANOSECONDS.toMicros(latenciaNanos), LATENCIA_MAXIMA_US);
+        latencias.get(operacion).recordValue(microsegundos);
+        long segundo = programadoNanos >= inicioLinea ? (programadoNanos - inicioLinea) / 1_000_000_000L : -1;
+        if (segundo >= 0 && segundo < linea.length) {
+            linea[(int) segundo].recordValue(microsegundos);
+        }
+        if (!exitosa) {
+            errores.get(operacion).incrementAndGet();
+        }
+    }
+
+    public void omitir(Operacion operacion) {
+        omitidas.get(operacion).incrementAndGet();
+    }
+
+    /**
+     * Descartar lo registrado hasta ahora (fin del calentamiento)
+     */
+    public void reiniciar() {
+        for (Operacion operacion : Operacion.values()) {
+            latencias.get(operacion).reset();
+            errores.get(operacion).set(0);
+            omitidas.get(operacion).set(0);
+            acumulado.get(operacion).reset();
+        }
+        for (Histogram segundo : linea) {
+            segundo.reset();
+        }
+        inicioLinea = Long.MAX_VALUE;
+    }
+
+    /**
+     * Peticiones, p50, p99 y máximo de cada segundo de la medición
+     */
+    public List<Map<String, Object>> lineaDeTiempo() {
+        List<Map<String, Object>> segundos = new ArrayList<>(linea.length);
+        for (int i = 0; i < linea.length; i++) {
+            Map<String, Object> fila = new LinkedHashMap<>();
+            fila.put("segundo", i);
+            fila.put("peticiones", linea[i].getTotalCount());
+            fila.put("p50Ms", milisegundos(linea[i].getValueAtPercentile(50)));
+            fila.put("p99Ms", milisegundos(linea[i].getValueAtPercentile(99)));
+            fila.put("maxMs", milisegundos(linea[i].getMaxValue()));
+            segundos.add(fila);
+        }
+        return segundos;
+    }
+
+    /**
+     * Percentil de la latencia entre los segundos [desde, hasta) de la línea de tiempo
+     */
+    public double percentilLinea(int desde, int hasta, double percentil) {
+        Histogram tramo = new Histogram(LATENCIA_MAXIMA_US, 3);
+        for (int i = Math.max(0, desde); i < Math.min(hasta, linea.length); i++) {
+            tramo.add(linea[i]);
+        }
+        return milisegundos(tramo.getValueAtPercentile(percentil));
+    }
+
+    /**
+     * Cerrar la medición y devolver el resumen por endpoint
+     */
+    public Map<String, Object> resumen(double segundos) {
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        Histogram total = new Histogram(LATENCIA_MAXIMA_US, 3);
+        long erroresTotales = 0;
+
+        for (Operacion operacion : Operacion.values()) {
+            Histogram histograma = acumulado.get(operacion);
+            histograma.add(latencias.get(operacion).getIntervalHistogram());
+            if (histograma.getTotalCount() == 0) {
+                continue;
+            }
+            total.add(histograma);
+            erroresTotales += errores.get(operacion).get();
+            resumen.put(operacion.getEndpoint(), fila(histograma, errores.get(operacion).get(),
+                    omitidas.get(operacion).get(), segundos));
+        }
+        resumen.put("TOTAL", fila(total, erroresTotales, 0, segundos));
+        return resumen;
+    }
+
+    private static Map<String, Object> fila(Histogram histograma, long errores, long omitidas, double segundos) {
+        Map<String, Object> fila = new LinkedHashMap<>();
+        fila.put("peticiones", histograma.getTotalCount());
+        fila.put("errores", errores);
+        fila.put("omitidas", omitidas);
+        fila.put("rps", redondear(histograma.getTotalCount() / segundos));
+        fila.put("p50Ms", milisegundos(histograma.getValueAtPercentile(50)));
+        fila.put("p99Ms", milisegundos(histograma.getValueAtPercentile(99)));
+        fila.put("p999Ms", milisegundos(histograma.getValueAtPercentile(99.9)));
+        fila.put("maxMs", milisegundos(histograma.getMaxValue()));
+        return fila;
+    }
+
+    /**
+     * Tabla legible del resumen
+     */
+    @SuppressWarnings("unchecked")
+    public static String formatear(Map<String, Object> resumen) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-28s %10s %8s %10s %10s %10s %10s %10s%n",
+                "Endpoint", "Peticiones", "Errores", "RPS", "p50 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (Map.Entry<String, Object> entrada : resumen.entrySet()) {
+            Map<String, Object> fila = (Map<String, Object>) entrada.getValue();
+            sb.append(String.format(Locale.ROOT, "%-28s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                    entrada.getKey(), fila.get("peticiones"), fila.get("errores"), fila.get("rps"),
+                    fila.get("p50Ms"), fila.get("p99Ms"), fila.get("p999Ms"), fila.get("maxMs")));
+        }
+        return sb.toString();
+    }
+
+    private static double milisegundos(long microsegundos) {
+        return redondear(microsegundos / 1000.0);
+    }
+
+    private static double redondear(double valor) {
+        return Math.round(valor * 100) / 100.0;
+    }
+}
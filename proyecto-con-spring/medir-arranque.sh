@@ -0,0 +1,45 @@
+#!/bin/bash
+# Tiempo hasta la primera petición respondida, desde que se lanza la JVM
+# Uso: ./medir-arranque.sh [repeticiones]   (antes: mvn -Pcds package -DskipTests)
+
+REPETICIONES=${1:-5}
+PUERTO=18081
+URL="http://localhost:$PUERTO/crm/personas/api/estadisticas"
+JAR=target/gestioncrm-spring-1.0.0.jar
+CDS_DIR=target/cds
+
+if [ ! -f "$JAR" ] || [ ! -f "$CDS_DIR/app.jsa" ]; then
+    echo "❌ Falta $JAR o $CDS_DIR/app.jsa: ejecutar antes mvn -Pcds package -DskipTests"
+    exit 1
+fi
+
+# medir <nombre> <directorio> <argumentos de java...>
+medir() {
+    local nombre=$1 directorio=$2
+    shift 2
+    local tiempos=()
+    for ((i = 1; i <= REPETICIONES; i++)); do
+        local inicio=$(date +%s%N)
+        (cd "$directorio" && exec java "$@" --server.port=$PUERTO > /dev/null 2>&1) &
+        local pid=$!
+        until curl -sf -o /dev/null "$URL"; do
+            if ! kill -0 $pid 2> /dev/null; then
+                echo "❌ $nombre: la aplicación terminó sin responder"
+                return 1
+            fi
+            sleep 0.05
+        done
+        tiempos+=($(( ($(date +%s%N) - inicio) / 1000000 )))
+        kill $pid
+        wait $pid 2> /dev/null
+    done
+    local mediana=$(printf '%s\n' "${tiempos[@]}" | sort -n | sed -n "$(( (REPETICIONES + 1) / 2 ))p")
+    printf '%-12s mediana %6d ms   (%s)\n' "$nombre" "$mediana" "${tiempos[*]}"
+}
+
+echo "⏱️  Tiempo hasta la primera petición ($REPETICIONES repeticiones)"
+# Sin el calentamiento del perfil prod: se mide el arranque, no la latencia posterior
+# (para eso está PruebaArranque en loadtest/)
+medir "normal" . -jar "$JAR"
+medir "prod" . -jar "$JAR" --spring.profiles.active=prod --gestioncrm.calentamiento.habilitado=false
+medir "prod+cds" "$CDS_DIR" -XX:SharedArchiveFile=app.jsa -Xlog:cds=error -jar gestioncrm-spring-1.0.0-cds.jar --spring.profiles.active=prod --gestioncrm.calentamiento.habilitado=false
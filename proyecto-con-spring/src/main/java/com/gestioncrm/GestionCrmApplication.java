@@ -2,6 +2,8 @@ package com.gestioncrm;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.context.ConfigurableApplicationContext;
 
 /**
  * Clase principal de la aplicación Spring Boot
@@ -10,8 +12,17 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 @SpringBootApplication
 public class GestionCrmApplication {
 
+    /** Pasos del arranque que se guardan para GET /actuator/startup */
+    private static final int PASOS_ARRANQUE = 4096;
+
     public static void main(String[] args) {
-        SpringApplication.run(GestionCrmApplication.class, args);
+        SpringApplication aplicacion = new SpringApplication(GestionCrmApplication.class);
+        aplicacion.setApplicationStartup(new BufferingApplicationStartup(PASOS_ARRANQUE));
+        ConfigurableApplicationContext contexto = aplicacion.run(args);
+        if (Boolean.getBoolean("gestioncrm.arranque.entrenamiento")) {
+            // Ejecución de entrenamiento del archivo CDS (perfil cds de Maven): terminar al arrancar
+            System.exit(SpringApplication.exit(contexto));
+        }
         System.out.println("🚀 Sistema CRM iniciado en: http://localhost:8081/crm");
     }
 }
@@ -0,0 +1,34 @@
+package com.gestioncrm.analitica;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuración de la instantánea columnar de personas (prefijo gestioncrm.analitica)
+ */
+@ConfigurationProperties(prefix = "gestioncrm.analitica")
+public class AnaliticaProperties {
+
+    /** Mantiene la instantánea en memoria para estadísticas y facetas */
+    private boolean habilitado = true;
+
+    /**
+     * Cada cuánto se leen los cambios por secuencia (GET /personas/api/changes) para
+     * incorporar las escrituras que no pasan por esta instancia
+     */
+    private Duration intervaloSincronizacion = Duration.ofSeconds(10);
+
+    /** Slots por tarea de los recorridos en paralelo */
+    private int umbralParalelo = 65_536;
+
+    // Getters y Setters
+    public boolean isHabilitado() { return habilitado; }
+    public void setHabilitado(boolean habilitado) { this.habilitado = habilitado; }
+
+    public Duration getIntervaloSincronizacion() { return intervaloSincronizacion; }
+    public void setIntervaloSincronizacion(Duration intervaloSincronizacion) { this.intervaloSincronizacion = intervaloSincronizacion; }
+
+    public int getUmbralParalelo() { return umbralParalelo; }
+    public void setUmbralParalelo(int umbralParalelo) { this.umbralParalelo = umbralParalelo; }
+}
@@ -0,0 +1,448 @@
+package com.gestioncrm.analitica;
+
+import com.gestioncrm.model.Persona;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Almacén columnar de las personas: una posición (slot) por persona y una columna por atributo
+ *
+ * - ids y secuencias: long[]; los slots [0, base) están ordenados por ID (búsqueda binaria),
+ *   los agregados después de la última compactación se ubican con el mapa "recientes"
+ * - edad: int[] (SIN_EDAD si es nula)
+ * - rol: short[] con el código del diccionario (SIN_ROL si no tiene, ELIMINADA si el slot está libre)
+ * - sexo, email y teléfono: un BitSet por valor
+ *
+ * Los conteos por rol y por edad se mantienen al aplicar cada cambio, así que las estadísticas
+ * sin filtro no recorren las columnas. No es seguro para hilos: InstantaneaPersonas sincroniza.
+ */
+final class ColumnasPersonas {
+
+    static final int EDAD_MAXIMA = 120;
+    static final int SIN_EDAD = -1;
+    static final short SIN_ROL = 0;
+    private static final short ELIMINADA = -1;
+    /** Código de un rol que no está en el diccionario: no coincide con ninguna fila */
+    static final int ROL_INEXISTENTE = -2;
+
+    private static final int CAPACIDAD_INICIAL = 1024;
+    private static final int MINIMO_RECIENTES_COMPACTAR = 65_536;
+
+    private long[] ids = new long[CAPACIDAD_INICIAL];
+    private long[] secuencias = new long[CAPACIDAD_INICIAL];
+    private int[] edades = new int[CAPACIDAD_INICIAL];
+    private short[] roles = new short[CAPACIDAD_INICIAL];
+    private BitSet masculino = new BitSet();
+    private BitSet femenino = new BitSet();
+    private BitSet conEmail = new BitSet();
+    private BitSet conTelefono = new BitSet();
+
+    private int tamano;
+    private int base;
+    private final Map<Long, Integer> recientes = new HashMap<>();
+    private int vivas;
+    private int libres;
+
+    // Diccionario de roles: el código es la posición en la lista (0 = sin rol)
+    private final List<String> nombresRol = new ArrayList<>(Arrays.asList((String) null));
+    private final Map<String, Short> codigosRol = new HashMap<>();
+
+    // Agregados mantenidos en cada cambio
+    private long[] porRol = new long[1];
+    private final long[] porEdad = new long[EDAD_MAXIMA + 2];
+
+    /**
+     * Fila de entrada; los valores ya normalizados (email y teléfono como presencia)
+     */
+    static final class Fila {
+        final long id;
+        final long secuencia;
+        final Integer edad;
+        final Persona.Sexo sexo;
+        final String rol;
+        final boolean tieneEmail;
+        final boolean tieneTelefono;
+
+        Fila(long id, long secuencia, Integer edad, Persona.Sexo sexo, String rol,
+             boolean tieneEmail, boolean tieneTelefono) {
+            this.id = id;
+            this.secuencia = secuencia;
+            this.edad = edad;
+            this.sexo = sexo;
+            this.rol = rol;
+            this.tieneEmail = tieneEmail;
+            this.tieneTelefono = tieneTelefono;
+        }
+    }
+
+    /**
+     * Agregar una fila durante la carga inicial (IDs en orden ascendente)
+     */
+    void cargar(Fila fila) {
+        int slot = nuevoSlot();
+        escribir(slot, fila);
+        base = tamano;
+    }
+
+    /**
+     * Aplicar el estado actual de una persona creada o modificada
+     *
+     * @return false si el cambio es más antiguo que el ya aplicado o la persona fue eliminada
+     */
+    boolean aplicar(Fila fila) {
+        int slot = buscarSlot(fila.id);
+        if (slot < 0) {
+            slot = nuevoSlot();
+            recientes.put(fila.id, slot);
+            escribir(slot, fila);
+            compactarSiConviene();
+            return true;
+        }
+        if (roles[slot] == ELIMINADA || fila.secuencia <= secuencias[slot]) {
+            return false;
+        }
+        restarAgregados(slot);
+        escribir(slot, fila);
+        return true;
+    }
+
+    /**
+     * Eliminar una persona; el slot queda libre hasta la próxima compactación
+     */
+    boolean eliminar(long id) {
+        int slot = buscarSlot(id);
+        if (slot < 0 || roles[slot] == ELIMINADA) {
+            return false;
+        }
+        restarAgregados(slot);
+        roles[slot] = ELIMINADA;
+        edades[slot] = SIN_EDAD;
+        masculino.clear(slot);
+        femenino.clear(slot);
+        conEmail.clear(slot);
+        conTelefono.clear(slot);
+        vivas--;
+        libres++;
+        compactarSiConviene();
+        return true;
+    }
+
+    // ========== CONSULTAS ==========
+
+    int getVivas() { return vivas; }
+    long contarMasculino() { return masculino.cardinality(); }
+    long contarFemenino() { return femenino.cardinality(); }
+    long contarConEmail() { return conEmail.cardinality(); }
+    long contarConTelefono() { return conTelefono.cardinality(); }
+    long contarSinRol() { return porRol[SIN_ROL]; }
+
+    /** Personas por rol (clave null = sin rol), sin recorrer las columnas */
+    Map<String, Long> contarPorRol() {
+        Map<String, Long> conteo = new LinkedHashMap<>();
+        for (int codigo = 0; codigo < porRol.length; codigo++) {
+            if (porRol[codigo] > 0) {
+                conteo.put(nombresRol.get(codigo), porRol[codigo]);
+            }
+        }
+        return conteo;
+    }
+
+    /** Personas por edad: posición = edad (0 a EDAD_MAXIMA), la última = sin edad */
+    long[] contarPorEdad() {
+        return porEdad.clone();
+    }
+
+    /**
+     * Código de un rol para filtrar (ROL_INEXISTENTE si ninguna persona lo tuvo)
+     */
+    int codigoRol(String rol) {
+        if (rol == null || rol.trim().isEmpty()) {
+            return SIN_ROL;
+        }
+        Short codigo = codigosRol.get(rol);
+        return codigo != null ? codigo : ROL_INEXISTENTE;
+    }
+
+    /**
+     * Conteo de facetas de las personas que cumplen el filtro, recorriendo las columnas
+     * en paralelo (fork-join) por tramos de umbral slots
+     */
+    ConteoAnalitico contar(Filtro filtro, ForkJoinPool pool, int umbral) {
+        Parcial parcial = pool.invoke(new Recorrido(filtro, 0, tamano, Math.max(1024, umbral)));
+        Map<String, Long> rol = new LinkedHashMap<>();
+        for (int codigo = 0; codigo < parcial.porRol.length; codigo++) {
+            if (parcial.porRol[codigo] > 0) {
+                rol.put(nombresRol.get(codigo), parcial.porRol[codigo]);
+            }
+        }
+        return new ConteoAnalitico(parcial.total, rol, parcial.masculino, parcial.femenino,
+                parcial.porEdad, parcial.conEmail, parcial.conTelefono);
+    }
+
+    /**
+     * Memoria aproximada de las columnas, el índice de IDs y el diccionario
+     */
+    long bytesEstimados() {
+        long bytes = (long) ids.length * Long.BYTES + (long) secuencias.length * Long.BYTES
+                + (long) edades.length * Integer.BYTES + (long) roles.length * Short.BYTES;
+        bytes += (masculino.size() + femenino.size() + conEmail.size() + conTelefono.size()) / 8;
+        // HashMap: entrada (~32 B), Long (16 B), Integer (16 B) y la referencia en la tabla
+        bytes += recientes.size() * 72L;
+        bytes += porRol.length * (long) Long.BYTES + porEdad.length * (long) Long.BYTES;
+        for (String nombre : nombresRol) {
+            bytes += nombre == null ? 0 : 40 + 2L * nombre.length();
+        }
+        return bytes;
+    }
+
+    // ========== INTERNO ==========
+
+    private int buscarSlot(long id) {
+        int slot = Arrays.binarySearch(ids, 0, base, id);
+        if (slot >= 0) {
+            return slot;
+        }
+        Integer reciente = recientes.get(id);
+        return reciente != null ? reciente : -1;
+    }
+
+    private int nuevoSlot() {
+        if (tamano == ids.length) {
+            int capacidad = ids.length + (ids.length >> 1);
+            ids = Arrays.copyOf(ids, capacidad);
+            secuencias = Arrays.copyOf(secuencias, capacidad);
+            edades = Arrays.copyOf(edades, capacidad);
+            roles = Arrays.copyOf(roles, capacidad);
+        }
+        vivas++;
+        return tamano++;
+    }
+
+    private void escribir(int slot, Fila fila) {
+        ids[slot] = fila.id;
+        secuencias[slot] = fila.secuencia;
+        edades[slot] = fila.edad == null ? SIN_EDAD : Math.max(0, Math.min(EDAD_MAXIMA, fila.edad));
+        roles[slot] = codificarRol(fila.rol);
+        masculino.set(slot, fila.sexo == Persona.Sexo.M);
+        femenino.set(slot, fila.sexo == Persona.Sexo.F);
+        conEmail.set(slot, fila.tieneEmail);
+        conTelefono.set(slot, fila.tieneTelefono);
+        porRol[roles[slot]]++;
+        porEdad[indiceEdad(edades[slot])]++;
+    }
+
+    private void restarAgregados(int slot) {
+        porRol[roles[slot]]--;
+        porEdad[indiceEdad(edades[slot])]--;
+    }
+
+    private static int indiceEdad(int edad) {
+        return edad == SIN_EDAD ? EDAD_MAXIMA + 1 : edad;
+    }
+
+    private short codificarRol(String rol) {
+        if (rol == null || rol.trim().isEmpty()) {
+            return SIN_ROL;
+        }
+        Short codigo = codigosRol.get(rol);
+        if (codigo == null) {
+            if (nombresRol.size() > Short.MAX_VALUE) {
+                throw new IllegalStateException("Demasiados roles distintos para la instantánea");
+            }
+            codigo = (short) nombresRol.size();
+            nombresRol.add(rol);
+            codigosRol.put(rol, codigo);
+            porRol = Arrays.copyOf(porRol, nombresRol.size());
+        }
+        return codigo;
+    }
+
+    /**
+     * Reordenar por ID y descartar los slots libres cuando los recientes o los libres crecen
+     */
+    private void compactarSiConviene() {
+        if (recientes.size() < Math.max(MINIMO_RECIENTES_COMPACTAR, tamano / 8)
+                && libres < Math.max(MINIMO_RECIENTES_COMPACTAR, tamano / 4)) {
+            return;
+        }
+        compactar();
+    }
+
+    void compactar() {
+        // Slots vivos de la parte ordenada y de los recientes (ordenados por ID), mezclados
+        int[] ordenados = new int[vivas];
+        int n = 0;
+        for (int slot = 0; slot < base; slot++) {
+            if (roles[slot] != ELIMINADA) {
+                ordenados[n++] = slot;
+            }
+        }
+        int finBase = n;
+        long[] recientesPorId = new long[tamano - base];
+        int r = 0;
+        for (int slot = base; slot < tamano; slot++) {
+            if (roles[slot] != ELIMINADA) {
+                recientesPorId[r++] = ids[slot];
+            }
+        }
+        Arrays.sort(recientesPorId, 0, r);
+        for (int i = 0; i < r; i++) {
+            ordenados[n++] = recientes.get(recientesPorId[i]);
+        }
+        int[] mezcla = mezclar(ordenados, finBase, n);
+
+        int capacidad = Math.max(CAPACIDAD_INICIAL, n + (n >> 2));
+        long[] nuevosIds = new long[capacidad];
+        long[] nuevasSecuencias = new long[capacidad];
+        int[] nuevasEdades = new int[capacidad];
+        short[] nuevosRoles = new short[capacidad];
+        BitSet nuevoMasculino = new BitSet(n);
+        BitSet nuevoFemenino = new BitSet(n);
+        BitSet nuevoConEmail = new BitSet(n);
+        BitSet nuevoConTelefono = new BitSet(n);
+        for (int destino = 0; destino < n; destino++) {
+            int origen = mezcla[destino];
+            nuevosIds[destino] = ids[origen];
+            nuevasSecuencias[destino] = secuencias[origen];
+            nuevasEdades[destino] = edades[origen];
+            nuevosRoles[destino] = roles[origen];
+            if (masculino.get(origen)) nuevoMasculino.set(destino);
+            if (femenino.get(origen)) nuevoFemenino.set(destino);
+            if (conEmail.get(origen)) nuevoConEmail.set(destino);
+            if (conTelefono.get(origen)) nuevoConTelefono.set(destino);
+        }
+        ids = nuevosIds;
+        secuencias = nuevasSecuencias;
+        edades = nuevasEdades;
+        roles = nuevosRoles;
+        masculino = nuevoMasculino;
+        femenino = nuevoFemenino;
+        conEmail = nuevoConEmail;
+        conTelefono = nuevoConTelefono;
+        tamano = n;
+        base = n;
+        libres = 0;
+        recientes.clear();
+    }
+
+    /**
+     * Mezclar dos tramos de slots ordenados por ID: [0, medio) y [medio, fin)
+     */
+    private int[] mezclar(int[] slots, int medio, int fin) {
+        int[] resultado = new int[fin];
+        int i = 0;
+        int j = medio;
+        int k = 0;
+        while (i < medio && j < fin) {
+            resultado[k++] = ids[slots[i]] <= ids[slots[j]] ? slots[i++] : slots[j++];
+        }
+        while (i < medio) {
+            resultado[k++] = slots[i++];
+        }
+        while (j < fin) {
+            resultado[k++] = slots[j++];
+        }
+        return resultado;
+    }
+
+    /**
+     * Filtro de un recorrido; los criterios nulos no se aplican
+     */
+    static final class Filtro {
+        Integer codigoRol;
+        Persona.Sexo sexo;
+        Integer edadMin;
+        Integer edadMax;
+        Boolean conEmail;
+        Boolean conTelefono;
+    }
+
+    private static final class Parcial {
+        long total;
+        long masculino;
+        long femenino;
+        long conEmail;
+        long conTelefono;
+        long[] porRol;
+        final long[] porEdad = new long[EDAD_MAXIMA + 2];
+
+        Parcial(int roles) {
+            porRol = new long[roles];
+        }
+
+        Parcial sumar(Parcial otro) {
+            total += otro.total;
+            masculino += otro.masculino;
+            femenino += otro.femenino;
+            conEmail += otro.conEmail;
+            conTelefono += otro.conTelefono;
+            for (int i = 0; i < porRol.length; i++) {
+                porRol[i] += otro.porRol[i];
+            }
+            for (int i = 0; i < porEdad.length; i++) {
+                porEdad[i] += otro.porEdad[i];
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Recorrido de un tramo de slots; se divide en dos mientras supere el umbral
+     */
+    private final class Recorrido extends RecursiveTask<Parcial> {
+        private final Filtro filtro;
+        private final int desde;
+        private final int hasta;
+        private final int umbral;
+
+        Recorrido(Filtro filtro, int desde, int hasta, int umbral) {
+            this.filtro = filtro;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.umbral = umbral;
+        }
+
+        @Override
+        protected Parcial compute() {
+            if (hasta - desde > umbral) {
+                int medio = (desde + hasta) >>> 1;
+                Recorrido izquierda = new Recorrido(filtro, desde, medio, umbral);
+                izquierda.fork();
+                Parcial derecha = new Recorrido(filtro, medio, hasta, umbral).compute();
+                return derecha.sumar(izquierda.join());
+            }
+            Parcial parcial = new Parcial(nombresRol.size());
+            int edadMin = filtro.edadMin != null ? filtro.edadMin : Integer.MIN_VALUE;
+            int edadMax = filtro.edadMax != null ? filtro.edadMax : Integer.MAX_VALUE;
+            boolean filtraEdad = filtro.edadMin != null || filtro.edadMax != null;
+            BitSet sexo = filtro.sexo == null ? null : filtro.sexo == Persona.Sexo.M ? masculino : femenino;
+            for (int slot = desde; slot < hasta; slot++) {
+                short rol = roles[slot];
+                if (rol == ELIMINADA
+                        || (filtro.codigoRol != null && rol != filtro.codigoRol)
+                        || (sexo != null && !sexo.get(slot))
+                        || (filtraEdad && (edades[slot] == SIN_EDAD || edades[slot] < edadMin || edades[slot] > edadMax))
+                        || (filtro.conEmail != null && conEmail.get(slot) != filtro.conEmail)
+                        || (filtro.conTelefono != null && conTelefono.get(slot) != filtro.conTelefono)) {
+                    continue;
+                }
+                parcial.total++;
+                parcial.porRol[rol]++;
+                parcial.porEdad[indiceEdad(edades[slot])]++;
+                if (masculino.get(slot)) parcial.masculino++;
+                if (femenino.get(slot)) parcial.femenino++;
+                if (conEmail.get(slot)) parcial.conEmail++;
+                if (conTelefono.get(slot)) parcial.conTelefono++;
+            }
+            return parcial;
+        }
+    }
+}
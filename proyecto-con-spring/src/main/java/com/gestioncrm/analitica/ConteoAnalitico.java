@@ -0,0 +1,39 @@
+package com.gestioncrm.analitica;
+
+import java.util.Map;
+
+/**
+ * Conteos de un conjunto de personas (de la instantánea columnar o de la consulta agregada)
+ */
+public class ConteoAnalitico {
+
+    private final long total;
+    private final Map<String, Long> porRol;
+    private final long masculino;
+    private final long femenino;
+    private final long[] porEdad;
+    private final long conEmail;
+    private final long conTelefono;
+
+    public ConteoAnalitico(long total, Map<String, Long> porRol, long masculino, long femenino,
+                           long[] porEdad, long conEmail, long conTelefono) {
+        this.total = total;
+        this.porRol = porRol;
+        this.masculino = masculino;
+        this.femenino = femenino;
+        this.porEdad = porEdad;
+        this.conEmail = conEmail;
+        this.conTelefono = conTelefono;
+    }
+
+    public long getTotal() { return total; }
+    /** Personas por rol; la clave null agrupa a las que no tienen rol */
+    public Map<String, Long> getPorRol() { return porRol; }
+    public long getMasculino() { return masculino; }
+    public long getFemenino() { return femenino; }
+    public long getSinSexo() { return total - masculino - femenino; }
+    /** Personas por edad: posición = edad (0 a 120), la última posición = sin edad */
+    public long[] getPorEdad() { return porEdad; }
+    public long getConEmail() { return conEmail; }
+    public long getConTelefono() { return conTelefono; }
+}
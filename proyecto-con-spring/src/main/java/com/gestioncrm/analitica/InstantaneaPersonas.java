@@ -0,0 +1,296 @@
+package com.gestioncrm.analitica;
+
+import com.gestioncrm.evento.PersonaCambiadaEvent;
+import com.gestioncrm.model.Persona;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Modelo de lectura columnar de las personas en memoria, para estadísticas y facetas
+ *
+ * Se carga completo al arrancar y después se mantiene con cambios incrementales: los eventos
+ * de PersonaCambiadaEvent de esta instancia (inmediatos) y, cada intervaloSincronizacion, los
+ * cambios por secuencia de la tabla (escrituras de otras instancias o del generador). La
+ * secuencia de cada fila evita aplicar un estado más antiguo que el que ya se tiene.
+ */
+public class InstantaneaPersonas implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(InstantaneaPersonas.class);
+
+    private static final int FILAS_POR_LECTURA = 5_000;
+
+    private final DataSource dataSource;
+    private final AnaliticaProperties properties;
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService sincronizacion;
+
+    private ColumnasPersonas columnas = new ColumnasPersonas();
+    /** Secuencia hasta la que se leyeron los cambios de la tabla */
+    private long marcaSecuencia;
+    private volatile boolean lista;
+
+    public InstantaneaPersonas(DataSource dataSource, AnaliticaProperties properties) {
+        this.dataSource = dataSource;
+        this.properties = properties;
+        this.sincronizacion = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "analitica-sincronizacion");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * Cargar la instantánea si no la cargó ya el calentamiento, y empezar a sincronizar
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        if (!lista) {
+            reconstruir();
+        }
+        long intervalo = properties.getIntervaloSincronizacion().toMillis();
+        if (intervalo > 0) {
+            sincronizacion.scheduleWithFixedDelay(this::sincronizarSinFallar, intervalo, intervalo, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Cargar todas las personas desde la base de datos y reemplazar la instantánea
+     */
+    public void reconstruir() {
+        long inicio = System.nanoTime();
+        try (Connection conexion = dataSource.getConnection()) {
+            // La marca se lee antes que las filas: lo confirmado después se recoge al sincronizar
+            long marca = leerContador(conexion);
+            ColumnasPersonas nuevas = new ColumnasPersonas();
+            try (PreparedStatement consulta = conexion.prepareStatement(
+                    "SELECT id_persona, secuencia_cambio, edad, sexo, rol, email, telefono "
+                            + "FROM persona ORDER BY id_persona")) {
+                consulta.setFetchSize(FILAS_POR_LECTURA);
+                try (ResultSet rs = consulta.executeQuery()) {
+                    while (rs.next()) {
+                        nuevas.cargar(leerFila(rs));
+                    }
+                }
+            }
+            cerrojo.writeLock().lock();
+            try {
+                columnas = nuevas;
+                marcaSecuencia = marca;
+            } finally {
+                cerrojo.writeLock().unlock();
+            }
+            lista = true;
+            log.info("Instantánea analítica cargada: {} personas, ~{} KB, {} ms", nuevas.getVivas(),
+                    nuevas.bytesEstimados() / 1024, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+        } catch (SQLException e) {
+            log.error("No se pudo cargar la instantánea analítica; las estadísticas se calcularán en la base de datos", e);
+        }
+        // Lo confirmado mientras se cargaba
+        sincronizarSinFallar();
+    }
+
+    /**
+     * Incorporar los cambios confirmados en la tabla después de la última marca
+     */
+    public void sincronizar() throws SQLException {
+        long desde;
+        cerrojo.readLock().lock();
+        try {
+            desde = marcaSecuencia;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+
+        List<ColumnasPersonas.Fila> filas = new ArrayList<>();
+        List<Long> eliminadas = new ArrayList<>();
+        long marca;
+        try (Connection conexion = dataSource.getConnection()) {
+            marca = leerContador(conexion);
+            try (PreparedStatement consulta = conexion.prepareStatement(
+                    "SELECT id_persona, secuencia_cambio, edad, sexo, rol, email, telefono "
+                            + "FROM persona WHERE secuencia_cambio > ? AND secuencia_cambio <= ?")) {
+                consulta.setLong(1, desde);
+                consulta.setLong(2, marca);
+                try (ResultSet rs = consulta.executeQuery()) {
+                    while (rs.next()) {
+                        filas.add(leerFila(rs));
+                    }
+                }
+            }
+            try (PreparedStatement consulta = conexion.prepareStatement(
+                    "SELECT id_entidad FROM cambio_eliminado "
+                            + "WHERE entidad = 'persona' AND secuencia_cambio > ? AND secuencia_cambio <= ?")) {
+                consulta.setLong(1, desde);
+                consulta.setLong(2, marca);
+                try (ResultSet rs = consulta.executeQuery()) {
+                    while (rs.next()) {
+                        eliminadas.add(rs.getLong(1));
+                    }
+                }
+            }
+        }
+
+        int aplicados = 0;
+        cerrojo.writeLock().lock();
+        try {
+            for (ColumnasPersonas.Fila fila : filas) {
+                if (columnas.aplicar(fila)) {
+                    aplicados++;
+                }
+            }
+            for (Long id : eliminadas) {
+                if (columnas.eliminar(id)) {
+                    aplicados++;
+                }
+            }
+            marcaSecuencia = Math.max(marcaSecuencia, marca);
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+        if (aplicados > 0) {
+            log.debug("Instantánea analítica: {} cambios incorporados desde la secuencia {}", aplicados, desde);
+        }
+    }
+
+    /**
+     * Aplicar los cambios de esta instancia en cuanto se confirman
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarPersona(PersonaCambiadaEvent cambio) {
+        if (!lista) {
+            return;
+        }
+        cerrojo.writeLock().lock();
+        try {
+            if (cambio.getTipo() == PersonaCambiadaEvent.Tipo.ELIMINADA) {
+                columnas.eliminar(cambio.getIdPersona());
+            } else {
+                Persona persona = cambio.getPersona();
+                // Sin secuencia no se puede ordenar frente a la sincronización: se espera a ella
+                if (persona.getSecuenciaCambio() != null) {
+                    columnas.aplicar(new ColumnasPersonas.Fila(persona.getId(), persona.getSecuenciaCambio(),
+                            persona.getEdad(), persona.getSexo(), persona.getRol(),
+                            persona.tieneEmail(), persona.tieneTelefono()));
+                }
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    public boolean isLista() {
+        return lista;
+    }
+
+    // ========== CONSULTAS ==========
+
+    /**
+     * Conteos de todas las personas a partir de los agregados mantenidos (sin recorrer columnas)
+     */
+    public ConteoAnalitico contarTodas() {
+        cerrojo.readLock().lock();
+        try {
+            long total = columnas.getVivas();
+            return new ConteoAnalitico(total, columnas.contarPorRol(), columnas.contarMasculino(),
+                    columnas.contarFemenino(), columnas.contarPorEdad(),
+                    columnas.contarConEmail(), columnas.contarConTelefono());
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Conteos de las personas que cumplen los criterios (los nulos no se aplican),
+     * con un recorrido en paralelo de las columnas
+     */
+    public ConteoAnalitico contar(String rol, Persona.Sexo sexo, Integer edadMin, Integer edadMax,
+                                  Boolean conEmail, Boolean conTelefono) {
+        if (rol == null && sexo == null && edadMin == null && edadMax == null
+                && conEmail == null && conTelefono == null) {
+            return contarTodas();
+        }
+        cerrojo.readLock().lock();
+        try {
+            ColumnasPersonas.Filtro filtro = new ColumnasPersonas.Filtro();
+            filtro.codigoRol = rol == null ? null : columnas.codigoRol(rol);
+            filtro.sexo = sexo;
+            filtro.edadMin = edadMin;
+            filtro.edadMax = edadMax;
+            filtro.conEmail = conEmail;
+            filtro.conTelefono = conTelefono;
+            return columnas.contar(filtro, pool, properties.getUmbralParalelo());
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Memoria aproximada de la instantánea en bytes
+     */
+    public long getBytesEstimados() {
+        cerrojo.readLock().lock();
+        try {
+            return columnas.bytesEstimados();
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        sincronizacion.shutdownNow();
+    }
+
+    // ========== INTERNO ==========
+
+    private void sincronizarSinFallar() {
+        try {
+            sincronizar();
+        } catch (SQLException | RuntimeException e) {
+            log.warn("No se pudo sincronizar la instantánea analítica: {}", e.getMessage());
+        }
+    }
+
+    private static long leerContador(Connection conexion) throws SQLException {
+        try (PreparedStatement consulta = conexion.prepareStatement(
+                "SELECT valor FROM secuencia_cambios WHERE nombre = 'cambios'");
+             ResultSet rs = consulta.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0L;
+        }
+    }
+
+    private static ColumnasPersonas.Fila leerFila(ResultSet rs) throws SQLException {
+        int edad = rs.getInt(3);
+        Integer edadFila = rs.wasNull() ? null : edad;
+        String sexo = rs.getString(4);
+        Persona.Sexo sexoFila = null;
+        if (sexo != null) {
+            try {
+                sexoFila = Persona.Sexo.valueOf(sexo);
+            } catch (IllegalArgumentException e) {
+                // Valor fuera del enum: se cuenta como sin sexo
+            }
+        }
+        String email = rs.getString(6);
+        String telefono = rs.getString(7);
+        return new ColumnasPersonas.Fila(rs.getLong(1), rs.getLong(2), edadFila, sexoFila, rs.getString(5),
+                email != null && !email.trim().isEmpty(), telefono != null && !telefono.trim().isEmpty());
+    }
+}
@@ -0,0 +1,36 @@
+package com.gestioncrm.auditoria;
+
+/**
+ * Quién hace los cambios en el hilo actual y desde dónde
+ * Lo fija FiltroActorAuditoria en cada petición; fuera de una petición el actor es "sistema"
+ */
+public final class ActorAuditoria {
+
+    public static final String SISTEMA = "sistema";
+
+    private static final ThreadLocal<String> ACTOR = new ThreadLocal<>();
+    private static final ThreadLocal<String> ORIGEN = new ThreadLocal<>();
+
+    private ActorAuditoria() {
+    }
+
+    public static void establecer(String actor, String origen) {
+        ACTOR.set(actor);
+        ORIGEN.set(origen);
+    }
+
+    public static String actor() {
+        String actor = ACTOR.get();
+        return actor != null ? actor : SISTEMA;
+    }
+
+    /** Dirección del cliente, o nulo fuera de una petición */
+    public static String origen() {
+        return ORIGEN.get();
+    }
+
+    public static void limpiar() {
+        ACTOR.remove();
+        ORIGEN.remove();
+    }
+}
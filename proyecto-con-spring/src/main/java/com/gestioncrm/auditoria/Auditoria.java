@@ -0,0 +1,218 @@
+package com.gestioncrm.auditoria;
+
+import com.gestioncrm.model.Persona;
+import com.gestioncrm.model.Usuario;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Auditoría de las altas, cambios y bajas hechas por los servicios
+ *
+ * Los servicios toman los campos de la entidad antes de modificarla y anotan el resultado;
+ * aquí se calcula qué campos cambiaron y el evento se envía al diario cuando la transacción
+ * se confirma (los cambios revertidos no se auditan). Sin diario (gestioncrm.auditoria.habilitado=false)
+ * no se hace nada y campos(...) devuelve nulo.
+ */
+@Component
+public class Auditoria {
+
+    /** Valor con que se registran los campos que no deben quedar en el diario */
+    static final String OCULTO = "***";
+
+    private final DiarioAuditoria diario;
+
+    public Auditoria(ObjectProvider<DiarioAuditoria> diario) {
+        this.diario = diario.getIfAvailable();
+    }
+
+    public boolean isActiva() {
+        return diario != null;
+    }
+
+    /**
+     * Valores auditables de la persona, o nulo si la auditoría no está activa
+     */
+    public Map<String, String> campos(Persona persona) {
+        if (diario == null) {
+            return null;
+        }
+        Map<String, String> campos = new LinkedHashMap<>();
+        campos.put("nombre", persona.getNombre());
+        campos.put("apellido", persona.getApellido());
+        campos.put("cedula", persona.getCedula());
+        campos.put("telefono", persona.getTelefono());
+        campos.put("email", persona.getEmail());
+        campos.put("edad", texto(persona.getEdad()));
+        campos.put("sexo", texto(persona.getSexo()));
+        campos.put("rol", persona.getRol());
+        return campos;
+    }
+
+    /**
+     * Valores auditables del usuario, o nulo si la auditoría no está activa
+     * La contraseña se compara pero en el diario solo consta que cambió
+     */
+    public Map<String, String> campos(Usuario usuario) {
+        if (diario == null) {
+            return null;
+        }
+        Map<String, String> campos = new LinkedHashMap<>();
+        campos.put("usuario", usuario.getUsuario());
+        campos.put("contrasena", usuario.getContrasena());
+        campos.put("personaId", usuario.getPersona() != null ? texto(usuario.getPersona().getId()) : null);
+        return campos;
+    }
+
+    public void personaCreada(Persona persona) {
+        if (diario != null) {
+            anotar(EventoAuditoria.Entidad.PERSONA, persona.getId(), EventoAuditoria.Operacion.CREADA,
+                    diferencias(Collections.emptyMap(), campos(persona)));
+        }
+    }
+
+    /**
+     * Alta confirmada fuera del hilo de la petición (ingesta masiva): el actor y el origen
+     * se tomaron al recibirla
+     */
+    public void personaCreada(Persona persona, String actor, String origen) {
+        if (diario != null) {
+            anotar(EventoAuditoria.Entidad.PERSONA, persona.getId(), EventoAuditoria.Operacion.CREADA,
+                    diferencias(Collections.emptyMap(), campos(persona)), actor, origen);
+        }
+    }
+
+    public void personaActualizada(Map<String, String> antes, Persona persona) {
+        if (diario != null) {
+            anotar(EventoAuditoria.Entidad.PERSONA, persona.getId(), EventoAuditoria.Operacion.ACTUALIZADA,
+                    diferencias(antes, campos(persona)));
+        }
+    }
+
+    /**
+     * Cambio de un solo campo hecho sin cargar la entidad (actualizaciones masivas)
+     */
+    public void personaActualizada(Long id, String campo, String anterior, String nuevo) {
+        if (diario != null) {
+            anotar(EventoAuditoria.Entidad.PERSONA, id, EventoAuditoria.Operacion.ACTUALIZADA,
+                    diferencias(Collections.singletonMap(campo, anterior), Collections.singletonMap(campo, nuevo)));
+        }
+    }
+
+    /**
+     * @param antes campos de la persona eliminada, o nulo si se eliminó sin cargarla
+     */
+    public void personaEliminada(Long id, Map<String, String> antes) {
+        if (diario != null) {
+            anotar(EventoAuditoria.Entidad.PERSONA, id, EventoAuditoria.Operacion.ELIMINADA,
+                    diferencias(antes, Collections.emptyMap()));
+        }
+    }
+
+    public void usuarioCreado(Usuario usuario) {
+        if (diario != null) {
+            anotar(EventoAuditoria.Entidad.USUARIO, usuario.getId(), EventoAuditoria.Operacion.CREADA,
+                    diferencias(Collections.emptyMap(), campos(usuario)));
+        }
+    }
+
+    public void usuarioActualizado(Map<String, String> antes, Usuario usuario) {
+        if (diario != null) {
+            anotar(EventoAuditoria.Entidad.USUARIO, usuario.getId(), EventoAuditoria.Operacion.ACTUALIZADA,
+                    diferencias(antes, campos(usuario)));
+        }
+    }
+
+    public void usuarioEliminado(Long id, Map<String, String> antes) {
+        if (diario != null) {
+            anotar(EventoAuditoria.Entidad.USUARIO, id, EventoAuditoria.Operacion.ELIMINADA,
+                    diferencias(antes, Collections.emptyMap()));
+        }
+    }
+
+    // ========== INTERNO ==========
+
+    private void anotar(EventoAuditoria.Entidad entidad, Long id, EventoAuditoria.Operacion operacion,
+                        List<EventoAuditoria.Cambio> cambios) {
+        anotar(entidad, id, operacion, cambios, ActorAuditoria.actor(), ActorAuditoria.origen());
+    }
+
+    private void anotar(EventoAuditoria.Entidad entidad, Long id, EventoAuditoria.Operacion operacion,
+                        List<EventoAuditoria.Cambio> cambios, String actor, String origen) {
+        // Una actualización que no cambia nada no se audita
+        if (operacion == EventoAuditoria.Operacion.ACTUALIZADA && cambios.isEmpty()) {
+            return;
+        }
+        EventoAuditoria evento = new EventoAuditoria(System.currentTimeMillis(), entidad, id, operacion,
+                actor, origen, cambios);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            diario.registrar(evento);
+            return;
+        }
+        EventosTransaccion eventos = (EventosTransaccion) TransactionSynchronizationManager.getResource(this);
+        if (eventos == null) {
+            eventos = new EventosTransaccion();
+            TransactionSynchronizationManager.bindResource(this, eventos);
+            TransactionSynchronizationManager.registerSynchronization(eventos);
+        }
+        eventos.eventos.add(evento);
+    }
+
+    private static List<EventoAuditoria.Cambio> diferencias(Map<String, String> antes, Map<String, String> despues) {
+        List<EventoAuditoria.Cambio> cambios = new ArrayList<>();
+        if (antes == null) {
+            return cambios;
+        }
+        for (String campo : union(antes, despues)) {
+            String anterior = antes.get(campo);
+            String nuevo = despues.get(campo);
+            if (!Objects.equals(anterior, nuevo)) {
+                if ("contrasena".equals(campo)) {
+                    anterior = anterior == null ? null : OCULTO;
+                    nuevo = nuevo == null ? null : OCULTO;
+                }
+                cambios.add(new EventoAuditoria.Cambio(campo, anterior, nuevo));
+            }
+        }
+        return cambios;
+    }
+
+    private static List<String> union(Map<String, String> antes, Map<String, String> despues) {
+        List<String> campos = new ArrayList<>(antes.keySet());
+        for (String campo : despues.keySet()) {
+            if (!antes.containsKey(campo)) {
+                campos.add(campo);
+            }
+        }
+        return campos;
+    }
+
+    private static String texto(Object valor) {
+        return valor == null ? null : valor.toString();
+    }
+
+    /**
+     * Eventos de la transacción actual, que se envían al diario si se confirma
+     */
+    private class EventosTransaccion implements TransactionSynchronization {
+        private final List<EventoAuditoria> eventos = new ArrayList<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(Auditoria.this);
+            if (status == STATUS_COMMITTED) {
+                for (EventoAuditoria evento : eventos) {
+                    diario.registrar(evento);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.gestioncrm.auditoria;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Configuración del diario de auditoría (prefijo gestioncrm.auditoria)
+ */
+@ConfigurationProperties(prefix = "gestioncrm.auditoria")
+public class AuditoriaProperties {
+
+    /** Registra en disco las altas, cambios y bajas de personas y usuarios */
+    private boolean habilitado = true;
+
+    /** Directorio de los segmentos auditoria-NNNNNNNNNN.log */
+    private String directorio = "auditoria";
+
+    /** Tamaño a partir del cual se abre un segmento nuevo */
+    private DataSize tamanoSegmento = DataSize.ofMegabytes(64);
+
+    /** Eventos en espera de escritura como máximo */
+    private int capacidad = 65_536;
+
+    /** Eventos que el escritor toma de la cola en cada escritura */
+    private int tamanoLote = 1_024;
+
+    /** Cada cuánto se fuerza a disco lo escrito (fsync) */
+    private Duration intervaloFsync = Duration.ofSeconds(1);
+
+    /** Espera máxima de una escritura con la cola llena; pasado ese tiempo el evento se descarta */
+    private Duration esperaMaxima = Duration.ofMillis(10);
+
+    // Getters y Setters
+    public boolean isHabilitado() { return habilitado; }
+    public void setHabilitado(boolean habilitado) { this.habilitado = habilitado; }
+
+    public String getDirectorio() { return directorio; }
+    public void setDirectorio(String directorio) { this.directorio = directorio; }
+
+    public DataSize getTamanoSegmento() { return tamanoSegmento; }
+    public void setTamanoSegmento(DataSize tamanoSegmento) { this.tamanoSegmento = tamanoSegmento; }
+
+    public int getCapacidad() { return capacidad; }
+    public void setCapacidad(int capacidad) { this.capacidad = capacidad; }
+
+    public int getTamanoLote() { return tamanoLote; }
+    public void setTamanoLote(int tamanoLote) { this.tamanoLote = tamanoLote; }
+
+    public Duration getIntervaloFsync() { return intervaloFsync; }
+    public void setIntervaloFsync(Duration intervaloFsync) { this.intervaloFsync = intervaloFsync; }
+
+    public Duration getEsperaMaxima() { return esperaMaxima; }
+    public void setEsperaMaxima(Duration esperaMaxima) { this.esperaMaxima = esperaMaxima; }
+}
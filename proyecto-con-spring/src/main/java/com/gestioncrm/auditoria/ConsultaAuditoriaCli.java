@@ -0,0 +1,84 @@
+package com.gestioncrm.auditoria;
+
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Línea de comandos para consultar el diario de auditoría
+ * Lee los segmentos directamente; no necesita la aplicación ni la base de datos.
+ *
+ * Uso desde el JAR de la aplicación:
+ * java -cp gestioncrm-spring-1.0.0.jar -Dloader.main=com.gestioncrm.auditoria.ConsultaAuditoriaCli \
+ *      org.springframework.boot.loader.PropertiesLauncher \
+ *      --directorio=auditoria --entidad=persona --id=42 --actor=ana \
+ *      --desde=2024-06-01 --hasta=2024-06-02T12:00 --limite=100
+ */
+public final class ConsultaAuditoriaCli {
+
+    private ConsultaAuditoriaCli() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> argumentos = leerArgumentos(args);
+
+        LectorAuditoria.Filtro filtro = new LectorAuditoria.Filtro();
+        try {
+            if (argumentos.containsKey("entidad")) {
+                filtro.setEntidad(EventoAuditoria.Entidad.valueOf(argumentos.get("entidad").toUpperCase(Locale.ROOT)));
+            }
+            if (argumentos.containsKey("id")) {
+                filtro.setIdEntidad(Long.parseLong(argumentos.get("id")));
+            }
+            filtro.setActor(argumentos.get("actor"));
+            if (argumentos.containsKey("desde")) {
+                filtro.setDesde(instante(argumentos.get("desde")));
+            }
+            if (argumentos.containsKey("hasta")) {
+                filtro.setHasta(instante(argumentos.get("hasta")));
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            System.err.println("Opción no válida: " + e.getMessage() + ". Opciones: --directorio --entidad "
+                    + "(persona|usuario) --id --actor --desde --hasta (fecha, fecha y hora local o instante ISO) --limite");
+            System.exit(2);
+        }
+        int limite = Integer.parseInt(argumentos.getOrDefault("limite", "100"));
+
+        LectorAuditoria lector = new LectorAuditoria(Paths.get(argumentos.getOrDefault("directorio", "auditoria")));
+        List<EventoAuditoria> eventos = lector.consultar(filtro, limite);
+        for (EventoAuditoria evento : eventos) {
+            System.out.println(evento);
+        }
+        System.out.println("✅ " + eventos.size() + " eventos");
+        if (lector.getRegistrosIlegibles() > 0) {
+            System.err.println("⚠️ Segmentos con registros ilegibles (incompletos o dañados): "
+                    + lector.getRegistrosIlegibles());
+        }
+    }
+
+    private static long instante(String valor) {
+        if (valor.endsWith("Z")) {
+            return Instant.parse(valor).toEpochMilli();
+        }
+        LocalDateTime fecha = valor.contains("T") ? LocalDateTime.parse(valor) : LocalDate.parse(valor).atStartOfDay();
+        return fecha.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static Map<String, String> leerArgumentos(String[] args) {
+        Map<String, String> argumentos = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int igual = arg.indexOf('=');
+                argumentos.put(arg.substring(2, igual), arg.substring(igual + 1));
+            }
+        }
+        return argumentos;
+    }
+}
@@ -0,0 +1,304 @@
+package com.gestioncrm.auditoria;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+
+/**
+ * Diario de auditoría en disco: solo se agregan registros, en segmentos que rotan por tamaño
+ *
+ * Quien registra solo encola el evento; un hilo escritor toma lotes de la cola, los codifica
+ * en un búfer directo y los escribe con un FileChannel. Lo escrito se fuerza a disco cada
+ * intervaloFsync, de modo que ante una caída se pierde como mucho ese intervalo. Con la cola
+ * llena se espera hasta esperaMaxima y después el evento se descarta (y se cuenta), para que la
+ * auditoría no frene las escrituras de la aplicación.
+ */
+public class DiarioAuditoria implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(DiarioAuditoria.class);
+
+    private static final long ESPERA_SIN_PENDIENTES_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Path directorio;
+    private final long tamanoSegmento;
+    private final int tamanoLote;
+    private final long intervaloFsyncNanos;
+    private final long esperaMaximaNanos;
+    private final BlockingQueue<EventoAuditoria> cola;
+    private final Thread escritor;
+
+    private final Counter escritos;
+    private final Counter descartados;
+    private final Timer fsync;
+    private final AtomicLong totalDescartados = new AtomicLong();
+
+    private volatile boolean abierto = true;
+
+    // Estado del hilo escritor
+    private final ByteBuffer lote = ByteBuffer.allocateDirect(FormatoAuditoria.LONGITUD_MAXIMA
+            + FormatoAuditoria.CABECERA_REGISTRO);
+    private ByteBuffer registro = ByteBuffer.allocate(4096);
+    private FileChannel canal;
+    private long numeroSegmento;
+    private long posicion;
+    private boolean sinSincronizar;
+    private long ultimoFsync = System.nanoTime();
+
+    public DiarioAuditoria(AuditoriaProperties properties, MeterRegistry registro) {
+        this.directorio = Paths.get(properties.getDirectorio()).toAbsolutePath();
+        this.tamanoSegmento = Math.max(properties.getTamanoSegmento().toBytes(), 4096);
+        this.tamanoLote = Math.max(properties.getTamanoLote(), 1);
+        this.intervaloFsyncNanos = properties.getIntervaloFsync().toNanos();
+        this.esperaMaximaNanos = properties.getEsperaMaxima().toNanos();
+        this.cola = new ArrayBlockingQueue<>(properties.getCapacidad());
+        try {
+            Files.createDirectories(directorio);
+            // Nunca se continúa un segmento anterior: su final puede haber quedado a medio escribir
+            this.numeroSegmento = ultimoSegmento(directorio);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo preparar el directorio de auditoría " + directorio, e);
+        }
+
+        this.escritos = Counter.builder("gestioncrm.auditoria.eventos")
+                .description("Eventos de auditoría por resultado").tag("resultado", "escrito").register(registro);
+        this.descartados = Counter.builder("gestioncrm.auditoria.eventos")
+                .description("Eventos de auditoría por resultado").tag("resultado", "descartado").register(registro);
+        this.fsync = Timer.builder("gestioncrm.auditoria.fsync")
+                .description("Tiempo de forzar a disco el segmento actual").register(registro);
+        Gauge.builder("gestioncrm.auditoria.pendientes", cola, BlockingQueue::size)
+                .description("Eventos de auditoría en espera de escritura").register(registro);
+
+        this.escritor = new Thread(this::escribirContinuamente, "auditoria-escritor");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+        log.info("Diario de auditoría en {}", directorio);
+    }
+
+    /**
+     * Encolar un evento para escribirlo
+     *
+     * @return false si se descartó (diario cerrado o cola llena pasada la espera máxima)
+     */
+    public boolean registrar(EventoAuditoria evento) {
+        if (abierto) {
+            try {
+                if (cola.offer(evento) || cola.offer(evento, esperaMaximaNanos, TimeUnit.NANOSECONDS)) {
+                    return true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        descartar(1);
+        return false;
+    }
+
+    public Path getDirectorio() {
+        return directorio;
+    }
+
+    public int getPendientes() {
+        return cola.size();
+    }
+
+    public long getDescartados() {
+        return totalDescartados.get();
+    }
+
+    /**
+     * Deja de aceptar eventos, escribe los pendientes y los fuerza a disco
+     */
+    @Override
+    public void close() {
+        abierto = false;
+        try {
+            escritor.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ========== HILO ESCRITOR ==========
+
+    private void escribirContinuamente() {
+        List<EventoAuditoria> pendientes = new ArrayList<>(tamanoLote);
+        while (abierto || !cola.isEmpty()) {
+            try {
+                EventoAuditoria primero = cola.poll(esperaHastaFsync(), TimeUnit.NANOSECONDS);
+                if (primero != null) {
+                    pendientes.add(primero);
+                    cola.drainTo(pendientes, tamanoLote - 1);
+                    escribir(pendientes);
+                    escritos.increment(pendientes.size());
+                    pendientes.clear();
+                }
+                if (sinSincronizar && System.nanoTime() - ultimoFsync >= intervaloFsyncNanos) {
+                    forzar();
+                }
+            } catch (InterruptedException e) {
+                // El hilo no se interrumpe para cerrar: un canal interrumpido queda cerrado
+                log.debug("Escritor de auditoría interrumpido; se sigue hasta vaciar la cola");
+            } catch (IOException | RuntimeException e) {
+                log.error("No se pudieron escribir {} eventos de auditoría", pendientes.size(), e);
+                descartar(pendientes.size());
+                pendientes.clear();
+                lote.clear();
+                cerrarSegmento();
+            }
+        }
+        try {
+            forzar();
+        } catch (IOException e) {
+            log.error("No se pudo forzar a disco el diario de auditoría", e);
+        }
+        cerrarSegmento();
+    }
+
+    private long esperaHastaFsync() {
+        if (!sinSincronizar) {
+            return ESPERA_SIN_PENDIENTES_NANOS;
+        }
+        return Math.max(1, intervaloFsyncNanos - (System.nanoTime() - ultimoFsync));
+    }
+
+    private void escribir(List<EventoAuditoria> eventos) throws IOException {
+        for (EventoAuditoria evento : eventos) {
+            if (!codificar(evento)) {
+                continue;
+            }
+            int longitud = registro.position();
+            int total = FormatoAuditoria.CABECERA_REGISTRO + longitud;
+            long ocupado = posicion + lote.position();
+            if (canal == null || (ocupado + total > tamanoSegmento && ocupado > FormatoAuditoria.CABECERA)) {
+                volcarLote();
+                rotar();
+            }
+            if (lote.remaining() < total) {
+                volcarLote();
+            }
+            registro.flip();
+            lote.putInt(longitud).putInt(FormatoAuditoria.crc(registro)).put(registro);
+        }
+        volcarLote();
+    }
+
+    /**
+     * Codificar el evento en el búfer de registro, agrandándolo si hace falta
+     */
+    private boolean codificar(EventoAuditoria evento) {
+        while (true) {
+            registro.clear();
+            try {
+                FormatoAuditoria.codificar(evento, registro);
+                return true;
+            } catch (BufferOverflowException e) {
+                if (registro.capacity() >= FormatoAuditoria.LONGITUD_MAXIMA) {
+                    log.warn("Evento de auditoría de {}#{} demasiado grande; se descarta",
+                            evento.getEntidad(), evento.getIdEntidad());
+                    descartar(1);
+                    return false;
+                }
+                registro = ByteBuffer.allocate(Math.min(registro.capacity() * 2, FormatoAuditoria.LONGITUD_MAXIMA));
+            }
+        }
+    }
+
+    private void volcarLote() throws IOException {
+        if (lote.position() == 0) {
+            return;
+        }
+        lote.flip();
+        while (lote.hasRemaining()) {
+            posicion += canal.write(lote);
+        }
+        lote.clear();
+        sinSincronizar = true;
+    }
+
+    private void rotar() throws IOException {
+        if (canal != null) {
+            forzar();
+            canal.close();
+        }
+        numeroSegmento++;
+        Path segmento = directorio.resolve(FormatoAuditoria.nombreSegmento(numeroSegmento));
+        canal = FileChannel.open(segmento, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer cabecera = ByteBuffer.allocate(FormatoAuditoria.CABECERA);
+        FormatoAuditoria.escribirCabecera(cabecera, System.currentTimeMillis());
+        cabecera.flip();
+        while (cabecera.hasRemaining()) {
+            canal.write(cabecera);
+        }
+        posicion = FormatoAuditoria.CABECERA;
+        sinSincronizar = true;
+        log.debug("Nuevo segmento de auditoría {}", segmento);
+    }
+
+    private void forzar() throws IOException {
+        if (canal != null && sinSincronizar) {
+            long inicio = System.nanoTime();
+            canal.force(false);
+            fsync.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+        sinSincronizar = false;
+        ultimoFsync = System.nanoTime();
+    }
+
+    private void cerrarSegmento() {
+        if (canal == null) {
+            return;
+        }
+        try {
+            canal.close();
+        } catch (IOException e) {
+            log.warn("No se pudo cerrar el segmento de auditoría: {}", e.getMessage());
+        }
+        // Lo siguiente va a un segmento nuevo
+        canal = null;
+    }
+
+    private void descartar(int cantidad) {
+        if (cantidad == 0) {
+            return;
+        }
+        descartados.increment(cantidad);
+        long total = totalDescartados.addAndGet(cantidad);
+        if (total == cantidad || total / 10_000 != (total - cantidad) / 10_000) {
+            log.warn("Eventos de auditoría descartados: {} en total", total);
+        }
+    }
+
+    private static long ultimoSegmento(Path directorio) throws IOException {
+        long ultimo = 0;
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio, FormatoAuditoria.PATRON_SEGMENTOS)) {
+            for (Path archivo : archivos) {
+                Matcher nombre = FormatoAuditoria.NOMBRE_SEGMENTO.matcher(archivo.getFileName().toString());
+                if (nombre.matches()) {
+                    ultimo = Math.max(ultimo, Long.parseLong(nombre.group(1)));
+                }
+            }
+        }
+        return ultimo;
+    }
+}
@@ -0,0 +1,86 @@
+package com.gestioncrm.auditoria;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Un alta, cambio o baja de una persona o un usuario: quién, cuándo y qué campos cambiaron
+ */
+public class EventoAuditoria {
+
+    public enum Entidad {
+        PERSONA, USUARIO
+    }
+
+    public enum Operacion {
+        CREADA, ACTUALIZADA, ELIMINADA
+    }
+
+    private final long instante;
+    private final Entidad entidad;
+    private final long idEntidad;
+    private final Operacion operacion;
+    private final String actor;
+    private final String origen;
+    private final List<Cambio> cambios;
+
+    public EventoAuditoria(long instante, Entidad entidad, long idEntidad, Operacion operacion,
+                           String actor, String origen, List<Cambio> cambios) {
+        this.instante = instante;
+        this.entidad = entidad;
+        this.idEntidad = idEntidad;
+        this.operacion = operacion;
+        this.actor = actor;
+        this.origen = origen;
+        this.cambios = Collections.unmodifiableList(cambios);
+    }
+
+    /** Milisegundos desde la época */
+    public long getInstante() { return instante; }
+    public Entidad getEntidad() { return entidad; }
+    public long getIdEntidad() { return idEntidad; }
+    public Operacion getOperacion() { return operacion; }
+    public String getActor() { return actor; }
+    public String getOrigen() { return origen; }
+    public List<Cambio> getCambios() { return cambios; }
+
+    @Override
+    public String toString() {
+        StringBuilder texto = new StringBuilder()
+                .append(Instant.ofEpochMilli(instante)).append(' ')
+                .append(entidad.name().toLowerCase()).append('#').append(idEntidad).append(' ')
+                .append(operacion).append(" por ").append(actor);
+        if (origen != null) {
+            texto.append(" (").append(origen).append(')');
+        }
+        for (int i = 0; i < cambios.size(); i++) {
+            texto.append(i == 0 ? ": " : "; ").append(cambios.get(i));
+        }
+        return texto.toString();
+    }
+
+    /**
+     * Valor anterior y nuevo de un campo (nulo si no tenía o ya no tiene valor)
+     */
+    public static class Cambio {
+        private final String campo;
+        private final String anterior;
+        private final String nuevo;
+
+        public Cambio(String campo, String anterior, String nuevo) {
+            this.campo = campo;
+            this.anterior = anterior;
+            this.nuevo = nuevo;
+        }
+
+        public String getCampo() { return campo; }
+        public String getAnterior() { return anterior; }
+        public String getNuevo() { return nuevo; }
+
+        @Override
+        public String toString() {
+            return campo + ": " + anterior + " -> " + nuevo;
+        }
+    }
+}
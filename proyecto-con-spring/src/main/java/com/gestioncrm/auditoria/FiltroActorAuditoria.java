@@ -0,0 +1,39 @@
+package com.gestioncrm.auditoria;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Toma el actor de la auditoría de la cabecera X-Usuario (hasta que haya autenticación)
+ * y el origen de la dirección del cliente
+ */
+public class FiltroActorAuditoria extends OncePerRequestFilter {
+
+    public static final String CABECERA = "X-Usuario";
+    static final String ANONIMO = "anonimo";
+    private static final int LONGITUD_MAXIMA = 100;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        ActorAuditoria.establecer(actor(request.getHeader(CABECERA)), request.getRemoteAddr());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ActorAuditoria.limpiar();
+        }
+    }
+
+    private static String actor(String cabecera) {
+        if (cabecera == null || cabecera.trim().isEmpty()) {
+            return ANONIMO;
+        }
+        String actor = cabecera.trim();
+        return actor.length() > LONGITUD_MAXIMA ? actor.substring(0, LONGITUD_MAXIMA) : actor;
+    }
+}
@@ -0,0 +1,114 @@
+package com.gestioncrm.auditoria;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Formato binario de los segmentos del diario de auditoría
+ *
+ * Cabecera de 16 bytes: magia (int), versión (short), reservado (short) y el instante de
+ * creación del segmento (long). Después, registros de longitud (int), CRC32 de los datos (int)
+ * y los datos del evento. Los textos van como longitud (int, -1 si es nulo) y bytes UTF-8.
+ */
+final class FormatoAuditoria {
+
+    static final int MAGIA = 0x47435241;
+    static final short VERSION = 1;
+    static final int CABECERA = 16;
+    static final int CABECERA_REGISTRO = 8;
+
+    static final String PATRON_SEGMENTOS = "auditoria-*.log";
+    static final Pattern NOMBRE_SEGMENTO = Pattern.compile("auditoria-(\\d{10})\\.log");
+
+    /** Un registro más largo solo puede ser un dato dañado */
+    static final int LONGITUD_MAXIMA = 1 << 20;
+
+    private static final EventoAuditoria.Entidad[] ENTIDADES = EventoAuditoria.Entidad.values();
+    private static final EventoAuditoria.Operacion[] OPERACIONES = EventoAuditoria.Operacion.values();
+
+    private FormatoAuditoria() {
+    }
+
+    static String nombreSegmento(long numero) {
+        return String.format("auditoria-%010d.log", numero);
+    }
+
+    static void escribirCabecera(ByteBuffer destino, long inicio) {
+        destino.putInt(MAGIA).putShort(VERSION).putShort((short) 0).putLong(inicio);
+    }
+
+    /**
+     * Instante de creación del segmento, o -1 si la cabecera no es válida
+     */
+    static long leerCabecera(ByteBuffer origen) {
+        if (origen.remaining() < CABECERA || origen.getInt() != MAGIA || origen.getShort() != VERSION) {
+            return -1;
+        }
+        origen.getShort();
+        return origen.getLong();
+    }
+
+    /**
+     * Escribir los datos del evento (sin longitud ni CRC)
+     *
+     * @throws java.nio.BufferOverflowException si no caben en el búfer
+     */
+    static void codificar(EventoAuditoria evento, ByteBuffer destino) {
+        destino.putLong(evento.getInstante())
+                .put((byte) evento.getEntidad().ordinal())
+                .put((byte) evento.getOperacion().ordinal())
+                .putLong(evento.getIdEntidad());
+        escribirTexto(destino, evento.getActor());
+        escribirTexto(destino, evento.getOrigen());
+        destino.putShort((short) evento.getCambios().size());
+        for (EventoAuditoria.Cambio cambio : evento.getCambios()) {
+            escribirTexto(destino, cambio.getCampo());
+            escribirTexto(destino, cambio.getAnterior());
+            escribirTexto(destino, cambio.getNuevo());
+        }
+    }
+
+    static EventoAuditoria decodificar(ByteBuffer origen) {
+        long instante = origen.getLong();
+        EventoAuditoria.Entidad entidad = ENTIDADES[origen.get()];
+        EventoAuditoria.Operacion operacion = OPERACIONES[origen.get()];
+        long idEntidad = origen.getLong();
+        String actor = leerTexto(origen);
+        String origenEvento = leerTexto(origen);
+        int cantidad = origen.getShort() & 0xFFFF;
+        List<EventoAuditoria.Cambio> cambios = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            cambios.add(new EventoAuditoria.Cambio(leerTexto(origen), leerTexto(origen), leerTexto(origen)));
+        }
+        return new EventoAuditoria(instante, entidad, idEntidad, operacion, actor, origenEvento, cambios);
+    }
+
+    static int crc(ByteBuffer datos) {
+        CRC32 crc = new CRC32();
+        crc.update(datos.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private static void escribirTexto(ByteBuffer destino, String texto) {
+        if (texto == null) {
+            destino.putInt(-1);
+            return;
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        destino.putInt(bytes.length).put(bytes);
+    }
+
+    private static String leerTexto(ByteBuffer origen) {
+        int longitud = origen.getInt();
+        if (longitud < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[longitud];
+        origen.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
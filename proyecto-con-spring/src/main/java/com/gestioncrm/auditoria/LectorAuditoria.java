@@ -0,0 +1,173 @@
+package com.gestioncrm.auditoria;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+
+/**
+ * Lectura de los segmentos del diario de auditoría (mapeados en memoria, solo lectura)
+ *
+ * Se puede leer mientras la aplicación escribe: un registro incompleto o con el CRC que no
+ * coincide termina la lectura de su segmento y se cuenta en getRegistrosIlegibles().
+ */
+public class LectorAuditoria {
+
+    private final Path directorio;
+    private long registrosIlegibles;
+
+    public LectorAuditoria(Path directorio) {
+        this.directorio = directorio;
+    }
+
+    /**
+     * Los últimos eventos que cumplen el filtro, en orden cronológico
+     */
+    public List<EventoAuditoria> consultar(Filtro filtro, int limite) throws IOException {
+        Deque<EventoAuditoria> ultimos = new ArrayDeque<>(Math.min(limite, 10_000));
+        recorrer(filtro.desde, evento -> {
+            if (filtro.cumple(evento)) {
+                if (ultimos.size() == limite) {
+                    ultimos.removeFirst();
+                }
+                ultimos.addLast(evento);
+            }
+        });
+        return new ArrayList<>(ultimos);
+    }
+
+    /**
+     * Recorrer todos los eventos en el orden en que se escribieron
+     *
+     * @param desde si no es nulo, se saltan los segmentos que terminaron antes (milisegundos desde la época)
+     */
+    public void recorrer(Long desde, Consumer<EventoAuditoria> consumidor) throws IOException {
+        List<Segmento> segmentos = segmentos();
+        for (int i = 0; i < segmentos.size(); i++) {
+            // Todo lo de un segmento se escribió antes de crear el siguiente
+            if (desde != null && i + 1 < segmentos.size() && segmentos.get(i + 1).inicio < desde) {
+                continue;
+            }
+            leerSegmento(segmentos.get(i).archivo, consumidor);
+        }
+    }
+
+    public long getRegistrosIlegibles() {
+        return registrosIlegibles;
+    }
+
+    private void leerSegmento(Path archivo, Consumer<EventoAuditoria> consumidor) throws IOException {
+        MappedByteBuffer datos;
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        }
+        if (FormatoAuditoria.leerCabecera(datos) < 0) {
+            registrosIlegibles++;
+            return;
+        }
+        while (datos.remaining() >= FormatoAuditoria.CABECERA_REGISTRO) {
+            int longitud = datos.getInt();
+            int crc = datos.getInt();
+            if (longitud <= 0 || longitud > FormatoAuditoria.LONGITUD_MAXIMA || longitud > datos.remaining()) {
+                registrosIlegibles++;
+                return;
+            }
+            ByteBuffer registro = datos.slice();
+            registro.limit(longitud);
+            if (FormatoAuditoria.crc(registro) != crc) {
+                registrosIlegibles++;
+                return;
+            }
+            datos.position(datos.position() + longitud);
+            consumidor.accept(FormatoAuditoria.decodificar(registro));
+        }
+    }
+
+    private List<Segmento> segmentos() throws IOException {
+        TreeMap<Long, Path> porNumero = new TreeMap<>();
+        if (!Files.isDirectory(directorio)) {
+            return new ArrayList<>();
+        }
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio, FormatoAuditoria.PATRON_SEGMENTOS)) {
+            for (Path archivo : archivos) {
+                Matcher nombre = FormatoAuditoria.NOMBRE_SEGMENTO.matcher(archivo.getFileName().toString());
+                if (nombre.matches()) {
+                    porNumero.put(Long.parseLong(nombre.group(1)), archivo);
+                }
+            }
+        }
+        List<Segmento> segmentos = new ArrayList<>(porNumero.size());
+        for (Path archivo : porNumero.values()) {
+            segmentos.add(new Segmento(archivo, leerInicio(archivo)));
+        }
+        return segmentos;
+    }
+
+    private static long leerInicio(Path archivo) throws IOException {
+        ByteBuffer cabecera = ByteBuffer.allocate(FormatoAuditoria.CABECERA);
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            while (cabecera.hasRemaining() && canal.read(cabecera) > 0) {
+                // seguir leyendo
+            }
+        }
+        cabecera.flip();
+        return FormatoAuditoria.leerCabecera(cabecera);
+    }
+
+    private static class Segmento {
+        private final Path archivo;
+        private final long inicio;
+
+        Segmento(Path archivo, long inicio) {
+            this.archivo = archivo;
+            this.inicio = inicio;
+        }
+    }
+
+    /**
+     * Criterios de la consulta (los nulos no se aplican)
+     */
+    public static class Filtro {
+        private EventoAuditoria.Entidad entidad;
+        private Long idEntidad;
+        private String actor;
+        private Long desde;
+        private Long hasta;
+
+        boolean cumple(EventoAuditoria evento) {
+            return (entidad == null || evento.getEntidad() == entidad)
+                    && (idEntidad == null || evento.getIdEntidad() == idEntidad)
+                    && (actor == null || actor.equals(evento.getActor()))
+                    && (desde == null || evento.getInstante() >= desde)
+                    && (hasta == null || evento.getInstante() < hasta);
+        }
+
+        public EventoAuditoria.Entidad getEntidad() { return entidad; }
+        public void setEntidad(EventoAuditoria.Entidad entidad) { this.entidad = entidad; }
+
+        public Long getIdEntidad() { return idEntidad; }
+        public void setIdEntidad(Long idEntidad) { this.idEntidad = idEntidad; }
+
+        public String getActor() { return actor; }
+        public void setActor(String actor) { this.actor = actor; }
+
+        /** Desde este instante, incluido (milisegundos desde la época) */
+        public Long getDesde() { return desde; }
+        public void setDesde(Long desde) { this.desde = desde; }
+
+        /** Hasta este instante, excluido (milisegundos desde la época) */
+        public Long getHasta() { return hasta; }
+        public void setHasta(Long hasta) { this.hasta = hasta; }
+    }
+}
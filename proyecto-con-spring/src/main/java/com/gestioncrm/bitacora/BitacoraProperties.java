@@ -0,0 +1,39 @@
+package com.gestioncrm.bitacora;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuración del log de la aplicación (prefijo gestioncrm.bitacora)
+ * formato y capacidad los lee logback-spring.xml al iniciar el log
+ */
+@ConfigurationProperties(prefix = "gestioncrm.bitacora")
+public class BitacoraProperties {
+
+    /** texto (patrón de Spring Boot) o json (un objeto por línea) */
+    private String formato = "texto";
+
+    /**
+     * Eventos en espera del escritor asíncrono; con la cola al 80 % se descartan
+     * TRACE, DEBUG e INFO, y WARN y ERROR esperan
+     */
+    private int capacidad = 8192;
+
+    /**
+     * Muestreo por logger o paquete: se escribe 1 de cada N eventos INFO, DEBUG o TRACE
+     * (WARN y ERROR siempre). Por ejemplo gestioncrm.bitacora.muestreo[com.gestioncrm.controller]=10
+     */
+    private Map<String, Integer> muestreo = new LinkedHashMap<>();
+
+    // Getters y Setters
+    public String getFormato() { return formato; }
+    public void setFormato(String formato) { this.formato = formato; }
+
+    public int getCapacidad() { return capacidad; }
+    public void setCapacidad(int capacidad) { this.capacidad = capacidad; }
+
+    public Map<String, Integer> getMuestreo() { return muestreo; }
+    public void setMuestreo(Map<String, Integer> muestreo) { this.muestreo = muestreo; }
+}
@@ -0,0 +1,95 @@
+package com.gestioncrm.bitacora;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.encoder.EncoderBase;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Codificador de logback que escribe cada evento como un objeto JSON en una línea
+ *
+ * Campos: instante, nivel, logger, hilo, mensaje, los valores del MDC (entre ellos la
+ * correlación de la petición) y, si hay, la excepción con su traza.
+ */
+public class CodificadorJson extends EncoderBase<ILoggingEvent> {
+
+    private static final byte[] VACIO = new byte[0];
+
+    @Override
+    public byte[] headerBytes() {
+        return VACIO;
+    }
+
+    @Override
+    public byte[] encode(ILoggingEvent evento) {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"instante\":\"").append(Instant.ofEpochMilli(evento.getTimeStamp())).append('"');
+        campo(json, "nivel", evento.getLevel().toString());
+        campo(json, "logger", evento.getLoggerName());
+        campo(json, "hilo", evento.getThreadName());
+        campo(json, "mensaje", evento.getFormattedMessage());
+        Map<String, String> mdc = evento.getMDCPropertyMap();
+        if (mdc != null) {
+            for (Map.Entry<String, String> entrada : mdc.entrySet()) {
+                campo(json, entrada.getKey(), entrada.getValue());
+            }
+        }
+        IThrowableProxy excepcion = evento.getThrowableProxy();
+        if (excepcion != null) {
+            campo(json, "excepcion", ThrowableProxyUtil.asString(excepcion));
+        }
+        json.append("}\n");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public byte[] footerBytes() {
+        return VACIO;
+    }
+
+    private static void campo(StringBuilder json, String nombre, String valor) {
+        json.append(",\"");
+        escapar(json, nombre);
+        json.append("\":");
+        if (valor == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        escapar(json, valor);
+        json.append('"');
+    }
+
+    private static void escapar(StringBuilder json, String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+    }
+}
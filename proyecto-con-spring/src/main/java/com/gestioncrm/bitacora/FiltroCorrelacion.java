@@ -0,0 +1,45 @@
+package com.gestioncrm.bitacora;
+
+import org.slf4j.MDC;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Identificador de correlación de cada petición, en el MDC ("correlacion") para todos los
+ * logs de la petición y en la cabecera X-Correlation-Id de la respuesta
+ * Se respeta el que envíe el cliente o un proxy si es un identificador razonable.
+ */
+public class FiltroCorrelacion extends OncePerRequestFilter {
+
+    public static final String CABECERA = "X-Correlation-Id";
+    public static final String CLAVE_MDC = "correlacion";
+
+    private static final Pattern VALIDO = Pattern.compile("[A-Za-z0-9._:-]{1,64}");
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String recibida = request.getHeader(CABECERA);
+        String correlacion = recibida != null && VALIDO.matcher(recibida).matches() ? recibida : nueva();
+        MDC.put(CLAVE_MDC, correlacion);
+        response.setHeader(CABECERA, correlacion);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            MDC.remove(CLAVE_MDC);
+        }
+    }
+
+    /** 16 dígitos hexadecimales aleatorios */
+    private static String nueva() {
+        String hex = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        return hex.length() == 16 ? hex : "0000000000000000".substring(hex.length()) + hex;
+    }
+}
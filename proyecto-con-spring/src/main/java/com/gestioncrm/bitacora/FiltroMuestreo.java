@@ -0,0 +1,115 @@
+package com.gestioncrm.bitacora;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.ILoggerFactory;
+import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Muestreo de los eventos INFO, DEBUG y TRACE por logger o paquete: de cada regla solo se
+ * escribe 1 de cada N eventos. WARN y ERROR no se muestrean.
+ *
+ * Se evalúa antes que el nivel del logger (es un TurboFilter de logback); las comprobaciones
+ * isDebugEnabled() y similares no cuentan como eventos y siguen respondiendo según el nivel.
+ */
+public class FiltroMuestreo extends TurboFilter {
+
+    private static final Regla SIN_MUESTREO = new Regla(1);
+
+    private final Map<String, Integer> reglas;
+    private final Map<String, Regla> porPrefijo = new ConcurrentHashMap<>();
+    private final Map<String, Regla> porLogger = new ConcurrentHashMap<>();
+    private final AtomicLong descartados = new AtomicLong();
+
+    public FiltroMuestreo(Map<String, Integer> reglas) {
+        this.reglas = reglas;
+        for (Map.Entry<String, Integer> regla : reglas.entrySet()) {
+            if (regla.getValue() == null || regla.getValue() < 1) {
+                throw new IllegalArgumentException("El muestreo de " + regla.getKey() + " debe ser 1 o mayor");
+            }
+            porPrefijo.put(regla.getKey(), new Regla(regla.getValue()));
+        }
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format,
+                              Object[] params, Throwable t) {
+        // format nulo: es una comprobación de nivel, no un evento
+        if (format == null || level.isGreaterOrEqual(Level.WARN)
+                || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        Regla regla = porLogger.computeIfAbsent(logger.getName(), this::buscarRegla);
+        if (regla == SIN_MUESTREO || regla.eventos.getAndIncrement() % regla.cadaN == 0) {
+            return FilterReply.NEUTRAL;
+        }
+        descartados.incrementAndGet();
+        return FilterReply.DENY;
+    }
+
+    /**
+     * Agregar el filtro al contexto de logback (sin efecto si el log no es logback)
+     */
+    public void instalar() {
+        LoggerContext contexto = contextoLogback();
+        if (contexto != null && !reglas.isEmpty()) {
+            setName("muestreo");
+            setContext(contexto);
+            start();
+            contexto.addTurboFilter(this);
+        }
+    }
+
+    public void desinstalar() {
+        LoggerContext contexto = contextoLogback();
+        if (contexto != null) {
+            contexto.getTurboFilterList().remove(this);
+        }
+        stop();
+    }
+
+    /** Eventos descartados por el muestreo desde que se instaló */
+    public long getDescartados() {
+        return descartados.get();
+    }
+
+    /**
+     * La regla del prefijo más largo que contiene al logger
+     */
+    private Regla buscarRegla(String nombre) {
+        String prefijo = nombre;
+        while (true) {
+            Regla regla = porPrefijo.get(prefijo);
+            if (regla != null) {
+                return regla;
+            }
+            int punto = prefijo.lastIndexOf('.');
+            if (punto < 0) {
+                return SIN_MUESTREO;
+            }
+            prefijo = prefijo.substring(0, punto);
+        }
+    }
+
+    private static LoggerContext contextoLogback() {
+        ILoggerFactory fabrica = LoggerFactory.getILoggerFactory();
+        return fabrica instanceof LoggerContext ? (LoggerContext) fabrica : null;
+    }
+
+    private static class Regla {
+        private final int cadaN;
+        private final AtomicLong eventos = new AtomicLong();
+
+        Regla(int cadaN) {
+            this.cadaN = cadaN;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.gestioncrm.cache;
+
+import com.gestioncrm.cambios.SecuenciaCambios;
+import com.gestioncrm.evento.PersonaCambiadaEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché en memoria de los métodos @LecturaEnCache
+ *
+ * Las entradas se invalidan con las escrituras de esta instancia en cuanto se confirman
+ * (PersonaCambiadaEvent) y con las de cualquier instancia cuando SondeoInvalidaciones las
+ * lee de cambio_invalidacion. Mientras el sondeo no esté al día (obsolescencia-maxima) la
+ * caché no responde y las lecturas van a la base de datos.
+ *
+ * Cada entidad lleva una generación que aumenta con cada invalidación: un resultado leído
+ * mientras se invalidaba no se guarda, aunque la consulta haya visto el estado anterior.
+ *
+ * Cada entidad guarda como máximo "capacidad" entradas; al llenarse se descarta la usada
+ * hace más tiempo (LRU).
+ *
+ * Métricas: gestioncrm.cache.llamadas{metodo, resultado=acierto|fallo|omitida} y
+ * gestioncrm.cache.entradas.
+ */
+@Aspect
+public class CacheLecturas implements Ordered {
+
+    private final Map<SecuenciaCambios.Entidad, Seccion> secciones = new EnumMap<>(SecuenciaCambios.Entidad.class);
+    private final Map<String, Counter> contadores = new ConcurrentHashMap<>();
+    private final AtomicInteger entradas = new AtomicInteger();
+    private final SondeoInvalidaciones sondeo;
+    private final MeterRegistry registro;
+
+    public CacheLecturas(SondeoInvalidaciones sondeo, CacheProperties properties, MeterRegistry registro) {
+        this.sondeo = sondeo;
+        this.registro = registro;
+        for (SecuenciaCambios.Entidad entidad : SecuenciaCambios.Entidad.values()) {
+            secciones.put(entidad, new Seccion(properties.getCapacidad()));
+        }
+        Gauge.builder("gestioncrm.cache.entradas", entradas, AtomicInteger::get)
+                .description("Entradas en la caché de lecturas")
+                .register(registro);
+    }
+
+    /**
+     * Por fuera de la coalescencia: un acierto no llega a ella
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE - 2;
+    }
+
+    @Around("@annotation(enCache)")
+    public Object leer(ProceedingJoinPoint llamada, LecturaEnCache enCache) throws Throwable {
+        Method metodo = ((MethodSignature) llamada.getSignature()).getMethod();
+        // Dentro de una transacción la llamada debe ver sus propias escrituras
+        if (TransactionSynchronizationManager.isActualTransactionActive() || !sondeo.isAlDia()) {
+            contar(metodo, "omitida");
+            return llamada.proceed();
+        }
+
+        Seccion seccion = secciones.get(enCache.entidad());
+        Object[] argumentos = llamada.getArgs();
+        Clave clave = new Clave(metodo, argumentos);
+        long generacion = seccion.generacion.get();
+        Object guardado = seccion.obtener(clave);
+        if (guardado != null) {
+            contar(metodo, "acierto");
+            return guardado;
+        }
+
+        contar(metodo, "fallo");
+        Object resultado = llamada.proceed();
+        if (resultado != null) {
+            entradas.addAndGet(seccion.guardar(clave, enCache.porId() ? argumentos[0] : null, resultado, generacion));
+        }
+        return resultado;
+    }
+
+    /**
+     * Invalidar los resultados que dependen de esas filas (null: de toda la entidad)
+     * Los resultados de consultas (no por ID) se invalidan siempre.
+     */
+    public void invalidar(SecuenciaCambios.Entidad entidad, Collection<Long> ids) {
+        Seccion seccion = secciones.get(entidad);
+        // Primero la generación y después las entradas (ver Seccion.guardar)
+        seccion.generacion.incrementAndGet();
+        entradas.addAndGet(-seccion.quitar(ids));
+    }
+
+    /**
+     * Quitar todas las entradas
+     */
+    public void vaciar() {
+        for (SecuenciaCambios.Entidad entidad : SecuenciaCambios.Entidad.values()) {
+            invalidar(entidad, null);
+        }
+    }
+
+    /**
+     * Las escrituras de esta instancia, en cuanto se confirman
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarPersona(PersonaCambiadaEvent cambio) {
+        invalidar(SecuenciaCambios.Entidad.PERSONA, Collections.singletonList(cambio.getIdPersona()));
+    }
+
+    public int getEntradas() {
+        return entradas.get();
+    }
+
+    private void contar(Method metodo, String resultado) {
+        String metodoCorto = metodo.getDeclaringClass().getSimpleName() + "." + metodo.getName();
+        contadores.computeIfAbsent(metodoCorto + "|" + resultado, k -> Counter.builder("gestioncrm.cache.llamadas")
+                .description("Llamadas a lecturas en caché")
+                .tag("metodo", metodoCorto)
+                .tag("resultado", resultado)
+                .register(registro))
+                .increment();
+    }
+
+    /**
+     * Entradas de una entidad en orden de uso, con las claves agrupadas por ID de fila
+     * (lecturas por ID) o sin él (consultas) para invalidarlas
+     */
+    private static final class Seccion {
+        private final AtomicLong generacion = new AtomicLong();
+        private final int capacidad;
+        /** La primera es la usada hace más tiempo */
+        private final LinkedHashMap<Clave, Entrada> entradas = new LinkedHashMap<>(16, 0.75f, true);
+        private final Map<Object, Set<Clave>> porId = new HashMap<>();
+        private final Set<Clave> consultas = new HashSet<>();
+
+        Seccion(int capacidad) {
+            this.capacidad = capacidad;
+        }
+
+        synchronized Object obtener(Clave clave) {
+            Entrada entrada = entradas.get(clave);
+            return entrada != null ? entrada.valor : null;
+        }
+
+        /**
+         * Guardar un resultado leído con la generación dada, descartando las menos usadas
+         * si se pasa de la capacidad
+         *
+         * @return la variación del número de entradas
+         */
+        synchronized int guardar(Clave clave, Object id, Object valor, long generacionLeida) {
+            // Hubo una invalidación durante la lectura: el resultado puede ser anterior a ella.
+            // invalidar() aumenta la generación antes de tomar el bloqueo para quitar, así que
+            // lo guardado aquí con la generación vigente lo quitará esa invalidación si le afecta
+            if (generacion.get() != generacionLeida) {
+                return 0;
+            }
+            int variacion = 0;
+            if (entradas.put(clave, new Entrada(id, valor)) == null) {
+                variacion++;
+                if (id == null) {
+                    consultas.add(clave);
+                } else {
+                    porId.computeIfAbsent(id, k -> new HashSet<>()).add(clave);
+                }
+            }
+            Iterator<Map.Entry<Clave, Entrada>> menosUsadas = entradas.entrySet().iterator();
+            while (entradas.size() > capacidad) {
+                Map.Entry<Clave, Entrada> descartada = menosUsadas.next();
+                menosUsadas.remove();
+                desindexar(descartada.getKey(), descartada.getValue().id);
+                variacion--;
+            }
+            return variacion;
+        }
+
+        /**
+         * Quitar las entradas de esos IDs y todas las consultas (null: todas las entradas)
+         *
+         * @return las entradas quitadas
+         */
+        synchronized int quitar(Collection<Long> ids) {
+            if (ids == null) {
+                int quitadas = entradas.size();
+                entradas.clear();
+                porId.clear();
+                consultas.clear();
+                return quitadas;
+            }
+            int quitadas = consultas.size();
+            entradas.keySet().removeAll(consultas);
+            consultas.clear();
+            for (Long id : ids) {
+                Set<Clave> delId = porId.remove(id);
+                if (delId != null) {
+                    quitadas += delId.size();
+                    entradas.keySet().removeAll(delId);
+                }
+            }
+            return quitadas;
+        }
+
+        private void desindexar(Clave clave, Object id) {
+            if (id == null) {
+                consultas.remove(clave);
+                return;
+            }
+            Set<Clave> delId = porId.get(id);
+            if (delId != null && delId.remove(clave) && delId.isEmpty()) {
+                porId.remove(id);
+            }
+        }
+    }
+
+    private static final class Entrada {
+        private final Object id;
+        private final Object valor;
+
+        Entrada(Object id, Object valor) {
+            this.id = id;
+            this.valor = valor;
+        }
+    }
+
+    /**
+     * Método y argumentos de una llamada
+     */
+    private static final class Clave {
+        private final Method metodo;
+        private final List<Object> argumentos;
+        private final int hash;
+
+        Clave(Method metodo, Object[] argumentos) {
+            this.metodo = metodo;
+            this.argumentos = Arrays.asList(argumentos);
+            this.hash = 31 * metodo.hashCode() + this.argumentos.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Clave)) {
+                return false;
+            }
+            Clave otra = (Clave) o;
+            return hash == otra.hash && metodo.equals(otra.metodo) && Objects.equals(argumentos, otra.argumentos);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
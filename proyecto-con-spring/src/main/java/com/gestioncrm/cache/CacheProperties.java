@@ -0,0 +1,55 @@
+package com.gestioncrm.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuración de la caché de lecturas y del sondeo de invalidaciones (prefijo gestioncrm.cache)
+ */
+@ConfigurationProperties(prefix = "gestioncrm.cache")
+public class CacheProperties {
+
+    /** Guarda en memoria los resultados de los métodos @LecturaEnCache */
+    private boolean habilitado = true;
+
+    /** Entradas como máximo de cada entidad; al llenarse se descarta la usada hace más tiempo */
+    private int capacidad = 10_000;
+
+    /**
+     * Cada cuánto se leen las invalidaciones de otras instancias: es lo que puede tardar
+     * en verse aquí una escritura hecha en otra
+     */
+    private Duration intervaloSondeo = Duration.ofSeconds(1);
+
+    /**
+     * Si el último sondeo correcto empezó hace más que esto, la caché deja de responder
+     * (las lecturas van a la base de datos) hasta que el sondeo se recupere
+     */
+    private Duration obsolescenciaMaxima = Duration.ofSeconds(5);
+
+    /** Invalidaciones leídas por consulta como máximo */
+    private int lote = 1_000;
+
+    /** Antigüedad a partir de la cual se purgan las invalidaciones */
+    private Duration retencion = Duration.ofHours(1);
+
+    // Getters y Setters
+    public boolean isHabilitado() { return habilitado; }
+    public void setHabilitado(boolean habilitado) { this.habilitado = habilitado; }
+
+    public int getCapacidad() { return capacidad; }
+    public void setCapacidad(int capacidad) { this.capacidad = capacidad; }
+
+    public Duration getIntervaloSondeo() { return intervaloSondeo; }
+    public void setIntervaloSondeo(Duration intervaloSondeo) { this.intervaloSondeo = intervaloSondeo; }
+
+    public Duration getObsolescenciaMaxima() { return obsolescenciaMaxima; }
+    public void setObsolescenciaMaxima(Duration obsolescenciaMaxima) { this.obsolescenciaMaxima = obsolescenciaMaxima; }
+
+    public int getLote() { return lote; }
+    public void setLote(int lote) { this.lote = lote; }
+
+    public Duration getRetencion() { return retencion; }
+    public void setRetencion(Duration retencion) { this.retencion = retencion; }
+}
@@ -0,0 +1,32 @@
+package com.gestioncrm.cache;
+
+import com.gestioncrm.cambios.SecuenciaCambios;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Método de lectura cuyo resultado se guarda en la caché de la instancia (ver CacheLecturas)
+ * hasta que una escritura de cualquier instancia lo invalida
+ *
+ * Mismas condiciones que @LecturaCoalescida: sin efectos secundarios, con un resultado que
+ * quien lo recibe no modifica y argumentos con equals y hashCode. El resultado debe ser de
+ * tamaño acotado (una entidad o una página, no un listado completo).
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface LecturaEnCache {
+
+    /** Entidad de la que depende el resultado */
+    SecuenciaCambios.Entidad entidad() default SecuenciaCambios.Entidad.PERSONA;
+
+    /**
+     * El primer argumento es el ID de la única fila de la que depende el resultado: solo lo
+     * invalidan los cambios de esa fila. Si no, cualquier cambio de la entidad lo invalida.
+     */
+    boolean porId() default false;
+}
@@ -0,0 +1,268 @@
+package com.gestioncrm.cache;
+
+import com.gestioncrm.analitica.InstantaneaPersonas;
+import com.gestioncrm.cambios.SecuenciaCambios;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lee por secuencia las invalidaciones de cambio_invalidacion (las escribe SecuenciaCambios
+ * en cada escritura de cualquier instancia) y las aplica a la caché de lecturas y a la
+ * instantánea analítica de esta instancia
+ *
+ * Cada intervaloSondeo hace una consulta por la clave primaria desde la última secuencia
+ * leída. Las secuencias se confirman en orden, así que ninguna queda por debajo de la marca.
+ * De paso purga las invalidaciones más antiguas que la retención.
+ *
+ * Métricas: gestioncrm.cache.invalidaciones y gestioncrm.cache.retraso.sondeo (ms desde el
+ * inicio del último sondeo correcto).
+ */
+public class SondeoInvalidaciones implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SondeoInvalidaciones.class);
+
+    private final DataSource dataSource;
+    private final CacheProperties properties;
+    private final ObjectProvider<CacheLecturas> cache;
+    private final ObjectProvider<InstantaneaPersonas> instantanea;
+    private final ScheduledExecutorService planificador;
+    private final Counter invalidaciones;
+
+    /** Última secuencia aplicada (solo la usa el hilo del sondeo) */
+    private long marca;
+    /** System.nanoTime() del inicio del último sondeo correcto */
+    private volatile long inicioUltimoSondeo;
+    private volatile boolean iniciado;
+    private boolean atrasado;
+    private long ultimaPurga;
+
+    public SondeoInvalidaciones(DataSource dataSource, CacheProperties properties, ObjectProvider<CacheLecturas> cache,
+                                ObjectProvider<InstantaneaPersonas> instantanea, MeterRegistry registro) {
+        this.dataSource = dataSource;
+        this.properties = properties;
+        this.cache = cache;
+        this.instantanea = instantanea;
+        this.planificador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "sondeo-invalidaciones");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.invalidaciones = Counter.builder("gestioncrm.cache.invalidaciones")
+                .description("Invalidaciones leídas de cambio_invalidacion")
+                .register(registro);
+        Gauge.builder("gestioncrm.cache.retraso.sondeo", this, SondeoInvalidaciones::retrasoMs)
+                .description("Milisegundos desde el inicio del último sondeo correcto")
+                .register(registro);
+    }
+
+    /**
+     * Empezar desde la última invalidación existente: la caché arranca vacía
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        long inicio = System.nanoTime();
+        try (Connection conexion = dataSource.getConnection()) {
+            marca = ultimaSecuencia(conexion);
+            inicioUltimoSondeo = inicio;
+            iniciado = true;
+        } catch (SQLException e) {
+            // Se reintenta en cada sondeo; mientras tanto la caché no responde
+            log.warn("No se pudo leer la última invalidación: {}", e.getMessage());
+            atrasado = true;
+        }
+        long intervalo = properties.getIntervaloSondeo().toMillis();
+        planificador.scheduleWithFixedDelay(this::sondearSinFallar, intervalo, intervalo, TimeUnit.MILLISECONDS);
+        log.info("Sondeo de invalidaciones cada {} ms (obsolescencia máxima {} ms)",
+                intervalo, properties.getObsolescenciaMaxima().toMillis());
+    }
+
+    /**
+     * Si las invalidaciones se leyeron hace poco: la caché puede responder
+     */
+    public boolean isAlDia() {
+        return iniciado && System.nanoTime() - inicioUltimoSondeo <= properties.getObsolescenciaMaxima().toNanos();
+    }
+
+    /**
+     * Leer y aplicar las invalidaciones posteriores a la marca
+     */
+    public void sondear() throws SQLException {
+        long inicio = System.nanoTime();
+        List<Invalidacion> leidas = new ArrayList<>();
+        long nuevaMarca = marca;
+        try (Connection conexion = dataSource.getConnection()) {
+            if (!iniciado) {
+                nuevaMarca = ultimaSecuencia(conexion);
+            } else {
+                int antes;
+                do {
+                    antes = leidas.size();
+                    leer(conexion, nuevaMarca, leidas);
+                    if (leidas.size() > antes) {
+                        nuevaMarca = leidas.get(leidas.size() - 1).secuencia;
+                    }
+                } while (leidas.size() - antes == properties.getLote());
+            }
+            purgarSiToca(conexion);
+        }
+
+        CacheLecturas cacheLecturas = cache.getIfAvailable();
+        // Después de un corte la caché pudo perder invalidaciones ya purgadas
+        if (cacheLecturas != null && (atrasado || !iniciado)) {
+            cacheLecturas.vaciar();
+        }
+        boolean personas = false;
+        for (Invalidacion invalidacion : leidas) {
+            // Entidad sin caché en esta versión
+            if (invalidacion.entidad == null) {
+                continue;
+            }
+            if (cacheLecturas != null) {
+                cacheLecturas.invalidar(invalidacion.entidad, invalidacion.ids);
+            }
+            personas |= invalidacion.entidad == SecuenciaCambios.Entidad.PERSONA;
+        }
+        invalidaciones.increment(leidas.size());
+        marca = nuevaMarca;
+        inicioUltimoSondeo = inicio;
+        iniciado = true;
+        if (atrasado) {
+            log.info("Sondeo de invalidaciones recuperado");
+            atrasado = false;
+        }
+
+        // Las estadísticas recogen los cambios ya, sin esperar a su propia sincronización
+        InstantaneaPersonas analitica = instantanea.getIfAvailable();
+        if (personas && analitica != null && analitica.isLista()) {
+            try {
+                analitica.sincronizar();
+            } catch (SQLException e) {
+                log.warn("No se pudo sincronizar la instantánea analítica: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        planificador.shutdownNow();
+    }
+
+    // ========== INTERNO ==========
+
+    private void sondearSinFallar() {
+        try {
+            sondear();
+        } catch (SQLException | RuntimeException e) {
+            if (!atrasado) {
+                log.warn("No se pudieron leer las invalidaciones; la caché dejará de responder en {} ms: {}",
+                        properties.getObsolescenciaMaxima().toMillis(), e.getMessage());
+                atrasado = true;
+            }
+        }
+    }
+
+    /**
+     * Agregar a leidas hasta un lote de invalidaciones posteriores a desde
+     */
+    private void leer(Connection conexion, long desde, List<Invalidacion> leidas) throws SQLException {
+        try (PreparedStatement consulta = conexion.prepareStatement(
+                "SELECT secuencia, entidad, ids FROM cambio_invalidacion WHERE secuencia > ? ORDER BY secuencia LIMIT ?")) {
+            consulta.setLong(1, desde);
+            consulta.setInt(2, properties.getLote());
+            try (ResultSet rs = consulta.executeQuery()) {
+                while (rs.next()) {
+                    leidas.add(new Invalidacion(rs.getLong(1), entidad(rs.getString(2)), ids(rs.getString(3))));
+                }
+            }
+        }
+    }
+
+    private void purgarSiToca(Connection conexion) throws SQLException {
+        long ahora = System.nanoTime();
+        long cada = properties.getRetencion().toNanos() / 10;
+        if (ultimaPurga != 0 && ahora - ultimaPurga < cada) {
+            return;
+        }
+        ultimaPurga = ahora;
+        try (PreparedStatement purga = conexion.prepareStatement(
+                "DELETE FROM cambio_invalidacion WHERE creado_en < ?")) {
+            purga.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now().minus(properties.getRetencion())));
+            int purgadas = purga.executeUpdate();
+            if (purgadas > 0) {
+                log.debug("Purgadas {} invalidaciones", purgadas);
+            }
+        }
+    }
+
+    private long retrasoMs() {
+        return iniciado ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicioUltimoSondeo) : -1;
+    }
+
+    private static long ultimaSecuencia(Connection conexion) throws SQLException {
+        try (PreparedStatement consulta = conexion.prepareStatement(
+                "SELECT COALESCE(MAX(secuencia), 0) FROM cambio_invalidacion");
+             ResultSet rs = consulta.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static SecuenciaCambios.Entidad entidad(String tabla) {
+        for (SecuenciaCambios.Entidad entidad : SecuenciaCambios.Entidad.values()) {
+            if (entidad.getTabla().equals(tabla)) {
+                return entidad;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * IDs de la columna ids (null: toda la entidad)
+     */
+    private static List<Long> ids(String lista) {
+        if (lista == null) {
+            return null;
+        }
+        List<Long> ids = new ArrayList<>();
+        for (String id : lista.split(",")) {
+            if (!id.isEmpty()) {
+                ids.add(Long.parseLong(id));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Una fila de cambio_invalidacion
+     */
+    private static final class Invalidacion {
+        private final long secuencia;
+        private final SecuenciaCambios.Entidad entidad;
+        private final List<Long> ids;
+
+        Invalidacion(long secuencia, SecuenciaCambios.Entidad entidad, List<Long> ids) {
+            this.secuencia = secuencia;
+            this.entidad = entidad;
+            this.ids = ids;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.gestioncrm.calentamiento;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gestioncrm.analitica.InstantaneaPersonas;
+import com.gestioncrm.model.Persona;
+import com.gestioncrm.service.PersonaService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.data.domain.Page;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Calentamiento al arrancar: lecturas representativas de PersonaService sobre datos reales,
+ * con la serialización JSON de sus resultados, antes de que la aplicación se declare lista
+ *
+ * Tras un despliegue el primer minuto de tráfico encuentra el JIT sin compilar, el pool de
+ * conexiones a medio abrir, los planes de consulta de Hibernate sin cachear y la instantánea
+ * analítica sin cargar. Los ApplicationRunner se ejecutan antes de ApplicationReadyEvent, que
+ * es cuando Spring Boot pasa la preparación (sonda /actuator/health/readiness) a
+ * ACCEPTING_TRAFFIC: mientras dura el calentamiento la instancia no recibe tráfico.
+ *
+ * Cada operación tiene la misma parte de la duración máxima: las caras (búsquedas con miles de
+ * filas) dejan de repetirse al agotarla y las baratas completan sus rondas.
+ *
+ * Solo lee. Cada lectura va en una transacción de solo lectura, en la que CacheLecturas no
+ * responde: lo que se calienta es el camino hasta la base de datos (réplicas incluidas), no
+ * la caché, aunque el sondeo de invalidaciones ya esté al día. Un fallo nunca impide el
+ * arranque; la operación que falla se deja de ejecutar.
+ */
+public class CalentamientoArranque implements ApplicationRunner, Ordered {
+
+    private static final Logger log = LoggerFactory.getLogger(CalentamientoArranque.class);
+
+    private static final List<String> ORDENES = Arrays.asList("apellido", "nombre", "edad,desc", "id");
+    private static final List<String> CAMPOS = Arrays.asList("id", "nombre", "apellido", "email");
+    /** Páginas de las que se toma la muestra: el OFFSET de las más lejanas costaría más que el resto */
+    private static final int PAGINAS_MUESTRA = 100;
+
+    private final PersonaService personaService;
+    private final ObjectProvider<InstantaneaPersonas> instantanea;
+    private final ObjectMapper objectMapper;
+    private final CalentamientoProperties properties;
+    private final TransactionTemplate lecturas;
+    private volatile long duracionMs;
+
+    public CalentamientoArranque(PersonaService personaService, ObjectProvider<InstantaneaPersonas> instantanea,
+                                 ObjectMapper objectMapper, CalentamientoProperties properties,
+                                 PlatformTransactionManager transactionManager, MeterRegistry registro) {
+        this.personaService = personaService;
+        this.instantanea = instantanea;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.lecturas = new TransactionTemplate(transactionManager);
+        this.lecturas.setReadOnly(true);
+        Gauge.builder("gestioncrm.calentamiento.duracion", this, c -> c.duracionMs)
+                .description("Milisegundos que duró el calentamiento al arrancar")
+                .register(registro);
+    }
+
+    /**
+     * Después de los demás runners (generador de datos): se calienta con los datos definitivos
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long inicio = System.nanoTime();
+        long limite = inicio + properties.getDuracionMaxima().toNanos();
+
+        // La instantánea se carga aquí y no al recibir el primer tráfico
+        InstantaneaPersonas analitica = instantanea.getIfAvailable();
+        if (analitica != null) {
+            analitica.reconstruir();
+        }
+
+        List<Persona> muestra = tomarMuestra();
+        List<Operacion> operaciones = operaciones(muestra);
+        long presupuesto = properties.getDuracionMaxima().toNanos() / operaciones.size();
+        for (Operacion operacion : operaciones) {
+            operacion.presupuestoNanos = presupuesto;
+        }
+        AtomicInteger rondas = new AtomicInteger(properties.getRondas());
+        AtomicInteger hechas = new AtomicInteger();
+        int hilos = Math.max(1, properties.getHilos());
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos, r -> {
+            Thread hilo = new Thread(r, "calentamiento");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        for (int i = 0; i < hilos; i++) {
+            ejecutor.execute(() -> {
+                while (System.nanoTime() < limite && rondas.getAndDecrement() > 0) {
+                    for (Operacion operacion : operaciones) {
+                        operacion.ejecutar();
+                    }
+                    hechas.incrementAndGet();
+                }
+            });
+        }
+        ejecutor.shutdown();
+        try {
+            // Una llamada en curso al cumplirse el límite puede alargarlo un poco
+            if (!ejecutor.awaitTermination(Math.max(0, limite - System.nanoTime()) + TimeUnit.SECONDS.toNanos(5),
+                    TimeUnit.NANOSECONDS)) {
+                ejecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            ejecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        duracionMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        log.info(informe(operaciones, hechas.get(), hilos, muestra.size()));
+    }
+
+    /**
+     * Personas de una página al azar entre las primeras
+     */
+    private List<Persona> tomarMuestra() {
+        int tamano = Math.max(1, Math.min(properties.getMuestra(), PersonaService.TAMANO_PAGINA_MAXIMO));
+        try {
+            PersonaService.CriteriosBusqueda todas = new PersonaService.CriteriosBusqueda();
+            return lecturas.execute(estado -> {
+                long total = personaService.buscar(todas, 0, 1, "id").getTotalElements();
+                long paginas = Math.min(PAGINAS_MUESTRA, total / tamano);
+                int pagina = paginas > 0 ? ThreadLocalRandom.current().nextInt((int) paginas) : 0;
+                return new ArrayList<>(personaService.buscar(todas, pagina, tamano, "id").getContent());
+            });
+        } catch (RuntimeException e) {
+            log.warn("Calentamiento sin muestra de personas: {}", e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    private List<Operacion> operaciones(List<Persona> muestra) {
+        int capacidad = Math.max(1, properties.getRondas());
+        List<Operacion> operaciones = new ArrayList<>();
+        if (!muestra.isEmpty()) {
+            operaciones.add(new Operacion("obtenerPorId", capacidad,
+                    () -> personaService.obtenerPorId(elegir(muestra).getId())));
+            operaciones.add(new Operacion("buscarPorTermino", capacidad,
+                    () -> personaService.buscarPorTermino(elegir(muestra).getApellido())));
+            operaciones.add(new Operacion("contacto", capacidad, () -> contacto(elegir(muestra))));
+        }
+        operaciones.add(new Operacion("buscar", capacidad, () -> {
+            PersonaService.CriteriosBusqueda criterios = criterios(muestra);
+            Page<Persona> pagina = personaService.buscar(criterios, 0, 20, elegir(ORDENES));
+            return Arrays.asList(pagina.getContent(), personaService.contarFacetas(criterios));
+        }));
+        operaciones.add(new Operacion("proyeccion", capacidad,
+                () -> personaService.buscar(criterios(muestra), 0, 20, null, CAMPOS).getContent()));
+        operaciones.add(new Operacion("obtenerEstadisticas", capacidad,
+                () -> Arrays.asList(personaService.obtenerEstadisticas(), personaService.obtenerDistribucion(10))));
+        return operaciones;
+    }
+
+    private Object contacto(Persona persona) {
+        if (persona.getEmail() != null && !persona.getEmail().trim().isEmpty()) {
+            return personaService.buscarPorEmail(persona.getEmail());
+        }
+        if (Persona.normalizarTelefono(persona.getTelefono()) != null) {
+            return personaService.buscarPorTelefono(persona.getTelefono());
+        }
+        return personaService.obtenerPorCedula(persona.getCedula()).orElse(null);
+    }
+
+    /**
+     * Criterios variados como los de /personas/api/search: rol, sexo y edad de una persona real
+     */
+    private PersonaService.CriteriosBusqueda criterios(List<Persona> muestra) {
+        PersonaService.CriteriosBusqueda criterios = new PersonaService.CriteriosBusqueda();
+        if (muestra.isEmpty()) {
+            return criterios;
+        }
+        Persona persona = elegir(muestra);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextBoolean()) {
+            criterios.setRol(persona.getRol());
+        }
+        if (random.nextBoolean()) {
+            criterios.setSexo(persona.getSexo());
+        }
+        if (persona.getEdad() != null && random.nextBoolean()) {
+            criterios.setEdadMin(Math.max(0, persona.getEdad() - 5));
+            criterios.setEdadMax(persona.getEdad() + 5);
+        }
+        return criterios;
+    }
+
+    private static <T> T elegir(List<T> lista) {
+        return lista.get(ThreadLocalRandom.current().nextInt(lista.size()));
+    }
+
+    private String informe(List<Operacion> operaciones, int rondas, int hilos, int muestra) {
+        StringBuilder sb = new StringBuilder(String.format(Locale.ROOT,
+                "Calentamiento terminado en %d ms: %d rondas, %d hilos, muestra de %d personas%n",
+                duracionMs, rondas, hilos, muestra));
+        sb.append(String.format(Locale.ROOT, "  %-20s %9s %11s %14s %14s %8s",
+                "operacion", "llamadas", "primera ms", "inicio p50 ms", "final p50 ms", "errores"));
+        for (Operacion operacion : operaciones) {
+            sb.append(String.format(Locale.ROOT, "%n  %-20s %9d %11.2f %14.2f %14.2f %8d", operacion.nombre,
+                    operacion.llamadas(), operacion.primeraMs(), operacion.medianaMs(true),
+                    operacion.medianaMs(false), operacion.errores));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Una lectura del calentamiento y sus tiempos (incluidas su transacción y la serialización
+     * del resultado)
+     */
+    private final class Operacion {
+
+        private final String nombre;
+        private final Lectura lectura;
+        /** Duración de cada llamada en nanosegundos, en orden de finalización */
+        private final long[] duraciones;
+        private final AtomicInteger siguiente = new AtomicInteger();
+        private final AtomicLong acumuladoNanos = new AtomicLong();
+        private long presupuestoNanos = Long.MAX_VALUE;
+        private volatile int errores;
+
+        Operacion(String nombre, int capacidad, Lectura lectura) {
+            this.nombre = nombre;
+            this.lectura = lectura;
+            this.duraciones = new long[capacidad];
+        }
+
+        void ejecutar() {
+            if (errores > 0 || acumuladoNanos.get() >= presupuestoNanos) {
+                return;
+            }
+            long inicio = System.nanoTime();
+            try {
+                objectMapper.writeValueAsBytes(lecturas.execute(estado -> lectura.leer()));
+            } catch (Exception e) {
+                // Sin más intentos: un error por operación basta para verlo en el informe
+                errores++;
+                log.warn("Calentamiento: '{}' falló y no se repetirá: {}", nombre, e.getMessage());
+                return;
+            }
+            long duracion = System.nanoTime() - inicio;
+            acumuladoNanos.addAndGet(duracion);
+            int indice = siguiente.getAndIncrement();
+            if (indice < duraciones.length) {
+                duraciones[indice] = duracion;
+            }
+        }
+
+        int llamadas() {
+            return Math.min(siguiente.get(), duraciones.length);
+        }
+
+        double primeraMs() {
+            return llamadas() > 0 ? duraciones[0] / 1e6 : 0;
+        }
+
+        /**
+         * Mediana del primer o del último 10 % de las llamadas
+         */
+        double medianaMs(boolean inicio) {
+            int llamadas = llamadas();
+            if (llamadas == 0) {
+                return 0;
+            }
+            int tramo = Math.max(1, llamadas / 10);
+            long[] parte = inicio
+                    ? Arrays.copyOfRange(duraciones, 0, tramo)
+                    : Arrays.copyOfRange(duraciones, llamadas - tramo, llamadas);
+            Arrays.sort(parte);
+            return parte[parte.length / 2] / 1e6;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Lectura {
+        Object leer();
+    }
+}
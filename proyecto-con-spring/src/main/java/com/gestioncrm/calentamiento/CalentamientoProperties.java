@@ -0,0 +1,49 @@
+package com.gestioncrm.calentamiento;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuración del calentamiento previo a recibir tráfico (prefijo gestioncrm.calentamiento)
+ */
+@ConfigurationProperties(prefix = "gestioncrm.calentamiento")
+public class CalentamientoProperties {
+
+    /** Ejecuta las lecturas representativas antes de declararse lista (perfil prod) */
+    private boolean habilitado = false;
+
+    /** Rondas de lecturas como máximo: cada ronda llama una vez a cada operación */
+    private int rondas = 300;
+
+    /** Tiempo máximo de calentamiento; al cumplirse se declara lista aunque queden rondas */
+    private Duration duracionMaxima = Duration.ofSeconds(30);
+
+    /** Hilos que reparten las rondas (también abren conexiones del pool) */
+    private int hilos = 2;
+
+    /** Personas reales de las que salen los IDs, términos y contactos consultados */
+    private int muestra = 50;
+
+    /** Responde 503 a las peticiones (salvo /actuator) mientras no esté lista */
+    private boolean rechazarPeticiones = true;
+
+    // Getters y Setters
+    public boolean isHabilitado() { return habilitado; }
+    public void setHabilitado(boolean habilitado) { this.habilitado = habilitado; }
+
+    public int getRondas() { return rondas; }
+    public void setRondas(int rondas) { this.rondas = rondas; }
+
+    public Duration getDuracionMaxima() { return duracionMaxima; }
+    public void setDuracionMaxima(Duration duracionMaxima) { this.duracionMaxima = duracionMaxima; }
+
+    public int getHilos() { return hilos; }
+    public void setHilos(int hilos) { this.hilos = hilos; }
+
+    public int getMuestra() { return muestra; }
+    public void setMuestra(int muestra) { this.muestra = muestra; }
+
+    public boolean isRechazarPeticiones() { return rechazarPeticiones; }
+    public void setRechazarPeticiones(boolean rechazarPeticiones) { this.rechazarPeticiones = rechazarPeticiones; }
+}
@@ -0,0 +1,52 @@
+package com.gestioncrm.calentamiento;
+
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 503 con Retry-After mientras la aplicación no acepta tráfico (calentamiento al arrancar,
+ * o apagado en curso), para quien llega sin pasar por la sonda de preparación
+ * Las rutas de /actuator siempre pasan: son las de las sondas.
+ */
+public class FiltroPreparacion extends OncePerRequestFilter {
+
+    private static final byte[] CUERPO = "{\"success\":false,\"mensaje\":\"La aplicación se está preparando\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final ApplicationAvailability disponibilidad;
+
+    public FiltroPreparacion(ApplicationAvailability disponibilidad) {
+        this.disponibilidad = disponibilidad;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(request.getContextPath() + "/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (disponibilidad.getReadinessState() == ReadinessState.ACCEPTING_TRAFFIC) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentLength(CUERPO.length);
+        response.getOutputStream().write(CUERPO);
+    }
+}
@@ -0,0 +1,123 @@
+package com.gestioncrm.cambios;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.gestioncrm.model.CambioEliminado;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Página de cambios posteriores a una marca de agua (secuencia), ordenados por secuencia
+ *
+ * Mezcla las filas vigentes modificadas ("upsert") con las lápidas de las eliminadas
+ * ("eliminada"). El cliente guarda "siguiente" y lo envía como "since" en la próxima
+ * petición; mientras "hayMas" sea true conviene pedir la página siguiente enseguida.
+ */
+public class PaginaCambios<T> {
+
+    public static final int LIMITE_POR_DEFECTO = 500;
+    public static final int LIMITE_MAXIMO = 5000;
+
+    /**
+     * Tipo de cambio tal como se envía a los clientes
+     */
+    public enum Tipo {
+        UPSERT("upsert"),
+        ELIMINADA("eliminada");
+
+        private final String valor;
+
+        Tipo(String valor) {
+            this.valor = valor;
+        }
+
+        @JsonValue
+        public String getValor() { return valor; }
+    }
+
+    /**
+     * Un cambio: la fila actual (upsert) o solo su ID (eliminada)
+     */
+    public static class Cambio<T> {
+        private final long secuencia;
+        private final Tipo tipo;
+        private final Long id;
+        private final T dato;
+
+        Cambio(long secuencia, Tipo tipo, Long id, T dato) {
+            this.secuencia = secuencia;
+            this.tipo = tipo;
+            this.id = id;
+            this.dato = dato;
+        }
+
+        public long getSecuencia() { return secuencia; }
+        public Tipo getTipo() { return tipo; }
+        public Long getId() { return id; }
+        public T getDato() { return dato; }
+    }
+
+    private final List<Cambio<T>> cambios;
+    private final long siguiente;
+    private final boolean hayMas;
+
+    private PaginaCambios(List<Cambio<T>> cambios, long siguiente, boolean hayMas) {
+        this.cambios = cambios;
+        this.siguiente = siguiente;
+        this.hayMas = hayMas;
+    }
+
+    /**
+     * Ajustar el límite pedido al rango permitido
+     */
+    public static int limiteValido(Integer limite) {
+        if (limite == null || limite <= 0) {
+            return LIMITE_POR_DEFECTO;
+        }
+        return Math.min(limite, LIMITE_MAXIMO);
+    }
+
+    /**
+     * Mezclar filas y lápidas (ambas ordenadas por secuencia y con hasta limite + 1
+     * elementos) en una página de como máximo limite cambios
+     */
+    public static <T> PaginaCambios<T> combinar(long desde, int limite,
+                                                List<T> filas, Function<T, Long> secuenciaDe, Function<T, Long> idDe,
+                                                List<CambioEliminado> lapidas) {
+        List<Cambio<T>> cambios = new ArrayList<>(Math.min(limite, filas.size() + lapidas.size()));
+        int f = 0;
+        int l = 0;
+        while (cambios.size() < limite && (f < filas.size() || l < lapidas.size())) {
+            boolean tomarFila = l >= lapidas.size()
+                    || (f < filas.size() && secuenciaDe.apply(filas.get(f)) < lapidas.get(l).getSecuenciaCambio());
+            if (tomarFila) {
+                T fila = filas.get(f++);
+                cambios.add(new Cambio<>(secuenciaDe.apply(fila), Tipo.UPSERT, idDe.apply(fila), fila));
+            } else {
+                CambioEliminado lapida = lapidas.get(l++);
+                cambios.add(new Cambio<>(lapida.getSecuenciaCambio(), Tipo.ELIMINADA, lapida.getIdEntidad(), null));
+            }
+        }
+        boolean hayMas = f < filas.size() || l < lapidas.size();
+        long siguiente = cambios.isEmpty() ? desde : cambios.get(cambios.size() - 1).getSecuencia();
+        return new PaginaCambios<>(Collections.unmodifiableList(cambios), siguiente, hayMas);
+    }
+
+    /**
+     * Convertir el dato de cada cambio (p. ej. entidad a DTO de respuesta)
+     */
+    public <R> PaginaCambios<R> convertir(Function<T, R> conversion) {
+        List<Cambio<R>> convertidos = new ArrayList<>(cambios.size());
+        for (Cambio<T> cambio : cambios) {
+            R dato = cambio.dato == null ? null : conversion.apply(cambio.dato);
+            convertidos.add(new Cambio<>(cambio.secuencia, cambio.tipo, cambio.id, dato));
+        }
+        return new PaginaCambios<>(convertidos, siguiente, hayMas);
+    }
+
+    public List<Cambio<T>> getCambios() { return cambios; }
+    public long getSiguiente() { return siguiente; }
+    public boolean isHayMas() { return hayMas; }
+}
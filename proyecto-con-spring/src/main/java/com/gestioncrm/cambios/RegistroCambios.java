@@ -0,0 +1,137 @@
+package com.gestioncrm.cambios;
+
+import com.gestioncrm.model.Persona;
+import com.gestioncrm.model.Usuario;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.LongConsumer;
+
+/**
+ * Mantiene la secuencia de cambios en las escrituras hechas con JPA
+ *
+ * Los servicios anotan lo que guardan o eliminan; justo antes del commit se vuelcan los
+ * cambios pendientes de Hibernate y se asignan las secuencias con la misma conexión, de modo
+ * que el contador es el último bloqueo que toma la transacción.
+ */
+@Component
+public class RegistroCambios {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final DataSource dataSource;
+    private final SQLErrorCodeSQLExceptionTranslator traductor;
+
+    public RegistroCambios(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.traductor = new SQLErrorCodeSQLExceptionTranslator(dataSource);
+    }
+
+    public void personaGuardada(Persona persona) {
+        cambiosDeLaTransaccion().personas.put(persona.getId(), persona);
+    }
+
+    /**
+     * Anotar una persona eliminada; alAsignarSecuencia recibe la secuencia de su lápida
+     * antes del commit (p. ej. para el ID del evento del flujo de cambios)
+     */
+    public void personaEliminada(Long id, LongConsumer alAsignarSecuencia) {
+        CambiosTransaccion cambios = cambiosDeLaTransaccion();
+        cambios.personas.remove(id);
+        cambios.personasEliminadas.put(id, alAsignarSecuencia);
+    }
+
+    public void usuarioGuardado(Usuario usuario) {
+        cambiosDeLaTransaccion().usuarios.put(usuario.getId(), usuario);
+    }
+
+    public void usuarioEliminado(Long id) {
+        CambiosTransaccion cambios = cambiosDeLaTransaccion();
+        cambios.usuarios.remove(id);
+        cambios.usuariosEliminados.add(id);
+    }
+
+    private CambiosTransaccion cambiosDeLaTransaccion() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Los cambios solo pueden registrarse dentro de una transacción");
+        }
+        CambiosTransaccion cambios = (CambiosTransaccion) TransactionSynchronizationManager.getResource(this);
+        if (cambios == null) {
+            cambios = new CambiosTransaccion();
+            TransactionSynchronizationManager.bindResource(this, cambios);
+            TransactionSynchronizationManager.registerSynchronization(cambios);
+        }
+        return cambios;
+    }
+
+    /**
+     * Cambios anotados en la transacción actual
+     */
+    private class CambiosTransaccion implements TransactionSynchronization {
+        private final Map<Long, Persona> personas = new LinkedHashMap<>();
+        private final Map<Long, Usuario> usuarios = new LinkedHashMap<>();
+        private final TreeMap<Long, LongConsumer> personasEliminadas = new TreeMap<>();
+        private final TreeSet<Long> usuariosEliminados = new TreeSet<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            entityManager.flush();
+            Connection conexion = DataSourceUtils.getConnection(dataSource);
+            try {
+                // Un solo instante para toda la transacción: el mismo que se guarda y se devuelve
+                LocalDateTime ahora = SecuenciaCambios.ahora();
+                List<Long> idsPersonas = new ArrayList<>(new TreeSet<>(personas.keySet()));
+                List<Long> secuenciasPersonas = SecuenciaCambios.marcar(conexion, SecuenciaCambios.Entidad.PERSONA,
+                        idsPersonas, ahora);
+                List<Long> idsUsuarios = new ArrayList<>(new TreeSet<>(usuarios.keySet()));
+                List<Long> secuenciasUsuarios = SecuenciaCambios.marcar(conexion, SecuenciaCambios.Entidad.USUARIO,
+                        idsUsuarios, ahora);
+                List<Long> secuenciasEliminadas = SecuenciaCambios.registrarEliminaciones(conexion,
+                        SecuenciaCambios.Entidad.PERSONA, personasEliminadas.keySet(), ahora);
+                SecuenciaCambios.registrarEliminaciones(conexion, SecuenciaCambios.Entidad.USUARIO,
+                        usuariosEliminados, ahora);
+
+                // Reflejar los valores en las entidades devueltas (columnas de solo lectura para JPA)
+                for (int i = 0; i < idsPersonas.size(); i++) {
+                    Persona persona = personas.get(idsPersonas.get(i));
+                    persona.setSecuenciaCambio(secuenciasPersonas.get(i));
+                    persona.setActualizadoEn(ahora);
+                }
+                int eliminada = 0;
+                for (LongConsumer alAsignarSecuencia : personasEliminadas.values()) {
+                    alAsignarSecuencia.accept(secuenciasEliminadas.get(eliminada++));
+                }
+                for (int i = 0; i < idsUsuarios.size(); i++) {
+                    Usuario usuario = usuarios.get(idsUsuarios.get(i));
+                    usuario.setSecuenciaCambio(secuenciasUsuarios.get(i));
+                    usuario.setActualizadoEn(ahora);
+                }
+            } catch (SQLException e) {
+                throw traductor.translate("Asignar secuencia de cambios", null, e);
+            } finally {
+                DataSourceUtils.releaseConnection(conexion, dataSource);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(RegistroCambios.this);
+        }
+    }
+}
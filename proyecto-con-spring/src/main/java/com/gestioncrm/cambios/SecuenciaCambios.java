@@ -0,0 +1,200 @@
+package com.gestioncrm.cambios;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Acceso JDBC a la secuencia global de cambios (tabla secuencia_cambios)
+ *
+ * Todas las operaciones deben ejecutarse dentro de la transacción que hizo la escritura
+ * y al final de ella: reservar valores bloquea la fila del contador hasta el commit, de
+ * modo que las secuencias se confirman en orden (ver V3__secuencia_cambios.sql).
+ *
+ * Cada marca o eliminación agrega además una fila a cambio_invalidacion con los IDs
+ * afectados, que las demás instancias leen para invalidar sus cachés (ver V5).
+ */
+public final class SecuenciaCambios {
+
+    /**
+     * Tablas con secuencia de cambios
+     */
+    public enum Entidad {
+        PERSONA("persona", "id_persona"),
+        USUARIO("usuario", "id_usuario");
+
+        private final String tabla;
+        private final String columnaId;
+
+        Entidad(String tabla, String columnaId) {
+            this.tabla = tabla;
+            this.columnaId = columnaId;
+        }
+
+        public String getTabla() { return tabla; }
+        public String getColumnaId() { return columnaId; }
+    }
+
+    private static final int FILAS_POR_LOTE_JDBC = 1_000;
+
+    /** Con más IDs la invalidación es de toda la entidad (cabe en la columna ids) */
+    public static final int IDS_POR_INVALIDACION_MAXIMO = 100;
+
+    private SecuenciaCambios() {
+    }
+
+    /**
+     * Reservar cantidad valores consecutivos; devuelve el primero
+     */
+    public static long reservar(Connection conexion, int cantidad) throws SQLException {
+        try (PreparedStatement incremento = conexion.prepareStatement(
+                "UPDATE secuencia_cambios SET valor = valor + ? WHERE nombre = 'cambios'")) {
+            incremento.setLong(1, cantidad);
+            if (incremento.executeUpdate() != 1) {
+                throw new SQLException("No existe el contador 'cambios' en secuencia_cambios");
+            }
+        }
+        try (PreparedStatement consulta = conexion.prepareStatement(
+                "SELECT valor FROM secuencia_cambios WHERE nombre = 'cambios'");
+             ResultSet rs = consulta.executeQuery()) {
+            rs.next();
+            return rs.getLong(1) - cantidad + 1;
+        }
+    }
+
+    /**
+     * Instante para marcar un cambio, con la precisión de las columnas TIMESTAMP
+     * (microsegundos): así el valor copiado a las entidades es el mismo que se guarda
+     */
+    public static LocalDateTime ahora() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    /**
+     * Asignar secuencia y la fecha de actualización indicada a las filas con esos IDs
+     *
+     * @return la secuencia asignada a cada ID, en el mismo orden
+     */
+    public static List<Long> marcar(Connection conexion, Entidad entidad, List<Long> ids,
+                                    LocalDateTime actualizadoEn) throws SQLException {
+        return marcar(conexion, entidad, entidad.getColumnaId(), ids, actualizadoEn);
+    }
+
+    /**
+     * Asignar secuencia y la fecha de actualización indicada a las filas cuya columna tenga
+     * esos valores (la columna debe ser única, por ejemplo la cédula)
+     *
+     * @return la secuencia asignada a cada valor, en el mismo orden
+     */
+    public static List<Long> marcar(Connection conexion, Entidad entidad, String columna,
+                                    List<?> valores, LocalDateTime actualizadoEn) throws SQLException {
+        List<Long> secuencias = new ArrayList<>(valores.size());
+        if (valores.isEmpty()) {
+            return secuencias;
+        }
+        // Un valor más para la invalidación
+        long siguiente = reservar(conexion, valores.size() + 1);
+        Timestamp ahora = Timestamp.valueOf(actualizadoEn);
+        try (PreparedStatement sentencia = conexion.prepareStatement("UPDATE " + entidad.getTabla()
+                + " SET secuencia_cambio = ?, actualizado_en = ? WHERE " + columna + " = ?")) {
+            int enLote = 0;
+            for (Object valor : valores) {
+                secuencias.add(siguiente);
+                sentencia.setLong(1, siguiente++);
+                sentencia.setTimestamp(2, ahora);
+                sentencia.setObject(3, valor);
+                sentencia.addBatch();
+                if (++enLote == FILAS_POR_LOTE_JDBC) {
+                    sentencia.executeBatch();
+                    enLote = 0;
+                }
+            }
+            if (enLote > 0) {
+                sentencia.executeBatch();
+            }
+        }
+        // Por otra columna no se conocen los IDs: se invalida toda la entidad
+        registrarInvalidacion(conexion, siguiente, entidad,
+                columna.equals(entidad.getColumnaId()) ? valores : null, ahora);
+        return secuencias;
+    }
+
+    /**
+     * Último valor confirmado del contador: todas las secuencias hasta él ya están confirmadas
+     */
+    public static long ultima(Connection conexion) throws SQLException {
+        try (PreparedStatement consulta = conexion.prepareStatement(
+                "SELECT valor FROM secuencia_cambios WHERE nombre = 'cambios'");
+             ResultSet rs = consulta.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Registrar las lápidas de las filas eliminadas
+     *
+     * @return la secuencia de la lápida de cada ID, en el orden de ids
+     */
+    public static List<Long> registrarEliminaciones(Connection conexion, Entidad entidad, Collection<Long> ids,
+                                                    LocalDateTime eliminadoEn) throws SQLException {
+        List<Long> secuencias = new ArrayList<>(ids.size());
+        if (ids.isEmpty()) {
+            return secuencias;
+        }
+        long siguiente = reservar(conexion, ids.size() + 1);
+        Timestamp ahora = Timestamp.valueOf(eliminadoEn);
+        try (PreparedStatement sentencia = conexion.prepareStatement(
+                "INSERT INTO cambio_eliminado (secuencia_cambio, entidad, id_entidad, eliminado_en) VALUES (?, ?, ?, ?)")) {
+            int enLote = 0;
+            for (Long id : ids) {
+                secuencias.add(siguiente);
+                sentencia.setLong(1, siguiente++);
+                sentencia.setString(2, entidad.getTabla());
+                sentencia.setLong(3, id);
+                sentencia.setTimestamp(4, ahora);
+                sentencia.addBatch();
+                if (++enLote == FILAS_POR_LOTE_JDBC) {
+                    sentencia.executeBatch();
+                    enLote = 0;
+                }
+            }
+            if (enLote > 0) {
+                sentencia.executeBatch();
+            }
+        }
+        registrarInvalidacion(conexion, siguiente, entidad, ids, ahora);
+        return secuencias;
+    }
+
+    /**
+     * Agregar la fila de invalidación con los IDs afectados, o de toda la entidad si son
+     * demasiados o se pasa null
+     */
+    private static void registrarInvalidacion(Connection conexion, long secuencia, Entidad entidad,
+                                              Collection<?> ids, Timestamp ahora) throws SQLException {
+        String lista = null;
+        if (ids != null && ids.size() <= IDS_POR_INVALIDACION_MAXIMO) {
+            StringJoiner unidos = new StringJoiner(",");
+            for (Object id : ids) {
+                unidos.add(String.valueOf(id));
+            }
+            lista = unidos.toString();
+        }
+        try (PreparedStatement sentencia = conexion.prepareStatement(
+                "INSERT INTO cambio_invalidacion (secuencia, entidad, ids, creado_en) VALUES (?, ?, ?, ?)")) {
+            sentencia.setLong(1, secuencia);
+            sentencia.setString(2, entidad.getTabla());
+            sentencia.setString(3, lista);
+            sentencia.setTimestamp(4, ahora);
+            sentencia.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.gestioncrm.coalescencia;
+
+import com.gestioncrm.config.LecturaPropia;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coalescencia de lecturas idénticas concurrentes ("single flight")
+ *
+ * La primera llamada a un método @LecturaCoalescida ejecuta la consulta; las que llegan con
+ * el mismo método y argumentos mientras sigue en curso esperan y reciben el mismo resultado
+ * (o la misma excepción). La entrada se quita al terminar: no es una caché, una llamada
+ * posterior vuelve a consultar.
+ *
+ * No se coalesce dentro de una transacción (la llamada debe ver sus propias escrituras) ni
+ * cuando el cliente escribió hace poco y sus lecturas van al primario (réplicas).
+ *
+ * Métricas: gestioncrm.coalescencia.llamadas{metodo, resultado=ejecutada|compartida|omitida}
+ * y gestioncrm.coalescencia.en.curso.
+ */
+@Aspect
+public class CoalescedorLecturas implements Ordered {
+
+    private final Map<Clave, CompletableFuture<Object>> enCurso = new ConcurrentHashMap<>();
+    private final Map<String, Counter> contadores = new ConcurrentHashMap<>();
+    private final MeterRegistry registro;
+    /** Ventana de "lee tus propias escrituras" en ms (0 sin réplicas) */
+    private final long ventanaLecturaPropiaMs;
+
+    public CoalescedorLecturas(MeterRegistry registro, long ventanaLecturaPropiaMs) {
+        this.registro = registro;
+        this.ventanaLecturaPropiaMs = ventanaLecturaPropiaMs;
+        Gauge.builder("gestioncrm.coalescencia.en.curso", enCurso, Map::size)
+                .description("Lecturas coalescidas en curso")
+                .register(registro);
+    }
+
+    /**
+     * Por fuera del interceptor de transacciones: quien espera no abre la suya
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE - 1;
+    }
+
+    @Around("@annotation(com.gestioncrm.coalescencia.LecturaCoalescida)")
+    public Object coalescer(ProceedingJoinPoint llamada) throws Throwable {
+        Method metodo = ((MethodSignature) llamada.getSignature()).getMethod();
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                || (ventanaLecturaPropiaMs > 0 && LecturaPropia.dentroDeVentana(ventanaLecturaPropiaMs))) {
+            contar(metodo, "omitida");
+            return llamada.proceed();
+        }
+
+        Clave clave = new Clave(metodo, llamada.getArgs());
+        CompletableFuture<Object> propia = new CompletableFuture<>();
+        CompletableFuture<Object> existente = enCurso.putIfAbsent(clave, propia);
+        if (existente != null) {
+            contar(metodo, "compartida");
+            return esperar(existente);
+        }
+
+        contar(metodo, "ejecutada");
+        try {
+            Object resultado = llamada.proceed();
+            // Quitar antes de completar: quien llegue ahora ejecuta una consulta nueva
+            enCurso.remove(clave, propia);
+            propia.complete(resultado);
+            return resultado;
+        } catch (Throwable e) {
+            enCurso.remove(clave, propia);
+            propia.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static Object esperar(CompletableFuture<Object> existente) throws Throwable {
+        try {
+            return existente.get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando una lectura compartida", e);
+        }
+    }
+
+    private void contar(Method metodo, String resultado) {
+        String metodoCorto = metodo.getDeclaringClass().getSimpleName() + "." + metodo.getName();
+        contadores.computeIfAbsent(metodoCorto + "|" + resultado, k -> Counter.builder("gestioncrm.coalescencia.llamadas")
+                .description("Llamadas a lecturas coalescidas")
+                .tag("metodo", metodoCorto)
+                .tag("resultado", resultado)
+                .register(registro))
+                .increment();
+    }
+
+    /**
+     * Método y argumentos de una llamada
+     */
+    private static final class Clave {
+        private final Method metodo;
+        private final List<Object> argumentos;
+        private final int hash;
+
+        Clave(Method metodo, Object[] argumentos) {
+            this.metodo = metodo;
+            this.argumentos = Arrays.asList(argumentos);
+            this.hash = 31 * metodo.hashCode() + this.argumentos.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Clave)) {
+                return false;
+            }
+            Clave otra = (Clave) o;
+            return hash == otra.hash && metodo.equals(otra.metodo) && Objects.equals(argumentos, otra.argumentos);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
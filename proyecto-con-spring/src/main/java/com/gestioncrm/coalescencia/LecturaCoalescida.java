@@ -0,0 +1,20 @@
+package com.gestioncrm.coalescencia;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Método de lectura cuyas llamadas concurrentes con los mismos argumentos comparten
+ * una sola ejecución y su resultado (ver CoalescedorLecturas)
+ *
+ * Solo para métodos sin efectos secundarios cuyo resultado no modifique quien lo recibe,
+ * y con argumentos que implementen equals y hashCode.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface LecturaCoalescida {
+}
@@ -0,0 +1,26 @@
+package com.gestioncrm.config;
+
+import com.gestioncrm.analitica.AnaliticaProperties;
+import com.gestioncrm.analitica.InstantaneaPersonas;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Instantánea columnar de personas para estadísticas y facetas
+ * Activa por defecto; se desactiva con gestioncrm.analitica.habilitado=false y no se usa
+ * con fragmentos (las personas no están en spring.datasource)
+ */
+@Configuration
+@ConditionalOnExpression("${gestioncrm.analitica.habilitado:true} and !${gestioncrm.fragmentos.habilitado:false}")
+@EnableConfigurationProperties(AnaliticaProperties.class)
+public class AnaliticaConfig {
+
+    @Bean(destroyMethod = "close")
+    public InstantaneaPersonas instantaneaPersonas(DataSource dataSource, AnaliticaProperties properties) {
+        return new InstantaneaPersonas(dataSource, properties);
+    }
+}
@@ -0,0 +1,27 @@
+package com.gestioncrm.config;
+
+import com.gestioncrm.analitica.InstantaneaPersonas;
+import com.gestioncrm.cache.SondeoInvalidaciones;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationInitializer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+
+/**
+ * Beans que se crean al arrancar aunque esté activa la inicialización diferida (perfil prod)
+ *
+ * Las migraciones y la validación del esquema deben fallar antes de recibir tráfico, y el
+ * monitor de réplicas, la instantánea analítica y el sondeo de invalidaciones no los pide
+ * ningún otro bean.
+ */
+@Configuration
+public class ArranqueConfig {
+
+    @Bean
+    public static LazyInitializationExcludeFilter beansDeArranque() {
+        return LazyInitializationExcludeFilter.forBeanTypes(FlywayMigrationInitializer.class,
+                AbstractEntityManagerFactoryBean.class, MonitorReplicas.class, InstantaneaPersonas.class,
+                SondeoInvalidaciones.class);
+    }
+}
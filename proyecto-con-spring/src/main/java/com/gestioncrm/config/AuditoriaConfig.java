@@ -0,0 +1,30 @@
+package com.gestioncrm.config;
+
+import com.gestioncrm.auditoria.AuditoriaProperties;
+import com.gestioncrm.auditoria.DiarioAuditoria;
+import com.gestioncrm.auditoria.FiltroActorAuditoria;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Diario de auditoría de personas y usuarios en disco
+ * Activo por defecto; se desactiva con gestioncrm.auditoria.habilitado=false
+ */
+@Configuration
+@ConditionalOnProperty(name = "gestioncrm.auditoria.habilitado", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(AuditoriaProperties.class)
+public class AuditoriaConfig {
+
+    @Bean(destroyMethod = "close")
+    public DiarioAuditoria diarioAuditoria(AuditoriaProperties properties, MeterRegistry registro) {
+        return new DiarioAuditoria(properties, registro);
+    }
+
+    @Bean
+    public FiltroActorAuditoria filtroActorAuditoria() {
+        return new FiltroActorAuditoria();
+    }
+}
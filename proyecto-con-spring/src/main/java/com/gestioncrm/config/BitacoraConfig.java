@@ -0,0 +1,39 @@
+package com.gestioncrm.config;
+
+import com.gestioncrm.bitacora.BitacoraProperties;
+import com.gestioncrm.bitacora.FiltroCorrelacion;
+import com.gestioncrm.bitacora.FiltroMuestreo;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Correlación de peticiones y muestreo del log
+ * El formato y el escritor asíncrono se configuran en logback-spring.xml
+ */
+@Configuration
+@EnableConfigurationProperties(BitacoraProperties.class)
+public class BitacoraConfig {
+
+    /**
+     * Antes que cualquier otro filtro, para que todo lo que se registre en la petición lleve la correlación
+     */
+    @Bean
+    public FilterRegistrationBean<FiltroCorrelacion> filtroCorrelacion() {
+        FilterRegistrationBean<FiltroCorrelacion> registro = new FilterRegistrationBean<>(new FiltroCorrelacion());
+        registro.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registro;
+    }
+
+    @Bean(initMethod = "instalar", destroyMethod = "desinstalar")
+    public FiltroMuestreo filtroMuestreo(BitacoraProperties properties, MeterRegistry registro) {
+        FiltroMuestreo filtro = new FiltroMuestreo(properties.getMuestreo());
+        FunctionCounter.builder("gestioncrm.bitacora.muestreados", filtro, FiltroMuestreo::getDescartados)
+                .description("Eventos de log descartados por el muestreo").register(registro);
+        return filtro;
+    }
+}
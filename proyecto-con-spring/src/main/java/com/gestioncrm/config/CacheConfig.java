@@ -0,0 +1,43 @@
+package com.gestioncrm.config;
+
+import com.gestioncrm.analitica.InstantaneaPersonas;
+import com.gestioncrm.cache.CacheLecturas;
+import com.gestioncrm.cache.CacheProperties;
+import com.gestioncrm.cache.SondeoInvalidaciones;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Caché de lecturas con invalidación entre instancias a través de cambio_invalidacion
+ *
+ * El sondeo de invalidaciones siempre está activo: además de la caché mantiene al día la
+ * instantánea analítica y purga la tabla. La caché está activa por defecto; se desactiva con
+ * gestioncrm.cache.habilitado=false, y no se usa con réplicas (una lectura atrasada de la
+ * réplica podría quedar guardada después de su invalidación) ni con fragmentos (sus
+ * escrituras no pasan por cambio_invalidacion).
+ */
+@Configuration
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfig {
+
+    @Bean(destroyMethod = "close")
+    public SondeoInvalidaciones sondeoInvalidaciones(DataSource dataSource, CacheProperties properties,
+                                                     ObjectProvider<CacheLecturas> cache,
+                                                     ObjectProvider<InstantaneaPersonas> instantanea,
+                                                     MeterRegistry registro) {
+        return new SondeoInvalidaciones(dataSource, properties, cache, instantanea, registro);
+    }
+
+    @Bean
+    @ConditionalOnExpression("${gestioncrm.cache.habilitado:true} and !${gestioncrm.replicas.habilitado:false}"
+            + " and !${gestioncrm.fragmentos.habilitado:false}")
+    public CacheLecturas cacheLecturas(SondeoInvalidaciones sondeo, CacheProperties properties, MeterRegistry registro) {
+        return new CacheLecturas(sondeo, properties, registro);
+    }
+}
@@ -0,0 +1,53 @@
+package com.gestioncrm.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gestioncrm.analitica.InstantaneaPersonas;
+import com.gestioncrm.calentamiento.CalentamientoArranque;
+import com.gestioncrm.calentamiento.CalentamientoProperties;
+import com.gestioncrm.calentamiento.FiltroPreparacion;
+import com.gestioncrm.service.PersonaService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Calentamiento al arrancar y rechazo de peticiones hasta terminarlo
+ * Inactivo por defecto (reinicios rápidos en desarrollo); lo activa el perfil prod con
+ * gestioncrm.calentamiento.habilitado=true
+ */
+@Configuration
+@ConditionalOnProperty(name = "gestioncrm.calentamiento.habilitado", havingValue = "true")
+@EnableConfigurationProperties(CalentamientoProperties.class)
+public class CalentamientoConfig {
+
+    @Bean
+    public CalentamientoArranque calentamientoArranque(PersonaService personaService,
+                                                       ObjectProvider<InstantaneaPersonas> instantanea,
+                                                       ObjectMapper objectMapper,
+                                                       CalentamientoProperties properties,
+                                                       PlatformTransactionManager transactionManager,
+                                                       MeterRegistry registro) {
+        return new CalentamientoArranque(personaService, instantanea, objectMapper, properties,
+                transactionManager, registro);
+    }
+
+    /**
+     * Justo después de la correlación: nada más se ejecuta para una petición rechazada
+     */
+    @Bean
+    @ConditionalOnProperty(name = "gestioncrm.calentamiento.rechazar-peticiones", havingValue = "true",
+            matchIfMissing = true)
+    public FilterRegistrationBean<FiltroPreparacion> filtroPreparacion(ApplicationAvailability disponibilidad) {
+        FilterRegistrationBean<FiltroPreparacion> registro = new FilterRegistrationBean<>(
+                new FiltroPreparacion(disponibilidad));
+        registro.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registro;
+    }
+}
@@ -0,0 +1,25 @@
+package com.gestioncrm.config;
+
+import com.gestioncrm.coalescencia.CoalescedorLecturas;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Coalescencia de lecturas idénticas concurrentes en los métodos @LecturaCoalescida
+ * Activa por defecto; se desactiva con gestioncrm.coalescencia.habilitado=false
+ */
+@Configuration
+@ConditionalOnProperty(name = "gestioncrm.coalescencia.habilitado", havingValue = "true", matchIfMissing = true)
+public class CoalescenciaConfig {
+
+    @Bean
+    public CoalescedorLecturas coalescedorLecturas(MeterRegistry registro,
+                                                   ObjectProvider<ReplicasProperties> replicas) {
+        ReplicasProperties properties = replicas.getIfAvailable();
+        return new CoalescedorLecturas(registro,
+                properties != null ? properties.getVentanaLecturaPropia().toMillis() : 0L);
+    }
+}
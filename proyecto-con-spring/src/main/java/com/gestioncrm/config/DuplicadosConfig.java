@@ -0,0 +1,26 @@
+package com.gestioncrm.config;
+
+import com.gestioncrm.duplicados.DetectorDuplicados;
+import com.gestioncrm.duplicados.DuplicadosProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Detección de personas casi duplicadas
+ * Activa por defecto; se desactiva con gestioncrm.duplicados.habilitado=false y no se usa
+ * con fragmentos (las personas no están en spring.datasource)
+ */
+@Configuration
+@ConditionalOnExpression("${gestioncrm.duplicados.habilitado:true} and !${gestioncrm.fragmentos.habilitado:false}")
+@EnableConfigurationProperties(DuplicadosProperties.class)
+public class DuplicadosConfig {
+
+    @Bean(destroyMethod = "close")
+    public DetectorDuplicados detectorDuplicados(DataSource dataSource, DuplicadosProperties properties) {
+        return new DetectorDuplicados(dataSource, properties);
+    }
+}
@@ -0,0 +1,144 @@
+package com.gestioncrm.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * DataSource que envía las transacciones de solo lectura a las réplicas y el resto al primario
+ * Debe usarse envuelto en un LazyConnectionDataSourceProxy: así la conexión se pide en la
+ * primera sentencia, cuando la marca readOnly de la transacción ya está establecida
+ */
+public class EnrutamientoDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(EnrutamientoDataSource.class);
+
+    static final String PRIMARIO = "primario";
+
+    /** Recurso de transacción que indica que ya se registró el aviso de escritura */
+    private static final Object ESCRITURA_REGISTRADA = new Object();
+
+    private final HikariDataSource primario;
+    private final List<HikariDataSource> replicas;
+    private final long ventanaLecturaPropiaMs;
+
+    /** 1 si la réplica i recibe lecturas, 0 si está caída o demasiado atrasada */
+    private final AtomicIntegerArray disponibles;
+    private final AtomicInteger turno = new AtomicInteger();
+
+    private Runnable alConfirmarEscritura = () -> { };
+
+    public EnrutamientoDataSource(HikariDataSource primario, List<HikariDataSource> replicas,
+                                  long ventanaLecturaPropiaMs) {
+        this.primario = primario;
+        this.replicas = new ArrayList<>(replicas);
+        this.ventanaLecturaPropiaMs = ventanaLecturaPropiaMs;
+        this.disponibles = new AtomicIntegerArray(replicas.size());
+
+        Map<Object, Object> destinos = new HashMap<>();
+        destinos.put(PRIMARIO, primario);
+        for (int i = 0; i < replicas.size(); i++) {
+            destinos.put(i, replicas.get(i));
+            disponibles.set(i, 1);
+        }
+        setTargetDataSources(destinos);
+        setDefaultTargetDataSource(primario);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                registrarEscritura();
+            }
+            return PRIMARIO;
+        }
+
+        // Lee tus propias escrituras: el cliente escribió hace poco
+        if (LecturaPropia.dentroDeVentana(ventanaLecturaPropiaMs)) {
+            log.trace("Lectura enviada al primario por escritura reciente del cliente");
+            return PRIMARIO;
+        }
+
+        Integer replica = siguienteReplica();
+        if (replica == null) {
+            log.trace("Sin réplicas disponibles, lectura enviada al primario");
+            return PRIMARIO;
+        }
+        return replica;
+    }
+
+    /**
+     * Siguiente réplica disponible en turno rotativo; null si ninguna lo está
+     */
+    private Integer siguienteReplica() {
+        int total = replicas.size();
+        int inicio = Math.floorMod(turno.getAndIncrement(), Math.max(total, 1));
+        for (int i = 0; i < total; i++) {
+            int indice = (inicio + i) % total;
+            if (disponibles.get(indice) == 1) {
+                return indice;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Al confirmarse la transacción de escritura, anotar la escritura del cliente
+     */
+    private void registrarEscritura() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(ESCRITURA_REGISTRADA)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(ESCRITURA_REGISTRADA, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                LecturaPropia.marcarEscritura();
+                alConfirmarEscritura.run();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ESCRITURA_REGISTRADA);
+            }
+        });
+    }
+
+    /**
+     * Acción adicional tras cada escritura confirmada (por ejemplo, recordarla en la respuesta HTTP)
+     */
+    public void setAlConfirmarEscritura(Runnable alConfirmarEscritura) {
+        this.alConfirmarEscritura = alConfirmarEscritura;
+    }
+
+    public void marcarDisponible(int replica, boolean disponible) {
+        disponibles.set(replica, disponible ? 1 : 0);
+    }
+
+    public boolean estaDisponible(int replica) {
+        return disponibles.get(replica) == 1;
+    }
+
+    public List<HikariDataSource> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+        primario.close();
+    }
+}
@@ -0,0 +1,77 @@
+package com.gestioncrm.config;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Recuerda en una cookie la última escritura del cliente para que sus lecturas
+ * siguientes vayan al primario mientras la réplica puede no tenerla aún
+ */
+public class FiltroLecturaPropia extends OncePerRequestFilter {
+
+    static final String COOKIE = "crm-escritura";
+
+    private final long ventanaMs;
+
+    public FiltroLecturaPropia(long ventanaMs) {
+        this.ventanaMs = ventanaMs;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        LecturaPropia.restaurar(leerCookie(request));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            LecturaPropia.limpiar();
+        }
+    }
+
+    /**
+     * Anotar la escritura confirmada en la respuesta de la petición actual
+     */
+    public void anotarEscritura() {
+        RequestAttributes atributos = RequestContextHolder.getRequestAttributes();
+        if (!(atributos instanceof ServletRequestAttributes)) {
+            return;
+        }
+        HttpServletRequest request = ((ServletRequestAttributes) atributos).getRequest();
+        HttpServletResponse response = ((ServletRequestAttributes) atributos).getResponse();
+        Long ultima = LecturaPropia.ultimaEscritura();
+        if (response == null || response.isCommitted() || ultima == null) {
+            return;
+        }
+        Cookie cookie = new Cookie(COOKIE, String.valueOf(ultima));
+        cookie.setPath(request.getContextPath().isEmpty() ? "/" : request.getContextPath());
+        cookie.setMaxAge((int) Math.max(1, (ventanaMs + 999) / 1000));
+        cookie.setHttpOnly(true);
+        response.addCookie(cookie);
+    }
+
+    private Long leerCookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,70 @@
+package com.gestioncrm.config;
+
+import com.gestioncrm.fragmentos.FragmentosProperties;
+import com.gestioncrm.fragmentos.PersonasFragmentadas;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Personas repartidas entre varias bases de datos por hash de la cédula
+ * Se activa con gestioncrm.fragmentos.habilitado=true (ver application-fragmentos.properties);
+ * el resto de tablas (usuarios, cambios, invalidaciones) sigue en spring.datasource.*
+ */
+@Configuration
+@ConditionalOnProperty(name = "gestioncrm.fragmentos.habilitado", havingValue = "true")
+@EnableConfigurationProperties(FragmentosProperties.class)
+public class FragmentosConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(FragmentosConfig.class);
+
+    // Solo el esquema: los datos de demostración repetirían las mismas cédulas en todos los fragmentos
+    private static final String MIGRACIONES_ESQUEMA = "classpath:db/migration";
+
+    @Bean(destroyMethod = "close")
+    public PersonasFragmentadas personasFragmentadas(FragmentosProperties properties) {
+        if (properties.getNodos().isEmpty()) {
+            throw new IllegalArgumentException("gestioncrm.fragmentos.nodos no puede estar vacío");
+        }
+
+        List<HikariDataSource> fragmentos = new ArrayList<>();
+        for (int i = 0; i < properties.getNodos().size(); i++) {
+            FragmentosProperties.Nodo nodo = properties.getNodos().get(i);
+            if (properties.isMigrar()) {
+                migrarFragmento(nodo);
+            }
+            HikariDataSource fragmento = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(nodo.getUrl())
+                    .username(nodo.getUsuario())
+                    .password(nodo.getContrasena())
+                    .build();
+            fragmento.setPoolName("fragmento-" + i);
+            fragmentos.add(fragmento);
+        }
+
+        log.info("Fragmentación de personas activa: {} fragmento(s), {} hilos para las consultas repartidas",
+                fragmentos.size(), properties.getHilos());
+        return new PersonasFragmentadas(fragmentos, properties);
+    }
+
+    /**
+     * Crear el esquema en un fragmento local (H2); en producción se migra cada base aparte
+     */
+    private void migrarFragmento(FragmentosProperties.Nodo nodo) {
+        Flyway.configure()
+                .dataSource(nodo.getUrl(), nodo.getUsuario(), nodo.getContrasena())
+                .locations(MIGRACIONES_ESQUEMA)
+                .load()
+                .migrate();
+    }
+}
@@ -0,0 +1,43 @@
+package com.gestioncrm.config;
+
+import com.gestioncrm.generador.GeneradorPersonas;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import javax.sql.DataSource;
+
+/**
+ * Generación de datos sintéticos al arrancar con el perfil "dev"
+ * Se activa con gestioncrm.generador.personas mayor que 0 (ver application-dev.properties);
+ * no con la fragmentación (escribe en la tabla persona de spring.datasource)
+ */
+@Configuration
+@Profile("dev")
+@ConditionalOnExpression("${gestioncrm.generador.personas:0} > 0 and !${gestioncrm.fragmentos.habilitado:false}")
+public class GeneradorDatosConfig {
+
+    @Bean
+    public ApplicationRunner generadorDatosRunner(DataSource dataSource,
+                                                  @Value("${gestioncrm.generador.personas}") long personas,
+                                                  @Value("${gestioncrm.generador.fraccion-usuarios:0.2}") double fraccionUsuarios,
+                                                  @Value("${gestioncrm.generador.semilla:42}") long semilla,
+                                                  @Value("${gestioncrm.generador.hilos:0}") int hilos) {
+        return args -> {
+            if (personas <= 0) {
+                return;
+            }
+            GeneradorPersonas.Opciones opciones = new GeneradorPersonas.Opciones();
+            opciones.setPersonas(personas);
+            opciones.setFraccionUsuarios(fraccionUsuarios);
+            opciones.setSemilla(semilla);
+            if (hilos > 0) {
+                opciones.setHilos(hilos);
+            }
+            new GeneradorPersonas(dataSource).generar(opciones);
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package com.gestioncrm.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gestioncrm.idempotencia.AlmacenIdempotencia;
+import com.gestioncrm.idempotencia.AlmacenIdempotenciaBaseDatos;
+import com.gestioncrm.idempotencia.AlmacenIdempotenciaMemoria;
+import com.gestioncrm.idempotencia.FiltroIdempotencia;
+import com.gestioncrm.idempotencia.IdempotenciaProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+/**
+ * Claves de idempotencia (cabecera Idempotency-Key) en los POST de creación
+ * Activas por defecto; se desactivan con gestioncrm.idempotencia.habilitado=false. Con
+ * varias instancias (perfil cluster) las respuestas se guardan en la base de datos.
+ */
+@Configuration
+@ConditionalOnProperty(name = "gestioncrm.idempotencia.habilitado", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(IdempotenciaProperties.class)
+public class IdempotenciaConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "gestioncrm.idempotencia.almacen", havingValue = "memoria", matchIfMissing = true)
+    public AlmacenIdempotenciaMemoria almacenIdempotenciaMemoria(IdempotenciaProperties properties,
+                                                                 MeterRegistry registro) {
+        return new AlmacenIdempotenciaMemoria(properties, registro);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "gestioncrm.idempotencia.almacen", havingValue = "base-datos")
+    public AlmacenIdempotenciaBaseDatos almacenIdempotenciaBaseDatos(DataSource dataSource,
+                                                                     IdempotenciaProperties properties) {
+        return new AlmacenIdempotenciaBaseDatos(dataSource, properties);
+    }
+
+    /**
+     * Después de la correlación (y del rechazo durante el calentamiento) y antes que el resto
+     * de filtros: una respuesta repetida no pasa por ellos
+     */
+    @Bean
+    public FilterRegistrationBean<FiltroIdempotencia> filtroIdempotencia(AlmacenIdempotencia almacen,
+                                                                         IdempotenciaProperties properties,
+                                                                         ObjectMapper objectMapper,
+                                                                         MeterRegistry registro) {
+        FilterRegistrationBean<FiltroIdempotencia> registroFiltro = new FilterRegistrationBean<>(
+                new FiltroIdempotencia(almacen, properties, objectMapper, registro));
+        registroFiltro.setUrlPatterns(properties.getRutas());
+        registroFiltro.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return registroFiltro;
+    }
+}
@@ -0,0 +1,29 @@
+package com.gestioncrm.config;
+
+import com.gestioncrm.auditoria.Auditoria;
+import com.gestioncrm.ingesta.BufferIngesta;
+import com.gestioncrm.ingesta.IngestaProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Modo de ingesta masiva con escritura diferida por lotes
+ * Se activa con gestioncrm.ingesta.habilitado=true; no con la fragmentación (escribe en la
+ * tabla persona de spring.datasource, que entonces no se lee)
+ */
+@Configuration
+@ConditionalOnExpression("${gestioncrm.ingesta.habilitado:false} and !${gestioncrm.fragmentos.habilitado:false}")
+@EnableConfigurationProperties(IngestaProperties.class)
+public class IngestaConfig {
+
+    @Bean(destroyMethod = "close")
+    public BufferIngesta bufferIngesta(DataSource dataSource, IngestaProperties properties,
+                                       ApplicationEventPublisher eventos, Auditoria auditoria) {
+        return new BufferIngesta(dataSource, properties, eventos, auditoria);
+    }
+}
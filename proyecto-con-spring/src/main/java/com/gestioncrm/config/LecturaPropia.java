@@ -0,0 +1,48 @@
+package com.gestioncrm.config;
+
+/**
+ * Estado de "lee tus propias escrituras" del hilo de la petición actual
+ * Guarda el instante de la última escritura conocida del cliente; mientras esté
+ * dentro de la ventana configurada, las lecturas se envían al primario
+ */
+public final class LecturaPropia {
+
+    private static final ThreadLocal<Long> ULTIMA_ESCRITURA = new ThreadLocal<>();
+
+    private LecturaPropia() {
+    }
+
+    /**
+     * Registrar que el cliente actual acaba de escribir
+     */
+    public static void marcarEscritura() {
+        ULTIMA_ESCRITURA.set(System.currentTimeMillis());
+    }
+
+    /**
+     * Restaurar la última escritura del cliente (por ejemplo, leída de una cookie)
+     */
+    public static void restaurar(Long ultimaEscrituraMs) {
+        if (ultimaEscrituraMs == null) {
+            ULTIMA_ESCRITURA.remove();
+        } else {
+            ULTIMA_ESCRITURA.set(ultimaEscrituraMs);
+        }
+    }
+
+    public static Long ultimaEscritura() {
+        return ULTIMA_ESCRITURA.get();
+    }
+
+    /**
+     * ¿Hubo una escritura del cliente hace menos de ventanaMs?
+     */
+    public static boolean dentroDeVentana(long ventanaMs) {
+        Long ultima = ULTIMA_ESCRITURA.get();
+        return ultima != null && System.currentTimeMillis() - ultima < ventanaMs;
+    }
+
+    public static void limpiar() {
+        ULTIMA_ESCRITURA.remove();
+    }
+}
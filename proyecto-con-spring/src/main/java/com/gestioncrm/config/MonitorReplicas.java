@@ -0,0 +1,107 @@
+package com.gestioncrm.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide periódicamente el retraso de cada réplica y la retira del reparto de lecturas
+ * mientras no responda o supere el retraso máximo tolerado
+ */
+public class MonitorReplicas {
+
+    private static final Logger log = LoggerFactory.getLogger(MonitorReplicas.class);
+
+    private static final int TIEMPO_ESPERA_SEGUNDOS = 2;
+
+    private final EnrutamientoDataSource enrutamiento;
+    private final ReplicasProperties properties;
+    private final ScheduledExecutorService planificador;
+
+    public MonitorReplicas(EnrutamientoDataSource enrutamiento, ReplicasProperties properties) {
+        this.enrutamiento = enrutamiento;
+        this.properties = properties;
+        this.planificador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "monitor-replicas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    public void iniciar() {
+        long intervaloMs = properties.getIntervaloMonitoreo().toMillis();
+        planificador.scheduleWithFixedDelay(this::comprobar, 0, intervaloMs, TimeUnit.MILLISECONDS);
+        log.info("Monitor de réplicas iniciado: {} réplica(s), retraso máximo {} ms",
+                enrutamiento.getReplicas().size(), properties.getRetrasoMaximo().toMillis());
+    }
+
+    public void detener() {
+        planificador.shutdownNow();
+    }
+
+    /**
+     * Comprobar todas las réplicas y actualizar su disponibilidad
+     */
+    void comprobar() {
+        List<HikariDataSource> replicas = enrutamiento.getReplicas();
+        long maximoMs = properties.getRetrasoMaximo().toMillis();
+        for (int i = 0; i < replicas.size(); i++) {
+            boolean disponible;
+            try {
+                long retrasoMs = medirRetraso(replicas.get(i));
+                disponible = retrasoMs <= maximoMs;
+                if (!disponible && enrutamiento.estaDisponible(i)) {
+                    log.warn("Réplica {} atrasada {} ms (máximo {} ms), se retira de las lecturas",
+                            replicas.get(i).getPoolName(), retrasoMs, maximoMs);
+                }
+            } catch (Exception e) {
+                disponible = false;
+                if (enrutamiento.estaDisponible(i)) {
+                    log.warn("Réplica {} no responde, se retira de las lecturas: {}",
+                            replicas.get(i).getPoolName(), e.getMessage());
+                }
+            }
+            if (disponible && !enrutamiento.estaDisponible(i)) {
+                log.info("Réplica {} recuperada, vuelve a recibir lecturas", replicas.get(i).getPoolName());
+            }
+            enrutamiento.marcarDisponible(i, disponible);
+        }
+    }
+
+    /**
+     * Retraso de la réplica en milisegundos (0 si no hay consulta de retraso configurada)
+     */
+    private long medirRetraso(HikariDataSource replica) throws Exception {
+        try (Connection conexion = replica.getConnection()) {
+            String consulta = properties.getConsultaRetraso();
+            if (consulta == null || consulta.trim().isEmpty()) {
+                if (!conexion.isValid(TIEMPO_ESPERA_SEGUNDOS)) {
+                    throw new IllegalStateException("conexión no válida");
+                }
+                return 0;
+            }
+            try (Statement sentencia = conexion.createStatement()) {
+                sentencia.setQueryTimeout(TIEMPO_ESPERA_SEGUNDOS);
+                try (ResultSet rs = sentencia.executeQuery(consulta)) {
+                    if (!rs.next()) {
+                        throw new IllegalStateException("la consulta de retraso no devolvió filas");
+                    }
+                    double segundos = rs.getDouble(1);
+                    // NULL: la réplica no está replicando
+                    if (rs.wasNull()) {
+                        throw new IllegalStateException("la réplica no informa retraso");
+                    }
+                    return Math.round(segundos * 1000);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.gestioncrm.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.hibernate.cfg.AvailableSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayProperties;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Enrutamiento lectura/escritura: las transacciones readOnly van a las réplicas
+ * y las de escritura al primario (spring.datasource.*)
+ * Se activa con gestioncrm.replicas.habilitado=true (ver application-replicas.properties)
+ */
+@Configuration
+@ConditionalOnProperty(name = "gestioncrm.replicas.habilitado", havingValue = "true")
+@EnableConfigurationProperties(ReplicasProperties.class)
+public class ReplicasConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicasConfig.class);
+
+    @Bean
+    public EnrutamientoDataSource enrutamientoDataSource(DataSourceProperties dataSourceProperties,
+                                                         ReplicasProperties properties,
+                                                         FlywayProperties flywayProperties) {
+        if (properties.getNodos().isEmpty()) {
+            throw new IllegalArgumentException("gestioncrm.replicas.nodos no puede estar vacío");
+        }
+
+        HikariDataSource primario = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primario.setPoolName("primario");
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < properties.getNodos().size(); i++) {
+            ReplicasProperties.Nodo nodo = properties.getNodos().get(i);
+            if (properties.isMigrar()) {
+                migrarReplica(nodo, flywayProperties);
+            }
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(nodo.getUrl())
+                    .username(nodo.getUsuario())
+                    .password(nodo.getContrasena())
+                    .build();
+            replica.setPoolName("replica-" + i);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+
+        log.info("Enrutamiento lectura/escritura activo: primario {} y {} réplica(s)",
+                dataSourceProperties.determineUrl(), replicas.size());
+        return new EnrutamientoDataSource(primario, replicas,
+                properties.getVentanaLecturaPropia().toMillis());
+    }
+
+    /**
+     * DataSource de la aplicación: la conexión real se obtiene en la primera sentencia,
+     * cuando ya se sabe si la transacción es de solo lectura
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(EnrutamientoDataSource enrutamientoDataSource) {
+        return new LazyConnectionDataSourceProxy(enrutamientoDataSource);
+    }
+
+    @Bean(destroyMethod = "detener")
+    public MonitorReplicas monitorReplicas(EnrutamientoDataSource enrutamientoDataSource,
+                                           ReplicasProperties properties) {
+        MonitorReplicas monitor = new MonitorReplicas(enrutamientoDataSource, properties);
+        monitor.iniciar();
+        return monitor;
+    }
+
+    @Bean
+    public FiltroLecturaPropia filtroLecturaPropia(EnrutamientoDataSource enrutamientoDataSource,
+                                                   ReplicasProperties properties) {
+        FiltroLecturaPropia filtro = new FiltroLecturaPropia(properties.getVentanaLecturaPropia().toMillis());
+        enrutamientoDataSource.setAlConfirmarEscritura(filtro::anotarEscritura);
+        return filtro;
+    }
+
+    /**
+     * Liberar la conexión al terminar cada transacción: con open-in-view la sesión de
+     * Hibernate dura toda la petición y, si retuviera la conexión, una escritura posterior
+     * a una lectura acabaría en la réplica
+     */
+    @Bean
+    public HibernatePropertiesCustomizer liberarConexionPorTransaccion() {
+        return propiedades -> propiedades.put(AvailableSettings.CONNECTION_HANDLING,
+                "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+    }
+
+    /**
+     * Crear el esquema en una réplica local (H2); en producción lo replica el primario
+     */
+    private void migrarReplica(ReplicasProperties.Nodo nodo, FlywayProperties flywayProperties) {
+        Flyway.configure()
+                .dataSource(nodo.getUrl(), nodo.getUsuario(), nodo.getContrasena())
+                .locations(flywayProperties.getLocations().toArray(new String[0]))
+                .load()
+                .migrate();
+    }
+}
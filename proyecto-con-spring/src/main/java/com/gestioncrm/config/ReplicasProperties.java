@@ -0,0 +1,81 @@
+package com.gestioncrm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuración de las réplicas de lectura (prefijo gestioncrm.replicas)
+ */
+@ConfigurationProperties(prefix = "gestioncrm.replicas")
+public class ReplicasProperties {
+
+    /** Activa el enrutamiento de transacciones de solo lectura a las réplicas */
+    private boolean habilitado = false;
+
+    /** Réplicas disponibles; se reparten las lecturas en turno rotativo */
+    private List<Nodo> nodos = new ArrayList<>();
+
+    /** Retraso máximo tolerado; una réplica más atrasada deja de recibir lecturas */
+    private Duration retrasoMaximo = Duration.ofSeconds(5);
+
+    /**
+     * Consulta que devuelve el retraso de la réplica en segundos (opcional)
+     * Sin consulta, solo se comprueba que la réplica responda
+     */
+    private String consultaRetraso;
+
+    /** Cada cuánto se mide el retraso de las réplicas */
+    private Duration intervaloMonitoreo = Duration.ofSeconds(2);
+
+    /**
+     * Tras una escritura, las lecturas del mismo cliente van al primario durante esta ventana
+     * (lee tus propias escrituras); debe ser mayor o igual al retraso máximo tolerado
+     */
+    private Duration ventanaLecturaPropia = Duration.ofSeconds(5);
+
+    /** Ejecutar las migraciones de Flyway también en las réplicas (solo para pruebas locales) */
+    private boolean migrar = false;
+
+    /**
+     * Conexión a una réplica
+     */
+    public static class Nodo {
+        private String url;
+        private String usuario;
+        private String contrasena;
+
+        public String getUrl() { return url; }
+        public void setUrl(String url) { this.url = url; }
+
+        public String getUsuario() { return usuario; }
+        public void setUsuario(String usuario) { this.usuario = usuario; }
+
+        public String getContrasena() { return contrasena; }
+        public void setContrasena(String contrasena) { this.contrasena = contrasena; }
+    }
+
+    // Getters y Setters
+    public boolean isHabilitado() { return habilitado; }
+    public void setHabilitado(boolean habilitado) { this.habilitado = habilitado; }
+
+    public List<Nodo> getNodos() { return nodos; }
+    public void setNodos(List<Nodo> nodos) { this.nodos = nodos; }
+
+    public Duration getRetrasoMaximo() { return retrasoMaximo; }
+    public void setRetrasoMaximo(Duration retrasoMaximo) { this.retrasoMaximo = retrasoMaximo; }
+
+    public String getConsultaRetraso() { return consultaRetraso; }
+    public void setConsultaRetraso(String consultaRetraso) { this.consultaRetraso = consultaRetraso; }
+
+    public Duration getIntervaloMonitoreo() { return intervaloMonitoreo; }
+    public void setIntervaloMonitoreo(Duration intervaloMonitoreo) { this.intervaloMonitoreo = intervaloMonitoreo; }
+
+    public Duration getVentanaLecturaPropia() { return ventanaLecturaPropia; }
+    public void setVentanaLecturaPropia(Duration ventanaLecturaPropia) { this.ventanaLecturaPropia = ventanaLecturaPropia; }
+
+    public boolean isMigrar() { return migrar; }
+    public void setMigrar(boolean migrar) { this.migrar = migrar; }
+}
@@ -0,0 +1,104 @@
+package com.gestioncrm.controller;
+
+import com.gestioncrm.duplicados.AnalisisDuplicados;
+import com.gestioncrm.duplicados.DetectorDuplicados;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Análisis de personas casi duplicadas
+ * El análisis recorre toda la tabla, así que se lanza en segundo plano y se consulta después
+ */
+@RestController
+@RequestMapping("/personas/api/duplicados")
+@CrossOrigin
+@ConditionalOnExpression("${gestioncrm.duplicados.habilitado:true} and !${gestioncrm.fragmentos.habilitado:false}")
+public class DuplicadosController {
+
+    private static final Logger log = LoggerFactory.getLogger(DuplicadosController.class);
+
+    private static final int LIMITE_MAXIMO = 1_000;
+
+    private final DetectorDuplicados detectorDuplicados;
+
+    public DuplicadosController(DetectorDuplicados detectorDuplicados) {
+        this.detectorDuplicados = detectorDuplicados;
+    }
+
+    /**
+     * Lanzar un análisis: 202 con la URL del resultado, 409 si ya hay uno en curso
+     */
+    @PostMapping("/analisis")
+    public ResponseEntity<Map<String, Object>> iniciarAnalisis(@RequestParam(required = false) Double umbral) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            AnalisisDuplicados analisis = detectorDuplicados.iniciar(umbral);
+            if (analisis == null) {
+                response.put("success", false);
+                response.put("mensaje", "Ya hay un análisis de duplicados en curso");
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
+            log.info("Análisis de duplicados iniciado con umbral {}", analisis.getUmbral());
+            response.put("success", true);
+            response.put("mensaje", "Análisis de duplicados iniciado");
+            response.put("umbral", analisis.getUmbral());
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                            .path("/personas/api/duplicados")
+                            .build()
+                            .toUri())
+                    .body(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("mensaje", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * Último análisis con sus grupos de mayor a menor puntaje (como máximo limite grupos)
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> obtenerAnalisis(@RequestParam(defaultValue = "100") int limite) {
+        Map<String, Object> response = new HashMap<>();
+        if (limite < 1 || limite > LIMITE_MAXIMO) {
+            response.put("success", false);
+            response.put("mensaje", "El límite debe estar entre 1 y " + LIMITE_MAXIMO);
+            return ResponseEntity.badRequest().body(response);
+        }
+        AnalisisDuplicados analisis = detectorDuplicados.getUltimo();
+        if (analisis == null) {
+            response.put("success", false);
+            response.put("mensaje", "No se ha lanzado ningún análisis de duplicados");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+
+        List<AnalisisDuplicados.Grupo> grupos = analisis.getGrupos();
+        response.put("success", analisis.getEstado() != AnalisisDuplicados.Estado.FALLIDO);
+        response.put("estado", analisis.getEstado());
+        response.put("umbral", analisis.getUmbral());
+        response.put("iniciado", analisis.getIniciado());
+        response.put("terminado", analisis.getTerminado());
+        response.put("duracionMs", analisis.getDuracionMs());
+        response.put("personas", analisis.getPersonas());
+        response.put("bloques", analisis.getBloques());
+        response.put("bloquesOmitidos", analisis.getBloquesOmitidos());
+        response.put("paresComparados", analisis.getParesComparados());
+        response.put("paresSimilares", analisis.getParesSimilares());
+        response.put("gruposTotales", analisis.getGruposTotales());
+        response.put("grupos", grupos.subList(0, Math.min(limite, grupos.size())));
+        if (analisis.getError() != null) {
+            response.put("mensaje", analisis.getError());
+        }
+        return ResponseEntity.ok(response);
+    }
+}
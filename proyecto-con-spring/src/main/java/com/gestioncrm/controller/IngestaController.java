@@ -0,0 +1,135 @@
+package com.gestioncrm.controller;
+
+import com.gestioncrm.ingesta.BufferIngesta;
+import com.gestioncrm.ingesta.IngestaProperties;
+import com.gestioncrm.model.Persona;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import javax.validation.Valid;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Ingesta masiva de personas con escritura diferida por lotes
+ * Alternativa de alto volumen a POST /personas/api para sistemas externos
+ */
+@RestController
+@RequestMapping("/personas/api/ingesta")
+@CrossOrigin
+@ConditionalOnExpression("${gestioncrm.ingesta.habilitado:false} and !${gestioncrm.fragmentos.habilitado:false}")
+public class IngestaController {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestaController.class);
+
+    private final BufferIngesta bufferIngesta;
+    private final IngestaProperties properties;
+
+    public IngestaController(BufferIngesta bufferIngesta, IngestaProperties properties) {
+        this.bufferIngesta = bufferIngesta;
+        this.properties = properties;
+    }
+
+    /**
+     * Encolar una persona: 202 con ticket, o 201 con el ID si esperar=true y el lote
+     * se confirma a tiempo; 503 si el búfer está lleno
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> ingerirPersona(@Valid @RequestBody Persona persona,
+                                                              @RequestParam(defaultValue = "false") boolean esperar) {
+        Optional<BufferIngesta.Ticket> aceptado = bufferIngesta.enviar(persona);
+        if (!aceptado.isPresent()) {
+            log.warn("Búfer de ingesta lleno, se rechaza la persona con cédula: {}", persona.getCedula());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("mensaje", "El búfer de ingesta está lleno, reintente más tarde");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(response);
+        }
+
+        BufferIngesta.Ticket ticket = aceptado.get();
+        if (esperar) {
+            try {
+                ticket.getConfirmacion().get(properties.getEsperaConfirmacion().toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                log.warn("Ticket {} sin confirmar tras {} ms", ticket.getId(), properties.getEsperaConfirmacion().toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                log.error("Error al esperar el ticket {}", ticket.getId(), e);
+            }
+        }
+        return respuestaTicket(ticket);
+    }
+
+    /**
+     * Consultar el estado de un ticket
+     */
+    @GetMapping("/{ticket}")
+    public ResponseEntity<Map<String, Object>> consultarTicket(@PathVariable String ticket) {
+        return bufferIngesta.consultar(ticket)
+                .map(t -> ResponseEntity.ok(cuerpoTicket(t)))
+                .orElseGet(() -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", false);
+                    response.put("mensaje", "Ticket no encontrado o ya expirado");
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+                });
+    }
+
+    /**
+     * Estado del búfer (ocupación y contadores)
+     */
+    @GetMapping("/estado")
+    public ResponseEntity<BufferIngesta.Estadisticas> obtenerEstado() {
+        return ResponseEntity.ok(bufferIngesta.obtenerEstadisticas());
+    }
+
+    private ResponseEntity<Map<String, Object>> respuestaTicket(BufferIngesta.Ticket ticket) {
+        Map<String, Object> response = cuerpoTicket(ticket);
+        switch (ticket.getEstado()) {
+            case ESCRITA:
+                return ResponseEntity.status(HttpStatus.CREATED).body(response);
+            case RECHAZADA:
+                return ResponseEntity.badRequest().body(response);
+            default:
+                return ResponseEntity.status(HttpStatus.ACCEPTED)
+                        .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                                .path("/personas/api/ingesta/{ticket}")
+                                .buildAndExpand(ticket.getId())
+                                .toUri())
+                        .body(response);
+        }
+    }
+
+    private Map<String, Object> cuerpoTicket(BufferIngesta.Ticket ticket) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("ticket", ticket.getId());
+        response.put("estado", ticket.getEstado());
+        switch (ticket.getEstado()) {
+            case ESCRITA:
+                response.put("success", true);
+                response.put("id", ticket.getIdPersona());
+                break;
+            case RECHAZADA:
+                response.put("success", false);
+                response.put("mensaje", ticket.getMotivo());
+                break;
+            default:
+                response.put("success", true);
+                response.put("mensaje", "Persona aceptada, pendiente de escritura");
+        }
+        return response;
+    }
+}
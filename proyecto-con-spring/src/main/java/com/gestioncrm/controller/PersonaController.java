@@ -1,9 +1,13 @@
 package com.gestioncrm.controller;
 
+import com.gestioncrm.cambios.PaginaCambios;
+import com.gestioncrm.evento.DifusorCambios;
 import com.gestioncrm.model.Persona;
+import com.gestioncrm.service.OperacionNoDisponibleException;
 import com.gestioncrm.service.PersonaService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -11,12 +15,16 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.persistence.EntityNotFoundException;
 import javax.validation.Valid;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.Objects;
 
 /**
  * Controlador para la gestión de personas
@@ -30,9 +38,11 @@ public class PersonaController {
     private static final Logger log = LoggerFactory.getLogger(PersonaController.class);
     
     private final PersonaService personaService;
+    private final DifusorCambios difusorCambios;
 
-    public PersonaController(PersonaService personaService) {
+    public PersonaController(PersonaService personaService, DifusorCambios difusorCambios) {
         this.personaService = personaService;
+        this.difusorCambios = difusorCambios;
     }
 
     // ========== ENDPOINTS THYMELEAF (VISTAS) ==========
@@ -49,8 +59,10 @@ public class PersonaController {
             PersonaService.EstadisticasPersonas estadisticas = personaService.obtenerEstadisticas();
             
             log.info("Total de personas obtenidas: {}", personas.size());
-            for (Persona persona : personas) {
-                log.debug("Persona: ID={}, Nombre={}, Cédula={}", persona.getId(), persona.getNombreCompleto(), persona.getCedula());
+            if (log.isDebugEnabled()) {
+                for (Persona persona : personas) {
+                    log.debug("Persona: ID={}, Nombre={}, Cédula={}", persona.getId(), persona.getNombreCompleto(), persona.getCedula());
+                }
             }
             
             model.addAttribute("personas", personas);
@@ -253,20 +265,65 @@ public class PersonaController {
 
     /**
      * Obtener todas las personas (JSON)
+     * Con fields=id,nombre,... solo se consultan y devuelven esos campos
      */
     @GetMapping("/api")
     @ResponseBody
-    public ResponseEntity<List<Persona>> obtenerTodasPersonas() {
+    public ResponseEntity<List<?>> obtenerTodasPersonas(@RequestParam(required = false) String fields) {
         log.info("API: Obteniendo todas las personas");
         try {
-            List<Persona> personas = personaService.obtenerTodas();
-            return ResponseEntity.ok(personas);
+            List<String> campos = PersonaService.camposProyeccion(fields);
+            return ResponseEntity.ok(campos == null ? personaService.obtenerTodas() : personaService.obtenerTodas(campos));
+        } catch (IllegalArgumentException e) {
+            log.warn("Campos rechazados: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("Error al obtener personas", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    /**
+     * Obtener varias personas por ID (JSON): GET /api?ids=1,2,3
+     */
+    @GetMapping(value = "/api", params = "ids")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> obtenerPersonasPorIds(@RequestParam List<Long> ids) {
+        return responderPorIds(ids);
+    }
+
+    /**
+     * Obtener varias personas por ID (JSON) para listas largas: POST /api/por-ids {"ids": [...]}
+     */
+    @PostMapping("/api/por-ids")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> obtenerPersonasPorIdsPost(@RequestBody SolicitudPorIds solicitud) {
+        return responderPorIds(solicitud.getIds() != null ? solicitud.getIds() : new ArrayList<>());
+    }
+
+    private ResponseEntity<Map<String, Object>> responderPorIds(List<Long> ids) {
+        log.info("API: Obteniendo {} personas por ID", ids.size());
+        Map<String, Object> response = new HashMap<>();
+        try {
+            List<Long> validos = new ArrayList<>(ids);
+            validos.removeIf(Objects::isNull);
+            PersonaService.PersonasPorIds resultado = personaService.obtenerPorIds(validos);
+            response.put("success", true);
+            response.put("personas", resultado.getPersonas());
+            response.put("noEncontrados", resultado.getNoEncontrados());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("mensaje", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            log.error("Error al obtener personas por ID", e);
+            response.put("success", false);
+            response.put("mensaje", "Error interno del servidor");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
     /**
      * Obtener persona por ID (JSON)
      */
@@ -357,27 +414,81 @@ public class PersonaController {
      */
     @GetMapping("/api/buscar")
     @ResponseBody
-    public ResponseEntity<List<Persona>> buscarPersonasAPI(@RequestParam String termino) {
+    public ResponseEntity<List<?>> buscarPersonasAPI(@RequestParam String termino,
+                                                     @RequestParam(required = false) String fields) {
         log.info("API: Buscando personas con término: {}", termino);
         try {
-            List<Persona> personas = personaService.buscarPorTermino(termino);
-            return ResponseEntity.ok(personas);
+            List<String> campos = PersonaService.camposProyeccion(fields);
+            return ResponseEntity.ok(campos == null
+                    ? personaService.buscarPorTermino(termino) : personaService.buscarPorTermino(termino, campos));
+        } catch (IllegalArgumentException e) {
+            log.warn("Campos rechazados: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("Error al buscar personas", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    /**
+     * Búsqueda combinada con paginación y orden (JSON)
+     * Parámetros: termino, rol, sexo, edadMin, edadMax, conEmail, conTelefono, pagina, tamano,
+     * orden (nombre, apellido, edad, cedula o id, con ",desc" opcional);
+     * con facetas=true incluye los conteos por faceta del filtro completo y con
+     * fields=id,nombre,... solo esos campos de cada persona
+     */
+    @GetMapping("/api/search")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> busquedaCombinadaAPI(PersonaService.CriteriosBusqueda criterios,
+                                                                    @RequestParam(defaultValue = "0") int pagina,
+                                                                    @RequestParam(defaultValue = "20") int tamano,
+                                                                    @RequestParam(required = false) String orden,
+                                                                    @RequestParam(defaultValue = "false") boolean facetas,
+                                                                    @RequestParam(required = false) String fields) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            List<String> campos = PersonaService.camposProyeccion(fields);
+            Page<?> resultado = campos == null
+                    ? personaService.buscar(criterios, pagina, tamano, orden)
+                    : personaService.buscar(criterios, pagina, tamano, orden, campos);
+            response.put("success", true);
+            response.put("personas", resultado.getContent());
+            response.put("pagina", resultado.getNumber());
+            response.put("tamano", resultado.getSize());
+            response.put("total", resultado.getTotalElements());
+            response.put("totalPaginas", resultado.getTotalPages());
+            if (facetas) {
+                response.put("facetas", personaService.contarFacetas(criterios));
+            }
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            log.warn("Búsqueda rechazada: {}", e.getMessage());
+            response.put("success", false);
+            response.put("mensaje", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            log.error("Error en la búsqueda de personas", e);
+            response.put("success", false);
+            response.put("mensaje", "Error en la búsqueda: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
     /**
      * Filtrar personas por rol (JSON)
      */
     @GetMapping("/api/filtrar/rol/{rol}")
     @ResponseBody
-    public ResponseEntity<List<Persona>> filtrarPorRolAPI(@PathVariable String rol) {
+    public ResponseEntity<List<?>> filtrarPorRolAPI(@PathVariable String rol,
+                                                    @RequestParam(required = false) String fields) {
         log.info("API: Filtrando personas por rol: {}", rol);
         try {
-            List<Persona> personas = personaService.buscarPorRol(rol);
-            return ResponseEntity.ok(personas);
+            List<String> campos = PersonaService.camposProyeccion(fields);
+            return ResponseEntity.ok(campos == null
+                    ? personaService.buscarPorRol(rol) : personaService.buscarPorRol(rol, campos));
+        } catch (IllegalArgumentException e) {
+            log.warn("Campos rechazados: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("Error al filtrar personas por rol", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -389,11 +500,16 @@ public class PersonaController {
      */
     @GetMapping("/api/filtrar/sexo/{sexo}")
     @ResponseBody
-    public ResponseEntity<List<Persona>> filtrarPorSexoAPI(@PathVariable Persona.Sexo sexo) {
+    public ResponseEntity<List<?>> filtrarPorSexoAPI(@PathVariable Persona.Sexo sexo,
+                                                     @RequestParam(required = false) String fields) {
         log.info("API: Filtrando personas por sexo: {}", sexo);
         try {
-            List<Persona> personas = personaService.buscarPorSexo(sexo);
-            return ResponseEntity.ok(personas);
+            List<String> campos = PersonaService.camposProyeccion(fields);
+            return ResponseEntity.ok(campos == null
+                    ? personaService.buscarPorSexo(sexo) : personaService.buscarPorSexo(sexo, campos));
+        } catch (IllegalArgumentException e) {
+            log.warn("Campos rechazados: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("Error al filtrar personas por sexo", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -416,6 +532,73 @@ public class PersonaController {
         }
     }
 
+    /**
+     * Distribución por rol, sexo y rango de edad (JSON)
+     */
+    @GetMapping("/api/estadisticas/distribucion")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> obtenerDistribucionAPI(
+            @RequestParam(defaultValue = "10") int anchoEdad) {
+        log.info("API: Obteniendo distribución (anchoEdad={})", anchoEdad);
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("success", true);
+            response.put("distribucion", personaService.obtenerDistribucion(anchoEdad));
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("mensaje", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            log.error("Error al obtener la distribución", e);
+            response.put("success", false);
+            response.put("mensaje", "Error interno del servidor");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Buscar personas por email, sin distinguir mayúsculas (JSON)
+     */
+    @GetMapping("/api/por-email")
+    @ResponseBody
+    public ResponseEntity<List<?>> buscarPorEmailAPI(@RequestParam String email,
+                                                     @RequestParam(required = false) String fields) {
+        log.info("API: Buscando personas por email: {}", email);
+        try {
+            List<String> campos = PersonaService.camposProyeccion(fields);
+            return ResponseEntity.ok(campos == null
+                    ? personaService.buscarPorEmail(email) : personaService.buscarPorEmail(email, campos));
+        } catch (IllegalArgumentException e) {
+            log.warn("Búsqueda por email rechazada: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error al buscar personas por email", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Buscar personas por teléfono, comparando solo los dígitos (JSON)
+     */
+    @GetMapping("/api/por-telefono")
+    @ResponseBody
+    public ResponseEntity<List<?>> buscarPorTelefonoAPI(@RequestParam String telefono,
+                                                        @RequestParam(required = false) String fields) {
+        log.info("API: Buscando personas por teléfono: {}", telefono);
+        try {
+            List<String> campos = PersonaService.camposProyeccion(fields);
+            return ResponseEntity.ok(campos == null
+                    ? personaService.buscarPorTelefono(telefono) : personaService.buscarPorTelefono(telefono, campos));
+        } catch (IllegalArgumentException e) {
+            log.warn("Búsqueda por teléfono rechazada: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("Error al buscar personas por teléfono", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     /**
      * Verificar si existe cédula (JSON)
      */
@@ -434,6 +617,140 @@ public class PersonaController {
         }
     }
 
+    /**
+     * Eliminación masiva por lista de IDs o por filtro (JSON)
+     * Cuerpo: {"ids": [1, 2]} o {"rol": "...", "sexo": "M", "edadMin": 18, "edadMax": 30}
+     */
+    @PostMapping("/api/masivo/eliminar")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> eliminarMasivoAPI(@RequestBody SolicitudEliminacionMasiva solicitud) {
+        log.info("API: Eliminación masiva de personas");
+        Map<String, Object> response = new HashMap<>();
+        try {
+            PersonaService.ResultadoMasivo resultado;
+            if (solicitud.getIds() != null) {
+                if (solicitud.tieneFiltro()) {
+                    throw new IllegalArgumentException("Indique una lista de IDs o un filtro, no ambos");
+                }
+                solicitud.getIds().removeIf(Objects::isNull);
+                resultado = personaService.eliminarPorIds(solicitud.getIds());
+            } else {
+                resultado = personaService.eliminarPorFiltro(solicitud.getRol(), solicitud.getSexo(),
+                        solicitud.getEdadMin(), solicitud.getEdadMax());
+            }
+            response.put("success", true);
+            response.put("eliminadas", resultado.getAfectadas());
+            response.put("omitidas", resultado.getOmitidas());
+            response.put("mensaje", "Personas eliminadas: " + resultado.getAfectadas()
+                    + " (omitidas por no existir o tener usuario: " + resultado.getOmitidas() + ")");
+            return ResponseEntity.ok(response);
+        } catch (OperacionNoDisponibleException e) {
+            response.put("success", false);
+            response.put("mensaje", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).body(response);
+        } catch (IllegalArgumentException e) {
+            log.warn("Eliminación masiva rechazada: {}", e.getMessage());
+            response.put("success", false);
+            response.put("mensaje", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            log.error("Error en la eliminación masiva de personas", e);
+            response.put("success", false);
+            response.put("mensaje", "Error en la eliminación masiva: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Reasignar un rol a otro en todas las personas que lo tienen (JSON)
+     * Cuerpo: {"origen": "Cliente", "destino": "Socio"}
+     */
+    @PostMapping("/api/masivo/reasignar-rol")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> reasignarRolAPI(@RequestBody SolicitudReasignacionRol solicitud) {
+        log.info("API: Reasignando rol '{}' a '{}'", solicitud.getOrigen(), solicitud.getDestino());
+        Map<String, Object> response = new HashMap<>();
+        try {
+            PersonaService.ResultadoMasivo resultado = personaService.reasignarRol(solicitud.getOrigen(), solicitud.getDestino());
+            response.put("success", true);
+            response.put("actualizadas", resultado.getAfectadas());
+            response.put("mensaje", "Rol reasignado en " + resultado.getAfectadas() + " personas");
+            return ResponseEntity.ok(response);
+        } catch (OperacionNoDisponibleException e) {
+            response.put("success", false);
+            response.put("mensaje", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).body(response);
+        } catch (IllegalArgumentException e) {
+            log.warn("Reasignación de rol rechazada: {}", e.getMessage());
+            response.put("success", false);
+            response.put("mensaje", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            log.error("Error al reasignar rol", e);
+            response.put("success", false);
+            response.put("mensaje", "Error al reasignar rol: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Cambios de personas posteriores a la secuencia "since" (JSON)
+     * Sincronización incremental: upserts y eliminaciones ordenados por secuencia
+     */
+    @GetMapping("/api/changes")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> obtenerCambiosAPI(@RequestParam(defaultValue = "0") long since,
+                                                                 @RequestParam(required = false) Integer limit) {
+        log.debug("API: Cambios de personas desde la secuencia {}", since);
+        Map<String, Object> response = new HashMap<>();
+        if (since < 0) {
+            response.put("success", false);
+            response.put("mensaje", "El parámetro since no puede ser negativo");
+            return ResponseEntity.badRequest().body(response);
+        }
+        try {
+            PaginaCambios<Persona> pagina = personaService.obtenerCambios(since, PaginaCambios.limiteValido(limit));
+            response.put("success", true);
+            response.put("cambios", pagina.getCambios());
+            response.put("siguiente", pagina.getSiguiente());
+            response.put("hayMas", pagina.isHayMas());
+            return ResponseEntity.ok(response);
+        } catch (OperacionNoDisponibleException e) {
+            response.put("success", false);
+            response.put("mensaje", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).body(response);
+        } catch (Exception e) {
+            log.error("Error al obtener cambios de personas", e);
+            response.put("success", false);
+            response.put("mensaje", "Error al obtener los cambios: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * Flujo de cambios de personas (Server-Sent Events)
+     * Eventos "creada", "actualizada" y "eliminada" con la secuencia de cambios como ID;
+     * con Last-Event-ID se reanuda desde esa secuencia, o se envía "reinicio" si falta demasiado
+     */
+    @GetMapping(value = "/api/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public ResponseEntity<SseEmitter> streamCambios(@RequestHeader(value = "Last-Event-ID", required = false) String ultimoEvento) {
+        Long ultimo = null;
+        if (ultimoEvento != null && !ultimoEvento.trim().isEmpty()) {
+            try {
+                ultimo = Long.parseLong(ultimoEvento.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Last-Event-ID inválido: {}", ultimoEvento);
+            }
+        }
+        SseEmitter emitter = difusorCambios.suscribir(ultimo);
+        if (emitter == null) {
+            log.warn("Máximo de suscriptores al flujo de cambios alcanzado");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
     /**
      * Limpiar datos duplicados (JSON)
      */
@@ -458,4 +775,52 @@ public class PersonaController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
+
+    public static class SolicitudEliminacionMasiva {
+        private List<Long> ids;
+        private String rol;
+        private Persona.Sexo sexo;
+        private Integer edadMin;
+        private Integer edadMax;
+
+        boolean tieneFiltro() {
+            return rol != null || sexo != null || edadMin != null || edadMax != null;
+        }
+
+        // Getters y Setters
+        public List<Long> getIds() { return ids; }
+        public void setIds(List<Long> ids) { this.ids = ids; }
+
+        public String getRol() { return rol; }
+        public void setRol(String rol) { this.rol = rol; }
+
+        public Persona.Sexo getSexo() { return sexo; }
+        public void setSexo(Persona.Sexo sexo) { this.sexo = sexo; }
+
+        public Integer getEdadMin() { return edadMin; }
+        public void setEdadMin(Integer edadMin) { this.edadMin = edadMin; }
+
+        public Integer getEdadMax() { return edadMax; }
+        public void setEdadMax(Integer edadMax) { this.edadMax = edadMax; }
+    }
+
+    public static class SolicitudPorIds {
+        private List<Long> ids;
+
+        // Getters y Setters
+        public List<Long> getIds() { return ids; }
+        public void setIds(List<Long> ids) { this.ids = ids; }
+    }
+
+    public static class SolicitudReasignacionRol {
+        private String origen;
+        private String destino;
+
+        // Getters y Setters
+        public String getOrigen() { return origen; }
+        public void setOrigen(String origen) { this.origen = origen; }
+
+        public String getDestino() { return destino; }
+        public void setDestino(String destino) { this.destino = destino; }
+    }
 }
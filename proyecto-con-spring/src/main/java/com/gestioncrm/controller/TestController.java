@@ -2,6 +2,7 @@ package com.gestioncrm.controller;
 
 import com.gestioncrm.repository.PersonaRepository;
 import com.gestioncrm.repository.UsuarioRepository;
+import com.gestioncrm.service.PersonaService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
@@ -22,10 +23,13 @@ public class TestController {
     
     private final PersonaRepository personaRepository;
     private final UsuarioRepository usuarioRepository;
+    private final PersonaService personaService;
 
-    public TestController(PersonaRepository personaRepository, UsuarioRepository usuarioRepository) {
+    public TestController(PersonaRepository personaRepository, UsuarioRepository usuarioRepository,
+                          PersonaService personaService) {
         this.personaRepository = personaRepository;
         this.usuarioRepository = usuarioRepository;
+        this.personaService = personaService;
     }
 
     /**
@@ -96,7 +100,7 @@ public class TestController {
             persona.setSexo(com.gestioncrm.model.Persona.Sexo.M);
             persona.setRol("Test");
             
-            com.gestioncrm.model.Persona personaGuardada = personaRepository.save(persona);
+            com.gestioncrm.model.Persona personaGuardada = personaService.guardar(persona);
             
             response.put("success", true);
             response.put("mensaje", "Persona de prueba creada exitosamente");
@@ -1,6 +1,8 @@
 package com.gestioncrm.controller;
 
+import com.gestioncrm.cambios.PaginaCambios;
 import com.gestioncrm.model.Usuario;
+import com.gestioncrm.service.OperacionNoDisponibleException;
 import com.gestioncrm.service.UsuarioService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,7 +16,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
-import com.gestioncrm.repository.PersonaRepository;
 import com.gestioncrm.model.Persona;
 
 /**
@@ -28,11 +29,9 @@ public class UsuarioController {
     private static final Logger log = LoggerFactory.getLogger(UsuarioController.class);
     
     private final UsuarioService usuarioService;
-    private final PersonaRepository personaRepository;
 
-    public UsuarioController(UsuarioService usuarioService, PersonaRepository personaRepository) {
+    public UsuarioController(UsuarioService usuarioService) {
         this.usuarioService = usuarioService;
-        this.personaRepository = personaRepository;
     }
 
     /**
@@ -60,6 +59,36 @@ public class UsuarioController {
         }
     }
 
+    /**
+     * Cambios de usuarios posteriores a la secuencia "since" (sincronización incremental)
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<Map<String, Object>> obtenerCambios(@RequestParam(defaultValue = "0") long since,
+                                                              @RequestParam(required = false) Integer limit) {
+        log.debug("Obteniendo cambios de usuarios desde la secuencia {}", since);
+        Map<String, Object> response = new HashMap<>();
+        if (since < 0) {
+            response.put("success", false);
+            response.put("mensaje", "El parámetro since no puede ser negativo");
+            return ResponseEntity.badRequest().body(response);
+        }
+        try {
+            PaginaCambios<UsuarioResponse> pagina = usuarioService
+                    .obtenerCambios(since, PaginaCambios.limiteValido(limit))
+                    .convertir(UsuarioResponse::new);
+            response.put("success", true);
+            response.put("cambios", pagina.getCambios());
+            response.put("siguiente", pagina.getSiguiente());
+            response.put("hayMas", pagina.isHayMas());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Error al obtener cambios de usuarios", e);
+            response.put("success", false);
+            response.put("mensaje", "Error al obtener los cambios de usuarios");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
     /**
      * Obtener un usuario por ID
      */
@@ -121,7 +150,7 @@ public class UsuarioController {
             }
             
             // Verificar que la persona existe
-            if (!personaRepository.existsById(request.getPersonaId())) {
+            if (!usuarioService.existePersona(request.getPersonaId())) {
                 Map<String, Object> response = new HashMap<>();
                 response.put("success", false);
                 response.put("mensaje", "La persona especificada no existe");
@@ -144,6 +173,11 @@ public class UsuarioController {
             
             log.info("Usuario creado exitosamente: {}", nuevoUsuario.getUsuario());
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (OperacionNoDisponibleException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("mensaje", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).body(response);
         } catch (IllegalArgumentException e) {
             log.error("Error de validación al crear usuario: {}", e.getMessage());
             Map<String, Object> response = new HashMap<>();
@@ -188,6 +222,11 @@ public class UsuarioController {
                 log.warn("Usuario no encontrado para actualizar con ID: {}", id);
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
             }
+        } catch (OperacionNoDisponibleException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("mensaje", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).body(response);
         } catch (Exception e) {
             log.error("Error al actualizar usuario", e);
             Map<String, Object> response = new HashMap<>();
@@ -288,9 +327,7 @@ public class UsuarioController {
         log.info("Obteniendo personas disponibles para crear usuarios");
         
         try {
-            List<Persona> personasDisponibles = personaRepository.findAll().stream()
-                    .filter(persona -> !usuarioService.obtenerPorPersonaId(persona.getId()).isPresent())
-                    .collect(Collectors.toList());
+            List<Persona> personasDisponibles = usuarioService.obtenerPersonasSinUsuario();
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -299,6 +336,11 @@ public class UsuarioController {
             
             log.info("Se encontraron {} personas disponibles", personasDisponibles.size());
             return ResponseEntity.ok(response);
+        } catch (OperacionNoDisponibleException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("mensaje", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).body(response);
         } catch (Exception e) {
             log.error("Error al obtener personas disponibles", e);
             Map<String, Object> response = new HashMap<>();
@@ -0,0 +1,135 @@
+package com.gestioncrm.duplicados;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado de un análisis de casi duplicados: grupos de personas ordenados de mayor a
+ * menor puntaje y las cifras del recorrido
+ */
+public class AnalisisDuplicados {
+
+    public enum Estado { EN_CURSO, TERMINADO, FALLIDO }
+
+    // Lo completa el hilo del análisis mientras otros lo consultan
+    private volatile Estado estado = Estado.EN_CURSO;
+    private final double umbral;
+    private final LocalDateTime iniciado = LocalDateTime.now();
+    private volatile LocalDateTime terminado;
+    private volatile long duracionMs;
+    private volatile int personas;
+    private volatile int bloques;
+    private volatile int bloquesOmitidos;
+    private volatile long paresComparados;
+    private volatile long paresSimilares;
+    private volatile int gruposTotales;
+    private volatile List<Grupo> grupos = Collections.emptyList();
+    private volatile String error;
+
+    AnalisisDuplicados(double umbral) {
+        this.umbral = umbral;
+    }
+
+    /**
+     * Personas unidas por pares con puntaje mayor o igual al umbral (clausura transitiva)
+     */
+    public static class Grupo {
+        private final double puntaje;
+        private final List<Miembro> personas;
+        private final List<Par> pares;
+
+        Grupo(double puntaje, List<Miembro> personas, List<Par> pares) {
+            this.puntaje = puntaje;
+            this.personas = personas;
+            this.pares = pares;
+        }
+
+        /** Puntaje del par más parecido del grupo */
+        public double getPuntaje() { return puntaje; }
+        public List<Miembro> getPersonas() { return personas; }
+        public List<Par> getPares() { return pares; }
+    }
+
+    /**
+     * Datos de una persona del grupo, tal como están guardados
+     */
+    public static class Miembro {
+        private final long id;
+        private final String nombre;
+        private final String apellido;
+        private final String cedula;
+        private final String telefono;
+        private final String email;
+
+        Miembro(long id, String nombre, String apellido, String cedula, String telefono, String email) {
+            this.id = id;
+            this.nombre = nombre;
+            this.apellido = apellido;
+            this.cedula = cedula;
+            this.telefono = telefono;
+            this.email = email;
+        }
+
+        public long getId() { return id; }
+        public String getNombre() { return nombre; }
+        public String getApellido() { return apellido; }
+        public String getCedula() { return cedula; }
+        public String getTelefono() { return telefono; }
+        public String getEmail() { return email; }
+    }
+
+    /**
+     * Par de personas y su puntaje
+     */
+    public static class Par {
+        private final long idA;
+        private final long idB;
+        private final double puntaje;
+
+        Par(long idA, long idB, double puntaje) {
+            this.idA = idA;
+            this.idB = idB;
+            this.puntaje = puntaje;
+        }
+
+        public long getIdA() { return idA; }
+        public long getIdB() { return idB; }
+        public double getPuntaje() { return puntaje; }
+    }
+
+    void terminar(int personas, int bloques, int bloquesOmitidos, long paresComparados, long paresSimilares,
+                  int gruposTotales, List<Grupo> grupos, long duracionMs) {
+        this.personas = personas;
+        this.bloques = bloques;
+        this.bloquesOmitidos = bloquesOmitidos;
+        this.paresComparados = paresComparados;
+        this.paresSimilares = paresSimilares;
+        this.gruposTotales = gruposTotales;
+        this.grupos = Collections.unmodifiableList(grupos);
+        this.duracionMs = duracionMs;
+        this.terminado = LocalDateTime.now();
+        this.estado = Estado.TERMINADO;
+    }
+
+    void fallar(String error) {
+        this.error = error;
+        this.terminado = LocalDateTime.now();
+        this.estado = Estado.FALLIDO;
+    }
+
+    // Getters
+    public Estado getEstado() { return estado; }
+    public double getUmbral() { return umbral; }
+    public LocalDateTime getIniciado() { return iniciado; }
+    public LocalDateTime getTerminado() { return terminado; }
+    public long getDuracionMs() { return duracionMs; }
+    public int getPersonas() { return personas; }
+    public int getBloques() { return bloques; }
+    public int getBloquesOmitidos() { return bloquesOmitidos; }
+    public long getParesComparados() { return paresComparados; }
+    public long getParesSimilares() { return paresSimilares; }
+    public int getGruposTotales() { return gruposTotales; }
+    public List<Grupo> getGrupos() { return grupos; }
+    public String getError() { return error; }
+}
@@ -0,0 +1,571 @@
+package com.gestioncrm.duplicados;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Detección de personas casi duplicadas (tildes, errores de digitación, formato del teléfono)
+ *
+ * Para no comparar todos los pares, cada persona entra en hasta tres bloques: apellido
+ * normalizado con la inicial del nombre, dígitos del teléfono y parte local del email. Solo se
+ * comparan los pares de un mismo bloque (un par que comparte varios bloques, una sola vez) y
+ * los bloques mayores que tamanoBloqueMaximo se omiten. Los pares se puntúan en paralelo en
+ * el ForkJoinPool común y los que superan el umbral se unen en grupos (union-find).
+ *
+ * El puntaje es la media ponderada de la similitud de los campos presentes en las dos
+ * personas: nombre y apellido (Jaro-Winkler, peso 2), cédula (igual 1, a una edición 0,8,
+ * peso 2), teléfono (igual, peso 1) y email (igual 1, misma parte local 0,8, peso 1).
+ */
+public class DetectorDuplicados implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(DetectorDuplicados.class);
+
+    private static final int CLAVE_NOMBRE = 0;
+    private static final int CLAVE_TELEFONO = 1;
+    private static final int CLAVE_EMAIL = 2;
+    private static final int CLAVES = 3;
+
+    private static final double PESO_NOMBRE = 2;
+    private static final double PESO_APELLIDO = 2;
+    private static final double PESO_CEDULA = 2;
+    private static final double PESO_TELEFONO = 1;
+    private static final double PESO_EMAIL = 1;
+    private static final double CEDULA_UNA_EDICION = 0.8;
+    private static final double MISMA_PARTE_LOCAL = 0.8;
+
+    /** IDs por sentencia al leer los datos de las personas de los grupos */
+    private static final int IDS_POR_CONSULTA = 1000;
+
+    private final DataSource dataSource;
+    private final DuplicadosProperties properties;
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+    private final ExecutorService ejecutor;
+    private final AtomicReference<AnalisisDuplicados> ultimo = new AtomicReference<>();
+
+    public DetectorDuplicados(DataSource dataSource, DuplicadosProperties properties) {
+        this.dataSource = dataSource;
+        this.properties = properties;
+        this.ejecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread hilo = new Thread(r, "analisis-duplicados");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * Lanzar un análisis en segundo plano (null si ya hay uno en curso)
+     */
+    public AnalisisDuplicados iniciar(Double umbral) {
+        AnalisisDuplicados analisis = new AnalisisDuplicados(umbralValido(umbral));
+        AnalisisDuplicados anterior = ultimo.get();
+        if (anterior != null && anterior.getEstado() == AnalisisDuplicados.Estado.EN_CURSO
+                || !ultimo.compareAndSet(anterior, analisis)) {
+            return null;
+        }
+        ejecutor.execute(() -> ejecutar(analisis));
+        return analisis;
+    }
+
+    /**
+     * Último análisis lanzado, en curso o terminado (null si no hay ninguno)
+     */
+    public AnalisisDuplicados getUltimo() {
+        return ultimo.get();
+    }
+
+    /**
+     * Analizar todas las personas en el hilo actual
+     */
+    public AnalisisDuplicados analizar(Double umbral) throws SQLException {
+        AnalisisDuplicados analisis = new AnalisisDuplicados(umbralValido(umbral));
+        analizar(analisis);
+        return analisis;
+    }
+
+    @Override
+    public void close() {
+        ejecutor.shutdownNow();
+    }
+
+    // ========== INTERNO ==========
+
+    private void ejecutar(AnalisisDuplicados analisis) {
+        try {
+            analizar(analisis);
+        } catch (SQLException | RuntimeException e) {
+            log.error("Error en el análisis de duplicados", e);
+            analisis.fallar(e.getMessage());
+        }
+    }
+
+    private void analizar(AnalisisDuplicados analisis) throws SQLException {
+        long inicio = System.nanoTime();
+        Registros registros = leer();
+        int n = registros.ids.length;
+
+        // Bloques por cada clave; tamanos[clave][i] es el tamaño del bloque de la persona i
+        int[][] tamanos = new int[CLAVES][n];
+        List<int[]> miembros = new ArrayList<>();
+        List<Integer> tipos = new ArrayList<>();
+        int omitidos = 0;
+        for (int clave = 0; clave < CLAVES; clave++) {
+            Map<Object, int[]> porClave = agrupar(registros.claves[clave]);
+            for (int[] bloque : porClave.values()) {
+                for (int i : bloque) {
+                    tamanos[clave][i] = bloque.length;
+                }
+                if (bloque.length > properties.getTamanoBloqueMaximo()) {
+                    omitidos++;
+                } else if (bloque.length > 1) {
+                    miembros.add(bloque);
+                    tipos.add(clave);
+                }
+            }
+        }
+        long agrupado = System.nanoTime();
+
+        Bloques bloques = new Bloques(miembros, tipos, registros, tamanos, properties.getTamanoBloqueMaximo(),
+                analisis.getUmbral());
+        Similares similares = pool.invoke(new Comparacion(bloques, 0, bloques.cantidad()));
+        long comparado = System.nanoTime();
+
+        List<AnalisisDuplicados.Grupo> grupos = agruparSimilares(registros, similares);
+        int gruposTotales = grupos.size();
+        if (grupos.size() > properties.getGruposMaximo()) {
+            grupos = new ArrayList<>(grupos.subList(0, properties.getGruposMaximo()));
+        }
+        grupos = completar(grupos);
+
+        long duracionMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        analisis.terminar(n, bloques.cantidad(), omitidos, similares.comparados, similares.cantidad,
+                gruposTotales, grupos, duracionMs);
+        log.info("Análisis de duplicados: {} personas, {} bloques ({} omitidos), {} pares comparados, "
+                        + "{} similares, {} grupos en {} ms (bloques {} ms, comparación {} ms)",
+                n, bloques.cantidad(), omitidos, similares.comparados, similares.cantidad, gruposTotales, duracionMs,
+                TimeUnit.NANOSECONDS.toMillis(agrupado - inicio), TimeUnit.NANOSECONDS.toMillis(comparado - agrupado));
+    }
+
+    /**
+     * Umbral pedido, o el configurado si no se indica
+     */
+    private double umbralValido(Double umbral) {
+        double valor = umbral != null ? umbral : properties.getUmbral();
+        if (valor <= 0 || valor > 1) {
+            throw new IllegalArgumentException("El umbral debe estar entre 0 (excluido) y 1");
+        }
+        return valor;
+    }
+
+    /**
+     * Leer las columnas comparadas de todas las personas, ya normalizadas
+     */
+    private Registros leer() throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        List<String> nombres = new ArrayList<>();
+        List<String> apellidos = new ArrayList<>();
+        List<String> cedulas = new ArrayList<>();
+        List<Long> telefonos = new ArrayList<>();
+        List<String> emails = new ArrayList<>();
+        // Nombres y apellidos se repiten mucho: una sola copia de cada uno
+        Map<String, String> unicos = new HashMap<>();
+        try (Connection conexion = dataSource.getConnection();
+             Statement consulta = conexion.createStatement()) {
+            consulta.setFetchSize(10_000);
+            try (ResultSet rs = consulta.executeQuery(
+                    "SELECT id_persona, nombre, apellido, cedula, telefono, email FROM persona")) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                    nombres.add(unico(unicos, Similitud.texto(rs.getString(2))));
+                    apellidos.add(unico(unicos, Similitud.texto(rs.getString(3))));
+                    String cedula = rs.getString(4);
+                    cedulas.add(cedula != null ? cedula.trim().toUpperCase() : null);
+                    telefonos.add(Similitud.telefono(rs.getString(5)));
+                    emails.add(Similitud.email(rs.getString(6)));
+                }
+            }
+        }
+        return new Registros(ids, nombres, apellidos, cedulas, telefonos, emails);
+    }
+
+    private static String unico(Map<String, String> unicos, String valor) {
+        return valor == null ? null : unicos.computeIfAbsent(valor, v -> v);
+    }
+
+    /**
+     * Índices de las personas por valor de la clave (sin las que no la tienen)
+     */
+    private static Map<Object, int[]> agrupar(Object[] claves) {
+        Map<Object, int[]> cantidades = new HashMap<>();
+        for (Object clave : claves) {
+            if (clave != null) {
+                cantidades.computeIfAbsent(clave, c -> new int[1])[0]++;
+            }
+        }
+        Map<Object, int[]> bloques = new HashMap<>(cantidades.size() * 2);
+        Map<Object, int[]> ocupados = new HashMap<>(cantidades.size() * 2);
+        for (Map.Entry<Object, int[]> entrada : cantidades.entrySet()) {
+            bloques.put(entrada.getKey(), new int[entrada.getValue()[0]]);
+            ocupados.put(entrada.getKey(), new int[1]);
+        }
+        for (int i = 0; i < claves.length; i++) {
+            if (claves[i] != null) {
+                bloques.get(claves[i])[ocupados.get(claves[i])[0]++] = i;
+            }
+        }
+        return bloques;
+    }
+
+    /**
+     * Unir los pares similares en grupos, de mayor a menor puntaje y, a igual puntaje, más grandes primero
+     */
+    private static List<AnalisisDuplicados.Grupo> agruparSimilares(Registros registros, Similares similares) {
+        int[] padre = new int[registros.ids.length];
+        Arrays.fill(padre, -1);
+        for (int k = 0; k < similares.cantidad; k++) {
+            unir(padre, similares.a[k], similares.b[k]);
+        }
+
+        Map<Integer, List<Integer>> pares = new HashMap<>();
+        for (int k = 0; k < similares.cantidad; k++) {
+            pares.computeIfAbsent(raiz(padre, similares.a[k]), r -> new ArrayList<>()).add(k);
+        }
+        List<AnalisisDuplicados.Grupo> grupos = new ArrayList<>(pares.size());
+        for (List<Integer> delGrupo : pares.values()) {
+            List<AnalisisDuplicados.Par> paresGrupo = new ArrayList<>(delGrupo.size());
+            List<Integer> personas = new ArrayList<>();
+            for (int k : delGrupo) {
+                int a = similares.a[k];
+                int b = similares.b[k];
+                paresGrupo.add(new AnalisisDuplicados.Par(registros.ids[a], registros.ids[b], similares.puntajes[k]));
+                personas.add(a);
+                personas.add(b);
+            }
+            paresGrupo.sort(Comparator.comparingDouble(AnalisisDuplicados.Par::getPuntaje).reversed());
+            List<AnalisisDuplicados.Miembro> miembros = new ArrayList<>();
+            personas.stream().distinct().map(i -> registros.ids[i]).sorted().forEach(id ->
+                    miembros.add(new AnalisisDuplicados.Miembro(id, null, null, null, null, null)));
+            grupos.add(new AnalisisDuplicados.Grupo(paresGrupo.get(0).getPuntaje(), miembros, paresGrupo));
+        }
+        grupos.sort(Comparator.comparingDouble(AnalisisDuplicados.Grupo::getPuntaje).reversed()
+                .thenComparing(grupo -> -grupo.getPersonas().size())
+                .thenComparingLong(grupo -> grupo.getPersonas().get(0).getId()));
+        return grupos;
+    }
+
+    private static int raiz(int[] padre, int i) {
+        int raiz = i;
+        while (padre[raiz] >= 0) {
+            raiz = padre[raiz];
+        }
+        // Compresión de caminos
+        while (padre[i] >= 0) {
+            int siguiente = padre[i];
+            padre[i] = raiz;
+            i = siguiente;
+        }
+        return raiz;
+    }
+
+    private static void unir(int[] padre, int a, int b) {
+        int raizA = raiz(padre, a);
+        int raizB = raiz(padre, b);
+        if (raizA == raizB) {
+            return;
+        }
+        // padre[raiz] guarda -tamaño: el árbol menor cuelga del mayor
+        if (padre[raizA] > padre[raizB]) {
+            int temporal = raizA;
+            raizA = raizB;
+            raizB = temporal;
+        }
+        padre[raizA] += padre[raizB];
+        padre[raizB] = raizA;
+    }
+
+    /**
+     * Completar los miembros de los grupos con sus datos guardados (sin normalizar)
+     */
+    private List<AnalisisDuplicados.Grupo> completar(List<AnalisisDuplicados.Grupo> grupos) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        for (AnalisisDuplicados.Grupo grupo : grupos) {
+            for (AnalisisDuplicados.Miembro miembro : grupo.getPersonas()) {
+                ids.add(miembro.getId());
+            }
+        }
+        Map<Long, AnalisisDuplicados.Miembro> porId = new HashMap<>(ids.size() * 2);
+        try (Connection conexion = dataSource.getConnection()) {
+            for (int desde = 0; desde < ids.size(); desde += IDS_POR_CONSULTA) {
+                List<Long> bloque = ids.subList(desde, Math.min(desde + IDS_POR_CONSULTA, ids.size()));
+                String marcadores = String.join(", ", Collections.nCopies(bloque.size(), "?"));
+                try (PreparedStatement consulta = conexion.prepareStatement(
+                        "SELECT id_persona, nombre, apellido, cedula, telefono, email FROM persona "
+                                + "WHERE id_persona IN (" + marcadores + ")")) {
+                    for (int i = 0; i < bloque.size(); i++) {
+                        consulta.setLong(i + 1, bloque.get(i));
+                    }
+                    try (ResultSet rs = consulta.executeQuery()) {
+                        while (rs.next()) {
+                            porId.put(rs.getLong(1), new AnalisisDuplicados.Miembro(rs.getLong(1), rs.getString(2),
+                                    rs.getString(3), rs.getString(4), rs.getString(5), rs.getString(6)));
+                        }
+                    }
+                }
+            }
+        }
+
+        List<AnalisisDuplicados.Grupo> completos = new ArrayList<>(grupos.size());
+        for (AnalisisDuplicados.Grupo grupo : grupos) {
+            List<AnalisisDuplicados.Miembro> miembros = new ArrayList<>(grupo.getPersonas().size());
+            for (AnalisisDuplicados.Miembro miembro : grupo.getPersonas()) {
+                // Eliminada durante el análisis: queda solo el ID
+                miembros.add(porId.getOrDefault(miembro.getId(), miembro));
+            }
+            completos.add(new AnalisisDuplicados.Grupo(grupo.getPuntaje(), miembros, grupo.getPares()));
+        }
+        return completos;
+    }
+
+    /**
+     * Columnas normalizadas de todas las personas, por índice
+     */
+    private static final class Registros {
+        private final long[] ids;
+        private final String[] nombres;
+        private final String[] apellidos;
+        private final String[] cedulas;
+        private final long[] telefonos;
+        private final String[] emails;
+        private final Object[][] claves = new Object[CLAVES][];
+
+        Registros(List<Long> ids, List<String> nombres, List<String> apellidos, List<String> cedulas,
+                  List<Long> telefonos, List<String> emails) {
+            int n = ids.size();
+            this.ids = new long[n];
+            this.telefonos = new long[n];
+            for (int i = 0; i < n; i++) {
+                this.ids[i] = ids.get(i);
+                this.telefonos[i] = telefonos.get(i);
+            }
+            this.nombres = nombres.toArray(new String[0]);
+            this.apellidos = apellidos.toArray(new String[0]);
+            this.cedulas = cedulas.toArray(new String[0]);
+            this.emails = emails.toArray(new String[0]);
+
+            for (int clave = 0; clave < CLAVES; clave++) {
+                claves[clave] = new Object[n];
+            }
+            Map<String, String> unicas = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                if (this.apellidos[i] != null && this.nombres[i] != null) {
+                    claves[CLAVE_NOMBRE][i] = unico(unicas, this.apellidos[i] + "|" + this.nombres[i].charAt(0));
+                }
+                if (this.telefonos[i] >= 0) {
+                    claves[CLAVE_TELEFONO][i] = this.telefonos[i];
+                }
+                if (this.emails[i] != null) {
+                    claves[CLAVE_EMAIL][i] = Similitud.localEmail(this.emails[i]);
+                }
+            }
+        }
+
+        /**
+         * Puntaje del par, o -1 si ni con nombres idénticos llegaría al umbral (sin calcular Jaro-Winkler)
+         */
+        double puntaje(int a, int b, double umbral) {
+            double suma = 0;
+            double pesos = 0;
+            if (cedulas[a] != null && cedulas[b] != null) {
+                pesos += PESO_CEDULA;
+                if (cedulas[a].equals(cedulas[b])) {
+                    suma += PESO_CEDULA;
+                } else if (Similitud.unaEdicion(cedulas[a], cedulas[b])) {
+                    suma += PESO_CEDULA * CEDULA_UNA_EDICION;
+                }
+            }
+            if (telefonos[a] >= 0 && telefonos[b] >= 0) {
+                pesos += PESO_TELEFONO;
+                if (telefonos[a] == telefonos[b]) {
+                    suma += PESO_TELEFONO;
+                }
+            }
+            if (emails[a] != null && emails[b] != null) {
+                pesos += PESO_EMAIL;
+                if (emails[a].equals(emails[b])) {
+                    suma += PESO_EMAIL;
+                } else if (claves[CLAVE_EMAIL][a].equals(claves[CLAVE_EMAIL][b])) {
+                    suma += PESO_EMAIL * MISMA_PARTE_LOCAL;
+                }
+            }
+
+            boolean conNombres = nombres[a] != null && nombres[b] != null;
+            boolean conApellidos = apellidos[a] != null && apellidos[b] != null;
+            double maximoNombres = (conNombres ? PESO_NOMBRE : 0) + (conApellidos ? PESO_APELLIDO : 0);
+            pesos += maximoNombres;
+            if (pesos == 0 || (suma + maximoNombres) / pesos < umbral) {
+                return -1;
+            }
+            if (conNombres) {
+                suma += PESO_NOMBRE * Similitud.jaroWinkler(nombres[a], nombres[b]);
+            }
+            if (conApellidos) {
+                suma += PESO_APELLIDO * Similitud.jaroWinkler(apellidos[a], apellidos[b]);
+            }
+            return suma / pesos;
+        }
+    }
+
+    /**
+     * Bloques a comparar, con los pares acumulados para repartir el trabajo
+     */
+    private static final class Bloques {
+        private final int[][] miembros;
+        private final int[] tipos;
+        private final long[] paresAcumulados;
+        private final Registros registros;
+        private final int[][] tamanos;
+        private final int tamanoMaximo;
+        private final double umbral;
+
+        Bloques(List<int[]> miembros, List<Integer> tipos, Registros registros, int[][] tamanos, int tamanoMaximo,
+                double umbral) {
+            this.miembros = miembros.toArray(new int[0][]);
+            this.tipos = new int[tipos.size()];
+            this.paresAcumulados = new long[tipos.size() + 1];
+            for (int i = 0; i < this.tipos.length; i++) {
+                this.tipos[i] = tipos.get(i);
+                long tamano = this.miembros[i].length;
+                paresAcumulados[i + 1] = paresAcumulados[i] + tamano * (tamano - 1) / 2;
+            }
+            this.registros = registros;
+            this.tamanos = tamanos;
+            this.tamanoMaximo = tamanoMaximo;
+            this.umbral = umbral;
+        }
+
+        int cantidad() {
+            return miembros.length;
+        }
+
+        long pares(int desde, int hasta) {
+            return paresAcumulados[hasta] - paresAcumulados[desde];
+        }
+
+        /**
+         * Índice donde partir [desde, hasta) en dos mitades con pares parecidos
+         */
+        int mitad(int desde, int hasta) {
+            long objetivo = paresAcumulados[desde] + pares(desde, hasta) / 2;
+            int posicion = Arrays.binarySearch(paresAcumulados, desde, hasta + 1, objetivo);
+            int corte = posicion >= 0 ? posicion : -posicion - 1;
+            return Math.max(desde + 1, Math.min(hasta - 1, corte));
+        }
+
+        /**
+         * Si el par ya se compara en un bloque (no omitido) de una clave anterior
+         */
+        boolean yaComparado(int tipo, int a, int b) {
+            for (int clave = 0; clave < tipo; clave++) {
+                Object claveA = registros.claves[clave][a];
+                if (claveA != null && tamanos[clave][a] <= tamanoMaximo && claveA.equals(registros.claves[clave][b])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Pares similares encontrados (índices de Registros) y pares comparados
+     */
+    private static final class Similares {
+        private int[] a = new int[16];
+        private int[] b = new int[16];
+        private double[] puntajes = new double[16];
+        private int cantidad;
+        private long comparados;
+
+        void agregar(int personaA, int personaB, double puntaje) {
+            if (cantidad == a.length) {
+                a = Arrays.copyOf(a, cantidad * 2);
+                b = Arrays.copyOf(b, cantidad * 2);
+                puntajes = Arrays.copyOf(puntajes, cantidad * 2);
+            }
+            a[cantidad] = personaA;
+            b[cantidad] = personaB;
+            puntajes[cantidad] = puntaje;
+            cantidad++;
+        }
+
+        Similares unir(Similares otros) {
+            for (int k = 0; k < otros.cantidad; k++) {
+                agregar(otros.a[k], otros.b[k], otros.puntajes[k]);
+            }
+            comparados += otros.comparados;
+            return this;
+        }
+    }
+
+    /**
+     * Comparación de los pares de un rango de bloques, dividido mientras tenga muchos pares
+     */
+    private final class Comparacion extends RecursiveTask<Similares> {
+        private final Bloques bloques;
+        private final int desde;
+        private final int hasta;
+
+        Comparacion(Bloques bloques, int desde, int hasta) {
+            this.bloques = bloques;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected Similares compute() {
+            if (hasta - desde > 1 && bloques.pares(desde, hasta) > properties.getParesPorTarea()) {
+                int mitad = bloques.mitad(desde, hasta);
+                Comparacion izquierda = new Comparacion(bloques, desde, mitad);
+                izquierda.fork();
+                Similares derecha = new Comparacion(bloques, mitad, hasta).compute();
+                return izquierda.join().unir(derecha);
+            }
+            Similares similares = new Similares();
+            for (int k = desde; k < hasta; k++) {
+                int[] miembros = bloques.miembros[k];
+                int tipo = bloques.tipos[k];
+                for (int i = 0; i < miembros.length; i++) {
+                    for (int j = i + 1; j < miembros.length; j++) {
+                        if (bloques.yaComparado(tipo, miembros[i], miembros[j])) {
+                            continue;
+                        }
+                        similares.comparados++;
+                        double puntaje = bloques.registros.puntaje(miembros[i], miembros[j], bloques.umbral);
+                        if (puntaje >= bloques.umbral) {
+                            similares.agregar(miembros[i], miembros[j], puntaje);
+                        }
+                    }
+                }
+            }
+            return similares;
+        }
+    }
+}
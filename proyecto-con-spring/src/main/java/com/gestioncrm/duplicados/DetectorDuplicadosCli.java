@@ -0,0 +1,73 @@
+package com.gestioncrm.duplicados;
+
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Línea de comandos del análisis de casi duplicados sobre una base existente
+ *
+ * Uso desde el JAR de la aplicación:
+ * java -cp gestioncrm-spring-1.0.0.jar -Dloader.main=com.gestioncrm.duplicados.DetectorDuplicadosCli \
+ *      org.springframework.boot.loader.PropertiesLauncher \
+ *      --url=jdbc:mysql://localhost:3306/gestioncrm --usuario=root --contrasena=secreto \
+ *      --umbral=0.85 --tamano-bloque-maximo=1000 --mostrar=20
+ */
+public final class DetectorDuplicadosCli {
+
+    private DetectorDuplicadosCli() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> argumentos = leerArgumentos(args);
+        if (!argumentos.containsKey("url")) {
+            System.err.println("Falta --url=<jdbc url>. Opciones: --url --usuario --contrasena --umbral "
+                    + "--tamano-bloque-maximo --pares-por-tarea --mostrar");
+            System.exit(2);
+        }
+
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(argumentos.get("url"),
+                argumentos.getOrDefault("usuario", "sa"), argumentos.getOrDefault("contrasena", ""));
+
+        DuplicadosProperties properties = new DuplicadosProperties();
+        if (argumentos.containsKey("umbral")) {
+            properties.setUmbral(Double.parseDouble(argumentos.get("umbral")));
+        }
+        if (argumentos.containsKey("tamano-bloque-maximo")) {
+            properties.setTamanoBloqueMaximo(Integer.parseInt(argumentos.get("tamano-bloque-maximo")));
+        }
+        if (argumentos.containsKey("pares-por-tarea")) {
+            properties.setParesPorTarea(Integer.parseInt(argumentos.get("pares-por-tarea")));
+        }
+        int mostrar = Integer.parseInt(argumentos.getOrDefault("mostrar", "10"));
+
+        try (DetectorDuplicados detector = new DetectorDuplicados(dataSource, properties)) {
+            AnalisisDuplicados analisis = detector.analizar(null);
+            System.out.printf("✅ %d personas, %d bloques (%d omitidos), %d pares comparados, %d similares, "
+                            + "%d grupos en %d ms%n",
+                    analisis.getPersonas(), analisis.getBloques(), analisis.getBloquesOmitidos(),
+                    analisis.getParesComparados(), analisis.getParesSimilares(), analisis.getGruposTotales(),
+                    analisis.getDuracionMs());
+            for (AnalisisDuplicados.Grupo grupo : analisis.getGrupos().subList(0,
+                    Math.min(mostrar, analisis.getGrupos().size()))) {
+                System.out.printf("%.3f%n", grupo.getPuntaje());
+                for (AnalisisDuplicados.Miembro miembro : grupo.getPersonas()) {
+                    System.out.printf("   %d | %s %s | %s | %s | %s%n", miembro.getId(), miembro.getNombre(),
+                            miembro.getApellido(), miembro.getCedula(), miembro.getTelefono(), miembro.getEmail());
+                }
+            }
+        }
+    }
+
+    private static Map<String, String> leerArgumentos(String[] args) {
+        Map<String, String> argumentos = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int igual = arg.indexOf('=');
+                argumentos.put(arg.substring(2, igual), arg.substring(igual + 1));
+            }
+        }
+        return argumentos;
+    }
+}
@@ -0,0 +1,44 @@
+package com.gestioncrm.duplicados;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuración de la detección de casi duplicados (prefijo gestioncrm.duplicados)
+ */
+@ConfigurationProperties(prefix = "gestioncrm.duplicados")
+public class DuplicadosProperties {
+
+    /** Expone el análisis en /personas/api/duplicados */
+    private boolean habilitado = true;
+
+    /** Puntaje mínimo (0 a 1) para considerar dos personas casi duplicadas */
+    private double umbral = 0.8;
+
+    /**
+     * Personas como máximo en un bloque; uno mayor es una clave poco selectiva (un apellido
+     * muy común) y se omite en lugar de comparar todos sus pares
+     */
+    private int tamanoBloqueMaximo = 1_000;
+
+    /** Pares por tarea del fork-join por debajo de los cuales ya no se divide */
+    private int paresPorTarea = 50_000;
+
+    /** Grupos que se guardan del último análisis, de mayor a menor puntaje */
+    private int gruposMaximo = 10_000;
+
+    // Getters y Setters
+    public boolean isHabilitado() { return habilitado; }
+    public void setHabilitado(boolean habilitado) { this.habilitado = habilitado; }
+
+    public double getUmbral() { return umbral; }
+    public void setUmbral(double umbral) { this.umbral = umbral; }
+
+    public int getTamanoBloqueMaximo() { return tamanoBloqueMaximo; }
+    public void setTamanoBloqueMaximo(int tamanoBloqueMaximo) { this.tamanoBloqueMaximo = tamanoBloqueMaximo; }
+
+    public int getParesPorTarea() { return paresPorTarea; }
+    public void setParesPorTarea(int paresPorTarea) { this.paresPorTarea = paresPorTarea; }
+
+    public int getGruposMaximo() { return gruposMaximo; }
+    public void setGruposMaximo(int gruposMaximo) { this.gruposMaximo = gruposMaximo; }
+}
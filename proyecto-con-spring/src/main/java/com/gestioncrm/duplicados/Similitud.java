@@ -0,0 +1,179 @@
+package com.gestioncrm.duplicados;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalización y similitud de cadenas para la detección de casi duplicados
+ */
+final class Similitud {
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern NO_ALFANUMERICO = Pattern.compile("[^a-z0-9]+");
+
+    /** Prefijo común máximo que premia Jaro-Winkler */
+    private static final int PREFIJO_MAXIMO = 4;
+    private static final double FACTOR_PREFIJO = 0.1;
+
+    private Similitud() {
+    }
+
+    /**
+     * Minúsculas, sin tildes y con un solo espacio entre palabras ("  José  Ángel" -> "jose angel")
+     */
+    static String texto(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        String sinTildes = MARCAS.matcher(Normalizer.normalize(valor, Normalizer.Form.NFD)).replaceAll("");
+        String limpio = NO_ALFANUMERICO.matcher(sinTildes.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+        return limpio.isEmpty() ? null : limpio;
+    }
+
+    /**
+     * Solo los dígitos (null si no hay ninguno)
+     */
+    static String digitos(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        StringBuilder digitos = new StringBuilder(valor.length());
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digitos.append(c);
+            }
+        }
+        return digitos.length() == 0 ? null : digitos.toString();
+    }
+
+    /**
+     * Teléfono como número de los últimos 10 dígitos: "+57 300-123-4567" y "3001234567" coinciden
+     * (-1 si tiene menos de 7 dígitos)
+     */
+    static long telefono(String valor) {
+        String digitos = digitos(valor);
+        if (digitos == null || digitos.length() < 7) {
+            return -1;
+        }
+        return Long.parseLong(digitos.length() > 10 ? digitos.substring(digitos.length() - 10) : digitos);
+    }
+
+    /**
+     * Email en minúsculas y sin tildes; la parte local sin puntos, guiones ni sufijo "+..."
+     * ("Juan.Perez+crm@Gmail.com" -> "juanperez@gmail.com"); null si no tiene arroba
+     */
+    static String email(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        String minusculas = MARCAS.matcher(Normalizer.normalize(valor.trim(), Normalizer.Form.NFD))
+                .replaceAll("").toLowerCase(Locale.ROOT);
+        int arroba = minusculas.lastIndexOf('@');
+        if (arroba <= 0) {
+            return null;
+        }
+        String local = minusculas.substring(0, arroba);
+        int mas = local.indexOf('+');
+        if (mas > 0) {
+            local = local.substring(0, mas);
+        }
+        local = local.replace(".", "").replace("-", "").replace("_", "");
+        return local.isEmpty() ? null : local + minusculas.substring(arroba);
+    }
+
+    /**
+     * Parte local de un email ya normalizado
+     */
+    static String localEmail(String email) {
+        return email.substring(0, email.indexOf('@'));
+    }
+
+    /**
+     * Similitud de Jaro-Winkler entre 0 (nada en común) y 1 (iguales)
+     */
+    static double jaroWinkler(String a, String b) {
+        if (a.equals(b)) {
+            return 1.0;
+        }
+        int largoA = a.length();
+        int largoB = b.length();
+        if (largoA == 0 || largoB == 0) {
+            return 0.0;
+        }
+        int ventana = Math.max(0, Math.max(largoA, largoB) / 2 - 1);
+        boolean[] usadosA = new boolean[largoA];
+        boolean[] usadosB = new boolean[largoB];
+
+        int coincidencias = 0;
+        for (int i = 0; i < largoA; i++) {
+            int desde = Math.max(0, i - ventana);
+            int hasta = Math.min(largoB - 1, i + ventana);
+            for (int j = desde; j <= hasta; j++) {
+                if (!usadosB[j] && a.charAt(i) == b.charAt(j)) {
+                    usadosA[i] = true;
+                    usadosB[j] = true;
+                    coincidencias++;
+                    break;
+                }
+            }
+        }
+        if (coincidencias == 0) {
+            return 0.0;
+        }
+
+        int transposiciones = 0;
+        int j = 0;
+        for (int i = 0; i < largoA; i++) {
+            if (usadosA[i]) {
+                while (!usadosB[j]) {
+                    j++;
+                }
+                if (a.charAt(i) != b.charAt(j)) {
+                    transposiciones++;
+                }
+                j++;
+            }
+        }
+        double m = coincidencias;
+        double jaro = (m / largoA + m / largoB + (m - transposiciones / 2.0) / m) / 3.0;
+
+        int prefijo = 0;
+        int limite = Math.min(PREFIJO_MAXIMO, Math.min(largoA, largoB));
+        while (prefijo < limite && a.charAt(prefijo) == b.charAt(prefijo)) {
+            prefijo++;
+        }
+        return jaro + prefijo * FACTOR_PREFIJO * (1.0 - jaro);
+    }
+
+    /**
+     * Si b sale de a con una sola edición: cambiar, agregar o quitar un carácter, o
+     * intercambiar dos contiguos (errores típicos al digitar una cédula)
+     */
+    static boolean unaEdicion(String a, String b) {
+        int largoA = a.length();
+        int largoB = b.length();
+        if (Math.abs(largoA - largoB) > 1) {
+            return false;
+        }
+        int inicio = 0;
+        while (inicio < largoA && inicio < largoB && a.charAt(inicio) == b.charAt(inicio)) {
+            inicio++;
+        }
+        int finA = largoA;
+        int finB = largoB;
+        while (finA > inicio && finB > inicio && a.charAt(finA - 1) == b.charAt(finB - 1)) {
+            finA--;
+            finB--;
+        }
+        int restoA = finA - inicio;
+        int restoB = finB - inicio;
+        if (restoA <= 1 && restoB <= 1) {
+            return true;
+        }
+        // Transposición: "ab" frente a "ba"
+        return restoA == 2 && restoB == 2
+                && a.charAt(inicio) == b.charAt(inicio + 1) && a.charAt(inicio + 1) == b.charAt(inicio);
+    }
+}
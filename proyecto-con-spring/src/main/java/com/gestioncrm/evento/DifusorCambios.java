@@ -0,0 +1,362 @@
+package com.gestioncrm.evento;
+
+import com.gestioncrm.cambios.PaginaCambios;
+import com.gestioncrm.cambios.SecuenciaCambios;
+import com.gestioncrm.model.Persona;
+import com.gestioncrm.service.OperacionNoDisponibleException;
+import com.gestioncrm.service.PersonaService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Difusión de los cambios de personas a los suscriptores de /personas/api/stream (SSE)
+ *
+ * Las conexiones son asíncronas (no ocupan un hilo cada una): un grupo pequeño de hilos
+ * envía los eventos pendientes de cada suscriptor. Cada suscriptor tiene una cola acotada
+ * que conserva solo el último cambio de cada persona; si aun así se desborda, se vacía y
+ * se le envía un evento "reinicio" para que vuelva a cargar el listado completo.
+ *
+ * El ID de cada evento es la secuencia de cambios duradera (la de /personas/api/changes),
+ * así que Last-Event-ID sirve aunque la aplicación se haya reiniciado o el cliente
+ * reconecte a otro nodo: lo que falta se lee de la base de datos. Con la fragmentación
+ * activa no hay secuencia duradera y toda reconexión recibe "reinicio".
+ */
+@Component
+public class DifusorCambios {
+
+    private static final Logger log = LoggerFactory.getLogger(DifusorCambios.class);
+
+    static final String EVENTO_REINICIO = "reinicio";
+
+    /**
+     * Cambio numerado tal como se envía a los clientes
+     */
+    public static class EventoCambio {
+        private final long secuencia;
+        private final PersonaCambiadaEvent.Tipo tipo;
+        private final Long id;
+        private final Persona persona;
+
+        EventoCambio(PersonaCambiadaEvent cambio) {
+            Long secuenciaCambio = cambio.getSecuencia();
+            this.secuencia = secuenciaCambio != null ? secuenciaCambio : 0;
+            this.tipo = cambio.getTipo();
+            this.id = cambio.getIdPersona();
+            this.persona = cambio.getPersona();
+        }
+
+        /**
+         * Cambio leído del flujo duradero al reanudar; la persona ya no distingue
+         * creada de actualizada
+         */
+        EventoCambio(PaginaCambios.Cambio<Persona> cambio) {
+            this.secuencia = cambio.getSecuencia();
+            this.tipo = cambio.getTipo() == PaginaCambios.Tipo.ELIMINADA
+                    ? PersonaCambiadaEvent.Tipo.ELIMINADA : PersonaCambiadaEvent.Tipo.ACTUALIZADA;
+            this.id = cambio.getId();
+            this.persona = cambio.getDato();
+        }
+
+        public long getSecuencia() { return secuencia; }
+        public PersonaCambiadaEvent.Tipo getTipo() { return tipo; }
+        public Long getId() { return id; }
+        public Persona getPersona() { return persona; }
+    }
+
+    private final Set<Suscriptor> suscriptores = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger totalSuscriptores = new AtomicInteger();
+    private final ExecutorService envio;
+    private final ScheduledExecutorService latidos;
+
+    private final int maximoSuscriptores;
+    private final int maximoPendientes;
+    private final long tiempoConexionMs;
+
+    private final ObjectProvider<PersonaService> personaService;
+    private final DataSource dataSource;
+    private final TransactionTemplate lecturaPrimario;
+
+    public DifusorCambios(ObjectProvider<PersonaService> personaService, DataSource dataSource,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${gestioncrm.stream.maximo-suscriptores:10000}") int maximoSuscriptores,
+                          @Value("${gestioncrm.stream.maximo-pendientes:1000}") int maximoPendientes,
+                          @Value("${gestioncrm.stream.hilos-envio:4}") int hilosEnvio,
+                          @Value("${gestioncrm.stream.latido-segundos:15}") long latidoSegundos,
+                          @Value("${gestioncrm.stream.tiempo-conexion-minutos:30}") long tiempoConexionMinutos) {
+        this.personaService = personaService;
+        this.dataSource = dataSource;
+        this.lecturaPrimario = new TransactionTemplate(transactionManager);
+        this.maximoSuscriptores = maximoSuscriptores;
+        this.maximoPendientes = maximoPendientes;
+        this.tiempoConexionMs = TimeUnit.MINUTES.toMillis(tiempoConexionMinutos);
+        this.envio = Executors.newFixedThreadPool(hilosEnvio, hilo("stream-envio"));
+        this.latidos = Executors.newSingleThreadScheduledExecutor(hilo("stream-latido"));
+        this.latidos.scheduleWithFixedDelay(this::enviarLatidos, latidoSegundos, latidoSegundos, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Repartir el cambio, una vez confirmada la transacción que lo produjo
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void alCambiarPersona(PersonaCambiadaEvent cambio) {
+        EventoCambio evento = new EventoCambio(cambio);
+        for (Suscriptor suscriptor : suscriptores) {
+            suscriptor.encolar(evento);
+            programar(suscriptor);
+        }
+    }
+
+    /**
+     * Crear una suscripción; con ultimoEvento se reenvían los cambios posteriores a esa secuencia
+     *
+     * @return el emisor SSE, o null si se alcanzó el máximo de suscriptores
+     */
+    public SseEmitter suscribir(Long ultimoEvento) {
+        if (totalSuscriptores.incrementAndGet() > maximoSuscriptores) {
+            totalSuscriptores.decrementAndGet();
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(tiempoConexionMs);
+        Suscriptor suscriptor = new Suscriptor(emitter);
+        emitter.onCompletion(() -> retirar(suscriptor));
+        emitter.onTimeout(() -> retirar(suscriptor));
+        emitter.onError(e -> retirar(suscriptor));
+
+        // Se suscribe antes de leer lo que falta: lo confirmado mientras tanto llega por
+        // ambos caminos y la cola se queda con la secuencia más reciente de cada persona
+        suscriptores.add(suscriptor);
+        if (ultimoEvento != null) {
+            reanudar(suscriptor, ultimoEvento);
+        }
+        log.debug("Nuevo suscriptor de cambios (total: {}, último evento: {})", totalSuscriptores.get(), ultimoEvento);
+        programar(suscriptor);
+        return emitter;
+    }
+
+    public int getSuscriptores() {
+        return totalSuscriptores.get();
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        latidos.shutdownNow();
+        envio.shutdownNow();
+        suscriptores.forEach(s -> s.emitter.complete());
+    }
+
+    /**
+     * Encolar los cambios posteriores a ultimoEvento leyéndolos del flujo duradero, o pedir
+     * un reinicio (con el contador actual como ID) si son más de maximoPendientes o si el ID
+     * es posterior al contador (de otra base de datos, o de antes de restaurarla)
+     *
+     * Se lee en una transacción de escritura, que va al primario (una réplica atrasada
+     * omitiría cambios ya confirmados), y se deshace para no contar como escritura del cliente.
+     */
+    private void reanudar(Suscriptor suscriptor, long ultimoEvento) {
+        try {
+            lecturaPrimario.executeWithoutResult(estado -> {
+                estado.setRollbackOnly();
+                PaginaCambios<Persona> pagina = personaService.getObject().obtenerCambios(ultimoEvento, maximoPendientes);
+                long confirmada = ultimaSecuenciaConfirmada();
+                if (pagina.isHayMas() || ultimoEvento > confirmada) {
+                    suscriptor.pedirReinicio(confirmada);
+                } else {
+                    pagina.getCambios().forEach(cambio -> suscriptor.encolar(new EventoCambio(cambio)));
+                }
+            });
+        } catch (OperacionNoDisponibleException e) {
+            // Fragmentación activa: no hay secuencia duradera desde la que reanudar
+            suscriptor.pedirReinicio(0);
+        } catch (DataAccessException e) {
+            log.warn("No se pudieron leer los cambios desde la secuencia {}: {}", ultimoEvento, e.getMessage());
+            suscriptor.pedirReinicio(ultimoEvento);
+        }
+    }
+
+    private long ultimaSecuenciaConfirmada() {
+        try {
+            return SecuenciaCambios.ultima(DataSourceUtils.getConnection(dataSource));
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se pudo leer la secuencia de cambios", e);
+        }
+    }
+
+    private void enviarLatidos() {
+        for (Suscriptor suscriptor : suscriptores) {
+            suscriptor.latidoPendiente = true;
+            programar(suscriptor);
+        }
+    }
+
+    private void programar(Suscriptor suscriptor) {
+        if (!suscriptor.cerrado && suscriptor.programado.compareAndSet(false, true)) {
+            try {
+                envio.execute(() -> drenar(suscriptor));
+            } catch (RuntimeException e) {
+                suscriptor.programado.set(false);
+            }
+        }
+    }
+
+    /**
+     * Enviar lo pendiente de un suscriptor; un solo hilo a la vez por suscriptor
+     */
+    private void drenar(Suscriptor suscriptor) {
+        try {
+            while (!suscriptor.cerrado) {
+                Pendientes pendientes = suscriptor.tomar();
+                if (pendientes.vacio()) {
+                    break;
+                }
+                if (pendientes.reinicio) {
+                    suscriptor.emitter.send(SseEmitter.event()
+                            .id(String.valueOf(pendientes.secuenciaReinicio))
+                            .name(EVENTO_REINICIO)
+                            .data(Collections.singletonMap("mensaje",
+                                    "Se perdieron eventos, vuelva a cargar el listado completo"),
+                                    MediaType.APPLICATION_JSON));
+                }
+                for (EventoCambio evento : pendientes.eventos) {
+                    suscriptor.emitter.send(SseEmitter.event()
+                            .id(String.valueOf(evento.getSecuencia()))
+                            .name(evento.getTipo().name().toLowerCase())
+                            .data(evento, MediaType.APPLICATION_JSON));
+                }
+                if (pendientes.latido) {
+                    suscriptor.emitter.send(SseEmitter.event().comment("latido"));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Suscriptor de cambios desconectado: {}", e.getMessage());
+            suscriptor.emitter.completeWithError(e);
+            retirar(suscriptor);
+        } finally {
+            suscriptor.programado.set(false);
+        }
+        // Pudo llegar algo entre el último tomar() y liberar la marca
+        if (suscriptor.tienePendientes()) {
+            programar(suscriptor);
+        }
+    }
+
+    private void retirar(Suscriptor suscriptor) {
+        if (!suscriptor.cerrado) {
+            suscriptor.cerrado = true;
+            if (suscriptores.remove(suscriptor)) {
+                totalSuscriptores.decrementAndGet();
+            }
+        }
+    }
+
+    private static ThreadFactory hilo(String nombre) {
+        AtomicInteger contador = new AtomicInteger();
+        return r -> {
+            Thread hilo = new Thread(r, nombre + "-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        };
+    }
+
+    private static class Pendientes {
+        private final List<EventoCambio> eventos;
+        private final boolean reinicio;
+        private final long secuenciaReinicio;
+        private final boolean latido;
+
+        Pendientes(List<EventoCambio> eventos, boolean reinicio, long secuenciaReinicio, boolean latido) {
+            this.eventos = eventos;
+            this.reinicio = reinicio;
+            this.secuenciaReinicio = secuenciaReinicio;
+            this.latido = latido;
+        }
+
+        boolean vacio() {
+            return eventos.isEmpty() && !reinicio && !latido;
+        }
+    }
+
+    private final class Suscriptor {
+        private final SseEmitter emitter;
+        /** Último cambio pendiente de cada persona */
+        private final LinkedHashMap<Long, EventoCambio> pendientes = new LinkedHashMap<>();
+        private final AtomicBoolean programado = new AtomicBoolean();
+        private boolean reinicio;
+        /** ID del evento de reinicio: todo lo anterior ya está en el listado que se recargue */
+        private long secuenciaReinicio;
+        /** Mayor secuencia encolada, incluidas las descartadas al desbordarse */
+        private long ultimaSecuencia;
+        private volatile boolean latidoPendiente;
+        private volatile boolean cerrado;
+
+        Suscriptor(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        synchronized void encolar(EventoCambio evento) {
+            ultimaSecuencia = Math.max(ultimaSecuencia, evento.getSecuencia());
+            if (reinicio) {
+                secuenciaReinicio = Math.max(secuenciaReinicio, evento.getSecuencia());
+                return;
+            }
+            // Al reanudar puede llegar antes el cambio en vivo que el leído de la base de datos
+            EventoCambio anterior = pendientes.get(evento.getId());
+            if (anterior != null && anterior.getSecuencia() > evento.getSecuencia()) {
+                return;
+            }
+            pendientes.put(evento.getId(), evento);
+            if (pendientes.size() > maximoPendientes) {
+                log.debug("Suscriptor lento con {} cambios pendientes, se le pedirá recargar", pendientes.size());
+                pedirReinicio(ultimaSecuencia);
+            }
+        }
+
+        synchronized void pedirReinicio(long secuencia) {
+            pendientes.clear();
+            reinicio = true;
+            secuenciaReinicio = Math.max(secuencia, ultimaSecuencia);
+        }
+
+        synchronized Pendientes tomar() {
+            List<EventoCambio> eventos = new ArrayList<>(pendientes.values());
+            eventos.sort(Comparator.comparingLong(EventoCambio::getSecuencia));
+            pendientes.clear();
+            Pendientes resultado = new Pendientes(eventos, reinicio, secuenciaReinicio, latidoPendiente);
+            reinicio = false;
+            latidoPendiente = false;
+            return resultado;
+        }
+
+        synchronized boolean tienePendientes() {
+            return !pendientes.isEmpty() || reinicio || latidoPendiente;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.gestioncrm.evento;
+
+import com.gestioncrm.model.Persona;
+
+/**
+ * Evento de aplicación publicado al crear, actualizar o eliminar una persona
+ * Los oyentes transaccionales lo reciben después del commit
+ */
+public class PersonaCambiadaEvent {
+
+    /**
+     * Tipo de cambio
+     */
+    public enum Tipo {
+        CREADA, ACTUALIZADA, ELIMINADA
+    }
+
+    private final Tipo tipo;
+    private final Long idPersona;
+    private final Persona persona;
+    /** Secuencia de la lápida (eliminada); la asigna RegistroCambios antes del commit */
+    private volatile Long secuenciaEliminacion;
+
+    private PersonaCambiadaEvent(Tipo tipo, Long idPersona, Persona persona) {
+        this.tipo = tipo;
+        this.idPersona = idPersona;
+        this.persona = persona;
+    }
+
+    public static PersonaCambiadaEvent creada(Persona persona) {
+        return new PersonaCambiadaEvent(Tipo.CREADA, persona.getId(), persona);
+    }
+
+    public static PersonaCambiadaEvent actualizada(Persona persona) {
+        return new PersonaCambiadaEvent(Tipo.ACTUALIZADA, persona.getId(), persona);
+    }
+
+    public static PersonaCambiadaEvent eliminada(Long idPersona) {
+        return new PersonaCambiadaEvent(Tipo.ELIMINADA, idPersona, null);
+    }
+
+    public Tipo getTipo() { return tipo; }
+    public Long getIdPersona() { return idPersona; }
+    /** Estado de la persona tras el cambio (null si se eliminó) */
+    public Persona getPersona() { return persona; }
+
+    /**
+     * Secuencia de cambios duradera del cambio (la de /personas/api/changes), disponible
+     * después del commit; null con la fragmentación activa, que no la mantiene
+     */
+    public Long getSecuencia() {
+        return persona != null ? persona.getSecuenciaCambio() : secuenciaEliminacion;
+    }
+
+    public void asignarSecuenciaEliminacion(long secuencia) {
+        this.secuenciaEliminacion = secuencia;
+    }
+}
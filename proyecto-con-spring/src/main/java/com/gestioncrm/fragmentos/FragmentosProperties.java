@@ -0,0 +1,66 @@
+package com.gestioncrm.fragmentos;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuración de la fragmentación de personas (prefijo gestioncrm.fragmentos)
+ */
+@ConfigurationProperties(prefix = "gestioncrm.fragmentos")
+public class FragmentosProperties {
+
+    /** Guardar las personas repartidas entre los fragmentos en lugar de en spring.datasource */
+    private boolean habilitado = false;
+
+    /**
+     * Bases de datos de los fragmentos; el orden importa: el fragmento de cada persona sale
+     * de su cédula y su posición en esta lista (cambiar la lista exige redistribuir los datos)
+     */
+    private List<Nodo> nodos = new ArrayList<>();
+
+    /** Ejecutar las migraciones de Flyway en los fragmentos (solo el esquema, sin datos de demostración) */
+    private boolean migrar = false;
+
+    /** Hilos para las consultas en paralelo a los fragmentos, compartidos por todas las peticiones */
+    private int hilos = 16;
+
+    /** Tiempo máximo de una consulta repartida; pasado este tiempo falla la petición */
+    private Duration tiempoEspera = Duration.ofSeconds(10);
+
+    /**
+     * Conexión a un fragmento
+     */
+    public static class Nodo {
+        private String url;
+        private String usuario;
+        private String contrasena;
+
+        public String getUrl() { return url; }
+        public void setUrl(String url) { this.url = url; }
+
+        public String getUsuario() { return usuario; }
+        public void setUsuario(String usuario) { this.usuario = usuario; }
+
+        public String getContrasena() { return contrasena; }
+        public void setContrasena(String contrasena) { this.contrasena = contrasena; }
+    }
+
+    // Getters y Setters
+    public boolean isHabilitado() { return habilitado; }
+    public void setHabilitado(boolean habilitado) { this.habilitado = habilitado; }
+
+    public List<Nodo> getNodos() { return nodos; }
+    public void setNodos(List<Nodo> nodos) { this.nodos = nodos; }
+
+    public boolean isMigrar() { return migrar; }
+    public void setMigrar(boolean migrar) { this.migrar = migrar; }
+
+    public int getHilos() { return hilos; }
+    public void setHilos(int hilos) { this.hilos = hilos; }
+
+    public Duration getTiempoEspera() { return tiempoEspera; }
+    public void setTiempoEspera(Duration tiempoEspera) { this.tiempoEspera = tiempoEspera; }
+}
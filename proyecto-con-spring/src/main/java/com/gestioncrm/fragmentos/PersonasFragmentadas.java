@@ -0,0 +1,568 @@
+package com.gestioncrm.fragmentos;
+
+import com.gestioncrm.model.Persona;
+import com.gestioncrm.service.PersonaService;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+
+/**
+ * Tabla persona repartida entre varias bases de datos (fragmentos) por hash de la cédula
+ *
+ * Cada persona vive en el fragmento floorMod(CRC32(cédula), N) y su ID lleva el fragmento en
+ * los bits altos (fragmento << BITS_ID_LOCAL | ID local), así que las lecturas por ID o por
+ * cédula van a un solo fragmento. Las búsquedas, filtros y conteos se lanzan en paralelo a
+ * todos y se combinan aquí: los listados ordenados con una mezcla de k vías y los conteos
+ * sumando.
+ *
+ * La mezcla compara con String.compareTo: las columnas de texto de los fragmentos deben
+ * ordenar igual (intercalación binaria, la de H2 por defecto).
+ */
+public class PersonasFragmentadas implements AutoCloseable {
+
+    /** Bits del ID local: con hasta 8192 fragmentos los IDs quedan por debajo de 2^53 (exactos en JavaScript) */
+    public static final int BITS_ID_LOCAL = 40;
+    private static final long MASCARA_ID_LOCAL = (1L << BITS_ID_LOCAL) - 1;
+
+    private static final String COLUMNAS =
+            "id_persona, nombre, apellido, cedula, telefono, email, edad, sexo, rol, secuencia_cambio, actualizado_en";
+
+    // Propiedades de Persona por las que se puede ordenar y su columna
+    private static final Map<String, String> COLUMNAS_ORDEN = new LinkedHashMap<>();
+    static {
+        COLUMNAS_ORDEN.put("id", "id_persona");
+        COLUMNAS_ORDEN.put("nombre", "nombre");
+        COLUMNAS_ORDEN.put("apellido", "apellido");
+        COLUMNAS_ORDEN.put("edad", "edad");
+        COLUMNAS_ORDEN.put("cedula", "cedula");
+    }
+
+    // length() > 0 descarta a la vez NULL y texto vacío, igual que PersonaRepository
+    private static final String INSERTAR = "INSERT INTO persona (nombre, apellido, cedula, telefono, email, edad, "
+            + "sexo, rol, telefono_normalizado, email_normalizado) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String CON_EMAIL = "CASE WHEN LENGTH(email) > 0 THEN 1 ELSE 0 END";
+    private static final String CON_TELEFONO = "CASE WHEN LENGTH(telefono) > 0 THEN 1 ELSE 0 END";
+
+    private final List<JdbcTemplate> fragmentos = new ArrayList<>();
+    private final List<DataSource> dataSources;
+    private final ExecutorService hilos;
+    private final long tiempoEsperaMs;
+
+    public PersonasFragmentadas(List<? extends DataSource> dataSources, FragmentosProperties properties) {
+        if (dataSources.isEmpty()) {
+            throw new IllegalArgumentException("gestioncrm.fragmentos.nodos no puede estar vacío");
+        }
+        if (dataSources.size() > 1 << (53 - BITS_ID_LOCAL)) {
+            throw new IllegalArgumentException("Se admiten como máximo " + (1 << (53 - BITS_ID_LOCAL)) + " fragmentos");
+        }
+        this.dataSources = new ArrayList<>(dataSources);
+        for (DataSource dataSource : dataSources) {
+            fragmentos.add(new JdbcTemplate(dataSource));
+        }
+        AtomicInteger numero = new AtomicInteger();
+        this.hilos = Executors.newFixedThreadPool(properties.getHilos(), r -> {
+            Thread hilo = new Thread(r, "fragmentos-" + numero.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.tiempoEsperaMs = properties.getTiempoEspera().toMillis();
+    }
+
+    public int getCantidad() {
+        return fragmentos.size();
+    }
+
+    /**
+     * Fragmento que guarda la persona con esa cédula
+     */
+    public int fragmento(String cedula) {
+        CRC32 crc = new CRC32();
+        crc.update(cedula.getBytes(StandardCharsets.UTF_8));
+        return (int) Math.floorMod(crc.getValue(), (long) fragmentos.size());
+    }
+
+    // ========== LECTURAS DE UN SOLO FRAGMENTO ==========
+
+    public Optional<Persona> buscarPorId(long id) {
+        int fragmento = fragmentoDelId(id);
+        if (fragmento < 0) {
+            return Optional.empty();
+        }
+        return fragmentos.get(fragmento).query("SELECT " + COLUMNAS + " FROM persona WHERE id_persona = ?",
+                mapeador(fragmento), id & MASCARA_ID_LOCAL).stream().findFirst();
+    }
+
+    public Optional<Persona> buscarPorCedula(String cedula) {
+        int fragmento = fragmento(cedula);
+        return fragmentos.get(fragmento).query("SELECT " + COLUMNAS + " FROM persona WHERE cedula = ?",
+                mapeador(fragmento), cedula).stream().findFirst();
+    }
+
+    public boolean existeCedula(String cedula) {
+        return fragmentos.get(fragmento(cedula)).queryForObject(
+                "SELECT COUNT(*) FROM persona WHERE cedula = ?", Long.class, cedula) > 0;
+    }
+
+    /**
+     * Personas con esos IDs, sin orden; los IDs se agrupan por fragmento y cada fragmento
+     * recibe una sola consulta IN
+     */
+    public List<Persona> buscarPorIds(Collection<Long> ids) {
+        List<List<Long>> porFragmento = new ArrayList<>();
+        for (int i = 0; i < fragmentos.size(); i++) {
+            porFragmento.add(new ArrayList<>());
+        }
+        for (Long id : ids) {
+            int fragmento = fragmentoDelId(id);
+            if (fragmento >= 0) {
+                porFragmento.get(fragmento).add(id & MASCARA_ID_LOCAL);
+            }
+        }
+        List<List<Persona>> encontradas = enTodos(fragmento -> {
+            List<Long> locales = porFragmento.get(fragmento);
+            if (locales.isEmpty()) {
+                return Collections.emptyList();
+            }
+            String marcadores = String.join(", ", Collections.nCopies(locales.size(), "?"));
+            return fragmentos.get(fragmento).query(
+                    "SELECT " + COLUMNAS + " FROM persona WHERE id_persona IN (" + marcadores + ")",
+                    mapeador(fragmento), locales.toArray());
+        });
+        return concatenar(encontradas);
+    }
+
+    // ========== LECTURAS POR CONTACTO ==========
+
+    /**
+     * Personas con ese email ya normalizado, ordenadas por ID; el email no decide el fragmento,
+     * así que se consulta el índice de cada uno
+     */
+    public List<Persona> buscarPorEmail(String emailNormalizado) {
+        return buscarEnTodos("email_normalizado", emailNormalizado);
+    }
+
+    /**
+     * Personas con ese teléfono ya normalizado, ordenadas por ID
+     */
+    public List<Persona> buscarPorTelefono(String telefonoNormalizado) {
+        return buscarEnTodos("telefono_normalizado", telefonoNormalizado);
+    }
+
+    private List<Persona> buscarEnTodos(String columna, String valor) {
+        List<List<Persona>> partes = enTodos(fragmento -> fragmentos.get(fragmento).query(
+                "SELECT " + COLUMNAS + " FROM persona WHERE " + columna + " = ?", mapeador(fragmento), valor));
+        List<Persona> personas = concatenar(partes);
+        personas.sort(Comparator.comparing(Persona::getId));
+        return personas;
+    }
+
+    // ========== ESCRITURAS ==========
+
+    /**
+     * Insertar en el fragmento de su cédula; devuelve la persona tal como quedó guardada
+     */
+    public Persona insertar(Persona persona) {
+        int fragmento = fragmento(persona.getCedula());
+        KeyHolder clave = new GeneratedKeyHolder();
+        try {
+            fragmentos.get(fragmento).update(conexion -> {
+                PreparedStatement sentencia = conexion.prepareStatement(
+                        INSERTAR, new String[] {"id_persona"});
+                asignar(sentencia, persona);
+                return sentencia;
+            }, clave);
+        } catch (DuplicateKeyException e) {
+            throw new IllegalArgumentException("Ya existe una persona con la cédula: " + persona.getCedula());
+        }
+        long id = idGlobal(fragmento, clave.getKey().longValue());
+        return buscarPorId(id).orElseThrow(() -> new IllegalStateException("Persona insertada no encontrada: " + id));
+    }
+
+    /**
+     * Insertar varias personas con una sentencia por lotes en cada fragmento (en paralelo)
+     */
+    public void insertarLote(List<Persona> personas) {
+        List<List<Persona>> porFragmento = new ArrayList<>();
+        for (int i = 0; i < fragmentos.size(); i++) {
+            porFragmento.add(new ArrayList<>());
+        }
+        for (Persona persona : personas) {
+            porFragmento.get(fragmento(persona.getCedula())).add(persona);
+        }
+        enTodos(fragmento -> fragmentos.get(fragmento).batchUpdate(
+                INSERTAR, porFragmento.get(fragmento), 1000, PersonasFragmentadas::asignar));
+    }
+
+    /**
+     * Actualizar todos los campos menos la cédula (determina el fragmento)
+     */
+    public Persona actualizar(Persona persona) {
+        long id = persona.getId();
+        int fragmento = fragmentoDelId(id);
+        int filas = fragmento < 0 ? 0 : fragmentos.get(fragmento).update(
+                "UPDATE persona SET nombre = ?, apellido = ?, telefono = ?, email = ?, edad = ?, sexo = ?, rol = ?, "
+                        + "telefono_normalizado = ?, email_normalizado = ?, actualizado_en = CURRENT_TIMESTAMP "
+                        + "WHERE id_persona = ?",
+                persona.getNombre(), persona.getApellido(), persona.getTelefono(), persona.getEmail(),
+                persona.getEdad(), persona.getSexo() != null ? persona.getSexo().name() : null, persona.getRol(),
+                Persona.normalizarTelefono(persona.getTelefono()), Persona.normalizarEmail(persona.getEmail()),
+                id & MASCARA_ID_LOCAL);
+        if (filas == 0) {
+            throw new IllegalStateException("Persona no encontrada en su fragmento: " + id);
+        }
+        return buscarPorId(id).orElseThrow(() -> new IllegalStateException("Persona actualizada no encontrada: " + id));
+    }
+
+    public boolean eliminar(long id) {
+        int fragmento = fragmentoDelId(id);
+        return fragmento >= 0 && fragmentos.get(fragmento).update(
+                "DELETE FROM persona WHERE id_persona = ?", id & MASCARA_ID_LOCAL) > 0;
+    }
+
+    // ========== LECTURAS REPARTIDAS ==========
+
+    /**
+     * Todas las personas que cumplen los criterios (null: todas)
+     * Con orden, cada fragmento devuelve su parte ordenada y se mezclan; sin orden se concatenan.
+     */
+    public List<Persona> listar(PersonaService.CriteriosBusqueda criterios, Sort orden) {
+        List<Object> parametros = new ArrayList<>();
+        String sql = "SELECT " + COLUMNAS + " FROM persona" + donde(criterios, parametros) + ordenSql(orden);
+        List<List<Persona>> partes = enTodos(fragmento ->
+                fragmentos.get(fragmento).query(sql, mapeador(fragmento), parametros.toArray()));
+        return orden.isSorted() ? mezclar(partes, comparador(orden), 0, Integer.MAX_VALUE) : concatenar(partes);
+    }
+
+    /**
+     * Una página de la búsqueda combinada
+     *
+     * Cada fragmento devuelve sus primeras offset + tamaño filas en orden, la mezcla salta
+     * el offset y el total es la suma de los conteos. Un fragmento que devuelve menos filas
+     * de las pedidas no necesita la consulta COUNT.
+     */
+    public Page<Persona> buscar(PersonaService.CriteriosBusqueda criterios, Pageable pagina) {
+        long hasta = pagina.getOffset() + pagina.getPageSize();
+        List<Object> parametros = new ArrayList<>();
+        String condicion = donde(criterios, parametros);
+        String sql = "SELECT " + COLUMNAS + " FROM persona" + condicion + ordenSql(pagina.getSort()) + " LIMIT ?";
+        List<Object> conLimite = new ArrayList<>(parametros);
+        conLimite.add(hasta);
+
+        long[] totales = new long[fragmentos.size()];
+        List<List<Persona>> partes = enTodos(fragmento -> {
+            JdbcTemplate jdbc = fragmentos.get(fragmento);
+            List<Persona> filas = jdbc.query(sql, mapeador(fragmento), conLimite.toArray());
+            totales[fragmento] = filas.size() < hasta ? filas.size()
+                    : jdbc.queryForObject("SELECT COUNT(*) FROM persona" + condicion, Long.class, parametros.toArray());
+            return filas;
+        });
+        long total = Arrays.stream(totales).sum();
+        return new PageImpl<>(mezclar(partes, comparador(pagina.getSort()), pagina.getOffset(), pagina.getPageSize()),
+                pagina, total);
+    }
+
+    /**
+     * Conteos por combinación de rol, sexo, edad, con email y con teléfono, sumados entre
+     * fragmentos; mismas columnas que PersonaRepository.contarCombinaciones
+     */
+    public List<Object[]> contarCombinaciones(PersonaService.CriteriosBusqueda criterios) {
+        List<Object> parametros = new ArrayList<>();
+        String sql = "SELECT rol, sexo, edad, " + CON_EMAIL + ", " + CON_TELEFONO + ", COUNT(*) FROM persona"
+                + donde(criterios, parametros)
+                + " GROUP BY rol, sexo, edad, " + CON_EMAIL + ", " + CON_TELEFONO;
+        List<List<Object[]>> partes = enTodos(fragmento -> fragmentos.get(fragmento).query(sql, (rs, fila) -> {
+            String rol = rs.getString(1);
+            String sexo = rs.getString(2);
+            // wasNull() se refiere a la última columna leída: justo después de la edad
+            Integer edad = rs.getInt(3);
+            if (rs.wasNull()) {
+                edad = null;
+            }
+            return new Object[] {rol, sexo != null ? Persona.Sexo.valueOf(sexo) : null,
+                    edad, rs.getInt(4), rs.getInt(5), rs.getLong(6)};
+        }, parametros.toArray()));
+
+        Map<List<Object>, Object[]> combinaciones = new LinkedHashMap<>();
+        for (List<Object[]> parte : partes) {
+            for (Object[] fila : parte) {
+                Object[] suma = combinaciones.putIfAbsent(Arrays.asList(fila).subList(0, 5), fila);
+                if (suma != null) {
+                    suma[5] = (Long) suma[5] + (Long) fila[5];
+                }
+            }
+        }
+        return new ArrayList<>(combinaciones.values());
+    }
+
+    @Override
+    public void close() throws Exception {
+        hilos.shutdownNow();
+        for (DataSource dataSource : dataSources) {
+            if (dataSource instanceof AutoCloseable) {
+                ((AutoCloseable) dataSource).close();
+            }
+        }
+    }
+
+    // ========== INTERNO ==========
+
+    /**
+     * Ejecutar la consulta en todos los fragmentos a la vez; resultados en el orden de los fragmentos
+     */
+    private <T> List<T> enTodos(IntFunction<T> consulta) {
+        if (fragmentos.size() == 1) {
+            return Collections.singletonList(consulta.apply(0));
+        }
+        List<Callable<T>> tareas = new ArrayList<>();
+        for (int i = 0; i < fragmentos.size(); i++) {
+            int fragmento = i;
+            tareas.add(() -> consulta.apply(fragmento));
+        }
+        List<Future<T>> futuros;
+        try {
+            futuros = hilos.invokeAll(tareas, tiempoEsperaMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Consulta a los fragmentos interrumpida", e);
+        }
+        List<T> resultados = new ArrayList<>(futuros.size());
+        for (int i = 0; i < futuros.size(); i++) {
+            try {
+                resultados.add(futuros.get(i).get());
+            } catch (CancellationException e) {
+                throw new IllegalStateException("El fragmento " + i + " no respondió en " + tiempoEsperaMs + " ms");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException("Error en el fragmento " + i, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Consulta a los fragmentos interrumpida", e);
+            }
+        }
+        return resultados;
+    }
+
+    /**
+     * Mezcla de k vías de listas ya ordenadas: salta las primeras saltar y devuelve hasta limite
+     */
+    private static List<Persona> mezclar(List<List<Persona>> partes, Comparator<Persona> orden, long saltar, int limite) {
+        PriorityQueue<Cursor> cola = new PriorityQueue<>(Math.max(1, partes.size()),
+                (a, b) -> orden.compare(a.actual(), b.actual()));
+        for (List<Persona> parte : partes) {
+            if (!parte.isEmpty()) {
+                cola.add(new Cursor(parte));
+            }
+        }
+        List<Persona> resultado = new ArrayList<>();
+        long vistas = 0;
+        while (!cola.isEmpty() && resultado.size() < limite) {
+            Cursor cursor = cola.poll();
+            if (vistas++ >= saltar) {
+                resultado.add(cursor.actual());
+            }
+            if (cursor.avanzar()) {
+                cola.add(cursor);
+            }
+        }
+        return resultado;
+    }
+
+    private static <T> List<T> concatenar(List<List<T>> partes) {
+        List<T> todas = new ArrayList<>();
+        for (List<T> parte : partes) {
+            todas.addAll(parte);
+        }
+        return todas;
+    }
+
+    /**
+     * Fragmento codificado en el ID (-1 si no corresponde a ninguno)
+     */
+    private int fragmentoDelId(Long id) {
+        if (id == null || id <= 0) {
+            return -1;
+        }
+        long fragmento = id >>> BITS_ID_LOCAL;
+        return fragmento < fragmentos.size() ? (int) fragmento : -1;
+    }
+
+    private static long idGlobal(int fragmento, long idLocal) {
+        return ((long) fragmento << BITS_ID_LOCAL) | idLocal;
+    }
+
+    /**
+     * Condición WHERE de los criterios presentes, con la misma semántica que EspecificacionesPersona
+     */
+    private static String donde(PersonaService.CriteriosBusqueda criterios, List<Object> parametros) {
+        if (criterios == null) {
+            return "";
+        }
+        List<String> condiciones = new ArrayList<>();
+        if (criterios.getTermino() != null && !criterios.getTermino().trim().isEmpty()) {
+            String termino = criterios.getTermino().trim().toLowerCase()
+                    .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+            condiciones.add("(LOWER(nombre) LIKE ? ESCAPE '\\' OR LOWER(apellido) LIKE ? ESCAPE '\\')");
+            parametros.add("%" + termino + "%");
+            parametros.add("%" + termino + "%");
+        }
+        if (criterios.getRol() != null && !criterios.getRol().isEmpty()) {
+            condiciones.add("rol = ?");
+            parametros.add(criterios.getRol());
+        }
+        if (criterios.getSexo() != null) {
+            condiciones.add("sexo = ?");
+            parametros.add(criterios.getSexo().name());
+        }
+        if (criterios.getEdadMin() != null) {
+            condiciones.add("edad >= ?");
+            parametros.add(criterios.getEdadMin());
+        }
+        if (criterios.getEdadMax() != null) {
+            condiciones.add("edad <= ?");
+            parametros.add(criterios.getEdadMax());
+        }
+        if (criterios.getConEmail() != null) {
+            condiciones.add(criterios.getConEmail() ? "LENGTH(email) > 0" : "(email IS NULL OR email = '')");
+        }
+        if (criterios.getConTelefono() != null) {
+            condiciones.add(criterios.getConTelefono() ? "LENGTH(telefono) > 0" : "(telefono IS NULL OR telefono = '')");
+        }
+        return condiciones.isEmpty() ? "" : " WHERE " + String.join(" AND ", condiciones);
+    }
+
+    /**
+     * ORDER BY del orden pedido; NULL queda como el menor valor (así ordenan H2 y MySQL y así compara la mezcla)
+     */
+    private static String ordenSql(Sort orden) {
+        List<String> columnas = new ArrayList<>();
+        for (Sort.Order campo : orden) {
+            columnas.add(columna(campo.getProperty()) + (campo.isAscending() ? " ASC" : " DESC"));
+        }
+        return columnas.isEmpty() ? "" : " ORDER BY " + String.join(", ", columnas);
+    }
+
+    private static Comparator<Persona> comparador(Sort orden) {
+        Comparator<Persona> comparador = (a, b) -> 0;
+        for (Sort.Order campo : orden) {
+            Comparator<Persona> porCampo = porCampo(campo.getProperty());
+            comparador = comparador.thenComparing(campo.isAscending() ? porCampo : porCampo.reversed());
+        }
+        return comparador;
+    }
+
+    private static Comparator<Persona> porCampo(String propiedad) {
+        columna(propiedad);
+        switch (propiedad) {
+            case "id":
+                return Comparator.comparing(Persona::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+            case "nombre":
+                return Comparator.comparing(Persona::getNombre, Comparator.nullsFirst(Comparator.naturalOrder()));
+            case "apellido":
+                return Comparator.comparing(Persona::getApellido, Comparator.nullsFirst(Comparator.naturalOrder()));
+            case "edad":
+                return Comparator.comparing(Persona::getEdad, Comparator.nullsFirst(Comparator.naturalOrder()));
+            default:
+                return Comparator.comparing(Persona::getCedula, Comparator.nullsFirst(Comparator.naturalOrder()));
+        }
+    }
+
+    private static String columna(String propiedad) {
+        String columna = COLUMNAS_ORDEN.get(propiedad);
+        if (columna == null) {
+            throw new IllegalArgumentException("Orden no permitido con fragmentos: " + propiedad);
+        }
+        return columna;
+    }
+
+    private static void asignar(PreparedStatement sentencia, Persona persona) throws SQLException {
+        sentencia.setString(1, persona.getNombre());
+        sentencia.setString(2, persona.getApellido());
+        sentencia.setString(3, persona.getCedula());
+        sentencia.setString(4, persona.getTelefono());
+        sentencia.setString(5, persona.getEmail());
+        sentencia.setObject(6, persona.getEdad());
+        sentencia.setString(7, persona.getSexo() != null ? persona.getSexo().name() : null);
+        sentencia.setString(8, persona.getRol());
+        sentencia.setString(9, Persona.normalizarTelefono(persona.getTelefono()));
+        sentencia.setString(10, Persona.normalizarEmail(persona.getEmail()));
+    }
+
+    private static RowMapper<Persona> mapeador(int fragmento) {
+        return (rs, fila) -> persona(rs, fragmento);
+    }
+
+    private static Persona persona(ResultSet rs, int fragmento) throws SQLException {
+        Persona persona = new Persona();
+        persona.setId(idGlobal(fragmento, rs.getLong("id_persona")));
+        persona.setNombre(rs.getString("nombre"));
+        persona.setApellido(rs.getString("apellido"));
+        persona.setCedula(rs.getString("cedula"));
+        persona.setTelefono(rs.getString("telefono"));
+        persona.setEmail(rs.getString("email"));
+        int edad = rs.getInt("edad");
+        persona.setEdad(rs.wasNull() ? null : edad);
+        String sexo = rs.getString("sexo");
+        persona.setSexo(sexo != null ? Persona.Sexo.valueOf(sexo) : null);
+        persona.setRol(rs.getString("rol"));
+        persona.setSecuenciaCambio(rs.getLong("secuencia_cambio"));
+        Timestamp actualizadoEn = rs.getTimestamp("actualizado_en");
+        persona.setActualizadoEn(actualizadoEn != null ? actualizadoEn.toLocalDateTime() : null);
+        return persona;
+    }
+
+    /**
+     * Posición dentro de una de las listas de la mezcla
+     */
+    private static final class Cursor {
+        private final List<Persona> lista;
+        private int posicion;
+
+        Cursor(List<Persona> lista) {
+            this.lista = lista;
+        }
+
+        Persona actual() {
+            return lista.get(posicion);
+        }
+
+        boolean avanzar() {
+            return ++posicion < lista.size();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.gestioncrm.generador;
+
+import java.util.SplittableRandom;
+
+/**
+ * Catálogos ponderados para el generador de datos sintéticos
+ * Las frecuencias aproximan las de nombres y apellidos comunes en Colombia
+ */
+final class CatalogoNombres {
+
+    static final Ponderado NOMBRES_MASCULINOS = new Ponderado(
+            new String[]{"Juan", "José", "Carlos", "Luis", "Andrés", "Jorge", "Miguel", "Diego", "Alejandro",
+                    "Santiago", "Sebastián", "Julián", "David", "Daniel", "Camilo", "Felipe", "Álvaro", "Iván",
+                    "Hernán", "Nicolás", "Óscar", "Ramón", "Tomás", "Joaquín", "Matías"},
+            new double[]{9, 8, 8, 7, 6, 6, 5, 5, 5, 5, 4, 4, 4, 4, 3, 3, 2, 2, 2, 2, 2, 1, 1, 1, 1});
+
+    static final Ponderado NOMBRES_FEMENINOS = new Ponderado(
+            new String[]{"María", "Ana", "Luz", "Carmen", "Laura", "Valentina", "Daniela", "Sofía", "Camila",
+                    "Isabel", "Paula", "Natalia", "Andrea", "Mónica", "Lucía", "Ángela", "Inés", "Verónica",
+                    "Mariana", "Gabriela", "Sara", "Beatriz", "Rocío", "Jimena", "Martina"},
+            new double[]{10, 8, 6, 5, 5, 5, 5, 4, 4, 4, 4, 3, 3, 3, 3, 2, 2, 2, 2, 2, 2, 1, 1, 1, 1});
+
+    static final Ponderado APELLIDOS = new Ponderado(
+            new String[]{"Rodríguez", "Gómez", "González", "Martínez", "García", "López", "Hernández", "Sánchez",
+                    "Ramírez", "Pérez", "Díaz", "Muñoz", "Rojas", "Moreno", "Jiménez", "Vargas", "Castro",
+                    "Gutiérrez", "Álvarez", "Ruiz", "Ortiz", "Torres", "Suárez", "Castaño", "Peña", "Quintero",
+                    "Ospina", "Cárdenas", "Zúñiga", "Muñetón", "Londoño", "Restrepo", "Echeverri", "Ibáñez",
+                    "Agudelo", "Valencia", "Mejía", "Córdoba", "Marín", "Giraldo"},
+            zipf(40, 0.9));
+
+    static final Ponderado ROLES = new Ponderado(
+            new String[]{"Cliente", "Prospecto", "Proveedor", "Empleado", "Socio"},
+            new double[]{60, 15, 10, 8, 4});
+
+    static final Ponderado DOMINIOS = new Ponderado(
+            new String[]{"gmail.com", "hotmail.com", "outlook.com", "yahoo.com", "empresa.com.co", "correo.co"},
+            new double[]{45, 25, 12, 8, 6, 4});
+
+    private CatalogoNombres() {
+    }
+
+    /**
+     * Pesos 1/k^s para k = 1..n
+     */
+    private static double[] zipf(int n, double s) {
+        double[] pesos = new double[n];
+        for (int k = 0; k < n; k++) {
+            pesos[k] = 1.0 / Math.pow(k + 1, s);
+        }
+        return pesos;
+    }
+
+    /**
+     * Lista de valores con pesos acumulados para elegir por búsqueda binaria
+     */
+    static final class Ponderado {
+        private final String[] valores;
+        private final double[] acumulados;
+
+        Ponderado(String[] valores, double[] pesos) {
+            if (valores.length != pesos.length) {
+                throw new IllegalArgumentException("Cada valor necesita un peso");
+            }
+            this.valores = valores;
+            this.acumulados = new double[pesos.length];
+            double total = 0;
+            for (int i = 0; i < pesos.length; i++) {
+                total += pesos[i];
+                acumulados[i] = total;
+            }
+        }
+
+        String elegir(SplittableRandom random) {
+            double valor = random.nextDouble() * acumulados[acumulados.length - 1];
+            int bajo = 0;
+            int alto = acumulados.length - 1;
+            while (bajo < alto) {
+                int medio = (bajo + alto) >>> 1;
+                if (acumulados[medio] <= valor) {
+                    bajo = medio + 1;
+                } else {
+                    alto = medio;
+                }
+            }
+            return valores[bajo];
+        }
+    }
+}
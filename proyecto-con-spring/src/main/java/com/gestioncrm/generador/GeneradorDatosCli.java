@@ -0,0 +1,68 @@
+package com.gestioncrm.generador;
+
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Línea de comandos del generador de datos sintéticos
+ * Inserta directamente en una base existente (MySQL o H2 en modo servidor), con el esquema ya creado.
+ *
+ * Uso desde el JAR de la aplicación:
+ * java -cp gestioncrm-spring-1.0.0.jar -Dloader.main=com.gestioncrm.generador.GeneradorDatosCli \
+ *      org.springframework.boot.loader.PropertiesLauncher \
+ *      --url=jdbc:mysql://localhost:3306/gestioncrm --usuario=root --contrasena=secreto \
+ *      --personas=1000000 --fraccion-usuarios=0.2 --semilla=42 --hilos=8 --filas-por-insert=500
+ */
+public final class GeneradorDatosCli {
+
+    private GeneradorDatosCli() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> argumentos = leerArgumentos(args);
+        if (!argumentos.containsKey("url")) {
+            System.err.println("Falta --url=<jdbc url>. Opciones: --url --usuario --contrasena --personas "
+                    + "--fraccion-usuarios --semilla --hilos --filas-por-insert --indice-inicial");
+            System.exit(2);
+        }
+
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(argumentos.get("url"),
+                argumentos.getOrDefault("usuario", "sa"), argumentos.getOrDefault("contrasena", ""));
+
+        GeneradorPersonas.Opciones opciones = new GeneradorPersonas.Opciones();
+        if (argumentos.containsKey("personas")) {
+            opciones.setPersonas(Long.parseLong(argumentos.get("personas")));
+        }
+        if (argumentos.containsKey("fraccion-usuarios")) {
+            opciones.setFraccionUsuarios(Double.parseDouble(argumentos.get("fraccion-usuarios")));
+        }
+        if (argumentos.containsKey("semilla")) {
+            opciones.setSemilla(Long.parseLong(argumentos.get("semilla")));
+        }
+        if (argumentos.containsKey("hilos")) {
+            opciones.setHilos(Integer.parseInt(argumentos.get("hilos")));
+        }
+        if (argumentos.containsKey("filas-por-insert")) {
+            opciones.setFilasPorInsert(Integer.parseInt(argumentos.get("filas-por-insert")));
+        }
+        if (argumentos.containsKey("indice-inicial")) {
+            opciones.setIndiceInicial(Long.parseLong(argumentos.get("indice-inicial")));
+        }
+
+        GeneradorPersonas.Resultado resultado = new GeneradorPersonas(dataSource).generar(opciones);
+        System.out.println("✅ " + resultado);
+    }
+
+    private static Map<String, String> leerArgumentos(String[] args) {
+        Map<String, String> argumentos = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int igual = arg.indexOf('=');
+                argumentos.put(arg.substring(2, igual), arg.substring(igual + 1));
+            }
+        }
+        return argumentos;
+    }
+}
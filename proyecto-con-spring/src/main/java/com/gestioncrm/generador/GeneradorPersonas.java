@@ -0,0 +1,385 @@
+package com.gestioncrm.generador;
+
+import com.gestioncrm.cambios.SecuenciaCambios;
+import com.gestioncrm.model.Persona;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Generador de personas y usuarios sintéticos para pruebas de escala
+ *
+ * Las filas se reparten en bloques que se insertan en paralelo, cada uno en su propia
+ * conexión y transacción, mediante INSERT de varias filas. El contenido de cada fila
+ * depende solo de la semilla y de su índice, así que dos ejecuciones con la misma
+ * semilla producen los mismos datos (los IDs dependen del orden de inserción).
+ */
+public class GeneradorPersonas {
+
+    private static final Logger log = LoggerFactory.getLogger(GeneradorPersonas.class);
+
+    /** Filas generadas por cada tarea paralela */
+    static final int TAMANO_BLOQUE = 10_000;
+
+    /** Rango de cédulas generadas: 10 dígitos que empiezan por 1 */
+    private static final long BASE_CEDULA = 1_000_000_000L;
+    private static final long RANGO_CEDULA = 1_000_000_000L;
+    /** Coprimo con RANGO_CEDULA: índice -> cédula es una biyección */
+    private static final long MULTIPLICADOR_CEDULA = 7_368_787L;
+
+    private static final String COLUMNAS_PERSONA = "INSERT INTO persona (nombre, apellido, cedula, email, telefono, sexo, edad, rol, "
+            + "email_normalizado, telefono_normalizado) VALUES ";
+    private static final String FILA_PERSONA = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int COLUMNAS_POR_FILA = 8;
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+
+    private final DataSource dataSource;
+
+    public GeneradorPersonas(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Generar e insertar los datos según las opciones dadas
+     */
+    public Resultado generar(Opciones opciones) throws SQLException, InterruptedException {
+        opciones.validar();
+        log.info("Generando {} personas (usuarios: {}%, semilla: {}, hilos: {})", opciones.getPersonas(),
+                Math.round(opciones.getFraccionUsuarios() * 100), opciones.getSemilla(), opciones.getHilos());
+
+        Set<String> cedulasExistentes = cargarCedulasExistentes();
+        AtomicLong personasInsertadas = new AtomicLong();
+        AtomicLong usuariosInsertados = new AtomicLong();
+        AtomicLong omitidas = new AtomicLong();
+
+        long inicio = System.nanoTime();
+        ExecutorService ejecutor = Executors.newFixedThreadPool(opciones.getHilos());
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            long fin = opciones.getIndiceInicial() + opciones.getPersonas();
+            for (long desde = opciones.getIndiceInicial(); desde < fin; desde += TAMANO_BLOQUE) {
+                long bloqueDesde = desde;
+                long bloqueHasta = Math.min(desde + TAMANO_BLOQUE, fin);
+                tareas.add(ejecutor.submit(() -> {
+                    insertarBloque(opciones, bloqueDesde, bloqueHasta, cedulasExistentes,
+                            personasInsertadas, usuariosInsertados, omitidas);
+                    return null;
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new IllegalStateException("Error generando datos", e.getCause());
+        } finally {
+            ejecutor.shutdownNow();
+        }
+
+        Resultado resultado = new Resultado(personasInsertadas.get(), usuariosInsertados.get(), omitidas.get(),
+                (System.nanoTime() - inicio) / 1_000_000);
+        log.info("Generación terminada: {}", resultado);
+        return resultado;
+    }
+
+    /**
+     * Cédulas ya presentes, para no violar la restricción de unicidad
+     */
+    private Set<String> cargarCedulasExistentes() throws SQLException {
+        Set<String> cedulas = new HashSet<>();
+        try (Connection conexion = dataSource.getConnection();
+             Statement sentencia = conexion.createStatement();
+             ResultSet rs = sentencia.executeQuery("SELECT cedula FROM persona")) {
+            while (rs.next()) {
+                cedulas.add(rs.getString(1));
+            }
+        }
+        return Collections.unmodifiableSet(cedulas);
+    }
+
+    private void insertarBloque(Opciones opciones, long desde, long hasta, Set<String> cedulasExistentes,
+                                AtomicLong personasInsertadas, AtomicLong usuariosInsertados,
+                                AtomicLong omitidas) throws SQLException {
+        SplittableRandom random = new SplittableRandom(opciones.getSemilla() ^ (desde * 0x9E3779B97F4A7C15L));
+        List<Object[]> filas = new ArrayList<>((int) (hasta - desde));
+        List<String> cedulasConUsuario = new ArrayList<>();
+
+        for (long indice = desde; indice < hasta; indice++) {
+            Object[] fila = generarFila(indice, random);
+            boolean conUsuario = random.nextDouble() < opciones.getFraccionUsuarios();
+            String cedula = (String) fila[2];
+            if (cedulasExistentes.contains(cedula)) {
+                omitidas.incrementAndGet();
+                continue;
+            }
+            filas.add(fila);
+            if (conUsuario) {
+                cedulasConUsuario.add(cedula);
+            }
+        }
+
+        try (Connection conexion = dataSource.getConnection()) {
+            conexion.setAutoCommit(false);
+            try {
+                insertarPersonas(conexion, filas, opciones.getFilasPorInsert());
+                insertarUsuarios(conexion, cedulasConUsuario, opciones.getFilasPorInsert());
+                marcarCambios(conexion, filas, cedulasConUsuario);
+                conexion.commit();
+            } catch (SQLException e) {
+                conexion.rollback();
+                throw e;
+            } finally {
+                conexion.setAutoCommit(true);
+            }
+        }
+        personasInsertadas.addAndGet(filas.size());
+        usuariosInsertados.addAndGet(cedulasConUsuario.size());
+    }
+
+    /**
+     * Numerar las filas del bloque en la secuencia de cambios (al final: bloquea el contador hasta el commit)
+     */
+    private static void marcarCambios(Connection conexion, List<Object[]> filas, List<String> cedulasConUsuario) throws SQLException {
+        List<String> cedulas = new ArrayList<>(filas.size());
+        for (Object[] fila : filas) {
+            cedulas.add((String) fila[2]);
+        }
+        LocalDateTime ahora = SecuenciaCambios.ahora();
+        SecuenciaCambios.marcar(conexion, SecuenciaCambios.Entidad.PERSONA, "cedula", cedulas, ahora);
+        List<String> usuarios = new ArrayList<>(cedulasConUsuario.size());
+        for (String cedula : cedulasConUsuario) {
+            usuarios.add("u" + cedula);
+        }
+        SecuenciaCambios.marcar(conexion, SecuenciaCambios.Entidad.USUARIO, "usuario", usuarios, ahora);
+    }
+
+    private static void insertarPersonas(Connection conexion, List<Object[]> filas, int filasPorInsert) throws SQLException {
+        PreparedStatement completa = null;
+        try {
+            for (int desde = 0; desde < filas.size(); desde += filasPorInsert) {
+                int cantidad = Math.min(filasPorInsert, filas.size() - desde);
+                if (cantidad == filasPorInsert) {
+                    if (completa == null) {
+                        completa = conexion.prepareStatement(sqlVariasFilas(COLUMNAS_PERSONA, FILA_PERSONA, filasPorInsert));
+                    }
+                    ejecutarPersonas(completa, filas, desde, cantidad);
+                } else {
+                    try (PreparedStatement parcial = conexion.prepareStatement(sqlVariasFilas(COLUMNAS_PERSONA, FILA_PERSONA, cantidad))) {
+                        ejecutarPersonas(parcial, filas, desde, cantidad);
+                    }
+                }
+            }
+        } finally {
+            if (completa != null) {
+                completa.close();
+            }
+        }
+    }
+
+    private static void ejecutarPersonas(PreparedStatement sentencia, List<Object[]> filas, int desde, int cantidad) throws SQLException {
+        int parametro = 1;
+        for (int i = desde; i < desde + cantidad; i++) {
+            Object[] fila = filas.get(i);
+            for (int columna = 0; columna < COLUMNAS_POR_FILA; columna++) {
+                Object valor = fila[columna];
+                if (valor == null) {
+                    sentencia.setNull(parametro++, columna == 6 ? Types.INTEGER : Types.VARCHAR);
+                } else {
+                    sentencia.setObject(parametro++, valor);
+                }
+            }
+            sentencia.setString(parametro++, Persona.normalizarEmail((String) fila[3]));
+            sentencia.setString(parametro++, Persona.normalizarTelefono((String) fila[4]));
+        }
+        sentencia.executeUpdate();
+    }
+
+    /**
+     * Un INSERT ... SELECT por grupo de cédulas; la búsqueda usa el índice único de cédula
+     */
+    private static void insertarUsuarios(Connection conexion, List<String> cedulas, int filasPorInsert) throws SQLException {
+        for (int desde = 0; desde < cedulas.size(); desde += filasPorInsert) {
+            int cantidad = Math.min(filasPorInsert, cedulas.size() - desde);
+            String sql = "INSERT INTO usuario (id_persona, usuario, contrasena) "
+                    + "SELECT id_persona, CONCAT('u', cedula), 'password123' FROM persona WHERE cedula IN ("
+                    + String.join(", ", Collections.nCopies(cantidad, "?")) + ")";
+            try (PreparedStatement sentencia = conexion.prepareStatement(sql)) {
+                for (int i = 0; i < cantidad; i++) {
+                    sentencia.setString(i + 1, cedulas.get(desde + i));
+                }
+                sentencia.executeUpdate();
+            }
+        }
+    }
+
+    private static String sqlVariasFilas(String prefijo, String fila, int filas) {
+        StringBuilder sql = new StringBuilder(prefijo.length() + filas * (fila.length() + 2));
+        sql.append(prefijo);
+        for (int i = 0; i < filas; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(fila);
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Valores de una persona: nombre, apellido, cédula, email, teléfono, sexo, edad, rol
+     */
+    static Object[] generarFila(long indice, SplittableRandom random) {
+        double valorSexo = random.nextDouble();
+        String sexo = valorSexo < 0.51 ? "F" : valorSexo < 0.98 ? "M" : null;
+        String nombre = ("F".equals(sexo) || (sexo == null && random.nextBoolean())
+                ? CatalogoNombres.NOMBRES_FEMENINOS : CatalogoNombres.NOMBRES_MASCULINOS).elegir(random);
+        String apellido = CatalogoNombres.APELLIDOS.elegir(random);
+
+        String email = random.nextDouble() < 0.75 ? email(nombre, apellido, random) : null;
+        String telefono = random.nextDouble() < 0.85 ? telefono(random) : null;
+        Integer edad = random.nextDouble() < 0.98 ? edad(random) : null;
+        String rol = random.nextDouble() < 0.97 ? CatalogoNombres.ROLES.elegir(random) : null;
+
+        return new Object[]{nombre, apellido, cedula(indice), email, telefono, sexo, edad, rol};
+    }
+
+    /**
+     * Cédula única de 10 dígitos para el índice dado
+     */
+    static String cedula(long indice) {
+        return String.valueOf(BASE_CEDULA + Math.floorMod(indice * MULTIPLICADOR_CEDULA, RANGO_CEDULA));
+    }
+
+    private static String email(String nombre, String apellido, SplittableRandom random) {
+        String local = sinTildes(nombre) + "." + sinTildes(apellido);
+        if (random.nextInt(3) > 0) {
+            local += random.nextInt(1000);
+        }
+        return local + "@" + CatalogoNombres.DOMINIOS.elegir(random);
+    }
+
+    private static String telefono(SplittableRandom random) {
+        long numero = 3_000_000_000L + random.nextLong(250_000_000L);
+        String digitos = String.valueOf(numero);
+        double formato = random.nextDouble();
+        if (formato < 0.6) {
+            return digitos;
+        } else if (formato < 0.8) {
+            return "+57 " + digitos;
+        }
+        return digitos.substring(0, 3) + "-" + digitos.substring(3, 6) + "-" + digitos.substring(6);
+    }
+
+    /**
+     * Edad con distribución aproximadamente normal (media 38, desviación 14) entre 1 y 120
+     */
+    private static int edad(SplittableRandom random) {
+        double u1 = 1.0 - random.nextDouble();
+        double u2 = random.nextDouble();
+        double normal = Math.sqrt(-2.0 * Math.log(u1)) * Math.cos(2.0 * Math.PI * u2);
+        return (int) Math.max(1, Math.min(120, Math.round(38 + 14 * normal)));
+    }
+
+    private static String sinTildes(String texto) {
+        return MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Opciones de generación
+     */
+    public static class Opciones {
+        private long personas = 100_000;
+        private double fraccionUsuarios = 0.2;
+        private long semilla = 42L;
+        private int hilos = Runtime.getRuntime().availableProcessors();
+        private int filasPorInsert = 500;
+        private long indiceInicial = 0;
+
+        void validar() {
+            if (personas < 0 || indiceInicial < 0 || indiceInicial + personas > RANGO_CEDULA) {
+                throw new IllegalArgumentException("Cantidad de personas fuera de rango: " + personas);
+            }
+            if (fraccionUsuarios < 0 || fraccionUsuarios > 1) {
+                throw new IllegalArgumentException("La fracción de usuarios debe estar entre 0 y 1");
+            }
+            if (hilos < 1 || filasPorInsert < 1) {
+                throw new IllegalArgumentException("Hilos y filas por INSERT deben ser positivos");
+            }
+        }
+
+        // Getters y Setters
+        public long getPersonas() { return personas; }
+        public void setPersonas(long personas) { this.personas = personas; }
+
+        public double getFraccionUsuarios() { return fraccionUsuarios; }
+        public void setFraccionUsuarios(double fraccionUsuarios) { this.fraccionUsuarios = fraccionUsuarios; }
+
+        public long getSemilla() { return semilla; }
+        public void setSemilla(long semilla) { this.semilla = semilla; }
+
+        public int getHilos() { return hilos; }
+        public void setHilos(int hilos) { this.hilos = hilos; }
+
+        public int getFilasPorInsert() { return filasPorInsert; }
+        public void setFilasPorInsert(int filasPorInsert) { this.filasPorInsert = filasPorInsert; }
+
+        public long getIndiceInicial() { return indiceInicial; }
+        public void setIndiceInicial(long indiceInicial) { this.indiceInicial = indiceInicial; }
+    }
+
+    /**
+     * Resumen de una ejecución del generador
+     */
+    public static class Resultado {
+        private final long personas;
+        private final long usuarios;
+        private final long omitidas;
+        private final long duracionMs;
+
+        public Resultado(long personas, long usuarios, long omitidas, long duracionMs) {
+            this.personas = personas;
+            this.usuarios = usuarios;
+            this.omitidas = omitidas;
+            this.duracionMs = duracionMs;
+        }
+
+        public long getPersonas() { return personas; }
+        public long getUsuarios() { return usuarios; }
+        public long getOmitidas() { return omitidas; }
+        public long getDuracionMs() { return duracionMs; }
+
+        public long getFilasPorSegundo() {
+            return duracionMs == 0 ? personas + usuarios : (personas + usuarios) * 1000 / duracionMs;
+        }
+
+        @Override
+        public String toString() {
+            return personas + " personas, " + usuarios + " usuarios, " + omitidas + " omitidas por cédula existente, "
+                    + duracionMs + " ms (" + getFilasPorSegundo() + " filas/s)";
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.gestioncrm.idempotencia;
+
+/**
+ * Dónde se reservan las claves de idempotencia y se guardan sus respuestas
+ */
+public interface AlmacenIdempotencia {
+
+    /**
+     * Reservar la clave para ejecutar la petición: null si queda reservada para quien llama,
+     * o el estado existente (en curso en otra petición, o con su respuesta)
+     */
+    RespuestaGuardada reservar(String clave, String huella);
+
+    /** Guardar la respuesta de la clave reservada */
+    void guardar(String clave, RespuestaGuardada respuesta);
+
+    /** Liberar la clave reservada sin respuesta: la próxima petición con ella se ejecuta */
+    void liberar(String clave);
+}
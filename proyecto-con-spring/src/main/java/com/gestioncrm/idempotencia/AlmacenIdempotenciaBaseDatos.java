@@ -0,0 +1,116 @@
+package com.gestioncrm.idempotencia;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Claves de idempotencia en la tabla respuesta_idempotente, compartida por todas las instancias
+ *
+ * La reserva es el INSERT de la fila (la clave es la llave primaria): solo una instancia lo
+ * consigue y las demás leen la fila para esperar su respuesta. Las respuestas no cambian una
+ * vez guardadas, así que también se guardan en memoria y su repetición no consulta la tabla.
+ * Las filas expiradas se purgan en segundo plano.
+ */
+public class AlmacenIdempotenciaBaseDatos implements AlmacenIdempotencia, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(AlmacenIdempotenciaBaseDatos.class);
+
+    private static final RowMapper<RespuestaGuardada> FILA = (rs, n) -> new RespuestaGuardada(
+            rs.getString("huella"), rs.getInt("codigo"), rs.getString("tipo_contenido"),
+            rs.getString("ubicacion"), rs.getBytes("cuerpo"), rs.getTimestamp("expira_en").getTime());
+
+    private final JdbcTemplate jdbc;
+    private final AlmacenIdempotenciaMemoria guardadas;
+    private final long enCursoMaximoMs;
+    private final ScheduledExecutorService planificador;
+
+    public AlmacenIdempotenciaBaseDatos(DataSource dataSource, IdempotenciaProperties properties) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.guardadas = new AlmacenIdempotenciaMemoria(properties);
+        this.enCursoMaximoMs = properties.getEnCursoMaximo().toMillis();
+        this.planificador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "purga-idempotencia");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        long cada = Math.max(1_000L, properties.getRetencion().toMillis() / 10);
+        planificador.scheduleWithFixedDelay(this::purgar, cada, cada, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public RespuestaGuardada reservar(String clave, String huella) {
+        RespuestaGuardada guardada = guardadas.buscar(clave);
+        if (guardada != null) {
+            return guardada;
+        }
+        long ahora = System.currentTimeMillis();
+        // Un segundo intento si la fila existente había expirado o se liberó entre el INSERT y el SELECT
+        for (int intento = 0; intento < 2; intento++) {
+            try {
+                jdbc.update("INSERT INTO respuesta_idempotente (clave, huella, expira_en) VALUES (?, ?, ?)",
+                        clave, huella, new Timestamp(ahora + enCursoMaximoMs));
+                return null;
+            } catch (DuplicateKeyException e) {
+                List<RespuestaGuardada> filas = jdbc.query("SELECT huella, codigo, tipo_contenido, ubicacion, "
+                        + "cuerpo, expira_en FROM respuesta_idempotente WHERE clave = ?", FILA, clave);
+                if (filas.isEmpty()) {
+                    continue;
+                }
+                RespuestaGuardada existente = filas.get(0);
+                if (existente.isExpirada(ahora)) {
+                    jdbc.update("DELETE FROM respuesta_idempotente WHERE clave = ? AND expira_en <= ?",
+                            clave, new Timestamp(ahora));
+                    continue;
+                }
+                if (!existente.isEnCurso()) {
+                    guardadas.guardar(clave, existente);
+                }
+                return existente;
+            }
+        }
+        // Otra instancia la está reservando a la vez: se espera como si estuviera en curso
+        return RespuestaGuardada.enCurso(huella, ahora + enCursoMaximoMs);
+    }
+
+    @Override
+    public void guardar(String clave, RespuestaGuardada respuesta) {
+        jdbc.update("UPDATE respuesta_idempotente SET codigo = ?, tipo_contenido = ?, ubicacion = ?, cuerpo = ?, "
+                        + "expira_en = ? WHERE clave = ?",
+                respuesta.getCodigo(), respuesta.getTipoContenido(), respuesta.getUbicacion(), respuesta.getCuerpo(),
+                new Timestamp(respuesta.getExpiraEn()), clave);
+        guardadas.guardar(clave, respuesta);
+    }
+
+    @Override
+    public void liberar(String clave) {
+        jdbc.update("DELETE FROM respuesta_idempotente WHERE clave = ? AND codigo IS NULL", clave);
+    }
+
+    private void purgar() {
+        try {
+            int purgadas = jdbc.update("DELETE FROM respuesta_idempotente WHERE expira_en < ?",
+                    new Timestamp(System.currentTimeMillis()));
+            if (purgadas > 0) {
+                log.debug("Purgadas {} claves de idempotencia", purgadas);
+            }
+        } catch (DataAccessException e) {
+            log.warn("No se pudieron purgar las claves de idempotencia: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        planificador.shutdownNow();
+    }
+}
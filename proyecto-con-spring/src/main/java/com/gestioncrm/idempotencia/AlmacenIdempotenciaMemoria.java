@@ -0,0 +1,85 @@
+package com.gestioncrm.idempotencia;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Claves de idempotencia en memoria de la instancia, en orden de llegada
+ * Al pasar de la capacidad se descarta la más antigua; las expiradas se quitan al reservar.
+ */
+public class AlmacenIdempotenciaMemoria implements AlmacenIdempotencia {
+
+    private final int capacidad;
+    private final long enCursoMaximoMs;
+    private final LinkedHashMap<String, RespuestaGuardada> entradas;
+
+    public AlmacenIdempotenciaMemoria(IdempotenciaProperties properties) {
+        this.capacidad = properties.getCapacidad();
+        this.enCursoMaximoMs = properties.getEnCursoMaximo().toMillis();
+        this.entradas = new LinkedHashMap<String, RespuestaGuardada>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RespuestaGuardada> mayor) {
+                return size() > capacidad;
+            }
+        };
+    }
+
+    public AlmacenIdempotenciaMemoria(IdempotenciaProperties properties, MeterRegistry registro) {
+        this(properties);
+        Gauge.builder("gestioncrm.idempotencia.entradas", this, AlmacenIdempotenciaMemoria::tamano)
+                .description("Claves de idempotencia en memoria")
+                .register(registro);
+    }
+
+    @Override
+    public synchronized RespuestaGuardada reservar(String clave, String huella) {
+        long ahora = System.currentTimeMillis();
+        purgarExpiradas(ahora);
+        RespuestaGuardada existente = entradas.get(clave);
+        if (existente != null && !existente.isExpirada(ahora)) {
+            return existente;
+        }
+        entradas.put(clave, RespuestaGuardada.enCurso(huella, ahora + enCursoMaximoMs));
+        return null;
+    }
+
+    @Override
+    public synchronized void guardar(String clave, RespuestaGuardada respuesta) {
+        entradas.put(clave, respuesta);
+    }
+
+    @Override
+    public synchronized void liberar(String clave) {
+        RespuestaGuardada existente = entradas.get(clave);
+        if (existente != null && existente.isEnCurso()) {
+            entradas.remove(clave);
+        }
+    }
+
+    /**
+     * Respuesta ya guardada de la clave, sin reservarla
+     */
+    synchronized RespuestaGuardada buscar(String clave) {
+        RespuestaGuardada existente = entradas.get(clave);
+        return existente != null && !existente.isExpirada(System.currentTimeMillis()) ? existente : null;
+    }
+
+    synchronized int tamano() {
+        return entradas.size();
+    }
+
+    /**
+     * Las primeras en llegar suelen ser las primeras en expirar: basta recorrer hasta la
+     * primera vigente
+     */
+    private void purgarExpiradas(long ahora) {
+        Iterator<RespuestaGuardada> it = entradas.values().iterator();
+        while (it.hasNext() && it.next().isExpirada(ahora)) {
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.gestioncrm.idempotencia;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Cabecera Idempotency-Key en los POST de creación: un reintento del cliente con la misma
+ * clave recibe la respuesta de la primera petición sin volver a ejecutarla
+ *
+ * - Clave nueva: se reserva, se ejecuta la petición y se guarda su respuesta (salvo 5xx,
+ *   408 y 429, que liberan la clave para que el reintento se ejecute de nuevo).
+ * - Clave con respuesta: se repite con la cabecera Idempotent-Replayed: true.
+ * - Clave en curso: se espera a la primera petición (espera-en-curso) y se repite su
+ *   respuesta; si no termina a tiempo, 409 con Retry-After.
+ * - Misma clave con otro cuerpo: 422.
+ * - Cuerpo mayor que peticion-maxima: 413, sin leerlo entero.
+ *
+ * La clave vale para su ruta: la misma en /personas/api y /usuarios/api son dos claves.
+ * Métricas: gestioncrm.idempotencia.peticiones{resultado=ejecutada|repetida|en-curso|cuerpo-distinto|
+ * demasiado-grande}.
+ */
+public class FiltroIdempotencia extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(FiltroIdempotencia.class);
+
+    public static final String CABECERA = "Idempotency-Key";
+    public static final String CABECERA_REPETIDA = "Idempotent-Replayed";
+
+    private static final int LONGITUD_MAXIMA = 255;
+    /** Cada cuánto se vuelve a mirar una clave en curso en otra instancia */
+    private static final long SONDEO_MS = 50;
+
+    private final AlmacenIdempotencia almacen;
+    private final ObjectMapper objectMapper;
+    private final long retencionMs;
+    private final long esperaEnCursoMs;
+    private final int cuerpoMaximo;
+    private final int peticionMaxima;
+    private final Map<String, Counter> contadores = new ConcurrentHashMap<>();
+    private final MeterRegistry registro;
+    /** Peticiones de esta instancia en curso por clave, para despertar enseguida a las que esperan */
+    private final Map<String, CompletableFuture<Void>> enCurso = new ConcurrentHashMap<>();
+
+    public FiltroIdempotencia(AlmacenIdempotencia almacen, IdempotenciaProperties properties,
+                              ObjectMapper objectMapper, MeterRegistry registro) {
+        this.almacen = almacen;
+        this.objectMapper = objectMapper;
+        this.retencionMs = properties.getRetencion().toMillis();
+        this.esperaEnCursoMs = properties.getEsperaEnCurso().toMillis();
+        this.cuerpoMaximo = (int) Math.min(Integer.MAX_VALUE, properties.getCuerpoMaximo().toBytes());
+        this.peticionMaxima = (int) Math.min(Integer.MAX_VALUE - 8, properties.getPeticionMaxima().toBytes());
+        this.registro = registro;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || request.getHeader(CABECERA) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String recibida = request.getHeader(CABECERA).trim();
+        if (recibida.isEmpty() || recibida.length() > LONGITUD_MAXIMA) {
+            responderError(response, HttpStatus.BAD_REQUEST,
+                    "La cabecera " + CABECERA + " debe tener entre 1 y " + LONGITUD_MAXIMA + " caracteres");
+            return;
+        }
+        String clave = request.getRequestURI().substring(request.getContextPath().length()) + " " + recibida;
+        byte[] cuerpo = request.getContentLengthLong() > peticionMaxima ? null : leerCuerpo(request);
+        if (cuerpo == null) {
+            contar("demasiado-grande");
+            responderError(response, HttpStatus.PAYLOAD_TOO_LARGE,
+                    "El cuerpo de una petición con " + CABECERA + " no puede pasar de " + peticionMaxima + " bytes");
+            return;
+        }
+        String huella = huella(cuerpo);
+
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(esperaEnCursoMs);
+        while (true) {
+            RespuestaGuardada existente = almacen.reservar(clave, huella);
+            if (existente == null) {
+                ejecutar(clave, huella, new PeticionLeida(request, cuerpo), response, filterChain);
+                return;
+            }
+            if (!existente.getHuella().equals(huella)) {
+                contar("cuerpo-distinto");
+                responderError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                        "La clave " + recibida + " ya se usó con otra petición");
+                return;
+            }
+            if (!existente.isEnCurso()) {
+                contar("repetida");
+                repetir(existente, response);
+                return;
+            }
+            long restante = limite - System.nanoTime();
+            if (restante <= 0) {
+                contar("en-curso");
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                responderError(response, HttpStatus.CONFLICT,
+                        "La petición con la clave " + recibida + " todavía está en curso");
+                return;
+            }
+            esperar(clave, Math.min(TimeUnit.NANOSECONDS.toMillis(restante) + 1, SONDEO_MS));
+        }
+    }
+
+    /**
+     * Leer el cuerpo hasta peticionMaxima bytes (también sin Content-Length, p. ej. chunked)
+     *
+     * @return el cuerpo, o null si es mayor
+     */
+    private byte[] leerCuerpo(HttpServletRequest request) throws IOException {
+        long declarado = request.getContentLengthLong();
+        ByteArrayOutputStream cuerpo = new ByteArrayOutputStream(declarado >= 0 ? (int) declarado : 1024);
+        InputStream entrada = request.getInputStream();
+        byte[] bloque = new byte[8192];
+        int leidos;
+        while ((leidos = entrada.read(bloque, 0, (int) Math.min(bloque.length, peticionMaxima + 1L - cuerpo.size()))) > 0) {
+            cuerpo.write(bloque, 0, leidos);
+            if (cuerpo.size() > peticionMaxima) {
+                return null;
+            }
+        }
+        return cuerpo.toByteArray();
+    }
+
+    private void ejecutar(String clave, String huella, HttpServletRequest request, HttpServletResponse response,
+                          FilterChain filterChain) throws ServletException, IOException {
+        CompletableFuture<Void> aviso = new CompletableFuture<>();
+        enCurso.put(clave, aviso);
+        ContentCachingResponseWrapper capturada = new ContentCachingResponseWrapper(response);
+        boolean guardada = false;
+        try {
+            contar("ejecutada");
+            filterChain.doFilter(request, capturada);
+            int codigo = capturada.getStatus();
+            byte[] cuerpo = capturada.getContentAsByteArray();
+            if (codigo < 500 && codigo != 408 && codigo != 429 && cuerpo.length <= cuerpoMaximo) {
+                try {
+                    almacen.guardar(clave, new RespuestaGuardada(huella, codigo, capturada.getContentType(),
+                            capturada.getHeader(HttpHeaders.LOCATION), cuerpo,
+                            System.currentTimeMillis() + retencionMs));
+                    guardada = true;
+                } catch (RuntimeException e) {
+                    // La petición ya se ejecutó: se responde igual, aunque un reintento la repetirá
+                    log.warn("No se pudo guardar la respuesta de la clave de idempotencia {}: {}",
+                            clave, e.getMessage());
+                }
+            }
+            capturada.copyBodyToResponse();
+        } finally {
+            if (!guardada) {
+                liberar(clave);
+            }
+            enCurso.remove(clave, aviso);
+            aviso.complete(null);
+        }
+    }
+
+    private void liberar(String clave) {
+        try {
+            almacen.liberar(clave);
+        } catch (RuntimeException e) {
+            // La reserva caduca sola pasado en-curso-maximo
+            log.warn("No se pudo liberar la clave de idempotencia {}: {}", clave, e.getMessage());
+        }
+    }
+
+    /**
+     * Esperar a la petición en curso de esta instancia, o un sondeo si está en otra
+     */
+    private void esperar(String clave, long maximoMs) throws IOException {
+        CompletableFuture<Void> aviso = enCurso.get(clave);
+        try {
+            if (aviso != null) {
+                aviso.get(maximoMs, TimeUnit.MILLISECONDS);
+            } else {
+                Thread.sleep(maximoMs);
+            }
+        } catch (TimeoutException | ExecutionException e) {
+            // Se vuelve a mirar el almacén
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrumpido esperando la petición en curso", e);
+        }
+    }
+
+    private void repetir(RespuestaGuardada guardada, HttpServletResponse response) throws IOException {
+        response.setStatus(guardada.getCodigo());
+        response.setHeader(CABECERA_REPETIDA, "true");
+        if (guardada.getTipoContenido() != null) {
+            response.setContentType(guardada.getTipoContenido());
+        }
+        if (guardada.getUbicacion() != null) {
+            response.setHeader(HttpHeaders.LOCATION, guardada.getUbicacion());
+        }
+        byte[] cuerpo = guardada.getCuerpo() != null ? guardada.getCuerpo() : new byte[0];
+        response.setContentLength(cuerpo.length);
+        response.getOutputStream().write(cuerpo);
+    }
+
+    private void responderError(HttpServletResponse response, HttpStatus estado, String mensaje) throws IOException {
+        Map<String, Object> cuerpo = new HashMap<>();
+        cuerpo.put("success", false);
+        cuerpo.put("mensaje", mensaje);
+        response.setStatus(estado.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), cuerpo);
+    }
+
+    private void contar(String resultado) {
+        contadores.computeIfAbsent(resultado, r -> Counter.builder("gestioncrm.idempotencia.peticiones")
+                .description("Peticiones con Idempotency-Key")
+                .tag("resultado", r)
+                .register(registro)).increment();
+    }
+
+    private static String huella(byte[] cuerpo) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(cuerpo);
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /**
+     * Petición cuyo cuerpo ya se leyó para calcular la huella: se entrega de nuevo desde memoria
+     */
+    private static class PeticionLeida extends HttpServletRequestWrapper {
+
+        private final byte[] cuerpo;
+
+        PeticionLeida(HttpServletRequest request, byte[] cuerpo) {
+            super(request);
+            this.cuerpo = cuerpo;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream entrada = new ByteArrayInputStream(cuerpo);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return entrada.read();
+                }
+
+                @Override
+                public int read(byte[] b, int desde, int longitud) {
+                    return entrada.read(b, desde, longitud);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return entrada.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException("Lectura asíncrona no soportada");
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String codificacion = getCharacterEncoding();
+            Charset charset = codificacion != null ? Charset.forName(codificacion) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+
+        @Override
+        public int getContentLength() {
+            return cuerpo.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return cuerpo.length;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.gestioncrm.idempotencia;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Configuración de las claves de idempotencia (prefijo gestioncrm.idempotencia)
+ */
+@ConfigurationProperties(prefix = "gestioncrm.idempotencia")
+public class IdempotenciaProperties {
+
+    public enum Almacen { MEMORIA, BASE_DATOS }
+
+    /** Atiende la cabecera Idempotency-Key en los POST de las rutas */
+    private boolean habilitado = true;
+
+    /** Rutas (sin el context path) cuyos POST aceptan la cabecera */
+    private List<String> rutas = new ArrayList<>(Arrays.asList("/personas/api", "/usuarios/api"));
+
+    /**
+     * Dónde se guardan las respuestas: en memoria de cada instancia, o en la tabla
+     * respuesta_idempotente para que un reintento que llegue a otra instancia también se repita
+     */
+    private Almacen almacen = Almacen.MEMORIA;
+
+    /** Respuestas guardadas en memoria como máximo; al llenarse se descartan las más antiguas */
+    private int capacidad = 10_000;
+
+    /** Tiempo durante el que una respuesta se repite en lugar de volver a ejecutar la petición */
+    private Duration retencion = Duration.ofHours(24);
+
+    /**
+     * Espera máxima de una petición cuya clave está en curso en otra; pasado ese tiempo se
+     * responde 409 y el cliente debe reintentar
+     */
+    private Duration esperaEnCurso = Duration.ofSeconds(5);
+
+    /**
+     * Tiempo tras el cual una clave en curso se da por abandonada (instancia caída a mitad de
+     * la petición) y otra petición puede ejecutarla
+     */
+    private Duration enCursoMaximo = Duration.ofMinutes(1);
+
+    /** Cuerpo de respuesta más grande que se guarda; las mayores no se repiten */
+    private DataSize cuerpoMaximo = DataSize.ofKilobytes(32);
+
+    /**
+     * Cuerpo de petición más grande que admite una petición con clave (se lee entero en
+     * memoria para calcular su huella); las mayores responden 413
+     */
+    private DataSize peticionMaxima = DataSize.ofKilobytes(64);
+
+    // Getters y Setters
+    public boolean isHabilitado() { return habilitado; }
+    public void setHabilitado(boolean habilitado) { this.habilitado = habilitado; }
+
+    public List<String> getRutas() { return rutas; }
+    public void setRutas(List<String> rutas) { this.rutas = rutas; }
+
+    public Almacen getAlmacen() { return almacen; }
+    public void setAlmacen(Almacen almacen) { this.almacen = almacen; }
+
+    public int getCapacidad() { return capacidad; }
+    public void setCapacidad(int capacidad) { this.capacidad = capacidad; }
+
+    public Duration getRetencion() { return retencion; }
+    public void setRetencion(Duration retencion) { this.retencion = retencion; }
+
+    public Duration getEsperaEnCurso() { return esperaEnCurso; }
+    public void setEsperaEnCurso(Duration esperaEnCurso) { this.esperaEnCurso = esperaEnCurso; }
+
+    public Duration getEnCursoMaximo() { return enCursoMaximo; }
+    public void setEnCursoMaximo(Duration enCursoMaximo) { this.enCursoMaximo = enCursoMaximo; }
+
+    public DataSize getCuerpoMaximo() { return cuerpoMaximo; }
+    public void setCuerpoMaximo(DataSize cuerpoMaximo) { this.cuerpoMaximo = cuerpoMaximo; }
+
+    public DataSize getPeticionMaxima() { return peticionMaxima; }
+    public void setPeticionMaxima(DataSize peticionMaxima) { this.peticionMaxima = peticionMaxima; }
+}
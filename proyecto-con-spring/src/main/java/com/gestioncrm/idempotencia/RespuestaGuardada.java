@@ -0,0 +1,42 @@
+package com.gestioncrm.idempotencia;
+
+/**
+ * Estado de una clave de idempotencia: en curso, o con la respuesta que se repite
+ * La huella (SHA-256 del cuerpo de la petición) detecta la misma clave con otra petición.
+ */
+public class RespuestaGuardada {
+
+    private final String huella;
+    /** 0 mientras la petición original está en curso */
+    private final int codigo;
+    private final String tipoContenido;
+    private final String ubicacion;
+    private final byte[] cuerpo;
+    /** Milisegundos epoch a partir de los cuales la clave deja de valer */
+    private final long expiraEn;
+
+    RespuestaGuardada(String huella, int codigo, String tipoContenido, String ubicacion, byte[] cuerpo, long expiraEn) {
+        this.huella = huella;
+        this.codigo = codigo;
+        this.tipoContenido = tipoContenido;
+        this.ubicacion = ubicacion;
+        this.cuerpo = cuerpo;
+        this.expiraEn = expiraEn;
+    }
+
+    static RespuestaGuardada enCurso(String huella, long expiraEn) {
+        return new RespuestaGuardada(huella, 0, null, null, null, expiraEn);
+    }
+
+    public boolean isEnCurso() { return codigo == 0; }
+
+    boolean isExpirada(long ahora) { return expiraEn <= ahora; }
+
+    // Getters
+    public String getHuella() { return huella; }
+    public int getCodigo() { return codigo; }
+    public String getTipoContenido() { return tipoContenido; }
+    public String getUbicacion() { return ubicacion; }
+    public byte[] getCuerpo() { return cuerpo; }
+    public long getExpiraEn() { return expiraEn; }
+}
@@ -0,0 +1,414 @@
+package com.gestioncrm.ingesta;
+
+import com.gestioncrm.auditoria.ActorAuditoria;
+import com.gestioncrm.auditoria.Auditoria;
+import com.gestioncrm.cambios.SecuenciaCambios;
+import com.gestioncrm.evento.PersonaCambiadaEvent;
+import com.gestioncrm.model.Persona;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Búfer de ingesta con escritura diferida
+ *
+ * Las personas ya validadas entran en una cola acotada; un único hilo escritor las saca
+ * en lotes y las inserta con un INSERT de varias filas y un solo commit por lote (commit
+ * agrupado). Cada persona recibe un ticket que se completa cuando su lote es durable.
+ *
+ * El alta se audita al confirmarse el lote, con el actor y el origen de la petición que la
+ * envió (el hilo escritor no tiene petición).
+ */
+public class BufferIngesta implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(BufferIngesta.class);
+
+    private static final String COLUMNAS_PERSONA = "INSERT INTO persona (nombre, apellido, cedula, email, telefono, sexo, edad, rol, "
+            + "email_normalizado, telefono_normalizado) VALUES ";
+    private static final String FILA_PERSONA = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Estado de una persona enviada al búfer
+     */
+    public enum Estado {
+        PENDIENTE, ESCRITA, RECHAZADA
+    }
+
+    /**
+     * Comprobante de una persona aceptada por el búfer
+     */
+    public static class Ticket {
+        private final String id;
+        private volatile Estado estado = Estado.PENDIENTE;
+        private volatile Long idPersona;
+        private volatile String motivo;
+        private final CompletableFuture<Ticket> confirmacion = new CompletableFuture<>();
+
+        Ticket(String id) {
+            this.id = id;
+        }
+
+        void escrita(long idPersona) {
+            this.idPersona = idPersona;
+            this.estado = Estado.ESCRITA;
+            confirmacion.complete(this);
+        }
+
+        void rechazada(String motivo) {
+            this.motivo = motivo;
+            this.estado = Estado.RECHAZADA;
+            confirmacion.complete(this);
+        }
+
+        public String getId() { return id; }
+        public Estado getEstado() { return estado; }
+        public Long getIdPersona() { return idPersona; }
+        public String getMotivo() { return motivo; }
+        public CompletableFuture<Ticket> getConfirmacion() { return confirmacion; }
+    }
+
+    /**
+     * Contadores del búfer desde el arranque
+     */
+    public static class Estadisticas {
+        private final int pendientes;
+        private final int capacidad;
+        private final long aceptadas;
+        private final long escritas;
+        private final long rechazadas;
+        private final long rechazadasPorBufferLleno;
+        private final long lotes;
+
+        public Estadisticas(int pendientes, int capacidad, long aceptadas, long escritas, long rechazadas,
+                            long rechazadasPorBufferLleno, long lotes) {
+            this.pendientes = pendientes;
+            this.capacidad = capacidad;
+            this.aceptadas = aceptadas;
+            this.escritas = escritas;
+            this.rechazadas = rechazadas;
+            this.rechazadasPorBufferLleno = rechazadasPorBufferLleno;
+            this.lotes = lotes;
+        }
+
+        public int getPendientes() { return pendientes; }
+        public int getCapacidad() { return capacidad; }
+        public long getAceptadas() { return aceptadas; }
+        public long getEscritas() { return escritas; }
+        public long getRechazadas() { return rechazadas; }
+        public long getRechazadasPorBufferLleno() { return rechazadasPorBufferLleno; }
+        public long getLotes() { return lotes; }
+        public double getFilasPorLote() { return lotes == 0 ? 0 : (double) (escritas + rechazadas) / lotes; }
+    }
+
+    private static class Pendiente {
+        private final Ticket ticket;
+        private final Persona persona;
+        private final String actor;
+        private final String origen;
+
+        Pendiente(Ticket ticket, Persona persona, String actor, String origen) {
+            this.ticket = ticket;
+            this.persona = persona;
+            this.actor = actor;
+            this.origen = origen;
+        }
+    }
+
+    private final DataSource dataSource;
+    private final IngestaProperties properties;
+    private final ApplicationEventPublisher eventos;
+    private final Auditoria auditoria;
+    private final BlockingQueue<Pendiente> cola;
+    private final Map<String, Ticket> tickets;
+    private final Thread escritor;
+    private volatile boolean activo = true;
+
+    private final AtomicLong aceptadas = new AtomicLong();
+    private final AtomicLong escritas = new AtomicLong();
+    private final AtomicLong rechazadas = new AtomicLong();
+    private final AtomicLong rechazadasPorBufferLleno = new AtomicLong();
+    private final AtomicLong lotes = new AtomicLong();
+
+    public BufferIngesta(DataSource dataSource, IngestaProperties properties, ApplicationEventPublisher eventos,
+                         Auditoria auditoria) {
+        if (properties.getCapacidad() < 1 || properties.getTamanoLote() < 1) {
+            throw new IllegalArgumentException("La capacidad y el tamaño de lote deben ser mayores que 0");
+        }
+        this.dataSource = dataSource;
+        this.properties = properties;
+        this.eventos = eventos;
+        this.auditoria = auditoria;
+        this.cola = new ArrayBlockingQueue<>(properties.getCapacidad());
+        int retenidos = properties.getTicketsRetenidos();
+        this.tickets = Collections.synchronizedMap(new LinkedHashMap<String, Ticket>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Ticket> eldest) {
+                return size() > retenidos;
+            }
+        });
+        this.escritor = new Thread(this::escribirContinuamente, "ingesta-escritor");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+        log.info("Búfer de ingesta iniciado: capacidad {}, lotes de {} filas", properties.getCapacidad(),
+                properties.getTamanoLote());
+    }
+
+    /**
+     * Encolar una persona ya validada
+     *
+     * @return el ticket, o vacío si el búfer está lleno (el cliente debe reintentar)
+     */
+    public Optional<Ticket> enviar(Persona persona) {
+        if (!activo) {
+            return Optional.empty();
+        }
+        Ticket ticket = new Ticket(UUID.randomUUID().toString());
+        if (!cola.offer(new Pendiente(ticket, persona, ActorAuditoria.actor(), ActorAuditoria.origen()))) {
+            rechazadasPorBufferLleno.incrementAndGet();
+            return Optional.empty();
+        }
+        tickets.put(ticket.getId(), ticket);
+        aceptadas.incrementAndGet();
+        return Optional.of(ticket);
+    }
+
+    /**
+     * Consultar un ticket reciente
+     */
+    public Optional<Ticket> consultar(String idTicket) {
+        return Optional.ofNullable(tickets.get(idTicket));
+    }
+
+    public Estadisticas obtenerEstadisticas() {
+        return new Estadisticas(cola.size(), properties.getCapacidad(), aceptadas.get(), escritas.get(),
+                rechazadas.get(), rechazadasPorBufferLleno.get(), lotes.get());
+    }
+
+    /**
+     * Dejar de aceptar personas y escribir las que quedan en la cola
+     */
+    @Override
+    public void close() throws InterruptedException {
+        activo = false;
+        escritor.join(TimeUnit.SECONDS.toMillis(30));
+        if (!cola.isEmpty()) {
+            log.warn("Búfer de ingesta cerrado con {} personas sin escribir", cola.size());
+        }
+    }
+
+    private void escribirContinuamente() {
+        List<Pendiente> lote = new ArrayList<>(properties.getTamanoLote());
+        while (activo || !cola.isEmpty()) {
+            try {
+                Pendiente primera = cola.poll(100, TimeUnit.MILLISECONDS);
+                if (primera == null) {
+                    continue;
+                }
+                lote.add(primera);
+                completarLote(lote);
+                escribirLote(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Error inesperado en el escritor de ingesta", e);
+                lote.forEach(p -> rechazar(p, "Error interno: " + e.getMessage()));
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    /**
+     * Tomar lo que haya en la cola y esperar como mucho esperaLote a que llegue más
+     */
+    private void completarLote(List<Pendiente> lote) throws InterruptedException {
+        int maximo = properties.getTamanoLote();
+        cola.drainTo(lote, maximo - lote.size());
+        long limite = System.nanoTime() + properties.getEsperaLote().toNanos();
+        while (lote.size() < maximo) {
+            long restante = limite - System.nanoTime();
+            if (restante <= 0) {
+                break;
+            }
+            Pendiente siguiente = cola.poll(restante, TimeUnit.NANOSECONDS);
+            if (siguiente == null) {
+                break;
+            }
+            lote.add(siguiente);
+            cola.drainTo(lote, maximo - lote.size());
+        }
+    }
+
+    private void escribirLote(List<Pendiente> lote) {
+        // Cédulas repetidas dentro del lote: solo se escribe la primera
+        List<Pendiente> candidatas = new ArrayList<>(lote.size());
+        Set<String> cedulasDelLote = new HashSet<>();
+        for (Pendiente pendiente : lote) {
+            if (cedulasDelLote.add(pendiente.persona.getCedula())) {
+                candidatas.add(pendiente);
+            } else {
+                rechazar(pendiente, "Ya existe una persona con la cédula: " + pendiente.persona.getCedula());
+            }
+        }
+
+        try (Connection conexion = dataSource.getConnection()) {
+            conexion.setAutoCommit(false);
+            try {
+                Set<String> existentes = cedulasExistentes(conexion, cedulasDelLote);
+                List<Pendiente> nuevas = new ArrayList<>(candidatas.size());
+                for (Pendiente pendiente : candidatas) {
+                    if (existentes.contains(pendiente.persona.getCedula())) {
+                        rechazar(pendiente, "Ya existe una persona con la cédula: " + pendiente.persona.getCedula());
+                    } else {
+                        nuevas.add(pendiente);
+                    }
+                }
+                List<Long> ids = insertar(conexion, nuevas);
+                LocalDateTime ahora = SecuenciaCambios.ahora();
+                List<Long> secuencias = SecuenciaCambios.marcar(conexion, SecuenciaCambios.Entidad.PERSONA, ids, ahora);
+                conexion.commit();
+                lotes.incrementAndGet();
+                for (int i = 0; i < nuevas.size(); i++) {
+                    confirmar(nuevas.get(i), ids.get(i), secuencias.get(i), ahora);
+                }
+            } catch (SQLException e) {
+                conexion.rollback();
+                // Conflicto con una escritura concurrente: reintentar fila por fila
+                log.warn("Lote de ingesta fallido ({}), se reintenta fila por fila", e.getMessage());
+                for (Pendiente pendiente : candidatas) {
+                    escribirIndividual(conexion, pendiente);
+                }
+                lotes.incrementAndGet();
+            }
+        } catch (SQLException e) {
+            log.error("No se pudo escribir el lote de ingesta", e);
+            candidatas.stream()
+                    .filter(p -> p.ticket.getEstado() == Estado.PENDIENTE)
+                    .forEach(p -> rechazar(p, "Error de base de datos: " + e.getMessage()));
+        }
+    }
+
+    private void escribirIndividual(Connection conexion, Pendiente pendiente) {
+        if (pendiente.ticket.getEstado() != Estado.PENDIENTE) {
+            return;
+        }
+        try {
+            List<Long> ids = insertar(conexion, Collections.singletonList(pendiente));
+            LocalDateTime ahora = SecuenciaCambios.ahora();
+            List<Long> secuencias = SecuenciaCambios.marcar(conexion, SecuenciaCambios.Entidad.PERSONA, ids, ahora);
+            conexion.commit();
+            confirmar(pendiente, ids.get(0), secuencias.get(0), ahora);
+        } catch (SQLException e) {
+            try {
+                conexion.rollback();
+            } catch (SQLException errorRollback) {
+                e.addSuppressed(errorRollback);
+            }
+            rechazar(pendiente, "No se pudo guardar la persona: " + e.getMessage());
+        }
+    }
+
+    private Set<String> cedulasExistentes(Connection conexion, Set<String> cedulas) throws SQLException {
+        Set<String> existentes = new HashSet<>();
+        if (cedulas.isEmpty()) {
+            return existentes;
+        }
+        String marcadores = String.join(", ", Collections.nCopies(cedulas.size(), "?"));
+        try (PreparedStatement sentencia = conexion.prepareStatement(
+                "SELECT cedula FROM persona WHERE cedula IN (" + marcadores + ")")) {
+            int indice = 1;
+            for (String cedula : cedulas) {
+                sentencia.setString(indice++, cedula);
+            }
+            try (ResultSet rs = sentencia.executeQuery()) {
+                while (rs.next()) {
+                    existentes.add(rs.getString(1));
+                }
+            }
+        }
+        return existentes;
+    }
+
+    /**
+     * INSERT de varias filas; devuelve los IDs generados en el orden de las filas
+     */
+    private List<Long> insertar(Connection conexion, List<Pendiente> filas) throws SQLException {
+        List<Long> ids = new ArrayList<>(filas.size());
+        if (filas.isEmpty()) {
+            return ids;
+        }
+        String sql = COLUMNAS_PERSONA + String.join(", ", Collections.nCopies(filas.size(), FILA_PERSONA));
+        try (PreparedStatement sentencia = conexion.prepareStatement(sql, new String[]{"id_persona"})) {
+            int indice = 1;
+            for (Pendiente fila : filas) {
+                Persona persona = fila.persona;
+                sentencia.setString(indice++, persona.getNombre());
+                sentencia.setString(indice++, persona.getApellido());
+                sentencia.setString(indice++, persona.getCedula());
+                sentencia.setString(indice++, persona.getEmail());
+                sentencia.setString(indice++, persona.getTelefono());
+                if (persona.getSexo() != null) {
+                    sentencia.setString(indice++, persona.getSexo().name());
+                } else {
+                    sentencia.setNull(indice++, Types.VARCHAR);
+                }
+                if (persona.getEdad() != null) {
+                    sentencia.setInt(indice++, persona.getEdad());
+                } else {
+                    sentencia.setNull(indice++, Types.INTEGER);
+                }
+                sentencia.setString(indice++, persona.getRol());
+                sentencia.setString(indice++, Persona.normalizarEmail(persona.getEmail()));
+                sentencia.setString(indice++, Persona.normalizarTelefono(persona.getTelefono()));
+            }
+            sentencia.executeUpdate();
+            try (ResultSet claves = sentencia.getGeneratedKeys()) {
+                while (claves.next()) {
+                    ids.add(claves.getLong(1));
+                }
+            }
+        }
+        if (ids.size() != filas.size()) {
+            throw new SQLException("Se esperaban " + filas.size() + " IDs generados y se obtuvieron " + ids.size());
+        }
+        return ids;
+    }
+
+    private void confirmar(Pendiente pendiente, long idPersona, long secuencia, LocalDateTime actualizadoEn) {
+        pendiente.persona.setId(idPersona);
+        pendiente.persona.setSecuenciaCambio(secuencia);
+        pendiente.persona.setActualizadoEn(actualizadoEn);
+        eventos.publishEvent(PersonaCambiadaEvent.creada(pendiente.persona));
+        auditoria.personaCreada(pendiente.persona, pendiente.actor, pendiente.origen);
+        pendiente.ticket.escrita(idPersona);
+        escritas.incrementAndGet();
+    }
+
+    private void rechazar(Pendiente pendiente, String motivo) {
+        pendiente.ticket.rechazada(motivo);
+        rechazadas.incrementAndGet();
+    }
+}
@@ -0,0 +1,49 @@
+package com.gestioncrm.ingesta;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuración del modo de ingesta masiva (prefijo gestioncrm.ingesta)
+ */
+@ConfigurationProperties(prefix = "gestioncrm.ingesta")
+public class IngestaProperties {
+
+    /** Activa el endpoint /personas/api/ingesta */
+    private boolean habilitado = false;
+
+    /** Personas en espera como máximo; con el búfer lleno se responde 503 */
+    private int capacidad = 10_000;
+
+    /** Filas por lote (un INSERT de varias filas y un commit por lote) */
+    private int tamanoLote = 500;
+
+    /** Tiempo que el escritor espera a que se llene un lote antes de escribirlo */
+    private Duration esperaLote = Duration.ofMillis(2);
+
+    /** Espera máxima de un cliente que pide confirmación de la escritura */
+    private Duration esperaConfirmacion = Duration.ofSeconds(5);
+
+    /** Tickets cuyo estado se puede consultar (los más recientes) */
+    private int ticketsRetenidos = 100_000;
+
+    // Getters y Setters
+    public boolean isHabilitado() { return habilitado; }
+    public void setHabilitado(boolean habilitado) { this.habilitado = habilitado; }
+
+    public int getCapacidad() { return capacidad; }
+    public void setCapacidad(int capacidad) { this.capacidad = capacidad; }
+
+    public int getTamanoLote() { return tamanoLote; }
+    public void setTamanoLote(int tamanoLote) { this.tamanoLote = tamanoLote; }
+
+    public Duration getEsperaLote() { return esperaLote; }
+    public void setEsperaLote(Duration esperaLote) { this.esperaLote = esperaLote; }
+
+    public Duration getEsperaConfirmacion() { return esperaConfirmacion; }
+    public void setEsperaConfirmacion(Duration esperaConfirmacion) { this.esperaConfirmacion = esperaConfirmacion; }
+
+    public int getTicketsRetenidos() { return ticketsRetenidos; }
+    public void setTicketsRetenidos(int ticketsRetenidos) { this.ticketsRetenidos = ticketsRetenidos; }
+}
@@ -0,0 +1,46 @@
+package com.gestioncrm.model;
+
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Lápida de una persona o usuario eliminado, para la sincronización incremental
+ * Mapeada a la tabla 'cambio_eliminado' (la escribe SecuenciaCambios)
+ */
+@Entity
+@Immutable
+@Table(name = "cambio_eliminado")
+public class CambioEliminado {
+
+    @Id
+    @Column(name = "secuencia_cambio")
+    private Long secuenciaCambio;
+
+    @Column(name = "entidad", nullable = false, length = 20)
+    private String entidad;
+
+    @Column(name = "id_entidad", nullable = false)
+    private Long idEntidad;
+
+    @Column(name = "eliminado_en", nullable = false)
+    private LocalDateTime eliminadoEn;
+
+    // Getters
+    public Long getSecuenciaCambio() {
+        return secuenciaCambio;
+    }
+
+    public String getEntidad() {
+        return entidad;
+    }
+
+    public Long getIdEntidad() {
+        return idEntidad;
+    }
+
+    public LocalDateTime getEliminadoEn() {
+        return eliminadoEn;
+    }
+}
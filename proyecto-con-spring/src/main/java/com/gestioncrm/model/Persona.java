@@ -2,6 +2,8 @@ package com.gestioncrm.model;
 
 import javax.persistence.*;
 import javax.validation.constraints.*;
+import java.time.LocalDateTime;
+import java.util.Locale;
 
 /**
  * Entidad Persona que representa una persona en el sistema CRM
@@ -54,6 +56,20 @@ public class Persona {
     @Column(name = "rol", length = 50)
     private String rol;
 
+    // Copias normalizadas para las búsquedas por contacto (V6): las mantienen setEmail y setTelefono
+    @Column(name = "email_normalizado", length = 100)
+    private String emailNormalizado;
+
+    @Column(name = "telefono_normalizado", length = 20)
+    private String telefonoNormalizado;
+
+    // Secuencia de cambios: la asigna RegistroCambios al confirmar cada escritura
+    @Column(name = "secuencia_cambio", insertable = false, updatable = false)
+    private Long secuenciaCambio;
+
+    @Column(name = "actualizado_en", insertable = false, updatable = false)
+    private LocalDateTime actualizadoEn;
+
     /**
      * Enum para el sexo de la persona
      */
@@ -81,8 +97,8 @@ public class Persona {
         this.nombre = nombre;
         this.apellido = apellido;
         this.cedula = cedula;
-        this.telefono = telefono;
-        this.email = email;
+        setTelefono(telefono);
+        setEmail(email);
         this.edad = edad;
         this.sexo = sexo;
         this.rol = rol;
@@ -127,6 +143,7 @@ public class Persona {
 
     public void setTelefono(String telefono) {
         this.telefono = telefono;
+        this.telefonoNormalizado = normalizarTelefono(telefono);
     }
 
     public String getEmail() {
@@ -135,6 +152,7 @@ public class Persona {
 
     public void setEmail(String email) {
         this.email = email;
+        this.emailNormalizado = normalizarEmail(email);
     }
 
     public Integer getEdad() {
@@ -161,6 +179,22 @@ public class Persona {
         this.rol = rol;
     }
 
+    public Long getSecuenciaCambio() {
+        return secuenciaCambio;
+    }
+
+    public void setSecuenciaCambio(Long secuenciaCambio) {
+        this.secuenciaCambio = secuenciaCambio;
+    }
+
+    public LocalDateTime getActualizadoEn() {
+        return actualizadoEn;
+    }
+
+    public void setActualizadoEn(LocalDateTime actualizadoEn) {
+        this.actualizadoEn = actualizadoEn;
+    }
+
     /**
      * Método para obtener el nombre completo
      */
@@ -193,6 +227,34 @@ public class Persona {
         return rol != null && !rol.trim().isEmpty();
     }
 
+    /**
+     * Email como se guarda en email_normalizado: sin espacios alrededor y en minúsculas
+     * (null si está vacío)
+     */
+    public static String normalizarEmail(String email) {
+        if (email == null || email.trim().isEmpty()) {
+            return null;
+        }
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Teléfono como se guarda en telefono_normalizado: solo los dígitos, de modo que
+     * "300-123-4567" y "300 123 4567" coinciden (null si no tiene dígitos)
+     */
+    public static String normalizarTelefono(String telefono) {
+        if (telefono == null) {
+            return null;
+        }
+        StringBuilder digitos = new StringBuilder(telefono.length());
+        for (int i = 0; i < telefono.length(); i++) {
+            char c = telefono.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digitos.append(c);
+            }
+        }
+        return digitos.length() == 0 ? null : digitos.toString();
+    }
 
 
     @Override
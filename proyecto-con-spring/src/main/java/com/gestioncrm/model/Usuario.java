@@ -2,6 +2,7 @@ package com.gestioncrm.model;
 
 import javax.persistence.*;
 import javax.validation.constraints.*;
+import java.time.LocalDateTime;
 
 /**
  * Entidad Usuario que representa un usuario del sistema
@@ -31,6 +32,13 @@ public class Usuario {
     @Column(name = "contrasena", nullable = false, length = 45)
     private String contrasena;
 
+    // Secuencia de cambios: la asigna RegistroCambios al confirmar cada escritura
+    @Column(name = "secuencia_cambio", insertable = false, updatable = false)
+    private Long secuenciaCambio;
+
+    @Column(name = "actualizado_en", insertable = false, updatable = false)
+    private LocalDateTime actualizadoEn;
+
     // Constructores
     public Usuario() {
     }
@@ -74,6 +82,22 @@ public class Usuario {
         this.contrasena = contrasena;
     }
 
+    public Long getSecuenciaCambio() {
+        return secuenciaCambio;
+    }
+
+    public void setSecuenciaCambio(Long secuenciaCambio) {
+        this.secuenciaCambio = secuenciaCambio;
+    }
+
+    public LocalDateTime getActualizadoEn() {
+        return actualizadoEn;
+    }
+
+    public void setActualizadoEn(LocalDateTime actualizadoEn) {
+        this.actualizadoEn = actualizadoEn;
+    }
+
     @Override
     public String toString() {
         return "Usuario{" +
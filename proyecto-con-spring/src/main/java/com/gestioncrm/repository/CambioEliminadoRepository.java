@@ -0,0 +1,21 @@
+package com.gestioncrm.repository;
+
+import com.gestioncrm.model.CambioEliminado;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repositorio JPA para las lápidas de eliminaciones
+ */
+@Repository
+public interface CambioEliminadoRepository extends JpaRepository<CambioEliminado, Long> {
+
+    /**
+     * Eliminaciones de una entidad posteriores a la secuencia dada (usa idx_cambio_eliminado_entidad)
+     */
+    List<CambioEliminado> findByEntidadAndSecuenciaCambioGreaterThanOrderBySecuenciaCambioAsc(
+            String entidad, Long secuenciaCambio, Pageable pageable);
+}
@@ -0,0 +1,76 @@
+package com.gestioncrm.repository;
+
+import com.gestioncrm.model.Persona;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Criterios de búsqueda de personas para PersonaRepository (JpaSpecificationExecutor)
+ * Cada criterio es una condición independiente; se combinan con AND solo los que se usan
+ */
+public final class EspecificacionesPersona {
+
+    private EspecificacionesPersona() {
+    }
+
+    /**
+     * Nombre o apellido que contienen el término (sin distinguir mayúsculas)
+     */
+    public static Specification<Persona> nombreOApellidoContiene(String termino) {
+        String patron = "%" + escaparLike(termino.trim().toLowerCase()) + "%";
+        return (persona, consulta, cb) -> cb.or(
+                cb.like(cb.lower(persona.get("nombre")), patron, '\\'),
+                cb.like(cb.lower(persona.get("apellido")), patron, '\\'));
+    }
+
+    public static Specification<Persona> conRol(String rol) {
+        return (persona, consulta, cb) -> cb.equal(persona.get("rol"), rol);
+    }
+
+    public static Specification<Persona> conSexo(Persona.Sexo sexo) {
+        return (persona, consulta, cb) -> cb.equal(persona.get("sexo"), sexo);
+    }
+
+    public static Specification<Persona> edadDesde(Integer edadMin) {
+        return (persona, consulta, cb) -> cb.greaterThanOrEqualTo(persona.get("edad"), edadMin);
+    }
+
+    public static Specification<Persona> edadHasta(Integer edadMax) {
+        return (persona, consulta, cb) -> cb.lessThanOrEqualTo(persona.get("edad"), edadMax);
+    }
+
+    /**
+     * Email igual al dado, ya normalizado (Persona.normalizarEmail)
+     */
+    public static Specification<Persona> conEmailNormalizado(String emailNormalizado) {
+        return (persona, consulta, cb) -> cb.equal(persona.get("emailNormalizado"), emailNormalizado);
+    }
+
+    /**
+     * Teléfono igual al dado, ya normalizado (Persona.normalizarTelefono)
+     */
+    public static Specification<Persona> conTelefonoNormalizado(String telefonoNormalizado) {
+        return (persona, consulta, cb) -> cb.equal(persona.get("telefonoNormalizado"), telefonoNormalizado);
+    }
+
+    /**
+     * Con email (true) o sin email (false); el texto vacío cuenta como sin email
+     */
+    public static Specification<Persona> conEmail(boolean tiene) {
+        return (persona, consulta, cb) -> tiene
+                ? cb.and(cb.isNotNull(persona.get("email")), cb.notEqual(persona.get("email"), ""))
+                : cb.or(cb.isNull(persona.get("email")), cb.equal(persona.get("email"), ""));
+    }
+
+    /**
+     * Con teléfono (true) o sin teléfono (false); el texto vacío cuenta como sin teléfono
+     */
+    public static Specification<Persona> conTelefono(boolean tiene) {
+        return (persona, consulta, cb) -> tiene
+                ? cb.and(cb.isNotNull(persona.get("telefono")), cb.notEqual(persona.get("telefono"), ""))
+                : cb.or(cb.isNull(persona.get("telefono")), cb.equal(persona.get("telefono"), ""));
+    }
+
+    private static String escaparLike(String texto) {
+        return texto.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -1,11 +1,15 @@
 package com.gestioncrm.repository;
 
 import com.gestioncrm.model.Persona;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,7 +18,8 @@ import java.util.Optional;
  * Proporciona métodos para acceder a la base de datos
  */
 @Repository
-public interface PersonaRepository extends JpaRepository<Persona, Long> {
+public interface PersonaRepository extends JpaRepository<Persona, Long>, JpaSpecificationExecutor<Persona>,
+        PersonaRepositoryCustom {
 
     /**
      * Buscar persona por cédula
@@ -58,6 +63,16 @@ public interface PersonaRepository extends JpaRepository<Persona, Long> {
     @Query("SELECT p FROM Persona p WHERE p.telefono IS NOT NULL AND p.telefono != ''")
     List<Persona> findPersonasConTelefono();
 
+    /**
+     * Buscar personas por email ya normalizado (usa idx_persona_email_normalizado)
+     */
+    List<Persona> findByEmailNormalizadoOrderByIdAsc(String emailNormalizado);
+
+    /**
+     * Buscar personas por teléfono ya normalizado (usa idx_persona_telefono_normalizado)
+     */
+    List<Persona> findByTelefonoNormalizadoOrderByIdAsc(String telefonoNormalizado);
+
     /**
      * Buscar personas por rango de edad
      */
@@ -88,4 +103,37 @@ public interface PersonaRepository extends JpaRepository<Persona, Long> {
      */
     @Query("SELECT p FROM Persona p WHERE LOWER(p.nombre) LIKE LOWER(CONCAT('%', :termino, '%')) OR LOWER(p.apellido) LIKE LOWER(CONCAT('%', :termino, '%'))")
     List<Persona> findByNombreOrApellidoContaining(@Param("termino") String termino);
+
+    /**
+     * Personas modificadas después de la secuencia dada (usa idx_persona_secuencia)
+     */
+    List<Persona> findBySecuenciaCambioGreaterThanOrderBySecuenciaCambioAsc(Long secuenciaCambio, Pageable pageable);
+
+    /**
+     * De los IDs dados, los que existen y no tienen usuario asociado (se pueden eliminar)
+     */
+    @Query("SELECT p.id FROM Persona p WHERE p.id IN :ids " +
+           "AND NOT EXISTS (SELECT u.id FROM Usuario u WHERE u.persona = p) ORDER BY p.id")
+    List<Long> findIdsEliminables(@Param("ids") Collection<Long> ids);
+
+    /**
+     * IDs de las personas con el rol dado (usa idx_persona_rol_nombre)
+     */
+    @Query("SELECT p.id FROM Persona p WHERE p.rol = :rol ORDER BY p.id")
+    List<Long> findIdsByRol(@Param("rol") String rol);
+
+    /**
+     * Eliminar las personas con los IDs dados en una sola sentencia
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Persona p WHERE p.id IN :ids")
+    int eliminarPorIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Cambiar el rol de las personas con los IDs dados que aún tengan rolActual, en una sola sentencia
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Persona p SET p.rol = :rolNuevo WHERE p.id IN :ids AND p.rol = :rolActual")
+    int actualizarRolPorIds(@Param("ids") Collection<Long> ids, @Param("rolActual") String rolActual,
+                            @Param("rolNuevo") String rolNuevo);
 }
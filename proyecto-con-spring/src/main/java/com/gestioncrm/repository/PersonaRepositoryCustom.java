@@ -0,0 +1,36 @@
+package com.gestioncrm.repository;
+
+import com.gestioncrm.model.Persona;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consultas de PersonaRepository que se construyen según los criterios recibidos
+ * (implementadas en PersonaRepositoryImpl)
+ */
+public interface PersonaRepositoryCustom {
+
+    /**
+     * IDs de las personas que cumplen todos los criterios no nulos, ordenados por ID
+     * Solo se agregan al WHERE los criterios presentes, para que el motor pueda usar sus índices
+     */
+    List<Long> findIdsPorFiltro(String rol, Persona.Sexo sexo, Integer edadMin, Integer edadMax);
+
+    /**
+     * Conteo de las personas que cumplen la especificación (null = todas) agrupadas por
+     * rol, sexo, edad, tiene email (1/0) y tiene teléfono (1/0), en una sola consulta
+     * Cada fila: [rol, sexo, edad, conEmail, conTelefono, cantidad]
+     */
+    List<Object[]> contarCombinaciones(Specification<Persona> especificacion);
+
+    /**
+     * Solo las columnas indicadas (atributos de Persona) de las personas que cumplen la
+     * especificación (null = todas), sin cargar entidades gestionadas
+     * Cada fila es un mapa atributo → valor en el orden de campos; maximo <= 0 = sin límite
+     */
+    List<Map<String, Object>> findCampos(Specification<Persona> especificacion, List<String> campos,
+                                         Sort orden, int desde, int maximo);
+}
@@ -0,0 +1,123 @@
+package com.gestioncrm.repository;
+
+import com.gestioncrm.model.Persona;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementación de las consultas dinámicas de PersonaRepository (Criteria API)
+ */
+public class PersonaRepositoryImpl implements PersonaRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Long> findIdsPorFiltro(String rol, Persona.Sexo sexo, Integer edadMin, Integer edadMax) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> consulta = cb.createQuery(Long.class);
+        Root<Persona> persona = consulta.from(Persona.class);
+
+        List<Predicate> condiciones = new ArrayList<>();
+        if (rol != null) {
+            condiciones.add(cb.equal(persona.get("rol"), rol));
+        }
+        if (sexo != null) {
+            condiciones.add(cb.equal(persona.get("sexo"), sexo));
+        }
+        if (edadMin != null) {
+            condiciones.add(cb.greaterThanOrEqualTo(persona.get("edad"), edadMin));
+        }
+        if (edadMax != null) {
+            condiciones.add(cb.lessThanOrEqualTo(persona.get("edad"), edadMax));
+        }
+
+        consulta.select(persona.get("id"))
+                .where(condiciones.toArray(new Predicate[0]))
+                .orderBy(cb.asc(persona.get("id")));
+        return entityManager.createQuery(consulta).getResultList();
+    }
+
+    @Override
+    public List<Object[]> contarCombinaciones(Specification<Persona> especificacion) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> consulta = cb.createQuery(Object[].class);
+        Root<Persona> persona = consulta.from(Persona.class);
+
+        // length() > 0 descarta a la vez NULL y texto vacío, sin parámetros en el GROUP BY
+        Expression<Integer> conEmail = cb.<Integer>selectCase()
+                .when(cb.gt(cb.length(persona.get("email")), 0), 1)
+                .otherwise(0);
+        Expression<Integer> conTelefono = cb.<Integer>selectCase()
+                .when(cb.gt(cb.length(persona.get("telefono")), 0), 1)
+                .otherwise(0);
+
+        consulta.multiselect(persona.get("rol"), persona.get("sexo"), persona.get("edad"),
+                        conEmail, conTelefono, cb.count(persona))
+                .groupBy(persona.get("rol"), persona.get("sexo"), persona.get("edad"), conEmail, conTelefono);
+        if (especificacion != null) {
+            Predicate condicion = especificacion.toPredicate(persona, consulta, cb);
+            if (condicion != null) {
+                consulta.where(condicion);
+            }
+        }
+        return entityManager.createQuery(consulta).getResultList();
+    }
+
+    @Override
+    public List<Map<String, Object>> findCampos(Specification<Persona> especificacion, List<String> campos,
+                                                Sort orden, int desde, int maximo) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> consulta = cb.createTupleQuery();
+        Root<Persona> persona = consulta.from(Persona.class);
+
+        List<Selection<?>> columnas = new ArrayList<>(campos.size());
+        for (String campo : campos) {
+            columnas.add(persona.get(campo).alias(campo));
+        }
+        consulta.multiselect(columnas);
+        if (especificacion != null) {
+            Predicate condicion = especificacion.toPredicate(persona, consulta, cb);
+            if (condicion != null) {
+                consulta.where(condicion);
+            }
+        }
+        if (orden != null && orden.isSorted()) {
+            consulta.orderBy(QueryUtils.toOrders(orden, persona, cb));
+        }
+
+        TypedQuery<Tuple> query = entityManager.createQuery(consulta);
+        if (desde > 0) {
+            query.setFirstResult(desde);
+        }
+        if (maximo > 0) {
+            query.setMaxResults(maximo);
+        }
+        List<Tuple> tuplas = query.getResultList();
+        List<Map<String, Object>> filas = new ArrayList<>(tuplas.size());
+        for (Tuple tupla : tuplas) {
+            Map<String, Object> fila = new LinkedHashMap<>(campos.size() * 2);
+            for (int i = 0; i < campos.size(); i++) {
+                fila.put(campos.get(i), tupla.get(i));
+            }
+            filas.add(fila);
+        }
+        return filas;
+    }
+}
@@ -1,6 +1,8 @@
 package com.gestioncrm.repository;
 
 import com.gestioncrm.model.Usuario;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -41,4 +43,10 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
      * Buscar usuarios por nombre de usuario (búsqueda parcial)
      */
     List<Usuario> findByUsuarioContainingIgnoreCase(String termino);
+
+    /**
+     * Usuarios modificados después de la secuencia dada, con su persona (usa idx_usuario_secuencia)
+     */
+    @EntityGraph(attributePaths = "persona")
+    List<Usuario> findBySecuenciaCambioGreaterThanOrderBySecuenciaCambioAsc(Long secuenciaCambio, Pageable pageable);
 }
@@ -0,0 +1,12 @@
+package com.gestioncrm.service;
+
+/**
+ * La operación no se puede hacer con la configuración actual (por ejemplo, con la
+ * fragmentación activa); los controladores la responden con 501
+ */
+public class OperacionNoDisponibleException extends RuntimeException {
+
+    public OperacionNoDisponibleException(String mensaje) {
+        super(mensaje);
+    }
+}
@@ -1,41 +1,116 @@
 package com.gestioncrm.service;
 
+import com.gestioncrm.analitica.ConteoAnalitico;
+import com.gestioncrm.analitica.InstantaneaPersonas;
+import com.gestioncrm.auditoria.Auditoria;
+import com.gestioncrm.cache.LecturaEnCache;
+import com.gestioncrm.cambios.PaginaCambios;
+import com.gestioncrm.cambios.RegistroCambios;
+import com.gestioncrm.cambios.SecuenciaCambios;
+import com.gestioncrm.coalescencia.LecturaCoalescida;
+import com.gestioncrm.evento.PersonaCambiadaEvent;
+import com.gestioncrm.fragmentos.PersonasFragmentadas;
 import com.gestioncrm.model.Persona;
+import com.gestioncrm.repository.CambioEliminadoRepository;
+import com.gestioncrm.repository.EspecificacionesPersona;
 import com.gestioncrm.repository.PersonaRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityNotFoundException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.HashSet;
 import java.util.ArrayList;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Servicio de negocio para la gestión de personas
  * Contiene la lógica de negocio y transacciones
+ *
+ * Con fragmentos (gestioncrm.fragmentos.habilitado) las personas se leen y escriben en
+ * PersonasFragmentadas en lugar de en PersonaRepository; las operaciones masivas y el flujo
+ * de cambios no están disponibles en ese modo.
  */
 @Service
 @Transactional
 public class PersonaService {
 
     private static final Logger log = LoggerFactory.getLogger(PersonaService.class);
+
+    // IDs por sentencia en las operaciones masivas (límite de la lista IN en algunos motores)
+    private static final int TAMANO_BLOQUE = 1000;
+    /** Máximo de IDs en una obtención múltiple */
+    public static final int IDS_POR_CONSULTA_MAXIMO = 10_000;
+
+    public static final int TAMANO_PAGINA_MAXIMO = 200;
+
+    /** Atributos de Persona que se pueden pedir con ?fields= */
+    public static final List<String> CAMPOS_PROYECTABLES = Collections.unmodifiableList(Arrays.asList(
+            "id", "nombre", "apellido", "cedula", "telefono", "email", "edad", "sexo", "rol",
+            "secuenciaCambio", "actualizadoEn"));
+
+    // Ordenamientos permitidos en la búsqueda, cada uno respaldado por un índice;
+    // el ID al final hace el orden total y estable entre páginas
+    private static final Map<String, String[]> ORDENAMIENTOS = new LinkedHashMap<>();
+    static {
+        ORDENAMIENTOS.put("nombre", new String[] {"nombre", "apellido", "id"});
+        ORDENAMIENTOS.put("apellido", new String[] {"apellido", "nombre", "id"});
+        ORDENAMIENTOS.put("edad", new String[] {"edad", "id"});
+        ORDENAMIENTOS.put("cedula", new String[] {"cedula"});
+        ORDENAMIENTOS.put("id", new String[] {"id"});
+    }
     
     private final PersonaRepository personaRepository;
+    private final ApplicationEventPublisher eventos;
+    private final RegistroCambios registroCambios;
+    private final CambioEliminadoRepository cambioEliminadoRepository;
+    private final ObjectProvider<InstantaneaPersonas> instantanea;
+    private final Auditoria auditoria;
+    private final PersonasFragmentadas fragmentadas;
 
-    public PersonaService(PersonaRepository personaRepository) {
+    public PersonaService(PersonaRepository personaRepository, ApplicationEventPublisher eventos,
+                          RegistroCambios registroCambios, CambioEliminadoRepository cambioEliminadoRepository,
+                          ObjectProvider<InstantaneaPersonas> instantanea, Auditoria auditoria,
+                          ObjectProvider<PersonasFragmentadas> fragmentadas) {
         this.personaRepository = personaRepository;
+        this.eventos = eventos;
+        this.registroCambios = registroCambios;
+        this.cambioEliminadoRepository = cambioEliminadoRepository;
+        this.instantanea = instantanea;
+        this.auditoria = auditoria;
+        this.fragmentadas = fragmentadas.getIfAvailable();
     }
 
     /**
      * Obtener todas las personas ordenadas por nombre
      */
     @Transactional(readOnly = true)
+    @LecturaCoalescida
     public List<Persona> obtenerTodas() {
-        log.info("Obteniendo todas las personas");
+        log.debug("Obteniendo todas las personas");
+        if (fragmentadas != null) {
+            return fragmentadas.listar(null, Sort.by(ORDENAMIENTOS.get("nombre")));
+        }
         return personaRepository.findAllByOrderByNombreAsc();
     }
 
@@ -43,19 +118,59 @@ public class PersonaService {
      * Obtener una persona por su ID
      */
     @Transactional(readOnly = true)
+    @LecturaCoalescida
+    @LecturaEnCache(porId = true)
     public Persona obtenerPorId(Long id) {
-        log.info("Buscando persona con ID: {}", id);
-        return personaRepository.findById(id)
+        log.debug("Buscando persona con ID: {}", id);
+        return (fragmentadas != null ? fragmentadas.buscarPorId(id) : personaRepository.findById(id))
                 .orElseThrow(() -> new EntityNotFoundException("Persona no encontrada con ID: " + id));
     }
 
+    /**
+     * Obtener varias personas por ID, en el orden pedido y sin repetir, con los IDs que no existen
+     * Las sentencias IN van por bloques de TAMANO_BLOQUE IDs
+     */
+    @Transactional(readOnly = true)
+    @LecturaCoalescida
+    public PersonasPorIds obtenerPorIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            throw new IllegalArgumentException("Indique al menos un ID");
+        }
+        if (ids.size() > IDS_POR_CONSULTA_MAXIMO) {
+            throw new IllegalArgumentException("Se admiten como máximo " + IDS_POR_CONSULTA_MAXIMO + " IDs por consulta");
+        }
+        List<Long> unicos = new ArrayList<>(new LinkedHashSet<>(ids));
+        log.debug("Buscando {} personas por ID", unicos.size());
+        Map<Long, Persona> encontradas = new HashMap<>(unicos.size() * 2);
+        for (List<Long> bloque : bloques(unicos)) {
+            Iterable<Persona> leidas = fragmentadas != null
+                    ? fragmentadas.buscarPorIds(bloque) : personaRepository.findAllById(bloque);
+            for (Persona persona : leidas) {
+                encontradas.put(persona.getId(), persona);
+            }
+        }
+        List<Persona> personas = new ArrayList<>(encontradas.size());
+        List<Long> noEncontrados = new ArrayList<>();
+        for (Long id : unicos) {
+            Persona persona = encontradas.get(id);
+            if (persona != null) {
+                personas.add(persona);
+            } else {
+                noEncontrados.add(id);
+            }
+        }
+        return new PersonasPorIds(personas, noEncontrados);
+    }
+
     /**
      * Obtener una persona por su cédula
      */
     @Transactional(readOnly = true)
+    @LecturaCoalescida
+    @LecturaEnCache
     public Optional<Persona> obtenerPorCedula(String cedula) {
-        log.info("Buscando persona con cédula: {}", cedula);
-        return personaRepository.findByCedula(cedula);
+        log.debug("Buscando persona con cédula: {}", cedula);
+        return fragmentadas != null ? fragmentadas.buscarPorCedula(cedula) : personaRepository.findByCedula(cedula);
     }
 
     /**
@@ -65,11 +180,20 @@ public class PersonaService {
         log.info("Guardando nueva persona: {}", persona.getNombreCompleto());
         
         // Verificar si ya existe una persona con la misma cédula
-        if (personaRepository.existsByCedula(persona.getCedula())) {
+        if (existePorCedula(persona.getCedula())) {
             throw new IllegalArgumentException("Ya existe una persona con la cédula: " + persona.getCedula());
         }
         
-        return personaRepository.save(persona);
+        Persona personaGuardada;
+        if (fragmentadas != null) {
+            personaGuardada = fragmentadas.insertar(persona);
+        } else {
+            personaGuardada = personaRepository.save(persona);
+            registroCambios.personaGuardada(personaGuardada);
+        }
+        auditoria.personaCreada(personaGuardada);
+        eventos.publishEvent(PersonaCambiadaEvent.creada(personaGuardada));
+        return personaGuardada;
     }
 
     /**
@@ -81,12 +205,19 @@ public class PersonaService {
         // Verificar que la persona existe
         Persona personaExistente = obtenerPorId(id);
         
+        // La cédula decide el fragmento: cambiarla exigiría mover la persona y cambiar su ID
+        if (fragmentadas != null && !personaExistente.getCedula().equals(persona.getCedula())) {
+            throw new IllegalArgumentException("La cédula no se puede cambiar con la fragmentación activa");
+        }
+
         // Verificar si la cédula ya existe en otra persona
-        Optional<Persona> personaConCedula = personaRepository.findByCedula(persona.getCedula());
+        Optional<Persona> personaConCedula = obtenerPorCedula(persona.getCedula());
         if (personaConCedula.isPresent() && !personaConCedula.get().getId().equals(id)) {
             throw new IllegalArgumentException("Ya existe otra persona con la cédula: " + persona.getCedula());
         }
         
+        Map<String, String> antes = auditoria.campos(personaExistente);
+
         // Actualizar campos
         personaExistente.setNombre(persona.getNombre());
         personaExistente.setApellido(persona.getApellido());
@@ -97,7 +228,16 @@ public class PersonaService {
         personaExistente.setSexo(persona.getSexo());
         personaExistente.setRol(persona.getRol());
         
-        return personaRepository.save(personaExistente);
+        Persona personaActualizada;
+        if (fragmentadas != null) {
+            personaActualizada = fragmentadas.actualizar(personaExistente);
+        } else {
+            personaActualizada = personaRepository.save(personaExistente);
+            registroCambios.personaGuardada(personaActualizada);
+        }
+        auditoria.personaActualizada(antes, personaActualizada);
+        eventos.publishEvent(PersonaCambiadaEvent.actualizada(personaActualizada));
+        return personaActualizada;
     }
 
     /**
@@ -107,19 +247,31 @@ public class PersonaService {
         log.info("Eliminando persona con ID: {}", id);
         
         // Verificar que la persona existe
-        if (!personaRepository.existsById(id)) {
-            throw new EntityNotFoundException("Persona no encontrada con ID: " + id);
-        }
+        Persona persona = obtenerPorId(id);
         
-        personaRepository.deleteById(id);
+        PersonaCambiadaEvent cambio = PersonaCambiadaEvent.eliminada(id);
+        if (fragmentadas != null) {
+            fragmentadas.eliminar(id);
+        } else {
+            personaRepository.delete(persona);
+            registroCambios.personaEliminada(id, cambio::asignarSecuenciaEliminacion);
+        }
+        auditoria.personaEliminada(id, auditoria.campos(persona));
+        eventos.publishEvent(cambio);
     }
 
     /**
      * Buscar personas por término (nombre o apellido)
      */
     @Transactional(readOnly = true)
+    @LecturaCoalescida
     public List<Persona> buscarPorTermino(String termino) {
-        log.info("Buscando personas con término: {}", termino);
+        log.debug("Buscando personas con término: {}", termino);
+        if (fragmentadas != null) {
+            CriteriosBusqueda criterios = new CriteriosBusqueda();
+            criterios.setTermino(termino);
+            return fragmentadas.listar(criterios, Sort.unsorted());
+        }
         return personaRepository.findByNombreOrApellidoContaining(termino);
     }
 
@@ -127,8 +279,14 @@ public class PersonaService {
      * Buscar personas por rol
      */
     @Transactional(readOnly = true)
+    @LecturaCoalescida
     public List<Persona> buscarPorRol(String rol) {
-        log.info("Buscando personas con rol: {}", rol);
+        log.debug("Buscando personas con rol: {}", rol);
+        if (fragmentadas != null) {
+            CriteriosBusqueda criterios = new CriteriosBusqueda();
+            criterios.setRol(rol);
+            return fragmentadas.listar(criterios, Sort.unsorted());
+        }
         return personaRepository.findByRol(rol);
     }
 
@@ -136,8 +294,14 @@ public class PersonaService {
      * Buscar personas por sexo
      */
     @Transactional(readOnly = true)
+    @LecturaCoalescida
     public List<Persona> buscarPorSexo(Persona.Sexo sexo) {
-        log.info("Buscando personas con sexo: {}", sexo);
+        log.debug("Buscando personas con sexo: {}", sexo);
+        if (fragmentadas != null) {
+            CriteriosBusqueda criterios = new CriteriosBusqueda();
+            criterios.setSexo(sexo);
+            return fragmentadas.listar(criterios, Sort.unsorted());
+        }
         return personaRepository.findBySexo(sexo);
     }
 
@@ -145,8 +309,31 @@ public class PersonaService {
      * Obtener estadísticas de personas
      */
     @Transactional(readOnly = true)
+    @LecturaCoalescida
     public EstadisticasPersonas obtenerEstadisticas() {
-        log.info("Obteniendo estadísticas de personas");
+        log.debug("Obteniendo estadísticas de personas");
+
+        InstantaneaPersonas analitica = instantaneaLista();
+        if (analitica != null) {
+            ConteoAnalitico conteo = analitica.contarTodas();
+            long sinRol = conteo.getPorRol().getOrDefault(null, 0L);
+            return new EstadisticasPersonas(conteo.getTotal(), conteo.getConEmail(), conteo.getConTelefono(),
+                    conteo.getTotal() - sinRol);
+        }
+        if (fragmentadas != null) {
+            long total = 0;
+            long conEmail = 0;
+            long conTelefono = 0;
+            long conRol = 0;
+            for (Object[] fila : fragmentadas.contarCombinaciones(null)) {
+                long cantidad = (Long) fila[5];
+                total += cantidad;
+                conEmail += (Integer) fila[3] == 1 ? cantidad : 0;
+                conTelefono += (Integer) fila[4] == 1 ? cantidad : 0;
+                conRol += fila[0] != null && !((String) fila[0]).trim().isEmpty() ? cantidad : 0;
+            }
+            return new EstadisticasPersonas(total, conEmail, conTelefono, conRol);
+        }
         
         long totalPersonas = personaRepository.count();
         long personasConEmail = personaRepository.findPersonasConEmail().size();
@@ -162,8 +349,458 @@ public class PersonaService {
      * Verificar si existe una persona con la cédula dada
      */
     @Transactional(readOnly = true)
+    @LecturaCoalescida
     public boolean existePorCedula(String cedula) {
-        return personaRepository.existsByCedula(cedula);
+        return fragmentadas != null ? fragmentadas.existeCedula(cedula) : personaRepository.existsByCedula(cedula);
+    }
+
+    /**
+     * Buscar personas por email sin distinguir mayúsculas, ordenadas por ID
+     */
+    @Transactional(readOnly = true)
+    @LecturaCoalescida
+    public List<Persona> buscarPorEmail(String email) {
+        String normalizado = emailABuscar(email);
+        log.debug("Buscando personas con email: {}", normalizado);
+        return fragmentadas != null ? fragmentadas.buscarPorEmail(normalizado)
+                : personaRepository.findByEmailNormalizadoOrderByIdAsc(normalizado);
+    }
+
+    /**
+     * Buscar personas por teléfono comparando solo los dígitos, ordenadas por ID
+     */
+    @Transactional(readOnly = true)
+    @LecturaCoalescida
+    public List<Persona> buscarPorTelefono(String telefono) {
+        String normalizado = telefonoABuscar(telefono);
+        log.debug("Buscando personas con teléfono: {}", normalizado);
+        return fragmentadas != null ? fragmentadas.buscarPorTelefono(normalizado)
+                : personaRepository.findByTelefonoNormalizadoOrderByIdAsc(normalizado);
+    }
+
+    @Transactional(readOnly = true)
+    @LecturaCoalescida
+    public List<Map<String, Object>> buscarPorEmail(String email, List<String> campos) {
+        if (fragmentadas != null) {
+            return proyectar(buscarPorEmail(email), campos);
+        }
+        String normalizado = emailABuscar(email);
+        log.debug("Buscando personas con email: {} (campos {})", normalizado, campos);
+        return personaRepository.findCampos(EspecificacionesPersona.conEmailNormalizado(normalizado),
+                campos, Sort.by("id"), 0, 0);
+    }
+
+    @Transactional(readOnly = true)
+    @LecturaCoalescida
+    public List<Map<String, Object>> buscarPorTelefono(String telefono, List<String> campos) {
+        if (fragmentadas != null) {
+            return proyectar(buscarPorTelefono(telefono), campos);
+        }
+        String normalizado = telefonoABuscar(telefono);
+        log.debug("Buscando personas con teléfono: {} (campos {})", normalizado, campos);
+        return personaRepository.findCampos(EspecificacionesPersona.conTelefonoNormalizado(normalizado),
+                campos, Sort.by("id"), 0, 0);
+    }
+
+    private static String emailABuscar(String email) {
+        String normalizado = Persona.normalizarEmail(email);
+        if (normalizado == null) {
+            throw new IllegalArgumentException("Indique el email a buscar");
+        }
+        return normalizado;
+    }
+
+    private static String telefonoABuscar(String telefono) {
+        String normalizado = Persona.normalizarTelefono(telefono);
+        if (normalizado == null) {
+            throw new IllegalArgumentException("Indique un teléfono con al menos un dígito");
+        }
+        return normalizado;
+    }
+
+    /**
+     * Búsqueda combinada: todos los criterios presentes se aplican con AND en una sola consulta
+     *
+     * @param orden campo de ORDENAMIENTOS, opcionalmente seguido de ",asc" o ",desc"
+     */
+    @Transactional(readOnly = true)
+    @LecturaCoalescida
+    @LecturaEnCache
+    public Page<Persona> buscar(CriteriosBusqueda criterios, int pagina, int tamano, String orden) {
+        if (pagina < 0 || tamano < 1 || tamano > TAMANO_PAGINA_MAXIMO) {
+            throw new IllegalArgumentException("La página debe ser >= 0 y el tamaño entre 1 y " + TAMANO_PAGINA_MAXIMO);
+        }
+        log.debug("Buscando personas: {} (página {}, tamaño {}, orden {})", criterios, pagina, tamano, orden);
+        validar(criterios);
+        if (fragmentadas != null) {
+            return fragmentadas.buscar(criterios, PageRequest.of(pagina, tamano, ordenamiento(orden)));
+        }
+        return personaRepository.findAll(especificacion(criterios), PageRequest.of(pagina, tamano, ordenamiento(orden)));
+    }
+
+    // ========== PROYECCIONES (?fields=) ==========
+    // Las mismas consultas de listado, pero seleccionando solo las columnas pedidas:
+    // cada persona es un mapa campo → valor, sin entidades gestionadas
+
+    /**
+     * Interpretar la lista de campos de ?fields= (null si no se pide ninguna proyección)
+     */
+    public static List<String> camposProyeccion(String fields) {
+        if (fields == null || fields.trim().isEmpty()) {
+            return null;
+        }
+        Set<String> campos = new LinkedHashSet<>();
+        for (String campo : fields.split(",")) {
+            String limpio = campo.trim();
+            if (limpio.isEmpty()) {
+                continue;
+            }
+            if (!CAMPOS_PROYECTABLES.contains(limpio)) {
+                throw new IllegalArgumentException("Campo no permitido: '" + limpio + "'. Campos válidos: " + CAMPOS_PROYECTABLES);
+            }
+            campos.add(limpio);
+        }
+        if (campos.isEmpty()) {
+            throw new IllegalArgumentException("Indique al menos un campo. Campos válidos: " + CAMPOS_PROYECTABLES);
+        }
+        return new ArrayList<>(campos);
+    }
+
+    @Transactional(readOnly = true)
+    @LecturaCoalescida
+    public List<Map<String, Object>> obtenerTodas(List<String> campos) {
+        log.debug("Obteniendo todas las personas (campos {})", campos);
+        if (fragmentadas != null) {
+            return proyectar(obtenerTodas(), campos);
+        }
+        return personaRepository.findCampos(null, campos, Sort.by("nombre"), 0, 0);
+    }
+
+    @Transactional(readOnly = true)
+    @LecturaCoalescida
+    public List<Map<String, Object>> buscarPorTermino(String termino, List<String> campos) {
+        log.debug("Buscando personas con término: {} (campos {})", termino, campos);
+        if (fragmentadas != null) {
+            return proyectar(buscarPorTermino(termino), campos);
+        }
+        return personaRepository.findCampos(EspecificacionesPersona.nombreOApellidoContiene(termino),
+                campos, Sort.unsorted(), 0, 0);
+    }
+
+    @Transactional(readOnly = true)
+    @LecturaCoalescida
+    public List<Map<String, Object>> buscarPorRol(String rol, List<String> campos) {
+        log.debug("Buscando personas con rol: {} (campos {})", rol, campos);
+        if (fragmentadas != null) {
+            return proyectar(buscarPorRol(rol), campos);
+        }
+        return personaRepository.findCampos(EspecificacionesPersona.conRol(rol), campos, Sort.unsorted(), 0, 0);
+    }
+
+    @Transactional(readOnly = true)
+    @LecturaCoalescida
+    public List<Map<String, Object>> buscarPorSexo(Persona.Sexo sexo, List<String> campos) {
+        log.debug("Buscando personas con sexo: {} (campos {})", sexo, campos);
+        if (fragmentadas != null) {
+            return proyectar(buscarPorSexo(sexo), campos);
+        }
+        return personaRepository.findCampos(EspecificacionesPersona.conSexo(sexo), campos, Sort.unsorted(), 0, 0);
+    }
+
+    @Transactional(readOnly = true)
+    @LecturaCoalescida
+    @LecturaEnCache
+    public Page<Map<String, Object>> buscar(CriteriosBusqueda criterios, int pagina, int tamano, String orden,
+                                            List<String> campos) {
+        if (pagina < 0 || tamano < 1 || tamano > TAMANO_PAGINA_MAXIMO) {
+            throw new IllegalArgumentException("La página debe ser >= 0 y el tamaño entre 1 y " + TAMANO_PAGINA_MAXIMO);
+        }
+        log.debug("Buscando personas: {} (página {}, tamaño {}, orden {}, campos {})", criterios, pagina, tamano, orden, campos);
+        Specification<Persona> especificacion = especificacion(criterios);
+        PageRequest pageable = PageRequest.of(pagina, tamano, ordenamiento(orden));
+        if (fragmentadas != null) {
+            Page<Persona> personas = fragmentadas.buscar(criterios, pageable);
+            return new PageImpl<>(proyectar(personas.getContent(), campos), pageable, personas.getTotalElements());
+        }
+        List<Map<String, Object>> filas = personaRepository.findCampos(especificacion, campos, pageable.getSort(),
+                (int) pageable.getOffset(), tamano);
+        return PageableExecutionUtils.getPage(filas, pageable, () -> personaRepository.count(especificacion));
+    }
+
+    /**
+     * Conteos por rol, sexo, rango de edad, email y teléfono de las personas que cumplen los
+     * criterios; una sola consulta agregada, los rangos se arman en memoria
+     */
+    @Transactional(readOnly = true)
+    @LecturaCoalescida
+    @LecturaEnCache
+    public Facetas contarFacetas(CriteriosBusqueda criterios) {
+        log.debug("Contando facetas: {}", criterios);
+        validar(criterios);
+        // Sin término (LIKE) todos los criterios se pueden evaluar sobre la instantánea
+        InstantaneaPersonas analitica = instantaneaLista();
+        if (analitica != null && (criterios.getTermino() == null || criterios.getTermino().trim().isEmpty())) {
+            String rol = criterios.getRol() == null || criterios.getRol().isEmpty() ? null : criterios.getRol();
+            return Facetas.desde(analitica.contar(rol, criterios.getSexo(), criterios.getEdadMin(),
+                    criterios.getEdadMax(), criterios.getConEmail(), criterios.getConTelefono()));
+        }
+
+        Facetas facetas = new Facetas();
+        for (Object[] fila : contarCombinaciones(criterios)) {
+            long cantidad = ((Number) fila[5]).longValue();
+            facetas.sumar(facetas.rol, fila[0] != null ? (String) fila[0] : Facetas.SIN_VALOR, cantidad);
+            facetas.sumar(facetas.sexo, fila[1] != null ? ((Persona.Sexo) fila[1]).name() : Facetas.SIN_VALOR, cantidad);
+            facetas.sumar(facetas.rangoEdad, Facetas.rangoEdad((Integer) fila[2]), cantidad);
+            facetas.sumar(facetas.conEmail, String.valueOf(((Number) fila[3]).intValue() == 1), cantidad);
+            facetas.sumar(facetas.conTelefono, String.valueOf(((Number) fila[4]).intValue() == 1), cantidad);
+            facetas.total += cantidad;
+        }
+        return facetas;
+    }
+
+    /**
+     * Distribución de todas las personas por rol, sexo y edad (histograma de ancho anchoEdad años)
+     */
+    @Transactional(readOnly = true)
+    @LecturaCoalescida
+    public Distribucion obtenerDistribucion(int anchoEdad) {
+        if (anchoEdad < 1 || anchoEdad > 120) {
+            throw new IllegalArgumentException("El ancho del rango de edad debe estar entre 1 y 120");
+        }
+        InstantaneaPersonas analitica = instantaneaLista();
+        if (analitica != null) {
+            return Distribucion.desde(analitica.contarTodas(), anchoEdad, "instantanea");
+        }
+        // Sin instantánea: la misma información con la consulta agregada de las facetas
+        Map<String, Long> porRol = new LinkedHashMap<>();
+        long masculino = 0;
+        long femenino = 0;
+        long total = 0;
+        long[] porEdad = new long[122];
+        for (Object[] fila : contarCombinaciones(new CriteriosBusqueda())) {
+            long cantidad = ((Number) fila[5]).longValue();
+            porRol.merge(fila[0] != null && !((String) fila[0]).trim().isEmpty() ? (String) fila[0] : null, cantidad, Long::sum);
+            if (fila[1] == Persona.Sexo.M) {
+                masculino += cantidad;
+            } else if (fila[1] == Persona.Sexo.F) {
+                femenino += cantidad;
+            }
+            Integer edad = (Integer) fila[2];
+            porEdad[edad == null ? 121 : Math.max(0, Math.min(120, edad))] += cantidad;
+            total += cantidad;
+        }
+        return Distribucion.desde(new ConteoAnalitico(total, porRol, masculino, femenino, porEdad, 0, 0),
+                anchoEdad, "base de datos");
+    }
+
+    private List<Object[]> contarCombinaciones(CriteriosBusqueda criterios) {
+        Specification<Persona> especificacion = especificacion(criterios);
+        return fragmentadas != null ? fragmentadas.contarCombinaciones(criterios)
+                : personaRepository.contarCombinaciones(especificacion);
+    }
+
+    /**
+     * Proyección en memoria de personas ya leídas (con fragmentos no hay consulta por columnas)
+     */
+    private static List<Map<String, Object>> proyectar(List<Persona> personas, List<String> campos) {
+        List<Map<String, Object>> filas = new ArrayList<>(personas.size());
+        for (Persona persona : personas) {
+            Map<String, Object> fila = new LinkedHashMap<>();
+            for (String campo : campos) {
+                fila.put(campo, valorCampo(persona, campo));
+            }
+            filas.add(fila);
+        }
+        return filas;
+    }
+
+    private static Object valorCampo(Persona persona, String campo) {
+        switch (campo) {
+            case "id": return persona.getId();
+            case "nombre": return persona.getNombre();
+            case "apellido": return persona.getApellido();
+            case "cedula": return persona.getCedula();
+            case "telefono": return persona.getTelefono();
+            case "email": return persona.getEmail();
+            case "edad": return persona.getEdad();
+            case "sexo": return persona.getSexo();
+            case "rol": return persona.getRol();
+            case "secuenciaCambio": return persona.getSecuenciaCambio();
+            default: return persona.getActualizadoEn();
+        }
+    }
+
+    private InstantaneaPersonas instantaneaLista() {
+        InstantaneaPersonas analitica = instantanea.getIfAvailable();
+        return analitica != null && analitica.isLista() ? analitica : null;
+    }
+
+    /**
+     * Rechazar criterios incoherentes antes de consultar (también sin pasar por la especificación)
+     */
+    private static void validar(CriteriosBusqueda criterios) {
+        if (criterios.getEdadMin() != null && criterios.getEdadMax() != null
+                && criterios.getEdadMin() > criterios.getEdadMax()) {
+            throw new IllegalArgumentException("edadMin no puede ser mayor que edadMax");
+        }
+    }
+
+    /**
+     * Combinar con AND los criterios presentes (null si no hay ninguno)
+     */
+    static Specification<Persona> especificacion(CriteriosBusqueda criterios) {
+        validar(criterios);
+        List<Specification<Persona>> condiciones = new ArrayList<>();
+        if (criterios.getTermino() != null && !criterios.getTermino().trim().isEmpty()) {
+            condiciones.add(EspecificacionesPersona.nombreOApellidoContiene(criterios.getTermino()));
+        }
+        if (criterios.getRol() != null && !criterios.getRol().isEmpty()) {
+            condiciones.add(EspecificacionesPersona.conRol(criterios.getRol()));
+        }
+        if (criterios.getSexo() != null) {
+            condiciones.add(EspecificacionesPersona.conSexo(criterios.getSexo()));
+        }
+        if (criterios.getEdadMin() != null) {
+            condiciones.add(EspecificacionesPersona.edadDesde(criterios.getEdadMin()));
+        }
+        if (criterios.getEdadMax() != null) {
+            condiciones.add(EspecificacionesPersona.edadHasta(criterios.getEdadMax()));
+        }
+        if (criterios.getConEmail() != null) {
+            condiciones.add(EspecificacionesPersona.conEmail(criterios.getConEmail()));
+        }
+        if (criterios.getConTelefono() != null) {
+            condiciones.add(EspecificacionesPersona.conTelefono(criterios.getConTelefono()));
+        }
+        return condiciones.stream()
+                .reduce(Specification::and)
+                .orElse(null);
+    }
+
+    static Sort ordenamiento(String orden) {
+        if (orden == null || orden.trim().isEmpty()) {
+            return Sort.by(ORDENAMIENTOS.get("nombre"));
+        }
+        String[] partes = orden.trim().split(",");
+        String[] campos = ORDENAMIENTOS.get(partes[0].trim());
+        if (campos == null || partes.length > 2) {
+            throw new IllegalArgumentException("Orden no permitido: '" + orden + "'. Campos válidos: " + ORDENAMIENTOS.keySet());
+        }
+        Sort.Direction direccion = Sort.Direction.ASC;
+        if (partes.length == 2) {
+            direccion = Sort.Direction.fromOptionalString(partes[1].trim())
+                    .orElseThrow(() -> new IllegalArgumentException("Dirección de orden inválida: '" + partes[1] + "'"));
+        }
+        return Sort.by(direccion, campos);
+    }
+
+    /**
+     * Eliminar varias personas por ID con sentencias DELETE por bloques
+     * Se omiten los IDs inexistentes y las personas con usuario asociado
+     */
+    public ResultadoMasivo eliminarPorIds(Collection<Long> ids) {
+        sinFragmentos("La eliminación masiva");
+        List<Long> unicos = new ArrayList<>(new TreeSet<>(ids));
+        log.info("Eliminación masiva de {} personas por ID", unicos.size());
+        return eliminarEnBloques(unicos);
+    }
+
+    /**
+     * Eliminar las personas que cumplen el filtro (criterios nulos se ignoran, al menos uno obligatorio)
+     * Se omiten las personas con usuario asociado
+     */
+    public ResultadoMasivo eliminarPorFiltro(String rol, Persona.Sexo sexo, Integer edadMin, Integer edadMax) {
+        if (rol == null && sexo == null && edadMin == null && edadMax == null) {
+            throw new IllegalArgumentException("Indique al menos un criterio (rol, sexo, edadMin o edadMax)");
+        }
+        sinFragmentos("La eliminación masiva");
+        log.info("Eliminación masiva de personas con rol={}, sexo={}, edad entre {} y {}", rol, sexo, edadMin, edadMax);
+        return eliminarEnBloques(personaRepository.findIdsPorFiltro(rol, sexo, edadMin, edadMax));
+    }
+
+    /**
+     * Cambiar el rol de todas las personas con rolOrigen a rolDestino con sentencias UPDATE por bloques
+     */
+    public ResultadoMasivo reasignarRol(String rolOrigen, String rolDestino) {
+        if (rolOrigen == null || rolOrigen.trim().isEmpty() || rolDestino == null || rolDestino.trim().isEmpty()) {
+            throw new IllegalArgumentException("El rol de origen y el de destino son obligatorios");
+        }
+        if (rolDestino.length() > 50) {
+            throw new IllegalArgumentException("El rol no puede exceder 50 caracteres");
+        }
+        sinFragmentos("La reasignación de rol");
+        log.info("Reasignando rol '{}' a '{}'", rolOrigen, rolDestino);
+        if (rolOrigen.equals(rolDestino)) {
+            return new ResultadoMasivo(0, 0);
+        }
+
+        List<Long> ids = personaRepository.findIdsByRol(rolOrigen);
+        int actualizadas = 0;
+        for (List<Long> bloque : bloques(ids)) {
+            actualizadas += personaRepository.actualizarRolPorIds(bloque, rolOrigen, rolDestino);
+            // Releer el bloque ya actualizado para el flujo de cambios y la secuencia
+            for (Persona persona : personaRepository.findAllById(bloque)) {
+                if (rolDestino.equals(persona.getRol())) {
+                    registroCambios.personaGuardada(persona);
+                    auditoria.personaActualizada(persona.getId(), "rol", rolOrigen, rolDestino);
+                    eventos.publishEvent(PersonaCambiadaEvent.actualizada(persona));
+                }
+            }
+        }
+        log.info("Rol reasignado en {} personas", actualizadas);
+        return new ResultadoMasivo(actualizadas, ids.size() - actualizadas);
+    }
+
+    private ResultadoMasivo eliminarEnBloques(List<Long> ids) {
+        int eliminadas = 0;
+        for (List<Long> bloque : bloques(ids)) {
+            List<Long> eliminables = personaRepository.findIdsEliminables(bloque);
+            if (eliminables.isEmpty()) {
+                continue;
+            }
+            eliminadas += personaRepository.eliminarPorIds(eliminables);
+            for (Long id : eliminables) {
+                PersonaCambiadaEvent cambio = PersonaCambiadaEvent.eliminada(id);
+                registroCambios.personaEliminada(id, cambio::asignarSecuenciaEliminacion);
+                // Eliminadas sin cargarlas: consta la baja pero no los valores
+                auditoria.personaEliminada(id, null);
+                eventos.publishEvent(cambio);
+            }
+        }
+        log.info("Eliminadas {} personas, omitidas {}", eliminadas, ids.size() - eliminadas);
+        return new ResultadoMasivo(eliminadas, ids.size() - eliminadas);
+    }
+
+    /**
+     * Operaciones que dependen de la tabla persona de spring.datasource (JPQL masivo, secuencia de cambios)
+     */
+    private void sinFragmentos(String operacion) {
+        if (fragmentadas != null) {
+            throw new OperacionNoDisponibleException(operacion + " no está disponible con la fragmentación activa");
+        }
+    }
+
+    private static List<List<Long>> bloques(List<Long> ids) {
+        List<List<Long>> bloques = new ArrayList<>();
+        for (int desde = 0; desde < ids.size(); desde += TAMANO_BLOQUE) {
+            bloques.add(ids.subList(desde, Math.min(desde + TAMANO_BLOQUE, ids.size())));
+        }
+        return bloques;
+    }
+
+    /**
+     * Cambios de personas posteriores a la secuencia dada (sincronización incremental)
+     */
+    @Transactional(readOnly = true)
+    public PaginaCambios<Persona> obtenerCambios(long desde, int limite) {
+        sinFragmentos("El flujo de cambios");
+        log.debug("Obteniendo hasta {} cambios de personas desde la secuencia {}", limite, desde);
+        // Se pide uno más de cada lado para saber si queda algo después de la página
+        PageRequest pagina = PageRequest.of(0, limite + 1);
+        List<Persona> personas = personaRepository.findBySecuenciaCambioGreaterThanOrderBySecuenciaCambioAsc(desde, pagina);
+        return PaginaCambios.combinar(desde, limite, personas, Persona::getSecuenciaCambio, Persona::getId,
+                cambioEliminadoRepository.findByEntidadAndSecuenciaCambioGreaterThanOrderBySecuenciaCambioAsc(
+                        SecuenciaCambios.Entidad.PERSONA.getTabla(), desde, pagina));
     }
 
     /**
@@ -172,6 +809,11 @@ public class PersonaService {
     @Transactional
     public void limpiarDuplicados() {
         log.info("Limpiando datos duplicados...");
+        // Con fragmentos cada cédula va siempre al mismo fragmento, cuya restricción UNIQUE la protege
+        if (fragmentadas != null) {
+            log.info("No se encontraron duplicados");
+            return;
+        }
         
         List<Persona> todasLasPersonas = personaRepository.findAll();
         Set<String> cedulasVistas = new HashSet<>();
@@ -189,12 +831,232 @@ public class PersonaService {
         
         if (!personasAEliminar.isEmpty()) {
             personaRepository.deleteAll(personasAEliminar);
+            for (Persona persona : personasAEliminar) {
+                PersonaCambiadaEvent cambio = PersonaCambiadaEvent.eliminada(persona.getId());
+                registroCambios.personaEliminada(persona.getId(), cambio::asignarSecuenciaEliminacion);
+                auditoria.personaEliminada(persona.getId(), auditoria.campos(persona));
+                eventos.publishEvent(cambio);
+            }
             log.info("Eliminadas {} personas duplicadas", personasAEliminar.size());
         } else {
             log.info("No se encontraron duplicados");
         }
     }
 
+    /**
+     * Criterios de la búsqueda combinada (los nulos no se aplican)
+     */
+    public static class CriteriosBusqueda {
+        private String termino;
+        private String rol;
+        private Persona.Sexo sexo;
+        private Integer edadMin;
+        private Integer edadMax;
+        private Boolean conEmail;
+        private Boolean conTelefono;
+
+        // Getters y Setters
+        public String getTermino() { return termino; }
+        public void setTermino(String termino) { this.termino = termino; }
+
+        public String getRol() { return rol; }
+        public void setRol(String rol) { this.rol = rol; }
+
+        public Persona.Sexo getSexo() { return sexo; }
+        public void setSexo(Persona.Sexo sexo) { this.sexo = sexo; }
+
+        public Integer getEdadMin() { return edadMin; }
+        public void setEdadMin(Integer edadMin) { this.edadMin = edadMin; }
+
+        public Integer getEdadMax() { return edadMax; }
+        public void setEdadMax(Integer edadMax) { this.edadMax = edadMax; }
+
+        public Boolean getConEmail() { return conEmail; }
+        public void setConEmail(Boolean conEmail) { this.conEmail = conEmail; }
+
+        public Boolean getConTelefono() { return conTelefono; }
+        public void setConTelefono(Boolean conTelefono) { this.conTelefono = conTelefono; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CriteriosBusqueda)) {
+                return false;
+            }
+            CriteriosBusqueda otros = (CriteriosBusqueda) o;
+            return Objects.equals(termino, otros.termino) && Objects.equals(rol, otros.rol) && sexo == otros.sexo
+                    && Objects.equals(edadMin, otros.edadMin) && Objects.equals(edadMax, otros.edadMax)
+                    && Objects.equals(conEmail, otros.conEmail) && Objects.equals(conTelefono, otros.conTelefono);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(termino, rol, sexo, edadMin, edadMax, conEmail, conTelefono);
+        }
+
+        @Override
+        public String toString() {
+            return "termino=" + termino + ", rol=" + rol + ", sexo=" + sexo + ", edad=" + edadMin + "-" + edadMax
+                    + ", conEmail=" + conEmail + ", conTelefono=" + conTelefono;
+        }
+    }
+
+    /**
+     * Conteos por faceta de un conjunto de personas (claves en orden de aparición,
+     * los rangos de edad en orden ascendente)
+     */
+    public static class Facetas {
+        static final String SIN_VALOR = "sinValor";
+        private static final int[] LIMITES_EDAD = {18, 26, 36, 46, 56, 66};
+        private static final String[] RANGOS_EDAD = {"0-17", "18-25", "26-35", "36-45", "46-55", "56-65", "66+"};
+
+        private final Map<String, Long> rol = new LinkedHashMap<>();
+        private final Map<String, Long> sexo = new LinkedHashMap<>();
+        private final Map<String, Long> rangoEdad = new LinkedHashMap<>();
+        private final Map<String, Long> conEmail = new LinkedHashMap<>();
+        private final Map<String, Long> conTelefono = new LinkedHashMap<>();
+        private long total;
+
+        Facetas() {
+            for (String rango : RANGOS_EDAD) {
+                rangoEdad.put(rango, 0L);
+            }
+            for (String valor : new String[] {"true", "false"}) {
+                conEmail.put(valor, 0L);
+                conTelefono.put(valor, 0L);
+            }
+        }
+
+        static Facetas desde(ConteoAnalitico conteo) {
+            Facetas facetas = new Facetas();
+            conteo.getPorRol().forEach((rol, cantidad) ->
+                    facetas.sumar(facetas.rol, rol != null ? rol : SIN_VALOR, cantidad));
+            if (conteo.getMasculino() > 0) {
+                facetas.sumar(facetas.sexo, Persona.Sexo.M.name(), conteo.getMasculino());
+            }
+            if (conteo.getFemenino() > 0) {
+                facetas.sumar(facetas.sexo, Persona.Sexo.F.name(), conteo.getFemenino());
+            }
+            if (conteo.getSinSexo() > 0) {
+                facetas.sumar(facetas.sexo, SIN_VALOR, conteo.getSinSexo());
+            }
+            long[] porEdad = conteo.getPorEdad();
+            for (int edad = 0; edad < porEdad.length; edad++) {
+                if (porEdad[edad] > 0) {
+                    facetas.sumar(facetas.rangoEdad, rangoEdad(edad == porEdad.length - 1 ? null : edad), porEdad[edad]);
+                }
+            }
+            facetas.sumar(facetas.conEmail, "true", conteo.getConEmail());
+            facetas.sumar(facetas.conEmail, "false", conteo.getTotal() - conteo.getConEmail());
+            facetas.sumar(facetas.conTelefono, "true", conteo.getConTelefono());
+            facetas.sumar(facetas.conTelefono, "false", conteo.getTotal() - conteo.getConTelefono());
+            facetas.total = conteo.getTotal();
+            return facetas;
+        }
+
+        static String rangoEdad(Integer edad) {
+            if (edad == null) {
+                return SIN_VALOR;
+            }
+            int i = 0;
+            while (i < LIMITES_EDAD.length && edad >= LIMITES_EDAD[i]) {
+                i++;
+            }
+            return RANGOS_EDAD[i];
+        }
+
+        private void sumar(Map<String, Long> faceta, String clave, long cantidad) {
+            faceta.merge(clave, cantidad, Long::sum);
+        }
+
+        // Getters
+        public Map<String, Long> getRol() { return rol; }
+        public Map<String, Long> getSexo() { return sexo; }
+        public Map<String, Long> getRangoEdad() { return rangoEdad; }
+        public Map<String, Long> getConEmail() { return conEmail; }
+        public Map<String, Long> getConTelefono() { return conTelefono; }
+        public long getTotal() { return total; }
+    }
+
+    /**
+     * Distribución de las personas por rol, sexo y rango de edad
+     */
+    public static class Distribucion {
+        private final long total;
+        private final Map<String, Long> porRol = new LinkedHashMap<>();
+        private final Map<String, Long> porSexo = new LinkedHashMap<>();
+        private final Map<String, Long> histogramaEdad = new LinkedHashMap<>();
+        private final String fuente;
+
+        private Distribucion(long total, String fuente) {
+            this.total = total;
+            this.fuente = fuente;
+        }
+
+        static Distribucion desde(ConteoAnalitico conteo, int anchoEdad, String fuente) {
+            Distribucion distribucion = new Distribucion(conteo.getTotal(), fuente);
+            conteo.getPorRol().forEach((rol, cantidad) ->
+                    distribucion.porRol.put(rol != null ? rol : Facetas.SIN_VALOR, cantidad));
+            distribucion.porSexo.put(Persona.Sexo.M.name(), conteo.getMasculino());
+            distribucion.porSexo.put(Persona.Sexo.F.name(), conteo.getFemenino());
+            distribucion.porSexo.put(Facetas.SIN_VALOR, conteo.getSinSexo());
+            long[] porEdad = conteo.getPorEdad();
+            int ultimaEdad = porEdad.length - 2;
+            for (int desde = 0; desde <= ultimaEdad; desde += anchoEdad) {
+                int hasta = Math.min(desde + anchoEdad - 1, ultimaEdad);
+                long cantidad = 0;
+                for (int edad = desde; edad <= hasta; edad++) {
+                    cantidad += porEdad[edad];
+                }
+                distribucion.histogramaEdad.put(desde == hasta ? String.valueOf(desde) : desde + "-" + hasta, cantidad);
+            }
+            distribucion.histogramaEdad.put(Facetas.SIN_VALOR, porEdad[porEdad.length - 1]);
+            return distribucion;
+        }
+
+        // Getters
+        public long getTotal() { return total; }
+        public Map<String, Long> getPorRol() { return porRol; }
+        public Map<String, Long> getPorSexo() { return porSexo; }
+        public Map<String, Long> getHistogramaEdad() { return histogramaEdad; }
+        public String getFuente() { return fuente; }
+    }
+
+    /**
+     * Resultado de una obtención múltiple por ID
+     */
+    public static class PersonasPorIds {
+        private final List<Persona> personas;
+        private final List<Long> noEncontrados;
+
+        public PersonasPorIds(List<Persona> personas, List<Long> noEncontrados) {
+            this.personas = personas;
+            this.noEncontrados = noEncontrados;
+        }
+
+        // Getters
+        public List<Persona> getPersonas() { return personas; }
+        public List<Long> getNoEncontrados() { return noEncontrados; }
+    }
+
+    /**
+     * Resultado de una operación masiva
+     */
+    public static class ResultadoMasivo {
+        private final int afectadas;
+        private final int omitidas;
+
+        public ResultadoMasivo(int afectadas, int omitidas) {
+            this.afectadas = afectadas;
+            this.omitidas = omitidas;
+        }
+
+        public int getAfectadas() { return afectadas; }
+        public int getOmitidas() { return omitidas; }
+    }
+
     /**
      * Clase para encapsular estadísticas de personas
      */
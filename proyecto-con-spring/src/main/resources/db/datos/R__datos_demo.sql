@@ -0,0 +1,46 @@
+-- Datos de demostración: solo con los perfiles demo (el de por defecto) y dev
+-- Migración repetible e idempotente: cada INSERT se omite si el registro ya existe
+
+-- Insertar personas de prueba
+INSERT INTO persona (nombre, apellido, cedula, email, telefono, sexo, edad, rol)
+SELECT 'Juan', 'Pérez', '1234567890', 'juan.perez@email.com', '3001234567', 'M', 33, 'Cliente' FROM (SELECT 1 AS x) d
+WHERE NOT EXISTS (SELECT 1 FROM persona WHERE cedula = '1234567890');
+INSERT INTO persona (nombre, apellido, cedula, email, telefono, sexo, edad, rol)
+SELECT 'María', 'González', '0987654321', 'maria.gonzalez@email.com', '3109876543', 'F', 38, 'Cliente' FROM (SELECT 1 AS x) d
+WHERE NOT EXISTS (SELECT 1 FROM persona WHERE cedula = '0987654321');
+INSERT INTO persona (nombre, apellido, cedula, email, telefono, sexo, edad, rol)
+SELECT 'Carlos', 'Rodríguez', '1122334455', 'carlos.rodriguez@email.com', '3155551234', 'M', 31, 'Cliente' FROM (SELECT 1 AS x) d
+WHERE NOT EXISTS (SELECT 1 FROM persona WHERE cedula = '1122334455');
+INSERT INTO persona (nombre, apellido, cedula, email, telefono, sexo, edad, rol)
+SELECT 'Ana', 'López', '5566778899', 'ana.lopez@email.com', '3207778888', 'F', 35, 'Cliente' FROM (SELECT 1 AS x) d
+WHERE NOT EXISTS (SELECT 1 FROM persona WHERE cedula = '5566778899');
+INSERT INTO persona (nombre, apellido, cedula, email, telefono, sexo, edad, rol)
+SELECT 'Pedro', 'Martínez', '9988776655', 'pedro.martinez@email.com', '3009990000', 'M', 28, 'Cliente' FROM (SELECT 1 AS x) d
+WHERE NOT EXISTS (SELECT 1 FROM persona WHERE cedula = '9988776655');
+
+-- Insertar usuarios de prueba
+INSERT INTO usuario (id_persona, usuario, contrasena)
+SELECT id_persona, 'juan.perez', 'password123' FROM persona
+WHERE cedula = '1234567890' AND NOT EXISTS (SELECT 1 FROM usuario WHERE usuario = 'juan.perez');
+INSERT INTO usuario (id_persona, usuario, contrasena)
+SELECT id_persona, 'maria.gonzalez', 'password123' FROM persona
+WHERE cedula = '0987654321' AND NOT EXISTS (SELECT 1 FROM usuario WHERE usuario = 'maria.gonzalez');
+INSERT INTO usuario (id_persona, usuario, contrasena)
+SELECT id_persona, 'admin', 'admin123' FROM persona
+WHERE cedula = '1122334455' AND NOT EXISTS (SELECT 1 FROM usuario WHERE usuario = 'admin');
+
+-- Columnas de búsqueda por contacto de las filas insertadas arriba (ver V6)
+UPDATE persona SET email_normalizado = NULLIF(LOWER(TRIM(email)), '')
+WHERE email IS NOT NULL AND email_normalizado IS NULL;
+UPDATE persona SET telefono_normalizado = NULLIF(REGEXP_REPLACE(telefono, '[^0-9]', ''), '')
+WHERE telefono IS NOT NULL AND telefono_normalizado IS NULL;
+
+-- Numerar en la secuencia de cambios las filas insertadas arriba
+UPDATE persona SET secuencia_cambio = id_persona + (SELECT valor FROM secuencia_cambios WHERE nombre = 'cambios')
+WHERE secuencia_cambio = 0;
+UPDATE secuencia_cambios SET valor = (SELECT MAX(secuencia_cambio) FROM persona)
+WHERE nombre = 'cambios' AND valor < (SELECT MAX(secuencia_cambio) FROM persona);
+UPDATE usuario SET secuencia_cambio = id_usuario + (SELECT valor FROM secuencia_cambios WHERE nombre = 'cambios')
+WHERE secuencia_cambio = 0;
+UPDATE secuencia_cambios SET valor = (SELECT MAX(secuencia_cambio) FROM usuario)
+WHERE nombre = 'cambios' AND valor < (SELECT MAX(secuencia_cambio) FROM usuario);
@@ -0,0 +1,24 @@
+-- Esquema inicial del CRM
+-- Compatible con H2 y MySQL 8; equivale al que generaba Hibernate con ddl-auto
+
+CREATE TABLE persona (
+    id_persona BIGINT AUTO_INCREMENT PRIMARY KEY,
+    nombre     VARCHAR(100) NOT NULL,
+    apellido   VARCHAR(100) NOT NULL,
+    cedula     VARCHAR(20)  NOT NULL,
+    telefono   VARCHAR(20),
+    email      VARCHAR(100),
+    edad       INT,
+    sexo       VARCHAR(1),
+    rol        VARCHAR(50),
+    CONSTRAINT uk_persona_cedula UNIQUE (cedula)
+);
+
+CREATE TABLE usuario (
+    id_usuario BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id_persona BIGINT      NOT NULL,
+    usuario    VARCHAR(45) NOT NULL,
+    contrasena VARCHAR(45) NOT NULL,
+    CONSTRAINT uk_usuario_usuario UNIQUE (usuario),
+    CONSTRAINT fk_usuario_persona FOREIGN KEY (id_persona) REFERENCES persona (id_persona)
+);
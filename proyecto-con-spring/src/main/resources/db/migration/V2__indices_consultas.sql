@@ -0,0 +1,20 @@
+-- Índices secundarios elegidos a partir de las consultas de PersonaRepository y UsuarioRepository
+-- Ver database/PLANES-DE-CONSULTA.md para los planes antes y después de cada índice
+
+-- findByRol, countByRol (GROUP BY rol, cubierto por el índice)
+-- y filtros por rol ordenados por nombre
+CREATE INDEX idx_persona_rol_nombre ON persona (rol, nombre);
+
+-- findBySexo, countBySexo (cubierto) y filtros por sexo con rango de edad
+CREATE INDEX idx_persona_sexo_edad ON persona (sexo, edad);
+
+-- findByEdadBetween
+CREATE INDEX idx_persona_edad ON persona (edad);
+
+-- findAllByOrderByNombreAsc (recorrido ordenado sin ordenar en memoria)
+CREATE INDEX idx_persona_nombre_apellido ON persona (nombre, apellido);
+
+-- Búsquedas y ordenamiento por apellido
+CREATE INDEX idx_persona_apellido_nombre ON persona (apellido, nombre);
+
+-- findByPersonaId: lo resuelve el índice que H2 y MySQL crean para fk_usuario_persona
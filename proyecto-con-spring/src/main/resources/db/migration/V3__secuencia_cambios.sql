@@ -0,0 +1,33 @@
+-- Secuencia de cambios para la sincronización incremental (GET /personas/api/changes)
+-- Cada escritura recibe el siguiente valor de un contador global. El contador se
+-- incrementa al final de la transacción y queda bloqueado hasta el commit, así que los
+-- valores se hacen visibles en orden y un cliente nunca salta un cambio aún sin confirmar.
+
+CREATE TABLE secuencia_cambios (
+    nombre VARCHAR(30) PRIMARY KEY,
+    valor  BIGINT      NOT NULL
+);
+
+ALTER TABLE persona ADD COLUMN secuencia_cambio BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE persona ADD COLUMN actualizado_en TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+ALTER TABLE usuario ADD COLUMN secuencia_cambio BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE usuario ADD COLUMN actualizado_en TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+-- Lápidas: una fila por cada persona o usuario eliminado
+CREATE TABLE cambio_eliminado (
+    secuencia_cambio BIGINT      PRIMARY KEY,
+    entidad          VARCHAR(20) NOT NULL,
+    id_entidad       BIGINT      NOT NULL,
+    eliminado_en     TIMESTAMP   NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Numerar las filas existentes: primero las personas y luego los usuarios
+UPDATE persona SET secuencia_cambio = id_persona;
+UPDATE usuario SET secuencia_cambio = id_usuario + (SELECT COALESCE(MAX(id_persona), 0) FROM persona);
+INSERT INTO secuencia_cambios (nombre, valor)
+SELECT 'cambios', (SELECT COALESCE(MAX(id_persona), 0) FROM persona) + (SELECT COALESCE(MAX(id_usuario), 0) FROM usuario);
+
+-- Paginación por secuencia: WHERE secuencia_cambio > ? ORDER BY secuencia_cambio LIMIT ?
+CREATE INDEX idx_persona_secuencia ON persona (secuencia_cambio);
+CREATE INDEX idx_usuario_secuencia ON usuario (secuencia_cambio);
+CREATE INDEX idx_cambio_eliminado_entidad ON cambio_eliminado (entidad, secuencia_cambio);
@@ -0,0 +1,17 @@
+-- Índices para los ordenamientos de la búsqueda combinada (GET /personas/api/search)
+-- Cada ordenamiento termina en id_persona para que la paginación sea estable; con la
+-- columna en el índice H2 entrega las filas ya ordenadas en lugar de ordenar la tabla
+-- completa. En InnoDB el índice secundario ya incluye la clave primaria, así que el
+-- resultado es equivalente. Ver database/PLANES-DE-CONSULTA.md
+
+-- findAllByOrderByNombreAsc y búsqueda ordenada por nombre
+DROP INDEX idx_persona_nombre_apellido ON persona;
+CREATE INDEX idx_persona_nombre_apellido_id ON persona (nombre, apellido, id_persona);
+
+-- Búsqueda ordenada por apellido
+DROP INDEX idx_persona_apellido_nombre ON persona;
+CREATE INDEX idx_persona_apellido_nombre_id ON persona (apellido, nombre, id_persona);
+
+-- findByEdadBetween y búsqueda por rango u ordenada por edad
+DROP INDEX idx_persona_edad ON persona;
+CREATE INDEX idx_persona_edad_id ON persona (edad, id_persona);
@@ -0,0 +1,16 @@
+-- Registro de invalidaciones para las cachés en memoria de cada instancia
+-- Cada escritura con secuencia de cambios (ver V3) agrega una fila con los IDs afectados;
+-- las instancias la leen por secuencia cada pocos milisegundos y quitan esas entradas de
+-- sus cachés. La secuencia sale del mismo contador, así que también se hace visible en orden.
+-- ids: IDs separados por comas; NULL invalida todas las filas de la entidad (escrituras
+-- masivas, o cuando no se conocen los IDs)
+
+CREATE TABLE cambio_invalidacion (
+    secuencia  BIGINT        PRIMARY KEY,
+    entidad    VARCHAR(20)   NOT NULL,
+    ids        VARCHAR(2000),
+    creado_en  TIMESTAMP     NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Purga de las filas más antiguas que la retención
+CREATE INDEX idx_cambio_invalidacion_creado ON cambio_invalidacion (creado_en);
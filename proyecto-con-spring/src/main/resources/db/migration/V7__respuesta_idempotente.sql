@@ -0,0 +1,18 @@
+-- Claves de idempotencia compartidas entre instancias (gestioncrm.idempotencia.almacen=base-datos)
+-- clave: ruta y valor de la cabecera Idempotency-Key. La fila se inserta al empezar la
+-- petición (codigo NULL: en curso) y se completa con su respuesta; expira_en es el fin de la
+-- reserva mientras está en curso y el de la retención después.
+-- cuerpo: BLOB admite 64 KB en MySQL, por encima de gestioncrm.idempotencia.cuerpo-maximo
+
+CREATE TABLE respuesta_idempotente (
+    clave           VARCHAR(300)  PRIMARY KEY,
+    huella          CHAR(64)      NOT NULL,
+    codigo          INT,
+    tipo_contenido  VARCHAR(200),
+    ubicacion       VARCHAR(500),
+    cuerpo          BLOB,
+    expira_en       TIMESTAMP     NOT NULL
+);
+
+-- Purga de las filas expiradas
+CREATE INDEX idx_respuesta_idempotente_expira ON respuesta_idempotente (expira_en);
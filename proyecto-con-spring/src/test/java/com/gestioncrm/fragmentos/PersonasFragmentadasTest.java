@@ -0,0 +1,151 @@
+package com.gestioncrm.fragmentos;
+
+import com.gestioncrm.analitica.InstantaneaPersonas;
+import com.gestioncrm.model.Persona;
+import com.gestioncrm.repository.PersonaRepository;
+import com.gestioncrm.service.PersonaService;
+import com.gestioncrm.service.PersonaService.CriteriosBusqueda;
+import com.gestioncrm.service.PersonaService.Distribucion;
+import com.gestioncrm.service.PersonaService.EstadisticasPersonas;
+import com.gestioncrm.service.PersonaService.Facetas;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Los conteos de la fragmentación (facetas, distribución y estadísticas) deben coincidir con
+ * los de JPA sobre las mismas personas, incluidas las que no tienen rol, edad, sexo o contacto
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "spring.flyway.locations=classpath:db/migration")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PersonasFragmentadasTest {
+
+    private static final int FRAGMENTOS = 3;
+
+    @Autowired
+    private PersonaRepository personaRepository;
+
+    private PersonasFragmentadas fragmentadas;
+    private PersonaService conJpa;
+    private PersonaService conFragmentos;
+
+    @BeforeAll
+    void sembrar() {
+        List<DriverManagerDataSource> nodos = new ArrayList<>();
+        for (int i = 0; i < FRAGMENTOS; i++) {
+            String url = "jdbc:h2:mem:fragmentos-test-" + i + ";DB_CLOSE_DELAY=-1";
+            Flyway.configure().dataSource(url, "sa", "").locations("classpath:db/migration").load().migrate();
+            nodos.add(new DriverManagerDataSource(url, "sa", ""));
+        }
+        fragmentadas = new PersonasFragmentadas(nodos, new FragmentosProperties());
+
+        List<Persona> personas = Arrays.asList(
+                new Persona("Ana", "Ruiz", "10000001", "3001112233", "ana@correo.com", 34, Persona.Sexo.F, "Cliente"),
+                new Persona("Luis", "Mora", "10000002", null, "luis@correo.com", 17, Persona.Sexo.M, "Cliente"),
+                new Persona("Eva", "Sosa", "10000003", "3002223344", null, 70, Persona.Sexo.F, "Socio"),
+                // Sin rol, con edad: no debe contar como "sin edad"
+                new Persona("Iván", "Gil", "10000004", null, null, 45, Persona.Sexo.M, null),
+                new Persona("Sara", "León", "10000005", "3003334455", "sara@correo.com", 29, Persona.Sexo.F, null),
+                // Con rol, sin edad: no debe contar como edad 0
+                new Persona("Raúl", "Vega", "10000006", null, "raul@correo.com", null, Persona.Sexo.M, "Cliente"),
+                new Persona("Lía", "Paz", "10000007", "3004445566", null, null, null, "Socio"),
+                // Sin rol ni edad
+                new Persona("Noé", "Cruz", "10000008", null, null, null, null, null),
+                new Persona("Olga", "Ríos", "10000009", null, "", 52, Persona.Sexo.F, ""));
+        for (Persona persona : personas) {
+            personaRepository.saveAndFlush(persona);
+            fragmentadas.insertar(persona);
+        }
+
+        ObjectProvider<InstantaneaPersonas> sinInstantanea =
+                new DefaultListableBeanFactory().getBeanProvider(InstantaneaPersonas.class);
+        conJpa = servicio(sinInstantanea, new DefaultListableBeanFactory().getBeanProvider(PersonasFragmentadas.class));
+        DefaultListableBeanFactory conFragmentacion = new DefaultListableBeanFactory();
+        conFragmentacion.registerSingleton("personasFragmentadas", fragmentadas);
+        conFragmentos = servicio(sinInstantanea, conFragmentacion.getBeanProvider(PersonasFragmentadas.class));
+    }
+
+    @AfterAll
+    void cerrar() throws Exception {
+        fragmentadas.close();
+    }
+
+    @Test
+    void facetasSinCriterios() {
+        Facetas esperadas = conJpa.contarFacetas(new CriteriosBusqueda());
+        assertThat(esperadas.getRangoEdad()).containsEntry("sinValor", 3L).containsEntry("0-17", 1L);
+        assertThat(esperadas.getRol()).containsEntry("sinValor", 3L);
+        assertIguales(conFragmentos.contarFacetas(new CriteriosBusqueda()), esperadas);
+    }
+
+    @Test
+    void facetasConCriterios() {
+        CriteriosBusqueda criterios = new CriteriosBusqueda();
+        criterios.setSexo(Persona.Sexo.M);
+        assertIguales(conFragmentos.contarFacetas(criterios), conJpa.contarFacetas(criterios));
+
+        criterios = new CriteriosBusqueda();
+        criterios.setEdadMin(20);
+        criterios.setEdadMax(60);
+        assertIguales(conFragmentos.contarFacetas(criterios), conJpa.contarFacetas(criterios));
+    }
+
+    @Test
+    void distribucion() {
+        for (int ancho : new int[] {1, 10, 120}) {
+            Distribucion esperada = conJpa.obtenerDistribucion(ancho);
+            Distribucion obtenida = conFragmentos.obtenerDistribucion(ancho);
+            assertThat(obtenida.getTotal()).isEqualTo(esperada.getTotal());
+            assertThat(obtenida.getPorRol()).isEqualTo(esperada.getPorRol());
+            assertThat(obtenida.getPorSexo()).isEqualTo(esperada.getPorSexo());
+            assertThat(obtenida.getHistogramaEdad()).isEqualTo(esperada.getHistogramaEdad());
+        }
+        assertThat(conFragmentos.obtenerDistribucion(10).getHistogramaEdad())
+                .containsEntry("sinValor", 3L).containsEntry("0-9", 0L);
+    }
+
+    @Test
+    void estadisticas() {
+        EstadisticasPersonas esperadas = conJpa.obtenerEstadisticas();
+        EstadisticasPersonas obtenidas = conFragmentos.obtenerEstadisticas();
+        assertThat(obtenidas.getTotalPersonas()).isEqualTo(esperadas.getTotalPersonas()).isEqualTo(9);
+        assertThat(obtenidas.getPersonasConEmail()).isEqualTo(esperadas.getPersonasConEmail());
+        assertThat(obtenidas.getPersonasConTelefono()).isEqualTo(esperadas.getPersonasConTelefono());
+        assertThat(obtenidas.getPersonasConRol()).isEqualTo(esperadas.getPersonasConRol());
+    }
+
+    /**
+     * Solo se leen personas: lo que usan las escrituras (cambios, auditoría) no hace falta
+     */
+    private PersonaService servicio(ObjectProvider<InstantaneaPersonas> instantanea,
+                                    ObjectProvider<PersonasFragmentadas> fragmentos) {
+        return new PersonaService(personaRepository, evento -> { }, null, null, instantanea, null, fragmentos);
+    }
+
+    private static void assertIguales(Facetas obtenidas, Facetas esperadas) {
+        assertThat(obtenidas.getTotal()).isEqualTo(esperadas.getTotal());
+        assertThat(obtenidas.getRol()).isEqualTo(esperadas.getRol());
+        assertThat(obtenidas.getSexo()).isEqualTo(esperadas.getSexo());
+        assertThat(obtenidas.getRangoEdad()).isEqualTo(esperadas.getRangoEdad());
+        assertThat(obtenidas.getConEmail()).isEqualTo(esperadas.getConEmail());
+        assertThat(obtenidas.getConTelefono()).isEqualTo(esperadas.getConTelefono());
+    }
+}
@@ -0,0 +1,254 @@
+package com.gestioncrm.service;
+
+import com.gestioncrm.generador.GeneradorPersonas;
+import com.gestioncrm.model.Persona;
+import com.gestioncrm.repository.EspecificacionesPersona;
+import com.gestioncrm.repository.PersonaRepository;
+import com.gestioncrm.service.PersonaService.CriteriosBusqueda;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Comprueba los planes de database/PLANES-DE-CONSULTA.md (secciones V4 y V6): para cada
+ * combinación de filtros y orden de /personas/api/search, y para la búsqueda por contacto
+ * con fields, las sentencias que envía Hibernate se repiten con EXPLAIN (con los mismos
+ * parámetros) y se verifica el índice que elige H2 sobre 100.000 personas generadas y ANALYZE
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PlanesDeConsultaTest {
+
+    private static final int PERSONAS = 100_000;
+    private static final int TAMANO_PAGINA = 20;
+
+    @Autowired
+    private PersonaRepository personaRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @TestConfiguration
+    static class Configuracion {
+
+        @Bean
+        static BeanPostProcessor registrarSentencias() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String nombre) {
+                    return bean instanceof DataSource ? registrando(bean) : bean;
+                }
+            };
+        }
+    }
+
+    @BeforeAll
+    void generarDatos() throws Exception {
+        GeneradorPersonas.Opciones opciones = new GeneradorPersonas.Opciones();
+        opciones.setPersonas(PERSONAS);
+        new GeneradorPersonas(dataSource).generar(opciones);
+        try (Connection conexion = dataSource.getConnection(); Statement sentencia = conexion.createStatement()) {
+            sentencia.execute("ANALYZE");
+        }
+    }
+
+    @Test
+    void sinCriteriosOrdenNombre() {
+        assertThat(planes(new CriteriosBusqueda(), 0, "nombre").get(0))
+                .contains("/* PUBLIC.IDX_PERSONA_NOMBRE_APELLIDO_ID */")
+                .contains("/* index sorted */");
+    }
+
+    @Test
+    void sinCriteriosOrdenApellidoPagina100() {
+        assertThat(planes(new CriteriosBusqueda(), 100, "apellido").get(0))
+                .contains("/* PUBLIC.IDX_PERSONA_APELLIDO_NOMBRE_ID */")
+                .contains("/* index sorted */");
+    }
+
+    @Test
+    void rolOrdenNombre() {
+        CriteriosBusqueda criterios = new CriteriosBusqueda();
+        criterios.setRol("Socio");
+        assertThat(planes(criterios, 0, "nombre").get(0))
+                .contains("/* PUBLIC.IDX_PERSONA_ROL_NOMBRE: ROL = ?1 */");
+    }
+
+    @Test
+    void rolSexoRangoDeEdadOrdenEdadDescendente() {
+        CriteriosBusqueda criterios = new CriteriosBusqueda();
+        criterios.setRol("Cliente");
+        criterios.setSexo(Persona.Sexo.F);
+        criterios.setEdadMin(30);
+        criterios.setEdadMax(35);
+        assertThat(planes(criterios, 0, "edad,desc").get(0))
+                .contains("/* PUBLIC.IDX_PERSONA_SEXO_EDAD: EDAD >= 30")
+                .contains("SEXO = ?");
+    }
+
+    @Test
+    void rangoDeEdadConTelefonoOrdenEdad() {
+        CriteriosBusqueda criterios = new CriteriosBusqueda();
+        criterios.setEdadMin(30);
+        criterios.setEdadMax(32);
+        criterios.setConTelefono(true);
+        assertThat(planes(criterios, 0, "edad").get(0))
+                .contains("/* PUBLIC.IDX_PERSONA_EDAD_ID: EDAD >= 30")
+                .contains("/* index sorted */");
+    }
+
+    @Test
+    void terminoSinEmailOrdenNombreYConteo() {
+        CriteriosBusqueda criterios = new CriteriosBusqueda();
+        criterios.setTermino("gar");
+        criterios.setConEmail(false);
+        List<String> planes = planes(criterios, 0, "nombre");
+        assertThat(planes.get(0))
+                .contains("/* PUBLIC.IDX_PERSONA_NOMBRE_APELLIDO_ID */")
+                .contains("/* index sorted */");
+        // El conteo total de la página lee toda la tabla: LIKE '%...%' no usa índices
+        assertThat(planes).hasSize(2);
+        assertThat(planes.get(1)).contains("/* PUBLIC.PERSONA.tableScan */");
+    }
+
+    @Test
+    void porEmailConCampos() {
+        List<String> planes = planesDe(() -> personaRepository.findCampos(
+                EspecificacionesPersona.conEmailNormalizado("sara.valencia998@gmail.com"),
+                Arrays.asList("id", "nombre", "email"), Sort.by("id"), 0, 0));
+        assertThat(planes.get(0))
+                .contains("/* PUBLIC.IDX_PERSONA_EMAIL_NORMALIZADO: EMAIL_NORMALIZADO = ?1 */");
+    }
+
+    @Test
+    void porTelefonoConCampos() {
+        List<String> planes = planesDe(() -> personaRepository.findCampos(
+                EspecificacionesPersona.conTelefonoNormalizado("3004659574"),
+                Arrays.asList("id", "nombre", "telefono"), Sort.by("id"), 0, 0));
+        assertThat(planes.get(0))
+                .contains("/* PUBLIC.IDX_PERSONA_TELEFONO_NORMALIZADO: TELEFONO_NORMALIZADO = ?1 */");
+    }
+
+    /**
+     * Ejecutar la búsqueda como /search y devolver el EXPLAIN de cada consulta
+     * (la de la página y, si la hubo, la del conteo total)
+     */
+    private List<String> planes(CriteriosBusqueda criterios, int pagina, String orden) {
+        return planesDe(() -> personaRepository.findAll(PersonaService.especificacion(criterios),
+                PageRequest.of(pagina, TAMANO_PAGINA, PersonaService.ordenamiento(orden))));
+    }
+
+    /**
+     * Ejecutar la consulta y devolver el EXPLAIN de cada sentencia que envió
+     */
+    private List<String> planesDe(Runnable consulta) {
+        SENTENCIAS.clear();
+        consulta.run();
+        List<String> planes = new ArrayList<>();
+        try (Connection conexion = dataSource.getConnection()) {
+            for (Sentencia ejecutada : new ArrayList<>(SENTENCIAS)) {
+                try (PreparedStatement explain = conexion.prepareStatement("EXPLAIN " + ejecutada.sql)) {
+                    for (Parametro parametro : ejecutada.parametros) {
+                        parametro.metodo.invoke(explain, parametro.argumentos);
+                    }
+                    try (ResultSet plan = explain.executeQuery()) {
+                        plan.next();
+                        planes.add(plan.getString(1));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("No se pudo obtener el plan", e);
+        }
+        return planes;
+    }
+
+    // ========== REGISTRO DE SENTENCIAS ==========
+    // Proxies del DataSource, las conexiones y las sentencias preparadas que guardan el SQL
+    // de cada consulta y las llamadas set*() con que se le asignaron los parámetros
+
+    private static final List<Sentencia> SENTENCIAS = Collections.synchronizedList(new ArrayList<>());
+
+    private static final class Sentencia {
+        private final String sql;
+        private final List<Parametro> parametros = new ArrayList<>();
+
+        Sentencia(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    private static final class Parametro {
+        private final Method metodo;
+        private final Object[] argumentos;
+
+        Parametro(Method metodo, Object[] argumentos) {
+            this.metodo = metodo;
+            this.argumentos = argumentos;
+        }
+    }
+
+    private static Object registrando(Object dataSource) {
+        return proxy(dataSource, (metodo, argumentos, resultado) -> resultado instanceof Connection
+                ? proxy(resultado, (metodoConexion, argumentosConexion, sentencia) ->
+                        sentencia instanceof PreparedStatement && metodoConexion.getName().equals("prepareStatement")
+                                ? sentenciaRegistrada((PreparedStatement) sentencia, (String) argumentosConexion[0])
+                                : sentencia)
+                : resultado);
+    }
+
+    private static Object sentenciaRegistrada(PreparedStatement sentencia, String sql) {
+        Sentencia registro = new Sentencia(sql);
+        return proxy(sentencia, (metodo, argumentos, resultado) -> {
+            if (metodo.getName().startsWith("set") && argumentos != null && argumentos.length >= 2
+                    && argumentos[0] instanceof Integer) {
+                registro.parametros.add(new Parametro(metodo, argumentos));
+            } else if (metodo.getName().equals("executeQuery")) {
+                SENTENCIAS.add(registro);
+            }
+            return resultado;
+        });
+    }
+
+    private interface Envoltura {
+        Object envolver(Method metodo, Object[] argumentos, Object resultado);
+    }
+
+    private static Object proxy(Object objetivo, Envoltura envoltura) {
+        return Proxy.newProxyInstance(objetivo.getClass().getClassLoader(),
+                ClassUtils.getAllInterfacesForClass(objetivo.getClass()),
+                (proxy, metodo, argumentos) -> {
+                    try {
+                        return envoltura.envolver(metodo, argumentos, metodo.invoke(objetivo, argumentos));
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+}